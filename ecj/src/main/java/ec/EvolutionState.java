@@ -96,6 +96,14 @@ import java.io.*;
  <tr><td valign=top><tt>checkpoint-directory</tt><br>
  <font size=-1>File (default is empty)</td>
  <td valign=top>(directory where the checkpoint files should be located)</td></tr>
+
+ <tr><td valign=top><tt>checkpoint-async</tt><br>
+ <font size=-1>bool = <tt>true</tt> or <tt>false</tt> (default)</td>
+ <td valign=top>(should checkpoints be written in the background in ECJ's compact binary format?  See ec.util.Checkpoint)</td></tr>
+
+ <tr><td valign=top><tt>checkpoint-base-modulo</tt><br>
+ <font size=-1>int &gt;= 1 (default is 1)</font></td>
+ <td valign=top>(if greater than 1, checkpoints are written in the binary format, and only one in this many is a full checkpoint: the others are deltas against the checkpoint before them.  See ec.util.DeltaCheckpoint)</td></tr>
  
  <tr><td valign=top><tt>quit-on-run-complete</tt><br>
  <font size=-1>bool = <tt>true</tt> or <tt>false</tt> (default)</td>
@@ -190,6 +198,18 @@ public class EvolutionState implements Singleton
     /** The requested number of generations that should pass before we write out a checkpoint file. */
     public int checkpointModulo;
 
+    /** Should checkpoints be snapshotted and then written out in the background, in the binary format, rather than serialized in full while the run waits? */
+    public boolean checkpointAsync;
+
+    /** The thread writing out the most recent asynchronous checkpoint, or null.  Don't modify this yourself: see ec.util.Checkpoint. */
+    public transient Thread checkpointWriter;
+
+    /** How many checkpoints make up a chain of delta checkpoints, starting with a full one.  If 1, there are no deltas. */
+    public int checkpointBaseModulo;
+
+    /** The chain of delta checkpoints being written, or null.  Don't modify this yourself: see ec.util.DeltaCheckpoint. */
+    public transient DeltaCheckpoint checkpointChain;
+
     /** An amount to add to each random number generator seed to "offset" it -- often this is simply the job number.  
         If you are using more random number generators
         internally than the ones initially created for you in the EvolutionState, you might want to create them with the seed
@@ -276,6 +296,8 @@ public class EvolutionState implements Singleton
     public final static String P_CHECKPOINTMODULO = "checkpoint-modulo";
     public final static String P_CHECKPOINTDIRECTORY = "checkpoint-directory";
     public final static String P_CHECKPOINT = "checkpoint";
+    public final static String P_CHECKPOINTASYNC = "checkpoint-async";
+    public final static String P_CHECKPOINTBASEMODULO = "checkpoint-base-modulo";
     public final static String P_INNOVATIONNUMBER = "innovation-number";
     final static String P_CHECKPOINTPREFIX_OLD = "prefix";
 
@@ -350,6 +372,14 @@ public class EvolutionState implements Singleton
                 output.fatal("The checkpoint directory location is not a directory: " + checkpointDirectory, p);
             }
         else checkpointDirectory = null;
+
+        p = new Parameter(P_CHECKPOINTASYNC);
+        checkpointAsync = parameters.getBoolean(p,null,false);
+
+        p = new Parameter(P_CHECKPOINTBASEMODULO);
+        checkpointBaseModulo = parameters.getIntWithDefault(p,null,1);
+        if (checkpointBaseModulo < 1)
+            output.fatal("The checkpoint base modulo must be an integer >0.",p);
             
         p = new Parameter(P_EVALUATIONS);
         if (parameters.exists(p, null))
@@ -483,5 +513,6 @@ public class EvolutionState implements Singleton
             }
         
         finish(result);
+        Checkpoint.finishCheckpoint(this);
         }
     }
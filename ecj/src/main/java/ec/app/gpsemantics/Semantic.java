@@ -11,6 +11,7 @@ import ec.app.gpsemantics.func.*;
 import ec.util.*;
 import ec.*;
 import ec.gp.*;
+import ec.gp.batch.*;
 import ec.gp.koza.*;
 import ec.simple.*;
 
@@ -30,6 +31,21 @@ import java.util.ArrayList;
  <tr><td valign=top><i>base</i>.<tt>data</tt><br>
  <font size=-1>classname, inherits or == ec.gp.gpdata</font></td>
  <td valign=top>(the class for the prototypical GPData object)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>problem_name</tt><br>
+ <font size=-1>String, Order or Majority (default = Order)</font></td>
+ <td valign=top>(the problem)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>batch</tt><br>
+ <font size=-1>boolean (default = false)</font></td>
+ <td valign=top>(should trees be evaluated compositionally with evalBatch(...), rather than by traversing their terminals?  See below)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>semantic-cache</tt><br>
+ <font size=-1>boolean (default = false)</font></td>
+ <td valign=top>(when evaluating with evalBatch(...), should the semantics of subtrees be remembered?  See ec.gp.batch.SemanticCache)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>semantic-cache-memory</tt><br>
+ <font size=-1>int >= 1 (default = 1/8 of the maximum heap)</font></td>
+ <td valign=top>(the maximum number of megabytes taken up by the remembered semantics)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>semantic-cache-min-size</tt><br>
+ <font size=-1>int >= 1 (default = 2)</font></td>
+ <td valign=top>(the minimum number of nodes in a subtree whose semantics are remembered)</td></tr>
  </table>
 
  <p><b>Parameter bases</b><br>
@@ -44,6 +60,15 @@ import java.util.ArrayList;
  * when Xi occurs before Ni, in an inorder traversal. For Majority,
  * fitness is 1 for every time when Xi occurs more often than Ni.
  *
+ * <p>Both problems can also be evaluated compositionally, treating each index as a fitness
+ * case, so that the nodes can be evaluated with evalBatch(...) and their subtrees' semantics
+ * remembered in a SemanticCache.  Each subtree's column holds, for Order, 1 if Xi is expressed
+ * first for index i, -1 if Ni is, and 0 if neither occurs; and for Majority, the number of
+ * times Xi occurs, followed by the number of times Ni occurs, for each index i.  J joins the
+ * columns of its two children: for Order by taking the left child's value unless it's 0, and for
+ * Majority by adding them.  The fitness is the same either way, but the terminals' indices must
+ * be less than the problem size.
+ *
  * @author James McDermott
  * @version 1.0
  */
@@ -55,9 +80,25 @@ public class Semantic extends GPProblem implements SimpleProblemForm
     final static String P_SIZE = "size";
     final static String P_ORDER = "Order";
     final static String P_MAJORITY = "Majority";
+    final static String P_BATCH = "batch";
+    final static String P_SEMANTIC_CACHE = "semantic-cache";
+    final static String P_SEMANTIC_CACHE_MEMORY = "semantic-cache-memory";
+    final static String P_SEMANTIC_CACHE_MIN_SIZE = "semantic-cache-min-size";
 
     String problemName;
     int problemSize;
+    boolean order;
+
+    // if we're evaluating compositionally, our batch GPData (which is deep-cloned)
+    DoubleBatchData batchInput;
+
+    public Object clone()
+        {
+        Semantic prob = (Semantic)(super.clone());
+        if (batchInput != null)
+            prob.batchInput = (DoubleBatchData)(batchInput.clone());
+        return prob;
+        }
     
     public void setup(final EvolutionState state,
         final Parameter base)
@@ -72,6 +113,24 @@ public class Semantic extends GPProblem implements SimpleProblemForm
             state.output.error("The problem name is unrecognized",
                 base.push(P_PROBLEM_NAME));
 
+        order = problemName.equals(P_ORDER);
+
+        if (state.parameters.getBoolean(base.push(P_BATCH), null, false))
+            {
+            batchInput = new DoubleBatchData();
+            if (state.parameters.getBoolean(base.push(P_SEMANTIC_CACHE), null, false))
+                {
+                long memory = state.parameters.getIntWithDefault(base.push(P_SEMANTIC_CACHE_MEMORY), null,
+                    (int)(Runtime.getRuntime().maxMemory() / 8 / (1024 * 1024)));
+                if (memory < 1)
+                    state.output.fatal("Semantic cache memory must be an integer >= 1", base.push(P_SEMANTIC_CACHE_MEMORY), null);
+                int minSize = state.parameters.getIntWithDefault(base.push(P_SEMANTIC_CACHE_MIN_SIZE), null, 2);
+                if (minSize < 1)
+                    state.output.fatal("Semantic cache minimum size must be an integer >= 1", base.push(P_SEMANTIC_CACHE_MIN_SIZE), null);
+                batchInput.cache = new SemanticCache(memory * 1024 * 1024, minSize);
+                }
+            }
+
         state.output.message("Problem name " + problemName);
         state.output.message("Problem size " + problemSize);
         state.output.exitIfErrors();
@@ -86,15 +145,33 @@ public class Semantic extends GPProblem implements SimpleProblemForm
             {
             // trees[0].child is the root
                 
-            ArrayList output = getSemanticOutput(((GPIndividual) ind).trees[0]);
-                
             double score = 0.0;
-            for (int i = 0; i < output.size(); i++)
+            if (batchInput != null)
                 {
-                SemanticNode n = (SemanticNode) output.get(i);
-                if (n.value() == 'X')
+                DoubleBatchData d = batchInput;
+                d.setLength(order ? problemSize : problemSize * 2);
+                d.setTree(((GPIndividual) ind).trees[0].child);
+                d.evalTree(0, state, threadnum, stack, (GPIndividual) ind, this);
+                d.setTree(null);
+                for (int i = 0; i < problemSize; i++)
                     {
-                    score += 1;
+                    if (order ? d.x[i] > 0 : d.x[i] >= d.x[problemSize + i] && d.x[i] > 0)
+                        {
+                        score += 1;
+                        }
+                    }
+                }
+            else
+                {
+                ArrayList output = getSemanticOutput(((GPIndividual) ind).trees[0]);
+                
+                for (int i = 0; i < output.size(); i++)
+                    {
+                    SemanticNode n = (SemanticNode) output.get(i);
+                    if (n.value() == 'X')
+                        {
+                        score += 1;
+                        }
                     }
                 }
 
@@ -104,6 +181,45 @@ public class Semantic extends GPProblem implements SimpleProblemForm
             }
         }
 
+    /**
+     * Sets the first d.length elements of d.x to the semantics of the given terminal.
+     */
+    public void express(SemanticNode terminal, DoubleBatchData d)
+        {
+        double[] x = d.x;
+        for (int i = 0; i < d.length; i++)
+            {
+            x[i] = 0.0;
+            }
+        if (order)
+            {
+            x[terminal.index()] = (terminal.value() == 'X' ? 1.0 : -1.0);
+            }
+        else
+            {
+            x[terminal.index() + (terminal.value() == 'X' ? 0 : problemSize)] = 1.0;
+            }
+        }
+
+    /**
+     * Joins the semantics x of a subtree with the semantics y of the
+     * subtree to its right, leaving the result in x.
+     */
+    public void join(double[] x, double[] y, int length)
+        {
+        for (int i = 0; i < length; i++)
+            {
+            if (order)
+                {
+                if (x[i] == 0.0) x[i] = y[i];
+                }
+            else
+                {
+                x[i] += y[i];
+                }
+            }
+        }
+
     /**
      * @param t Tree to be "executed"
      * @return expressed output
@@ -195,6 +311,13 @@ public class Semantic extends GPProblem implements SimpleProblemForm
         return retval;
         }
 
+    public void closeContacts(EvolutionState state, int result)
+        {
+        super.closeContacts(state, result);
+        if (batchInput != null && batchInput.cache != null)
+            state.output.message(batchInput.cache.toString());
+        }
+
     // In one paper, there is a parameter for scaling, ie the fitness
     // contribution of each Xi can be uniform, or linearly or
     // exponentially scaled. We don't do that in this version.
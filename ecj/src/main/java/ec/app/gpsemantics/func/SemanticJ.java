@@ -8,6 +8,8 @@ package ec.app.gpsemantics.func;
 import ec.*;
 import ec.gp.*;
 import ec.util.*;
+import ec.gp.batch.*;
+import ec.app.gpsemantics.*;
 
 /*
  * SemanticJ.java
@@ -25,4 +27,22 @@ public class SemanticJ extends SemanticNode
 
     public int index() { return -1; }
     public char value() { return 'J'; }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        d.eval(children[0],state,thread,stack,individual,problem);
+        double[] x = d.x;
+        d.x = d.pop();
+        d.eval(children[1],state,thread,stack,individual,problem);
+        double[] y = d.x;
+        ((Semantic)problem).join(x, y, d.length);
+        d.push(y);
+        d.x = x;
+        }
     }
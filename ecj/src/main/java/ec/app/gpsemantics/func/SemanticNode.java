@@ -9,6 +9,8 @@ package ec.app.gpsemantics.func;
 import ec.*;
 import ec.gp.*;
 import ec.util.*;
+import ec.gp.batch.*;
+import ec.app.gpsemantics.*;
 
 /*
  * SemanticNode.java
@@ -19,7 +21,7 @@ import ec.util.*;
  * @author James McDermott
  */
 
-public abstract class SemanticNode extends GPNode
+public abstract class SemanticNode extends GPNode implements BatchNode
     {
     public String toString() { return (("" + value()) + index()); }
 
@@ -36,4 +38,15 @@ public abstract class SemanticNode extends GPNode
         {
         // No need to evaluate or look at children.
         }
+
+    // Expresses just this terminal: J overrides this
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        ((Semantic)problem).express(this, (DoubleBatchData)input);
+        }
     }
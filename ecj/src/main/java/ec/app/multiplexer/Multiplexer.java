@@ -9,6 +9,7 @@ package ec.app.multiplexer;
 import ec.util.*;
 import ec.*;
 import ec.gp.*;
+import ec.gp.batch.*;
 import ec.gp.koza.*;
 import ec.simple.*;
 
@@ -30,6 +31,9 @@ import ec.simple.*;
  <tr><td valign=top><i>base</i>.<tt>bits</tt><br>
  <font size=-1>1, 2, or 3</font></td>
  <td valign=top>(The number of address bits (1 == 3-multiplexer, 2 == 6-multiplexer, 3==11-multiplexer)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>batch</tt><br>
+ <font size=-1>boolean (default = false)</font></td>
+ <td valign=top>(should trees be evaluated with evalBatch(...) and a BitBatchData rather than with eval(...) and a MultiplexerData?  See ec.gp.batch.BatchNode)</td></tr>
  </table>
 
  <p><b>Parameter bases</b><br>
@@ -48,9 +52,23 @@ public class Multiplexer extends GPProblem implements SimpleProblemForm
 
     public static final int NUMINPUTS = 20;
     public static final String P_NUMBITS = "bits";
+    public static final String P_BATCH = "batch";
 
     public int bits;  // number of bits in the data
 
+    // if we're evaluating in batches, our batch GPData (which is deep-cloned), and
+    // the columns of Fast's bitfields for each variable, as longs (read-only)
+    public BitBatchData batchInput;
+    public long[][] batchColumns;
+
+    public Object clone()
+        {
+        Multiplexer prob = (Multiplexer)(super.clone());
+        if (batchInput != null)
+            prob.batchInput = (BitBatchData)(batchInput.clone());
+        return prob;
+        }
+
     public void setup(final EvolutionState state,
         final Parameter base)
         {
@@ -69,6 +87,34 @@ public class Multiplexer extends GPProblem implements SimpleProblemForm
         bits = state.parameters.getIntWithMax(base.push(P_NUMBITS),null,1,3);
         if (bits<1)
             state.output.fatal("The number of bits for Multiplexer must be between 1 and 3 inclusive");
+
+        if (state.parameters.getBoolean(base.push(P_BATCH), null, false))
+            {
+            // one long holds all 8 fitness cases of the 3-multiplexer, or all 64 of the 6-multiplexer,
+            // and 32 longs hold all 2048 of the 11-multiplexer, just as in MultiplexerData
+            batchInput = new BitBatchData();
+            batchInput.setLength(bits == 3 ? MultiplexerData.MULTI_11_NUM_BITSTRINGS : 1);
+            if (bits == 1)
+                {
+                batchColumns = new long[Fast.M_3.length][1];
+                for(int i = 0; i < batchColumns.length; i++)
+                    batchColumns[i][0] = Fast.M_3[i] & 0xFFL;
+                }
+            else if (bits == 2)
+                {
+                batchColumns = new long[Fast.M_6.length][1];
+                for(int i = 0; i < batchColumns.length; i++)
+                    batchColumns[i][0] = Fast.M_6[i];
+                }
+            else batchColumns = Fast.M_11;
+            }
+        }
+
+    /** Copies the bits of the given variable (an index into Fast's tables) into the column of the
+        given BitBatchData.  Used by the An and Dn nodes' evalBatch(...). */
+    public void inputBits(int variable, BitBatchData d)
+        {
+        System.arraycopy(batchColumns[variable], 0, d.x, 0, d.length);
         }
 
 
@@ -80,6 +126,24 @@ public class Multiplexer extends GPProblem implements SimpleProblemForm
         if (!ind.evaluated)  // don't bother reevaluating
             {
             MultiplexerData input = (MultiplexerData)(this.input);
+            GPNode root = ((GPIndividual)ind).trees[0].child;
+
+            if (batchInput != null && root.numNodes(BatchNode.NON_BATCH_NODES) == 0)
+                {
+                ((BatchNode)root).evalBatch(state,threadnum,batchInput,stack,((GPIndividual)ind),this);
+                long[] expected = batchColumns[bits == 1 ? Fast.M_3_OUTPUT : (bits == 2 ? Fast.M_6_OUTPUT : Fast.M_11_OUTPUT)];
+                long valid = (bits == 1 ? 0xFFL : -1L);
+                int sum = 0;
+                for(int i = 0; i < batchInput.length; i++)
+                    sum += Long.bitCount(~(batchInput.x[i] ^ expected[i]) & valid);
+                
+                KozaFitness f = ((KozaFitness)ind.fitness);
+                f.setStandardizedFitness(state, (bits == 1 ? Fast.M_3_SIZE : (bits == 2 ? Fast.M_6_SIZE : Fast.M_11_SIZE)) - sum);
+                f.hits = sum;
+                ind.evaluated = true;
+                return;
+                }
+
         
             input.status = (byte)bits;
 
@@ -9,6 +9,7 @@ package ec.app.multiplexer.func;
 import ec.*;
 import ec.app.multiplexer.*;
 import ec.gp.*;
+import ec.gp.batch.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +24,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class A0 extends GPNode
+public class A0 extends GPNode implements BatchNode
     {
     final static int bitpos = 0;  /* A0 */
 
@@ -62,6 +63,17 @@ public class A0 extends GPNode
                 md.dat_11,0,
                 MultiplexerData.MULTI_11_NUM_BITSTRINGS);
         }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        BitBatchData d = (BitBatchData)input;
+        ((Multiplexer)problem).inputBits(bitpos, d);
+        }
     }
 
 
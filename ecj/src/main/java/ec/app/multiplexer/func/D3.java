@@ -9,6 +9,7 @@ package ec.app.multiplexer.func;
 import ec.*;
 import ec.app.multiplexer.*;
 import ec.gp.*;
+import ec.gp.batch.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +24,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class D3 extends GPNode
+public class D3 extends GPNode implements BatchNode
     {
     final static int bitpos = 3;  /* D3 */
 
@@ -63,6 +64,16 @@ public class D3 extends GPNode
                 MultiplexerData.MULTI_11_NUM_BITSTRINGS);
         }
 
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        BitBatchData d = (BitBatchData)input;
+        ((Multiplexer)problem).inputBits(bitpos + ((Multiplexer)problem).bits, d);
+        }
     }
 
 
@@ -9,6 +9,7 @@ package ec.app.multiplexer.func;
 import ec.*;
 import ec.app.multiplexer.*;
 import ec.gp.*;
+import ec.gp.batch.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +24,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class If extends GPNode
+public class If extends GPNode implements BatchNode
     {
     public String toString() { return "if"; }
 
@@ -113,6 +114,30 @@ public class If extends GPNode
             md.pushDat11(dat_11_1);
             }
         }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        BitBatchData d = (BitBatchData)input;
+        ((BatchNode)children[0]).evalBatch(state,thread,input,stack,individual,problem);
+        long[] x = d.x;
+        d.x = d.pop();
+        ((BatchNode)children[1]).evalBatch(state,thread,input,stack,individual,problem);
+        long[] y = d.x;
+        d.x = d.pop();
+        ((BatchNode)children[2]).evalBatch(state,thread,input,stack,individual,problem);
+        long[] z = d.x;
+        // as in eval(...), if a then b else c is (~a v b) ^ (a v c)
+        for(int i = 0; i < d.length; i++)
+            x[i] = ((x[i] ^ (-1L)) | y[i]) & (x[i] | z[i]);
+        d.push(z);
+        d.push(y);
+        d.x = x;
+        }
     }
 
 
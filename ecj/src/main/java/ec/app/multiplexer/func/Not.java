@@ -9,6 +9,7 @@ package ec.app.multiplexer.func;
 import ec.*;
 import ec.app.multiplexer.*;
 import ec.gp.*;
+import ec.gp.batch.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +24,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class Not extends GPNode
+public class Not extends GPNode implements BatchNode
     {
     public String toString() { return "not"; }
 
@@ -60,6 +61,20 @@ public class Not extends GPNode
             for(int x=0;x<MultiplexerData.MULTI_11_NUM_BITSTRINGS;x++)
                 md.dat_11[x] ^= -1L;
         }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        BitBatchData d = (BitBatchData)input;
+        ((BatchNode)children[0]).evalBatch(state,thread,input,stack,individual,problem);
+        long[] x = d.x;
+        for(int i = 0; i < d.length; i++)
+            x[i] ^= -1L;
+        }
     }
 
 
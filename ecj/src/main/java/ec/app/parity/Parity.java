@@ -9,6 +9,7 @@ package ec.app.parity;
 import ec.util.*;
 import ec.*;
 import ec.gp.*;
+import ec.gp.batch.*;
 import ec.gp.koza.*;
 import ec.simple.*;
 
@@ -39,6 +40,12 @@ import ec.simple.*;
  <tr><td valign=top><i>base</i>.<tt>bits</tt><br>
  <font size=-1> 2 &gt;= int &lt;= 31</font></td>
  <td valign=top>(The number of data bits)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>batch</tt><br>
+ <font size=-1>boolean (default = false)</font></td>
+ <td valign=top>(should trees be evaluated with evalBatch(...) on 64 fitness cases at a time per long, rather than one fitness case at a time?  See ec.gp.batch.BatchNode)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>batch-size</tt><br>
+ <font size=-1>int >= 1 (default = 64)</font></td>
+ <td valign=top>(the maximum number of longs, that is, groups of 64 fitness cases, in a batch)</td></tr>
  </table>
 
  <p><b>Parameter bases</b><br>
@@ -57,6 +64,18 @@ public class Parity extends GPProblem implements SimpleProblemForm
 
     public static final String P_NUMBITS = "bits";
     public static final String P_EVEN = "even";
+    public static final String P_BATCH = "batch";
+    public static final String P_BATCH_SIZE = "batch-size";
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    // bit j is 1 if j has an odd number of 1s
+    static final long ODD_PARITY = 0x6996966996696996L;
+    // bit j of DATA_BITS[b] is bit b of j
+    static final long[] DATA_BITS = 
+        {
+        0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+        0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L
+        };
 
     public boolean doEven;
     public int numBits;
@@ -64,6 +83,20 @@ public class Parity extends GPProblem implements SimpleProblemForm
 
     public int bits;  // data bits
 
+    // if we're evaluating in batches, our batch GPData (which is deep-cloned), the maximum
+    // number of longs in a batch, and the first long of the current batch
+    public BitBatchData batchInput;
+    public int batchSize;
+    public int batchStart;
+
+    public Object clone()
+        {
+        Parity prob = (Parity)(super.clone());
+        if (batchInput != null)
+            prob.batchInput = (BitBatchData)(batchInput.clone());
+        return prob;
+        }
+
     public void setup(final EvolutionState state,
         final Parameter base)
         {
@@ -87,6 +120,25 @@ public class Parity extends GPProblem implements SimpleProblemForm
             totalSize *=2;   // safer than Math.pow()
 
         doEven = state.parameters.getBoolean(base.push(P_EVEN),null,true);
+
+        if (state.parameters.getBoolean(base.push(P_BATCH), null, false))
+            {
+            batchSize = state.parameters.getIntWithDefault(base.push(P_BATCH_SIZE), null, DEFAULT_BATCH_SIZE);
+            if (batchSize < 1)
+                state.output.fatal("Batch size must be an integer >= 1", base.push(P_BATCH_SIZE), null);
+            batchInput = new BitBatchData();
+            }
+        }
+
+    /** Sets each bit in the column of the given BitBatchData to data bit b of the
+        corresponding fitness case in the current batch.  Used by the Dn nodes' evalBatch(...). */
+    public void dataBits(int b, BitBatchData d)
+        {
+        // fitness case j of long w is the number 64w + j
+        if (b < 6)
+            java.util.Arrays.fill(d.x, 0, d.length, DATA_BITS[b]);
+        else for(int i = 0; i < d.length; i++)
+                 d.x[i] = -(((batchStart + i) >>> (b - 6)) & 1L);
         }
 
 
@@ -98,23 +150,43 @@ public class Parity extends GPProblem implements SimpleProblemForm
         if (!ind.evaluated)  // don't bother reevaluating
             {
             ParityData input = (ParityData)(this.input);
+            GPNode root = ((GPIndividual)ind).trees[0].child;
 
             int sum = 0;
-                
-            for(bits=0;bits<totalSize;bits++)
+            if (batchInput != null && root.numNodes(BatchNode.NON_BATCH_NODES) == 0)
+                {
+                int words = (totalSize + 63) / 64;
+                long valid = (totalSize < 64 ? (1L << totalSize) - 1 : -1L);
+                for(batchStart = 0; batchStart < words; batchStart += batchSize)
+                    {
+                    batchInput.setLength(Math.min(batchSize, words - batchStart));
+                    ((BatchNode)root).evalBatch(state,threadnum,batchInput,stack,((GPIndividual)ind),this);
+                    for(int i = 0; i < batchInput.length; i++)
+                        {
+                        // the number of 1s in 64w + j is the number in w plus the number in j
+                        long odd = ((Long.bitCount(batchStart + i) & 1) == 0 ? ODD_PARITY : ~ODD_PARITY);
+                        long correct = (doEven ? batchInput.x[i] ^ odd : ~(batchInput.x[i] ^ odd));
+                        sum += Long.bitCount(correct & valid);
+                        }
+                    }
+                }
+            else
                 {
-                int tb = 0;
-                // first, is #bits even or odd?
-                for(int b=0;b<numBits;b++)
-                    tb += (bits >>> b) & 1;
-                tb &= 1;  // now tb is 1 if we're odd, 0 if we're even
-
-                ((GPIndividual)ind).trees[0].child.eval(
-                    state,threadnum,input,stack,((GPIndividual)ind),this);
-
-                if ((doEven && ((input.x & 1) != tb)) ||
-                    ((!doEven) && ((input.x & 1) == tb)))
-                    sum++;
+                for(bits=0;bits<totalSize;bits++)
+                    {
+                    int tb = 0;
+                    // first, is #bits even or odd?
+                    for(int b=0;b<numBits;b++)
+                        tb += (bits >>> b) & 1;
+                    tb &= 1;  // now tb is 1 if we're odd, 0 if we're even
+
+                    ((GPIndividual)ind).trees[0].child.eval(
+                        state,threadnum,input,stack,((GPIndividual)ind),this);
+
+                    if ((doEven && ((input.x & 1) != tb)) ||
+                        ((!doEven) && ((input.x & 1) == tb)))
+                        sum++;
+                    }
                 }
                 
             // the fitness better be KozaFitness!
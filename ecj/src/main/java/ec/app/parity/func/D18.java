@@ -9,6 +9,7 @@ package ec.app.parity.func;
 import ec.*;
 import ec.app.parity.*;
 import ec.gp.*;
+import ec.gp.batch.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +24,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class D18 extends GPNode
+public class D18 extends GPNode implements BatchNode
     {
     public String toString() { return "D18"; }
 
@@ -52,6 +53,17 @@ public class D18 extends GPNode
         ((ParityData)input).x = 
             ((((Parity)problem).bits >>> 18 ) & 1);
         }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        BitBatchData d = (BitBatchData)input;
+        ((Parity)problem).dataBits(18, d);
+        }
     }
 
 
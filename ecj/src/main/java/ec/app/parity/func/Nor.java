@@ -9,6 +9,7 @@ package ec.app.parity.func;
 import ec.*;
 import ec.app.parity.*;
 import ec.gp.*;
+import ec.gp.batch.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +24,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class Nor extends GPNode
+public class Nor extends GPNode implements BatchNode
     {
     public String toString() { return "nor"; }
 
@@ -59,6 +60,25 @@ public class Nor extends GPNode
         // invert
         d.x ^= 1;
         }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        BitBatchData d = (BitBatchData)input;
+        ((BatchNode)children[0]).evalBatch(state,thread,input,stack,individual,problem);
+        long[] x = d.x;
+        d.x = d.pop();
+        ((BatchNode)children[1]).evalBatch(state,thread,input,stack,individual,problem);
+        long[] y = d.x;
+        for(int i = 0; i < d.length; i++)
+            x[i] = ~(x[i] | y[i]);
+        d.push(y);
+        d.x = x;
+        }
     }
 
 
@@ -2,6 +2,7 @@ package ec.app.regression;
 import ec.util.*;
 import ec.*;
 import ec.gp.*;
+import ec.gp.compile.*;
 import ec.gp.koza.*;
 import ec.simple.*;
 import java.io.*;
@@ -49,6 +50,10 @@ import java.util.*;
 /**
  * Benchmarks by various people in the literature.
  *
+ * <p>As in Regression, if <i>base</i>.<tt>compile</tt> is true then trees are compiled to JVM bytecode
+ * (see ec.gp.compile.TreeCompiler) rather than interpreted with eval(...), and up to
+ * <i>base</i>.<tt>compile-cache-size</tt> compiled trees (default 4096) are remembered.
+ * The input variables X1 ... X5 are variables 0 ... 4 of the compiled tree.
  */
 public class Benchmarks extends GPProblem implements SimpleProblemForm
     {
@@ -652,6 +657,9 @@ public class Benchmarks extends GPProblem implements SimpleProblemForm
     public static final String P_TESTING_FILE = "testing-file";
     public static final String P_TRAINING_FILE = "training-file";
     public static final String P_PROBLEM_TYPE = "type";
+    public static final String P_COMPILE = "compile";
+    public static final String P_COMPILE_CACHE_SIZE = "compile-cache-size";
+    public static final int DEFAULT_COMPILE_CACHE_SIZE = 4096;
 
     public double[] currentValue;
     
@@ -664,6 +672,9 @@ public class Benchmarks extends GPProblem implements SimpleProblemForm
     public double[][] testingInputs;
     public double[] testingOutputs;
 
+    // shared among all the clones, if we're compiling trees
+    public CompiledTreeCache compiledTrees;
+
     // don't bother cloning the inputs and outputs; they're read-only :-)
     // don't bother cloning the current value, it's only set during evaluation
 
@@ -677,6 +688,14 @@ public class Benchmarks extends GPProblem implements SimpleProblemForm
             state.output.fatal("GPData class must subclass from " + RegressionData.class,
                 base.push(P_DATA), null);
 
+        if (state.parameters.getBoolean(base.push(P_COMPILE), null, false))
+            {
+            int size = state.parameters.getIntWithDefault(base.push(P_COMPILE_CACHE_SIZE), null, DEFAULT_COMPILE_CACHE_SIZE);
+            if (size < 1)
+                state.output.fatal("Compiled tree cache size must be an integer >= 1", base.push(P_COMPILE_CACHE_SIZE), null);
+            compiledTrees = new CompiledTreeCache(size);
+            }
+
         // should we load our x parameters from a file, or generate them randomly?
         InputStream training_file = state.parameters.getResource(base.push(P_TRAINING_FILE), null);
         InputStream testing_file = state.parameters.getResource(base.push(P_TESTING_FILE), null);
@@ -858,13 +877,16 @@ public class Benchmarks extends GPProblem implements SimpleProblemForm
         if (!ind.evaluated)  // don't bother reevaluating
             {
             RegressionData input = (RegressionData)(this.input);
+            CompiledTree compiled = (compiledTrees == null ? null : compiledTrees.get(((GPIndividual)ind).trees[0]));
 
             int hits = 0;
             double sum = 0.0;
             for (int y=0;y<trainingInputs.length;y++)
                 {
                 currentValue = trainingInputs[y];
-                ((GPIndividual)ind).trees[0].child.eval(
+                if (compiled != null)
+                    input.x = compiled.eval(currentValue);
+                else ((GPIndividual)ind).trees[0].child.eval(
                     state,threadnum,input,stack,((GPIndividual)ind),this);
 
                 double error = error(input.x, trainingOutputs[y]);
@@ -888,6 +910,7 @@ public class Benchmarks extends GPProblem implements SimpleProblemForm
     public void describe(EvolutionState state, Individual ind, int subpopulation, int threadnum, int log)
         {
         RegressionData input = (RegressionData)(this.input);
+        CompiledTree compiled = (compiledTrees == null ? null : compiledTrees.get(((GPIndividual)ind).trees[0]));
 
         // we do the testing set here
         
@@ -898,7 +921,9 @@ public class Benchmarks extends GPProblem implements SimpleProblemForm
         for (int y=0;y<testingInputs.length;y++)
             {
             currentValue = testingInputs[y];
-            ((GPIndividual)ind).trees[0].child.eval(
+            if (compiled != null)
+                input.x = compiled.eval(currentValue);
+            else ((GPIndividual)ind).trees[0].child.eval(
                 state,threadnum,input,stack,((GPIndividual)ind),this);
 
             double error = error(input.x, testingOutputs[y]);
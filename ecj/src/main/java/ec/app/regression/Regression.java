@@ -9,6 +9,8 @@ package ec.app.regression;
 import ec.util.*;
 import ec.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
 import ec.gp.koza.*;
 import ec.simple.*;
 import java.io.*;
@@ -35,6 +37,27 @@ import java.util.*;
  <tr><td valign=top><i>base</i>.<tt>size</tt><br>
  <font size=-1>int >= 1</font></td>
  <td valign=top>(the size of the training set)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>compile</tt><br>
+ <font size=-1>boolean (default = false)</font></td>
+ <td valign=top>(should trees be compiled to JVM bytecode rather than interpreted with eval(...)?  This pays off for large training sets.  See ec.gp.compile.TreeCompiler)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>compile-cache-size</tt><br>
+ <font size=-1>int >= 1 (default = 4096)</font></td>
+ <td valign=top>(the maximum number of compiled trees remembered)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>batch</tt><br>
+ <font size=-1>boolean (default = false)</font></td>
+ <td valign=top>(should trees be evaluated with evalBatch(...) on many fitness cases at a time, rather than one fitness case at a time?  See ec.gp.batch.BatchNode.  This takes precedence over <tt>compile</tt>)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>batch-size</tt><br>
+ <font size=-1>int >= 1 (default = 1024)</font></td>
+ <td valign=top>(the maximum number of fitness cases in a batch)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>semantic-cache</tt><br>
+ <font size=-1>boolean (default = false)</font></td>
+ <td valign=top>(when evaluating in batches, should the results of subtrees be remembered, so that subtrees which children got unchanged from their parents need not be evaluated again?  See ec.gp.batch.SemanticCache)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>semantic-cache-memory</tt><br>
+ <font size=-1>int >= 1 (default = 1/8 of the maximum heap)</font></td>
+ <td valign=top>(the maximum number of megabytes taken up by the remembered results)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>semantic-cache-min-size</tt><br>
+ <font size=-1>int >= 1 (default = 2)</font></td>
+ <td valign=top>(the minimum number of nodes in a subtree whose results are remembered)</td></tr>
  </table>
 
  <p><b>Parameter bases</b><br>
@@ -54,6 +77,16 @@ public class Regression extends GPProblem implements SimpleProblemForm
     public static final String P_SIZE = "size";
     public static final String P_FILE = "file";
     public static final String P_USE_FUNCTION = "use-function";
+    public static final String P_COMPILE = "compile";
+    public static final String P_COMPILE_CACHE_SIZE = "compile-cache-size";
+    public static final int DEFAULT_COMPILE_CACHE_SIZE = 4096;
+    public static final String P_BATCH = "batch";
+    public static final String P_BATCH_SIZE = "batch-size";
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final String P_SEMANTIC_CACHE = "semantic-cache";
+    public static final String P_SEMANTIC_CACHE_MEMORY = "semantic-cache-memory";
+    public static final String P_SEMANTIC_CACHE_MIN_SIZE = "semantic-cache-min-size";
+    public static final int DEFAULT_SEMANTIC_CACHE_MIN_SIZE = 2;
 
     public double currentValue;
     public int trainingSetSize;
@@ -68,12 +101,29 @@ public class Regression extends GPProblem implements SimpleProblemForm
     public double inputs[];
     public double outputs[];
 
+    // shared among all the clones, if we're compiling trees
+    public CompiledTreeCache compiledTrees;
+
+    // if we're evaluating in batches, our batch GPData (which is deep-cloned), the
+    // maximum number of fitness cases in a batch, and the first fitness case of the current batch
+    public DoubleBatchData batchInput;
+    public int batchSize;
+    public int batchStart;
+
     // don't bother cloning the inputs and outputs; they're read-only :-)
     // don't bother cloning the currentValue; it's transitory
 
     public double func(double x)
         { return x*x*x*x + x*x*x + x*x + x; }
 
+    public Object clone()
+        {
+        Regression prob = (Regression)(super.clone());
+        if (batchInput != null)
+            prob.batchInput = (DoubleBatchData)(batchInput.clone());
+        return prob;
+        }
+
     public void setup(final EvolutionState state,
         final Parameter base)
         {
@@ -95,6 +145,36 @@ public class Regression extends GPProblem implements SimpleProblemForm
         // *IF* we load from a file, should we generate the output through the function, or load the output as well?
         useFunction = state.parameters.getBoolean(base.push(P_USE_FUNCTION), null, true);
 
+        if (state.parameters.getBoolean(base.push(P_COMPILE), null, false))
+            {
+            int size = state.parameters.getIntWithDefault(base.push(P_COMPILE_CACHE_SIZE), null, DEFAULT_COMPILE_CACHE_SIZE);
+            if (size < 1)
+                state.output.fatal("Compiled tree cache size must be an integer >= 1", base.push(P_COMPILE_CACHE_SIZE), null);
+            compiledTrees = new CompiledTreeCache(size);
+            }
+
+        if (state.parameters.getBoolean(base.push(P_BATCH), null, false))
+            {
+            batchSize = state.parameters.getIntWithDefault(base.push(P_BATCH_SIZE), null, DEFAULT_BATCH_SIZE);
+            if (batchSize < 1)
+                state.output.fatal("Batch size must be an integer >= 1", base.push(P_BATCH_SIZE), null);
+            batchInput = new DoubleBatchData();
+
+            if (state.parameters.getBoolean(base.push(P_SEMANTIC_CACHE), null, false))
+                {
+                long memory = state.parameters.getIntWithDefault(base.push(P_SEMANTIC_CACHE_MEMORY), null,
+                    (int)(Runtime.getRuntime().maxMemory() / 8 / (1024 * 1024)));
+                if (memory < 1)
+                    state.output.fatal("Semantic cache memory must be an integer >= 1", base.push(P_SEMANTIC_CACHE_MEMORY), null);
+                int minSize = state.parameters.getIntWithDefault(base.push(P_SEMANTIC_CACHE_MIN_SIZE), null, DEFAULT_SEMANTIC_CACHE_MIN_SIZE);
+                if (minSize < 1)
+                    state.output.fatal("Semantic cache minimum size must be an integer >= 1", base.push(P_SEMANTIC_CACHE_MIN_SIZE), null);
+                batchInput.cache = new SemanticCache(memory * 1024 * 1024, minSize);
+                }
+            }
+        else if (state.parameters.getBoolean(base.push(P_SEMANTIC_CACHE), null, false))
+            state.output.warning("The semantic cache is only used when evaluating in batches", base.push(P_SEMANTIC_CACHE), null);
+
         // Compute our inputs so they can be copied with clone later
         inputs = new double[trainingSetSize];
         outputs = new double[trainingSetSize];
@@ -154,13 +234,42 @@ public class Regression extends GPProblem implements SimpleProblemForm
             {
             RegressionData input = (RegressionData)(this.input);
 
+            GPNode root = ((GPIndividual)ind).trees[0].child;
+
+            // if the tree can be evaluated in batches we'll do that, else if it can be compiled,
+            // we'll use the compiled version instead of eval(...)
+            DoubleBatchData batch = (batchInput != null && root.numNodes(BatchNode.NON_BATCH_NODES) == 0 ? batchInput : null);
+            CompiledTree compiled = (batch == null && compiledTrees != null ? compiledTrees.get(((GPIndividual)ind).trees[0]) : null);
+            double[] variables = new double[1];
+            batchStart = 0;
+            if (batch != null)
+                {
+                batch.setLength(0);
+                batch.setTree(root);
+                }
+
             int hits = 0;
             double sum = 0.0;
             double result;
             for (int y=0;y<trainingSetSize;y++)
                 {
                 currentValue = inputs[y];
-                ((GPIndividual)ind).trees[0].child.eval(
+                if (batch != null)
+                    {
+                    if (y == batchStart + batch.length)  // time for the next batch
+                        {
+                        batchStart = y;
+                        batch.setLength(Math.min(batchSize, trainingSetSize - y));
+                        batch.evalTree(batchStart,state,threadnum,stack,((GPIndividual)ind),this);
+                        }
+                    input.x = batch.x[y - batchStart];
+                    }
+                else if (compiled != null)
+                    {
+                    variables[0] = currentValue;
+                    input.x = compiled.eval(variables);
+                    }
+                else ((GPIndividual)ind).trees[0].child.eval(
                     state,threadnum,input,stack,((GPIndividual)ind),this);
 
                 // It's possible to get NaN because cos(infinity) and
@@ -191,6 +300,8 @@ public class Regression extends GPProblem implements SimpleProblemForm
                 sum += result;              
                 }
                 
+            if (batch != null) batch.setTree(null);
+
             // the fitness better be KozaFitness!
             KozaFitness f = ((KozaFitness)ind.fitness);
             f.setStandardizedFitness(state, sum);
@@ -198,4 +309,11 @@ public class Regression extends GPProblem implements SimpleProblemForm
             ind.evaluated = true;
             }
         }
+
+    public void closeContacts(EvolutionState state, int result)
+        {
+        super.closeContacts(state, result);
+        if (batchInput != null && batchInput.cache != null)
+            state.output.message(batchInput.cache.toString());
+        }
     }
@@ -0,0 +1,125 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.app.regression;
+
+import ec.*;
+import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
+import ec.util.*;
+
+/**
+ * RegressionEvaluationBenchmark.java
+ *
+ * Times the evaluation of a randomly generated population of Regression trees (built
+ * from erc.params, that is, the Koza function set with ERCs) by interpreting the trees with
+ * eval(...), by compiling them with TreeCompiler, and by evaluating them in batches with
+ * evalBatch(...), over a range of training set sizes.  Compiled times are given both including
+ * the time to compile each tree, and with the trees already compiled and in the cache.
+ * The fitnesses computed each way are also compared.  Run as:
+ *
+ * <p><tt>java ec.app.regression.RegressionEvaluationBenchmark [popsize] [repetitions] [batchsize]</tt>
+ *
+ * <p>Output is one line per training set size giving the mean milliseconds to evaluate the population.
+ */
+
+public class RegressionEvaluationBenchmark
+    {
+    static final int[] SIZES = { 10, 20, 100, 1000, 10000, 100000 };
+
+    // evaluates the whole population, returning the sum of all the fitnesses
+    static double evaluate(EvolutionState state, Regression problem)
+        {
+        double sum = 0;
+        Individual[] inds = state.population.subpops.get(0).individuals.toArray(new Individual[0]);
+        for(int i = 0; i < inds.length; i++)
+            {
+            inds[i].evaluated = false;
+            problem.evaluate(state, inds[i], 0, 0);
+            sum += inds[i].fitness.fitness();
+            }
+        return sum;
+        }
+
+    public static void main(String[] args)
+        {
+        int popsize = (args.length > 0 ? Integer.parseInt(args[0]) : 1000);
+        int repetitions = (args.length > 1 ? Integer.parseInt(args[1]) : 10);
+        int batchSize = (args.length > 2 ? Integer.parseInt(args[2]) : Regression.DEFAULT_BATCH_SIZE);
+        int maxSize = SIZES[SIZES.length - 1];
+
+        ParameterDatabase parameters = Evolve.loadParameterDatabase(new String[]
+            {
+            "-from", "erc.params", "-at", Regression.class.getName(),
+            "-p", "silent=true",
+            "-p", "seed.0=1",
+            "-p", "pop.subpop.0.size=" + popsize,
+            "-p", "eval.problem.size=" + maxSize,
+            });
+        EvolutionState state = Evolve.initialize(parameters, 0);
+        state.startFresh();
+        Regression problem = (Regression)(state.evaluator.p_problem);
+
+        int nodes = 0;
+        for(Individual ind : state.population.subpops.get(0).individuals)
+            nodes += ((GPIndividual)ind).size();
+
+        System.out.println("Population " + popsize + ", mean tree size " + (nodes / (double)popsize) + ", " + repetitions + " repetitions");
+        System.out.println("cases\tinterpreted ms\tcompiled ms (with compiling)\tcompiled ms (cached)\tbatch ms\tsame fitnesses");
+        for(int s = 0; s < SIZES.length; s++)
+            {
+            problem.trainingSetSize = SIZES[s];
+
+            // warm up
+            problem.compiledTrees = null;
+            evaluate(state, problem);
+            problem.compiledTrees = new CompiledTreeCache(popsize);
+            evaluate(state, problem);
+            problem.compiledTrees = null;
+            problem.batchSize = batchSize;
+            problem.batchInput = new DoubleBatchData();
+            evaluate(state, problem);
+            problem.batchInput = null;
+
+            problem.compiledTrees = null;
+            double interpretedSum = 0;
+            long interpreted = System.nanoTime();
+            for(int r = 0; r < repetitions; r++)
+                interpretedSum = evaluate(state, problem);
+            interpreted = System.nanoTime() - interpreted;
+
+            double compiledSum = 0;
+            long compiling = 0;
+            for(int r = 0; r < repetitions; r++)
+                {
+                problem.compiledTrees = new CompiledTreeCache(popsize);
+                long t = System.nanoTime();
+                compiledSum = evaluate(state, problem);
+                compiling += System.nanoTime() - t;
+                }
+
+            long cached = System.nanoTime();
+            for(int r = 0; r < repetitions; r++)
+                evaluate(state, problem);
+            cached = System.nanoTime() - cached;
+
+            problem.compiledTrees = null;
+            problem.batchInput = new DoubleBatchData();
+            double batchSum = 0;
+            long batch = System.nanoTime();
+            for(int r = 0; r < repetitions; r++)
+                batchSum = evaluate(state, problem);
+            batch = System.nanoTime() - batch;
+            problem.batchInput = null;
+
+            System.out.println(SIZES[s] + "\t" + (interpreted / 1000000.0 / repetitions) + "\t" +
+                (compiling / 1000000.0 / repetitions) + "\t" + (cached / 1000000.0 / repetitions) + "\t" +
+                (batch / 1000000.0 / repetitions) + "\t" + (interpretedSum == compiledSum && interpretedSum == batchSum));
+            }
+        }
+    }
@@ -9,6 +9,8 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +25,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class Add extends GPNode
+public class Add extends GPNode implements CompilableNode, BatchNode
     {
     public String toString() { return "+"; }
 
@@ -59,6 +61,32 @@ public class Add extends GPNode
         children[1].eval(state,thread,input,stack,individual,problem);
         rd.x = result + rd.x;
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        compiler.compile(children[0]);
+        compiler.compile(children[1]);
+        compiler.add();
+        }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        d.eval(children[0],state,thread,stack,individual,problem);
+        double[] x = d.x;
+        d.x = d.pop();
+        d.eval(children[1],state,thread,stack,individual,problem);
+        double[] y = d.x;
+        for(int i = 0; i < d.length; i++)
+            x[i] = x[i] + y[i];
+        d.push(y);
+        d.x = x;
+        }
     }
 
 
@@ -9,6 +9,8 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +25,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class Div extends GPNode
+public class Div extends GPNode implements CompilableNode, BatchNode
     {
     public String toString() { return "%"; }
 
@@ -65,6 +67,45 @@ public class Div extends GPNode
             rd.x = rd.x / result;
             }
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        // evaluate children[1] first to determine if the denominator is 0
+        TreeCompiler.Label zero = compiler.newLabel();
+        TreeCompiler.Label done = compiler.newLabel();
+        int denominator = compiler.newLocal();
+        compiler.compile(children[1]);
+        compiler.store(denominator);
+        compiler.load(denominator);
+        compiler.ifZero(zero);
+        compiler.compile(children[0]);
+        compiler.load(denominator);
+        compiler.div();
+        compiler.jump(done);
+        compiler.mark(zero);
+        // the answer is 1.0 since the denominator was 0.0
+        compiler.pushConstant(1.0);
+        compiler.mark(done);
+        }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        d.eval(children[0],state,thread,stack,individual,problem);
+        double[] x = d.x;
+        d.x = d.pop();
+        d.eval(children[1],state,thread,stack,individual,problem);
+        double[] y = d.x;
+        for(int i = 0; i < d.length; i++)
+            x[i] = (y[i] == 0.0 ? 1.0 : x[i] / y[i]);
+        d.push(y);
+        d.x = x;
+        }
     }
 
 
@@ -9,6 +9,8 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +25,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class Exp extends GPNode
+public class Exp extends GPNode implements CompilableNode, BatchNode
     {
     public String toString() { return "exp"; }
 
@@ -54,6 +56,26 @@ public class Exp extends GPNode
         children[0].eval(state,thread,input,stack,individual,problem);
         rd.x = /*Strict*/Math.exp(rd.x);
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        compiler.compile(children[0]);
+        compiler.invokeStatic(Math.class, "exp", 1);
+        }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        d.eval(children[0],state,thread,stack,individual,problem);
+        double[] x = d.x;
+        for(int i = 0; i < d.length; i++)
+            x[i] = /*Strict*/Math.exp(x[i]);
+        }
     }
 
 
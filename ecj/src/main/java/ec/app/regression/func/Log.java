@@ -9,6 +9,8 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +25,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class Log extends GPNode
+public class Log extends GPNode implements CompilableNode, BatchNode
     {
     private static final long serialVersionUID = 1;
 
@@ -56,6 +58,38 @@ public class Log extends GPNode
         children[0].eval(state,thread,input,stack,individual,problem);
         rd.x = (rd.x == 0.0 ? 0.0 : /*Strict*/Math.log(/*Strict*/Math.abs(rd.x)));
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        TreeCompiler.Label zero = compiler.newLabel();
+        TreeCompiler.Label done = compiler.newLabel();
+        int x = compiler.newLocal();
+        compiler.compile(children[0]);
+        compiler.store(x);
+        compiler.load(x);
+        compiler.ifZero(zero);
+        compiler.load(x);
+        compiler.invokeStatic(Math.class, "abs", 1);
+        compiler.invokeStatic(Math.class, "log", 1);
+        compiler.jump(done);
+        compiler.mark(zero);
+        compiler.pushConstant(0.0);
+        compiler.mark(done);
+        }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        d.eval(children[0],state,thread,stack,individual,problem);
+        double[] x = d.x;
+        for(int i = 0; i < d.length; i++)
+            x[i] = (x[i] == 0.0 ? 0.0 : /*Strict*/Math.log(/*Strict*/Math.abs(x[i])));
+        }
     }
 
 
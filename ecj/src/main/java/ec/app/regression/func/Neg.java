@@ -9,6 +9,8 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
 import ec.util.*;
 
 /* 
@@ -26,7 +28,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class Neg extends GPNode
+public class Neg extends GPNode implements CompilableNode, BatchNode
     {
     public String toString() { return "0-"; }
 
@@ -44,6 +46,27 @@ public class Neg extends GPNode
         children[0].eval(state,thread,input,stack,individual,problem);
         rd.x = 0.0 - rd.x;
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        compiler.pushConstant(0.0);
+        compiler.compile(children[0]);
+        compiler.sub();
+        }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        d.eval(children[0],state,thread,stack,individual,problem);
+        double[] x = d.x;
+        for(int i = 0; i < d.length; i++)
+            x[i] = 0.0 - x[i];
+        }
     }
 
 
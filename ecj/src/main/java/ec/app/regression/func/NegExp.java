@@ -9,6 +9,8 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
 import ec.util.*;
 
 /* 
@@ -25,7 +27,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class NegExp extends GPNode
+public class NegExp extends GPNode implements CompilableNode, BatchNode
     {
     public String toString() { return "negexp"; }
 
@@ -43,6 +45,28 @@ public class NegExp extends GPNode
         children[0].eval(state,thread,input,stack,individual,problem);
         rd.x = Math.exp(0 - rd.x);
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        compiler.pushConstant(0.0);
+        compiler.compile(children[0]);
+        compiler.sub();
+        compiler.invokeStatic(Math.class, "exp", 1);
+        }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        d.eval(children[0],state,thread,stack,individual,problem);
+        double[] x = d.x;
+        for(int i = 0; i < d.length; i++)
+            x[i] = Math.exp(0 - x[i]);
+        }
     }
 
 
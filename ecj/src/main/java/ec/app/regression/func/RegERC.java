@@ -9,6 +9,9 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
+import ec.gp.linear.*;
 import ec.util.*;
 import java.io.*;
 
@@ -25,7 +28,7 @@ import java.io.*;
  * @version 1.0 
  */
 
-public class RegERC extends ERC
+public class RegERC extends ERC implements CompilableNode, BatchNode, LinearERC
     {
     public double value;
 
@@ -38,6 +41,10 @@ public class RegERC extends ERC
     public void resetNode(final EvolutionState state, final int thread)
         { value = state.random[thread].nextDouble() * 2 - 1.0; }
 
+    public double getConstant() { return value; }
+
+    public void setConstant(double value) { this.value = value; }
+
     public int nodeHashCode()
         {
         // a reasonable hash code
@@ -106,6 +113,22 @@ public class RegERC extends ERC
         RegressionData rd = ((RegressionData)(input));
         rd.x = value;
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        compiler.pushConstant(value);
+        }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        java.util.Arrays.fill(d.x, 0, d.length, value);
+        }
     }
 
 
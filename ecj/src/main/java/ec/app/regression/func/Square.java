@@ -9,6 +9,8 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
 import ec.util.*;
 
 /* 
@@ -27,7 +29,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class Square extends GPNode
+public class Square extends GPNode implements CompilableNode, BatchNode
     {
     public String toString() { return "square"; }
 
@@ -45,6 +47,27 @@ public class Square extends GPNode
         children[0].eval(state,thread,input,stack,individual,problem);
         rd.x = rd.x * rd.x;
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        compiler.compile(children[0]);
+        compiler.dup();
+        compiler.mul();
+        }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        d.eval(children[0],state,thread,stack,individual,problem);
+        double[] x = d.x;
+        for(int i = 0; i < d.length; i++)
+            x[i] = x[i] * x[i];
+        }
     }
 
 
@@ -9,6 +9,8 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.batch.*;
+import ec.gp.compile.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +25,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class X extends GPNode
+public class X extends GPNode implements CompilableNode, BatchNode
     {
     public String toString() { return "x"; }
 
@@ -52,6 +54,23 @@ public class X extends GPNode
         RegressionData rd = ((RegressionData)(input));
         rd.x = ((Regression)problem).currentValue;
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        compiler.pushVariable(0);
+        }
+
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        DoubleBatchData d = (DoubleBatchData)input;
+        Regression r = (Regression)problem;
+        System.arraycopy(r.inputs, r.batchStart, d.x, 0, d.length);
+        }
     }
 
 
@@ -9,6 +9,7 @@ package ec.app.regression.func;
 import ec.*;
 import ec.app.regression.*;
 import ec.gp.*;
+import ec.gp.compile.*;
 import ec.util.*;
 
 /* 
@@ -23,7 +24,7 @@ import ec.util.*;
  * @version 1.0 
  */
 
-public class X2 extends GPNode
+public class X2 extends GPNode implements CompilableNode
     {
     public String toString() { return "x2"; }
 
@@ -55,6 +56,11 @@ public class X2 extends GPNode
             rd.x = ((Benchmarks)problem).currentValue[1];
         else rd.x = 0;
         }
+
+    public void compile(final TreeCompiler compiler)
+        {
+        compiler.pushVariable(1);
+        }
     }
 
 
@@ -89,7 +89,8 @@ public class MuCommaLambdaBreeder extends Breeder
     // This is a DOUBLE ARRAY of ARRAYLISTS of <INDIVIDUALS>
     // Individuals are stored here by the breed pop chunk methods, and afterwards
     // we coalesce them into the new population. 
-    public ArrayList newIndividuals[/*subpop*/][/*thread*/];
+    // It is rebuilt on each breeding, so it isn't checkpointed (it would just be another copy of the population).
+    public transient ArrayList<Individual> newIndividuals[/*subpop*/][/*thread*/];
         
     /** Modified by multiple threads, don't fool with this */
     public int[] count;
@@ -433,7 +434,7 @@ public class MuCommaLambdaBreeder extends Breeder
         {
         for(int subpop = 0; subpop< newpop.subpops.size(); subpop++)
             {
-            ArrayList<Individual> putHere = (ArrayList<Individual>)newIndividuals[subpop][threadnum];
+            ArrayList<Individual> putHere = newIndividuals[subpop][threadnum];
 
             // reset the appropriate count slot  -- this used to be outside the for-loop, a bug
             // I believe
@@ -0,0 +1,47 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import ec.*;
+import ec.util.*;
+
+/**
+ * FractionReadiness.java
+ *
+ * The default Readiness of OverlappingEvaluator: a subpopulation is ready to breed from once
+ * at least <tt>fraction</tt> of it has been evaluated.  A fraction of 1.0 waits for all of it,
+ * as SimpleEvaluator would.
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base</i>.<tt>fraction</tt><br>
+ <font size=-1>0.0 &lt; double &lt;= 1.0 (default 0.9)</font></td>
+ <td valign=top>(the fraction of a subpopulation which must have been evaluated before it is bred from)</td></tr>
+ </table>
+*/
+
+public class FractionReadiness implements Readiness
+    {
+    private static final long serialVersionUID = 1;
+
+    public static final String P_FRACTION = "fraction";
+
+    public double fraction;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        fraction = state.parameters.getDoubleWithDefault(base.push(P_FRACTION), null, 0.9);
+        if (fraction <= 0 || fraction > 1)
+            state.output.fatal("The readiness fraction must be a number > 0 and <= 1.", base.push(P_FRACTION));
+        }
+
+    public boolean ready(EvolutionState state, int subpop, int evaluated, int total)
+        {
+        return evaluated >= fraction * total;
+        }
+    }
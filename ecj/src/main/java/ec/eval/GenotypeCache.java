@@ -0,0 +1,180 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import java.io.*;
+import java.util.*;
+import ec.*;
+
+/**
+ * GenotypeCache.java
+ *
+ * A bounded, content-addressed cache of the genotypes a Slave has recently been sent, so that the master
+ * can send a hash in place of a genotype the slave already has.  It's turned on by setting
+ * <tt>eval.genotype-cache</tt> on the master to the number of genotypes each slave should remember: the
+ * master tells each slave how many, with a Slave.V_GENOTYPECACHE command, when it connects.  Otherwise the
+ * command isn't sent, so masters and slaves from before the cache existed still work with each other, as
+ * long as neither uses it.
+ *
+ * <p>An individual is sent as the evaluated flag and fitness, as written by the default
+ * Individual.writeIndividual(...), followed by the rest of what writeIndividual(...) wrote, which we call
+ * its genotype, and which we identify by a 64-bit hash.  Each SlaveConnection on the master keeps a mirror of
+ * its slave's cache which holds just the hashes.  As the master writes individuals to the slave, and the slave
+ * reads them, in the same order, and both evict the least recently used genotype when full, the mirror always
+ * knows exactly what the slave has.  An individual whose writeIndividual(...) doesn't begin with the evaluated
+ * flag and fitness is sent whole.
+ *
+ * <p>The slave also uses the genotypes it was sent to see whether evaluating an individual changed it: if not,
+ * and <tt>eval.return-inds</tt> is true, only its fitness is sent back.
+ *
+ * <p>A GenotypeCache isn't threadsafe: on the master it is only used by whoever writes to its slave, and on the
+ * slave by whoever reads from the master and writes back.
+ */
+
+public class GenotypeCache
+    {
+    public static final byte V_WHOLE = 0;
+    public static final byte V_NEW = 1;
+    public static final byte V_CACHED = 2;
+
+    // what the master's mirror stores in place of a genotype
+    static final byte[] PRESENT = new byte[0];
+
+    final int capacity;
+    // genotype bytes by hash, least recently used first.  The master's mirror stores PRESENT rather than the bytes.
+    final LinkedHashMap<Long, byte[]> genotypes;
+
+    // scratch space for serializing an individual
+    final Buffer all = new Buffer();
+    final Buffer prefix = new Buffer();
+    final DataOutputStream allOut = new DataOutputStream(all);
+    final DataOutputStream prefixOut = new DataOutputStream(prefix);
+
+    static class Buffer extends ByteArrayOutputStream
+        {
+        byte[] buffer() { return buf; }
+        }
+
+    /** Creates a cache for up to capacity genotypes. */
+    public GenotypeCache(final int capacity)
+        {
+        this.capacity = capacity;
+        genotypes = new LinkedHashMap<Long, byte[]>(16, 0.75f, true)
+            {
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) { return size() > capacity; }
+            };
+        }
+
+    /** A 64-bit hash of bytes [start, end). */
+    static long hash(byte[] bytes, int start, int end)
+        {
+        long h = 0xcbf29ce484222325L ^ (end - start);
+        for(int i = start; i < end; i++)
+            h = (h ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+        // FNV-1a mixes its last bytes poorly, so we finish it like MurmurHash3 does
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+        }
+
+    // Serializes ind into all, and its evaluated flag and fitness into prefix.  Returns the length of the prefix,
+    // or -1 if all doesn't begin with it.
+    int serialize(EvolutionState state, Individual ind) throws IOException
+        {
+        all.reset();
+        prefix.reset();
+        ind.writeIndividual(state, allOut);
+        prefixOut.writeBoolean(ind.evaluated);
+        ind.fitness.writeFitness(state, prefixOut);
+        int len = prefix.size();
+        if (len > all.size()) return -1;
+        byte[] a = all.buffer();
+        byte[] p = prefix.buffer();
+        for(int i = 0; i < len; i++)
+            if (a[i] != p[i]) return -1;
+        return len;
+        }
+
+    /** Writes an individual to the slave, updating the mirror.  Used by the master in place of writeIndividual(...). */
+    public void writeIndividual(EvolutionState state, Individual ind, DataOutputStream dataOut) throws IOException
+        {
+        int len = serialize(state, ind);
+        byte[] a = all.buffer();
+        if (len < 0)
+            {
+            dataOut.writeByte(V_WHOLE);
+            dataOut.writeInt(all.size());
+            dataOut.write(a, 0, all.size());
+            return;
+            }
+
+        Long hash = Long.valueOf(hash(a, len, all.size()));
+        boolean cached = genotypes.get(hash) != null;
+        if (!cached) genotypes.put(hash, PRESENT);
+        dataOut.writeByte(cached ? V_CACHED : V_NEW);
+        dataOut.writeInt(len);
+        dataOut.write(a, 0, len);
+        dataOut.writeLong(hash.longValue());
+        if (!cached)
+            {
+            dataOut.writeInt(all.size() - len);
+            dataOut.write(a, len, all.size() - len);
+            }
+        }
+
+    /** Reads an individual written by writeIndividual(...), updating the cache.  Used by the slave in place of
+        Species.newIndividual(...).  The individual's genotype, or null if it was sent whole, is put in genotypes[index]. */
+    public Individual readIndividual(EvolutionState state, Species species, DataInputStream dataIn, byte[][] genotypes, int index) throws IOException
+        {
+        byte type = dataIn.readByte();
+        if (type == V_WHOLE)
+            {
+            byte[] whole = new byte[dataIn.readInt()];
+            dataIn.readFully(whole);
+            genotypes[index] = null;
+            return species.newIndividual(state, new DataInputStream(new ByteArrayInputStream(whole)));
+            }
+        if (type != V_NEW && type != V_CACHED)
+            throw new IOException("Unknown individual type " + type);
+
+        byte[] p = new byte[dataIn.readInt()];
+        dataIn.readFully(p);
+        Long hash = Long.valueOf(dataIn.readLong());
+        byte[] genotype;
+        if (type == V_NEW)
+            {
+            genotype = new byte[dataIn.readInt()];
+            dataIn.readFully(genotype);
+            this.genotypes.put(hash, genotype);
+            }
+        else
+            {
+            genotype = this.genotypes.get(hash);
+            if (genotype == null)
+                throw new IOException("The master sent genotype " + Long.toHexString(hash.longValue()) + " which isn't in the cache");
+            }
+        genotypes[index] = genotype;
+        return species.newIndividual(state, new DataInputStream(new SequenceInputStream(
+                    new ByteArrayInputStream(p), new ByteArrayInputStream(genotype))));
+        }
+
+    /** Returns true if ind's genotype is exactly the given one, which may be null. */
+    public boolean hasGenotype(EvolutionState state, Individual ind, byte[] genotype) throws IOException
+        {
+        if (genotype == null) return false;
+        int len = serialize(state, ind);
+        if (len < 0 || all.size() - len != genotype.length) return false;
+        byte[] a = all.buffer();
+        for(int i = 0; i < genotype.length; i++)
+            if (a[len + i] != genotype[i]) return false;
+        return true;
+        }
+    }
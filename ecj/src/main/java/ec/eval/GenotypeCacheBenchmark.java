@@ -0,0 +1,189 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import java.io.*;
+import ec.*;
+import ec.simple.*;
+import ec.util.*;
+
+/**
+ * GenotypeCacheBenchmark.java
+ *
+ * Measures how many bytes a run would send between the master and a single slave, with and without a
+ * GenotypeCache, and with and without JZLib compression (<tt>eval.compression</tt>).  The run is done
+ * locally: each generation, the population is written out as jobs just as the master would write them,
+ * read back in by a slave-side cache (and checked against the originals), evaluated, and written back as
+ * the slave would with <tt>eval.return-inds</tt> true.  Run as:
+ *
+ * <p><tt>java ec.eval.GenotypeCacheBenchmark [-file <i>params</i>] [-p <i>parameter=value</i>] ...</tt>
+ *
+ * <p>The parameters default to ec/app/ant/ant.params.  The job size is <tt>eval.masterproblem.job-size</tt>
+ * (by default 1), and the cache size is <tt>eval.genotype-cache</tt> (by default 10000).  The problem must be
+ * a SimpleProblemForm.  Output is one line per generation giving the bytes sent to the slave and
+ * back in each configuration, and a line of totals.  JZLib's columns are left out if it isn't installed.
+ */
+
+public class GenotypeCacheBenchmark
+    {
+    static class CountingOutputStream extends OutputStream
+        {
+        long count;
+        public void write(int b) { count++; }
+        public void write(byte[] b, int off, int len) { count += len; }
+        }
+
+    // A connection's worth of output, counting the bytes written to the wire
+    static class Wire
+        {
+        CountingOutputStream counter = new CountingOutputStream();
+        DataOutputStream out;
+        long last;
+        Wire(boolean compress)
+            {
+            OutputStream stream = counter;
+            if (compress) stream = Output.makeCompressingOutputStream(counter);
+            out = (stream == null ? null : new DataOutputStream(stream));
+            }
+        // returns the bytes written since last time
+        long count() { long c = counter.count - last; last = counter.count; return c; }
+        }
+
+    public static void main(String[] args) throws Exception
+        {
+        ParameterDatabase parameters = null;
+        for(int i = 0; i < args.length; i++)
+            if (args[i].equals(Evolve.A_FILE))
+                parameters = Evolve.loadParameterDatabase(args);
+        if (parameters == null)
+            parameters = new ParameterDatabase("ant.params", ec.app.ant.Ant.class, args);
+        parameters.set(new Parameter(Evolve.P_SILENT), "true");
+        int jobSize = parameters.getIntWithDefault(new Parameter("eval.masterproblem." + MasterProblem.P_JOB_SIZE), null, 1);
+        int cacheSize = parameters.getIntWithDefault(new Parameter(SlaveMonitor.P_GENOTYPECACHE), null, 10000);
+
+        EvolutionState state = Evolve.initialize(parameters, 0);
+        state.startFresh();
+        SimpleProblemForm problem = (SimpleProblemForm)(state.evaluator.p_problem);
+        boolean compression = Output.makeCompressingOutputStream(new CountingOutputStream()) != null;
+
+        // to the slave and back: plain, compressed, cached, cached and compressed
+        Wire[] requests = { new Wire(false), new Wire(true), new Wire(false), new Wire(true) };
+        Wire[] replies = { new Wire(false), new Wire(true), new Wire(false), new Wire(true) };
+        GenotypeCache[] mirrors = { null, null, new GenotypeCache(cacheSize), new GenotypeCache(cacheSize) };
+        GenotypeCache slave = new GenotypeCache(cacheSize);
+        long[] requestTotals = new long[4];
+        long[] replyTotals = new long[4];
+
+        System.out.println("gen\tsent\tsent-jzlib\tsent-cached\tsent-cached-jzlib\treturned\treturned-jzlib\treturned-cached\treturned-cached-jzlib");
+        int result = EvolutionState.R_NOTDONE;
+        while(result == EvolutionState.R_NOTDONE)
+            {
+            long[] sent = new long[4];
+            long[] returned = new long[4];
+            for(int s = 0; s < state.population.subpops.size(); s++)
+                {
+                Individual[] inds = state.population.subpops.get(s).individuals.toArray(new Individual[0]);
+                for(int start = 0; start < inds.length; start += jobSize)
+                    {
+                    Job job = new Job();
+                    job.type = Slave.V_EVALUATESIMPLE;
+                    job.inds = new Individual[Math.min(jobSize, inds.length - start)];
+                    job.subPops = new int[job.inds.length];
+                    job.updateFitness = new boolean[job.inds.length];
+                    for(int i = 0; i < job.inds.length; i++)
+                        {
+                        job.inds[i] = inds[start + i];
+                        job.subPops[i] = s;
+                        job.updateFitness[i] = true;
+                        }
+
+                    // to the slave
+                    byte[] message = null;
+                    for(int w = 0; w < requests.length; w++)
+                        {
+                        if (requests[w].out == null) continue;
+                        if (w == 2)  // the one the slave reads
+                            {
+                            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                            DataOutputStream out = new DataOutputStream(bytes);
+                            SlaveConnection.writeJob(state, job, out, mirrors[w]);
+                            out.flush();
+                            message = bytes.toByteArray();
+                            requests[w].out.write(message);
+                            }
+                        else SlaveConnection.writeJob(state, job, requests[w].out, mirrors[w]);
+                        requests[w].out.flush();
+                        sent[w] += requests[w].count();
+                        }
+
+                    // the slave reads it in and evaluates it
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+                    in.readByte();  // V_EVALUATESIMPLE
+                    int numInds = in.readInt();
+                    int[] subpops = new int[numInds];
+                    for(int i = 0; i < numInds; i++)
+                        subpops[i] = in.readInt();
+                    Individual[] evaluated = new Individual[numInds];
+                    boolean[] updateFitness = new boolean[numInds];
+                    byte[][] genotypes = new byte[numInds][];
+                    for(int i = 0; i < numInds; i++)
+                        {
+                        evaluated[i] = Slave.readIndividual(state, subpops[i], in, slave, genotypes, i);
+                        updateFitness[i] = in.readBoolean();
+                        if (!write(state, evaluated[i]).equals(write(state, job.inds[i])))
+                            throw new RuntimeException("The slave read a different individual than the master sent");
+                        problem.evaluate(state, evaluated[i], subpops[i], 0);
+                        }
+
+                    // and back
+                    for(int w = 0; w < replies.length; w++)
+                        {
+                        if (replies[w].out == null) continue;
+                        Slave.returnIndividualsToMaster(state, evaluated, updateFitness, replies[w].out, true,
+                            (w < 2 ? null : slave), genotypes, -1);
+                        replies[w].out.flush();
+                        returned[w] += replies[w].count();
+                        }
+                    }
+                }
+
+            StringBuilder line = new StringBuilder("" + state.generation);
+            for(int w = 0; w < 4; w++)
+                {
+                line.append("\t" + (compression || w % 2 == 0 ? "" + sent[w] : "-"));
+                requestTotals[w] += sent[w];
+                }
+            for(int w = 0; w < 4; w++)
+                {
+                line.append("\t" + (compression || w % 2 == 0 ? "" + returned[w] : "-"));
+                replyTotals[w] += returned[w];
+                }
+            System.out.println(line);
+
+            result = state.evolve();
+            }
+
+        StringBuilder line = new StringBuilder("total");
+        for(int w = 0; w < 4; w++)
+            line.append("\t" + (compression || w % 2 == 0 ? "" + requestTotals[w] : "-"));
+        for(int w = 0; w < 4; w++)
+            line.append("\t" + (compression || w % 2 == 0 ? "" + replyTotals[w] : "-"));
+        System.out.println(line);
+        System.exit(0);
+        }
+
+    // an individual's binary form, as a String so it can be compared
+    static String write(EvolutionState state, Individual ind) throws IOException
+        {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ind.writeIndividual(state, out);
+        out.flush();
+        return new String(bytes.toByteArray(), "ISO-8859-1");
+        }
+    }
@@ -44,6 +44,36 @@ public class Job
     int[] subPops; 
     boolean countVictoriesOnly;
     boolean[] updateFitness;
+    volatile long sentTime;  // by System.nanoTime(), when the job started being sent to the slave, or 0
+    byte[] message;  // the job as it will be sent to the slave, if it was serialized in advance
+
+    // For speculative re-execution, a straggling job may be copied onto another slave.  The copy points
+    // to the original as its primary, and whichever of them returns first claims the primary and has its
+    // results merged.  Merging and cloning the individuals are both done holding the primary's lock.
+    Job primary;
+    boolean duplicated;  // in the primary: has it been copied?
+    boolean claimed;     // in the primary: has one of its copies returned?
+    boolean discarded;   // was this job's result thrown away because another copy got there first?
+
+    /** Returns the job which this one was copied from, or this job if it wasn't. */
+    Job primary()
+        {
+        return (primary == null ? this : primary);
+        }
+
+    /** Returns a copy of this job, to be evaluated on another slave, with this job as its primary. */
+    Job duplicate()
+        {
+        Job job = new Job();
+        job.type = type;
+        job.inds = inds;
+        job.subPops = subPops;
+        job.countVictoriesOnly = countVictoriesOnly;
+        job.updateFitness = updateFitness;
+        job.primary = this;
+        duplicated = true;
+        return job;
+        }
     
     void copyIndividualsForward()
         {
@@ -65,4 +95,47 @@ public class Job
             inds[i].merge(state, newinds[i]);
         newinds = null;
         }
+
+    /** Copies the individuals back if no other copy of this job has done so already, else throws the results away. 
+        Returns false if the results were thrown away. */
+    boolean claimAndCopyIndividualsBack(EvolutionState state)
+        {
+        Job p = primary();
+        synchronized(p)
+            {
+            if (p.claimed)
+                {
+                newinds = null;
+                discarded = true;
+                return false;
+                }
+            p.claimed = true;
+            copyIndividualsBack(state);
+            return true;
+            }
+        }
+
+    /** Removes the first n individuals from a Slave.V_EVALUATESIMPLE job, and returns them as a new job. */
+    Job split(int n)
+        {
+        Job job = new Job();
+        job.type = type;
+        job.inds = new Individual[n];
+        job.subPops = new int[n];
+        job.updateFitness = new boolean[n];
+        System.arraycopy(inds, 0, job.inds, 0, n);
+        System.arraycopy(subPops, 0, job.subPops, 0, n);
+        System.arraycopy(updateFitness, 0, job.updateFitness, 0, n);
+
+        Individual[] i = new Individual[inds.length - n];
+        int[] s = new int[inds.length - n];
+        boolean[] u = new boolean[inds.length - n];
+        System.arraycopy(inds, n, i, 0, i.length);
+        System.arraycopy(subPops, n, s, 0, s.length);
+        System.arraycopy(updateFitness, n, u, 0, u.length);
+        inds = i;
+        subPops = s;
+        updateFitness = u;
+        return job;
+        }
     }
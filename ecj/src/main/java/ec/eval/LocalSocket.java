@@ -0,0 +1,421 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.lang.reflect.Field;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LocalSocket.java
+ *
+ * A Socket between a master and a Slave on the same machine.  Rather than going through TCP, it is
+ * a file mapped into memory by both of them, holding a ring buffer in each direction.  What's written
+ * to its output stream goes straight into the mapped file, and what's read from its input stream comes
+ * straight out of it, so the usual slave protocol runs over it unchanged.
+ *
+ * <p>A slave whose <tt>eval.local.directory</tt> is set connects by creating a new file there, and
+ * a master with the same <tt>eval.local.directory</tt> checks that directory every so often for new
+ * files, maps them, and deletes them.  Each side holds a lock on its own byte of the file while it's
+ * connected: if the other side's byte can be locked, the other side has died, and the stream ends.
+ *
+ * <p>A reader waiting for data, or a writer waiting for room, spins briefly and then sleeps for
+ * increasing periods up to a millisecond.  Nothing is sent until the output stream is flushed.
+ *
+ * <p>Reads and writes of the mapped file are plain memory accesses, which the compiler and processor
+ * may reorder, so the rings are ordered with sun.misc.Unsafe's fences: a store fence between writing
+ * data and publishing the tail which covers it, and load fences between reading the tail and reading the
+ * data, and between reading the data and publishing the head which frees its room.  A JVM without them
+ * can't use LocalSockets.
+ *
+ * <p>LocalSocket isn't a real Socket: only the methods the master and slave use are supported.
+ */
+
+public class LocalSocket extends Socket
+    {
+    public static final String SUFFIX = ".ring";
+    static final int MAGIC = 0xEC1B0F;
+    static final int DEFAULT_CAPACITY = 1 << 20;
+
+    // The file's layout.  Each counter gets its own cache line.
+    static final int MAGIC_POS = 0;
+    static final int CAPACITY_POS = 4;
+    static final int ATTACHED_POS = 8;  // 1 once the master has mapped the file
+    static final int RING_POS = 64;  // the ring from master to slave, then the ring from slave to master
+    static final int RING_HEADER = 192;
+    static final int TAIL = 0;  // long: bytes written so far
+    static final int HEAD = 64;  // long: bytes read so far
+    static final int CLOSED = 128;  // int: 1 once the writer has closed
+    static final int DATA_POS = RING_POS + 2 * RING_HEADER;
+
+    // the bytes of the file which each side locks while it's connected
+    static final long MASTER_LOCK = 0;
+    static final long SLAVE_LOCK = 1;
+
+    static final long CHECK_INTERVAL = 100000000L;  // how often to check whether the other side is alive, in ns
+    static final int SPINS = 100;
+    static final long MAX_SLEEP = 1000000L;  // ns
+
+    // Unsafe.storeFence() and Unsafe.loadFence(), or null if we can't get them.  sun.misc.Unsafe isn't in
+    // the API we compile against, so we find them by reflection, and bind them to method handles which the
+    // compiler can inline.
+    static final MethodHandle STORE_FENCE;
+    static final MethodHandle LOAD_FENCE;
+    static
+        {
+        MethodHandle store = null;
+        MethodHandle load = null;
+        try
+            {
+            Class<?> c = Class.forName("sun.misc.Unsafe");
+            Field f = c.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            Object unsafe = f.get(null);
+            MethodType type = MethodType.methodType(void.class);
+            store = MethodHandles.lookup().findVirtual(c, "storeFence", type).bindTo(unsafe);
+            load = MethodHandles.lookup().findVirtual(c, "loadFence", type).bindTo(unsafe);
+            }
+        catch (Exception e) { store = load = null; }  // we'll complain when someone tries to connect
+        STORE_FENCE = store;
+        LOAD_FENCE = load;
+        }
+
+    // keeps stores before it from being reordered with stores after it
+    static void storeFence()
+        {
+        try { STORE_FENCE.invokeExact(); }
+        catch (Throwable e) { throw new RuntimeException(e); }  // can't happen
+        }
+
+    // keeps loads before it from being reordered with loads and stores after it
+    static void loadFence()
+        {
+        try { LOAD_FENCE.invokeExact(); }
+        catch (Throwable e) { throw new RuntimeException(e); }  // can't happen
+        }
+
+    static void checkFences() throws IOException
+        {
+        if (STORE_FENCE == null || LOAD_FENCE == null)
+            throw new IOException("LocalSocket needs sun.misc.Unsafe's memory fences, which this JVM doesn't provide");
+        }
+
+    final File file;
+    final RandomAccessFile raf;
+    final FileChannel channel;
+    final MappedByteBuffer map;
+    final FileLock lock;
+    final long otherLock;
+    final RingInputStream in;
+    final RingOutputStream out;
+    volatile boolean closed;
+
+    LocalSocket(File file, RandomAccessFile raf, MappedByteBuffer map, FileLock lock, boolean master, int capacity) throws SocketException
+        {
+        super((SocketImpl) null);
+        this.file = file;
+        this.raf = raf;
+        this.channel = raf.getChannel();
+        this.map = map;
+        this.lock = lock;
+        this.otherLock = (master ? SLAVE_LOCK : MASTER_LOCK);
+        int toSlave = RING_POS;
+        int toMaster = RING_POS + RING_HEADER;
+        in = new RingInputStream(master ? toMaster : toSlave, DATA_POS + (master ? capacity : 0), capacity);
+        out = new RingOutputStream(master ? toSlave : toMaster, DATA_POS + (master ? 0 : capacity), capacity);
+        }
+
+    /** Called by a slave to connect to whatever master is watching the given directory.  The ring buffers
+        will each hold capacity bytes, which must be a power of two. */
+    public static LocalSocket connect(File directory, String name, int capacity) throws IOException
+        {
+        checkFences();
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0)
+            throw new IOException("The buffer size must be a power of two: " + capacity);
+        File temp = File.createTempFile(name.replaceAll("[^A-Za-z0-9.-]", "_") + "-", ".tmp", directory);
+        RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+        try
+            {
+            raf.setLength(DATA_POS + 2L * capacity);
+            MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, DATA_POS + 2L * capacity);
+            map.putInt(CAPACITY_POS, capacity);
+            map.putInt(MAGIC_POS, MAGIC);
+            FileLock lock = raf.getChannel().lock(SLAVE_LOCK, 1, false);
+            File file = new File(directory, temp.getName().substring(0, temp.getName().length() - 4) + SUFFIX);
+            if (!temp.renameTo(file))
+                throw new IOException("Could not rename " + temp + " to " + file);
+            return new LocalSocket(file, raf, map, lock, false, capacity);
+            }
+        catch (IOException e)
+            {
+            try { raf.close(); } catch (IOException e2) { }
+            temp.delete();
+            throw e;
+            }
+        }
+
+    /** Called by the master to accept a slave's connection through the given file, which is then deleted.  */
+    public static LocalSocket accept(File file) throws IOException
+        {
+        checkFences();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+            {
+            if (raf.length() < DATA_POS)
+                throw new IOException("Not a local slave connection: " + file);
+            MappedByteBuffer map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+            int capacity = map.getInt(CAPACITY_POS);
+            if (map.getInt(MAGIC_POS) != MAGIC || raf.length() != DATA_POS + 2L * capacity)
+                throw new IOException("Not a local slave connection: " + file);
+            FileLock lock = raf.getChannel().lock(MASTER_LOCK, 1, false);
+            map.putInt(ATTACHED_POS, 1);
+            file.delete();  // it stays mapped until we're both done with it
+            return new LocalSocket(file, raf, map, lock, true, capacity);
+            }
+        catch (IOException e)
+            {
+            try { raf.close(); } catch (IOException e2) { }
+            file.delete();
+            throw e;
+            }
+        }
+
+    // Returns true if the other side has died without closing.  Before the master has attached, we can't tell.
+    boolean otherSideDead()
+        {
+        if (map.getInt(ATTACHED_POS) == 0) return false;
+        try
+            {
+            FileLock other = channel.tryLock(otherLock, 1, false);
+            if (other == null) return false;
+            other.release();
+            return true;
+            }
+        catch (IOException e) { return true; }
+        catch (OverlappingFileLockException e) { return false; }  // both sides are in this JVM
+        }
+
+    // waits a little longer each time, and every so often checks that the other side's alive
+    class Waiter
+        {
+        int spins;
+        long sleep;
+        long lastCheck;
+
+        void reset() { spins = 0; sleep = 0; }
+
+        void await(int closedPos) throws IOException
+            {
+            if (closed) throw new SocketException("Socket closed");
+            if (spins < SPINS) { spins++; Thread.yield(); return; }
+            if (sleep == 0) lastCheck = System.nanoTime();
+            sleep = Math.min(MAX_SLEEP, sleep * 2 + 1000);
+            LockSupport.parkNanos(sleep);
+            long now = System.nanoTime();
+            if (now - lastCheck > CHECK_INTERVAL)
+                {
+                lastCheck = now;
+                if (map.getInt(closedPos) == 0 && otherSideDead())
+                    throw new EOFException("The other end of " + file + " has gone away");
+                }
+            }
+        }
+
+    class RingInputStream extends InputStream
+        {
+        final int ring;
+        final ByteBuffer data;
+        final int mask;
+        long head;          // bytes read
+        long published;     // the head as the writer last saw it
+        long tail;          // bytes available, as of when we last looked
+        final Waiter waiter = new Waiter();
+
+        RingInputStream(int ring, int dataPos, int capacity)
+            {
+            this.ring = ring;
+            ByteBuffer d = map.duplicate();
+            d.position(dataPos);
+            d.limit(dataPos + capacity);
+            data = d.slice();
+            mask = capacity - 1;
+            }
+
+        // waits until there's something to read, returning false at end of stream
+        boolean fill() throws IOException
+            {
+            if (head < tail) return true;
+            loadFence();  // we've finished reading the data before the writer may overwrite it
+            map.putLong(ring + HEAD, published = head);  // we're up to date: let the writer have the room
+            waiter.reset();
+            while(true)
+                {
+                boolean wasClosed = map.getInt(ring + CLOSED) != 0;  // the writer publishes before it closes
+                loadFence();
+                tail = map.getLong(ring + TAIL);
+                loadFence();  // we don't read the data until we've seen the tail which covers it
+                if (head < tail) return true;
+                if (wasClosed) return false;
+                waiter.await(ring + CLOSED);
+                }
+            }
+
+        public int read() throws IOException
+            {
+            if (!fill()) return -1;
+            int b = data.get((int)(head++ & mask)) & 0xff;
+            release();
+            return b;
+            }
+
+        public int read(byte[] b, int off, int len) throws IOException
+            {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int pos = (int)(head & mask);
+            len = (int)Math.min(Math.min(len, tail - head), mask + 1 - pos);  // don't wrap around
+            data.position(pos);
+            data.get(b, off, len);
+            head += len;
+            release();
+            return len;
+            }
+
+        public int available()
+            {
+            return (int)(tail - head);
+            }
+
+        // lets the writer have the room if we've read half the buffer since last time
+        void release()
+            {
+            if (head - published > (mask >> 1))
+                {
+                loadFence();
+                map.putLong(ring + HEAD, published = head);
+                }
+            }
+
+        public void close()
+            {
+            LocalSocket.this.close();
+            }
+        }
+
+    class RingOutputStream extends OutputStream
+        {
+        final int ring;
+        final ByteBuffer data;
+        final int mask;
+        long tail;          // bytes written
+        long head;          // bytes read, as of when we last looked
+        final Waiter waiter = new Waiter();
+
+        RingOutputStream(int ring, int dataPos, int capacity)
+            {
+            this.ring = ring;
+            ByteBuffer d = map.duplicate();
+            d.position(dataPos);
+            d.limit(dataPos + capacity);
+            data = d.slice();
+            mask = capacity - 1;
+            }
+
+        // waits until there's room to write, publishing what's been written so far
+        void room() throws IOException
+            {
+            if (tail - head <= mask) return;
+            publish();
+            waiter.reset();
+            while(true)
+                {
+                head = map.getLong(ring + HEAD);
+                loadFence();  // the reader's done with the room before we write into it
+                if (tail - head <= mask) return;
+                waiter.await(ring + CLOSED);  // nobody closes our ring but us, so this just checks the reader is alive
+                }
+            }
+
+        void publish() throws IOException
+            {
+            if (closed) throw new SocketException("Socket closed");
+            storeFence();  // the data goes out before the tail which covers it
+            map.putLong(ring + TAIL, tail);
+            }
+
+        public void write(int b) throws IOException
+            {
+            room();
+            data.put((int)(tail & mask), (byte) b);
+            tail++;
+            }
+
+        public void write(byte[] b, int off, int len) throws IOException
+            {
+            while(len > 0)
+                {
+                room();
+                int pos = (int)(tail & mask);
+                int n = (int)Math.min(Math.min(len, mask + 1 - (tail - head)), mask + 1 - pos);  // don't wrap around
+                data.position(pos);
+                data.put(b, off, n);
+                tail += n;
+                off += n;
+                len -= n;
+                }
+            }
+
+        public void flush() throws IOException
+            {
+            publish();
+            }
+
+        public void close()
+            {
+            LocalSocket.this.close();
+            }
+        }
+
+    public InputStream getInputStream() throws IOException
+        {
+        if (closed) throw new SocketException("Socket closed");
+        return in;
+        }
+
+    public OutputStream getOutputStream() throws IOException
+        {
+        if (closed) throw new SocketException("Socket closed");
+        return out;
+        }
+
+    /** Sends whatever has been written, and tells the other side that there will be no more. */
+    public synchronized void close()
+        {
+        if (closed) return;
+        try { out.publish(); } catch (IOException e) { }
+        storeFence();  // the tail goes out before we say we're closed
+        map.putInt(out.ring + CLOSED, 1);
+        closed = true;
+        try { lock.release(); } catch (IOException e) { }
+        try { raf.close(); } catch (IOException e) { }
+        }
+
+    public boolean isClosed() { return closed; }
+    public boolean isConnected() { return true; }
+    public InetAddress getInetAddress() { return getLocalAddress(); }
+    public InetAddress getLocalAddress()
+        {
+        try { return InetAddress.getByName("localhost"); }
+        catch (UnknownHostException e) { return null; }
+        }
+    public String toString() { return "LocalSocket[" + file + "]"; }
+    }
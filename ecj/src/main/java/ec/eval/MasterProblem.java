@@ -35,6 +35,20 @@ import java.io.*;
  called a <i>job</i>, to the remote slave.  In other situations (coevolution, or no prepareToEvaluate())
  the MasterProblem sends off individuals immediately.
  
+ <p>Alternatively, the MasterProblem can size jobs <i>adaptively</i>, for each slave.  This helps when slaves
+ differ in speed, or when individuals differ a lot in how long they take to evaluate.  As each job comes back,
+ the SlaveMonitor updates its estimates of that slave's <i>latency</i> (the fixed time each job costs: the round trip,
+ and so on) and its <i>throughput</i> (individuals evaluated per second), fitting the time of a job as latency + size / throughput 
+ by least squares, weighted exponentially towards recent jobs by <i>adaptive-weight</i>.  A slave's job is then made
+ just large enough that its latency is at most <i>target-overhead</i> of the job's time, but no larger than half 
+ what's left of the batch, divided among the slaves according to their throughput, so that jobs shrink at the tail
+ of each generation and slow slaves don't hold everyone up at the end.  New slaves start with <i>job-size</i> individuals.
+ The number of individuals left in a batch is estimated from the size of the previous batch (or the population in
+ the first one).  To get these job sizes right, evaluate() holds on to individuals until a slave is free to take them, 
+ and so you should call prepareToEvaluate() and finishEvaluating(), as the Evaluators do.
+ You can get each slave's estimates, and more, from getSlaveStatus() or getMetrics(), or log them with SlaveStatistics.  Adaptive sizing
+ doesn't apply to coevolution or to steady-state evolution.
+ 
  <p>It may be the case that no Slave has space in its queue to accept a new job containing, among others,
  your new individual.  In this case, calling evaluate() will block until one comes available.  You can avoid
  this by testing for availability first by calling canEvaluate().  Note that canEvaluate() and evaluate()
@@ -56,6 +70,10 @@ import java.io.*;
  evaluatedIndividualAvailable().  If this returns true, you may then call getNextEvaluatedIndividual()
  to get the individual.  Note that this isn't atomic, so don't use it if you have multiple threads.
  </ul>
+
+ <p>The last two only work in steady-state evolution, or if <tt>queueEvaluatedIndividuals</tt> has been set
+ before contacts are initialized.  In that case you can end a batch with flushEvaluating() rather than
+ finishEvaluating(), and collect the individuals as they come back, as OverlappingEvaluator does.
   
  <p><b>Parameters</b><br>
  <table>
@@ -65,7 +83,27 @@ import java.io.*;
 
  <tr><td valign=top><i>base.</i><tt>job-size</tt><br>
  <font size=-1>integer &gt; 0 </font></td>
- <td valign=top>(how large should a job be at most?)<br>
+ <td valign=top>(how large should a job be at most?  If job sizes are adaptive, how large should a slave's first job be?)<br>
+ </td></tr>
+
+ <tr><td valign=top><i>base.</i><tt>adaptive-job-size</tt><br>
+ <font size=-1>boolean (default false)</font></td>
+ <td valign=top>(should each slave's jobs be sized from its measured throughput and latency?)<br>
+ </td></tr>
+
+ <tr><td valign=top><i>base.</i><tt>max-job-size</tt><br>
+ <font size=-1>integer &gt; 0 (default unlimited)</font></td>
+ <td valign=top>(if job sizes are adaptive, how large should a job be at most?)<br>
+ </td></tr>
+
+ <tr><td valign=top><i>base.</i><tt>adaptive-weight</tt><br>
+ <font size=-1>0.0 &lt; double &lt;= 1.0 (default 0.3)</font></td>
+ <td valign=top>(if job sizes are adaptive, how much weight does each returned job carry in a slave's estimates?)<br>
+ </td></tr>
+
+ <tr><td valign=top><i>base.</i><tt>target-overhead</tt><br>
+ <font size=-1>0.0 &lt; double &lt; 1.0 (default 0.1)</font></td>
+ <td valign=top>(if job sizes are adaptive, what fraction of a job's time should be latency?)<br>
  </td></tr>
 
 
@@ -79,10 +117,38 @@ import java.io.*;
  <font size=-1>boolean</font></td>
  <td valign=top>(whether the communication with the slaves should be compressed or not)<br>
  </td></tr>
+ <tr><td valign=top><tt>eval.nio</tt><br>
+ <font size=-1>boolean (default false)</font></td>
+ <td valign=top>(whether to talk to the slaves with an NIOSlaveMonitor, rather than two threads per slave)<br>
+ </td></tr>
+ <tr><td valign=top><tt>eval.local.directory</tt><br>
+ <font size=-1>String (a directory), or nonexistant (default)</font></td>
+ <td valign=top>(if it exists, a directory which is checked for slaves on this machine connecting through LocalSockets, as well as accepting slaves on eval.master.port.  Not supported with eval.nio.)<br>
+ </td></tr>
+ <tr><td valign=top><tt>eval.genotype-cache</tt><br>
+ <font size=-1>int &gt;= 0 (default 0)</font></td>
+ <td valign=top>(how many genotypes each slave should cache, so they needn't be sent again: see GenotypeCache.  0 means none.)<br>
+ </td></tr>
  <tr><td valign=top><tt>eval.masterproblem.max-jobs-per-slave</tt><br>
  <font size=-1>int</font></td>
  <td valign=top>(the maximum load (number of jobs) per slave at any point in time)<br>
  </td></tr>
+ <tr><td valign=top><tt>eval.masterproblem.speculate</tt><br>
+ <font size=-1>boolean (default false)</font></td>
+ <td valign=top>(in generational evolution, should straggling jobs be copied onto idle slaves, taking whichever result comes back first?)<br>
+ </td></tr>
+ <tr><td valign=top><tt>eval.masterproblem.speculate-fraction</tt><br>
+ <font size=-1>0.0 &lt;= double &lt;= 1.0 (default 0.9)</font></td>
+ <td valign=top>(once this fraction of a batch's jobs have come back, all the rest are straggling)<br>
+ </td></tr>
+ <tr><td valign=top><tt>eval.masterproblem.speculate-percentile</tt><br>
+ <font size=-1>0.0 &lt; double &lt;= 1.0 (default 0.95)</font></td>
+ <td valign=top>(a job is also straggling once it has taken longer than this percentile of the times of the batch's jobs which have come back)<br>
+ </td></tr>
+ <tr><td valign=top><tt>eval.masterproblem.prefer-healthy</tt>, <tt>late-factor</tt>, <tt>max-error-rate</tt>, <tt>health-timeout</tt><br>
+ <tt>eval.metrics.file</tt>, <tt>eval.metrics.interval</tt></td>
+ <td valign=top>(how the slaves' health is tracked and acted on, and where their metrics are written: see SlaveMonitor)<br>
+ </td></tr>
 
  </table>
 
@@ -96,10 +162,21 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
     
     public static final String P_DEBUG_INFO = "debug-info";
     public static final String P_JOB_SIZE = "job-size";
+    public static final String P_ADAPTIVE_JOB_SIZE = "adaptive-job-size";
+    public static final String P_MAX_JOB_SIZE = "max-job-size";
+    public static final String P_ADAPTIVE_WEIGHT = "adaptive-weight";
+    public static final String P_TARGET_OVERHEAD = "target-overhead";
     
     int jobSize;
+    boolean adaptiveJobSize;
+    int maxJobSize;
+    double adaptiveWeight;
+    double targetOverhead;
     boolean showDebugInfo;
     public boolean batchMode;
+    /** Whether the monitor should queue returned individuals for getNextEvaluatedIndividual() even in generational
+        evolution, as OverlappingEvaluator needs.  This must be set before contacts are initialized. */
+    public boolean queueEvaluatedIndividuals;
     public transient SlaveMonitor monitor;               // note transient.  We rebuild it.
     public Problem problem;
 
@@ -111,7 +188,12 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
         // shallow-cloned stuff
         c.monitor = monitor;
         c.batchMode = batchMode;
+        c.queueEvaluatedIndividuals = queueEvaluatedIndividuals;
         c.jobSize = jobSize; 
+        c.adaptiveJobSize = adaptiveJobSize;
+        c.maxJobSize = maxJobSize;
+        c.adaptiveWeight = adaptiveWeight;
+        c.targetOverhead = targetOverhead;
         
         c.showDebugInfo = showDebugInfo;
 
@@ -132,14 +214,48 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
         if (jobSize<=0)
             state.output.fatal("The job size must be an integer > 0.", base.push(P_JOB_SIZE));
 
+        adaptiveJobSize = state.parameters.getBoolean(base.push(P_ADAPTIVE_JOB_SIZE),null,false);
+        if (adaptiveJobSize && state instanceof ec.steadystate.SteadyStateEvolutionState)
+            {
+            state.output.warning("Adaptive job sizes don't apply to steady-state evolution, and will be turned off.", base.push(P_ADAPTIVE_JOB_SIZE));
+            adaptiveJobSize = false;
+            }
+        maxJobSize = state.parameters.getIntWithDefault(base.push(P_MAX_JOB_SIZE),null,Integer.MAX_VALUE);
+        if (maxJobSize<=0)
+            state.output.fatal("The maximum job size must be an integer > 0.", base.push(P_MAX_JOB_SIZE));
+        adaptiveWeight = state.parameters.getDoubleWithDefault(base.push(P_ADAPTIVE_WEIGHT),null,0.3);
+        if (adaptiveWeight<=0 || adaptiveWeight>1)
+            state.output.fatal("The adaptive weight must be a number > 0 and <= 1.", base.push(P_ADAPTIVE_WEIGHT));
+        targetOverhead = state.parameters.getDoubleWithDefault(base.push(P_TARGET_OVERHEAD),null,0.1);
+        if (targetOverhead<=0 || targetOverhead>=1)
+            state.output.fatal("The target overhead must be a number > 0 and < 1.", base.push(P_TARGET_OVERHEAD));
+
         batchMode = false;
         }
 
     // prepare for a batch of evaluations
     public void prepareToEvaluate(final EvolutionState state, final int threadnum)
         {
-        if (jobSize > 1) queue = new ArrayList();
+        if (jobSize > 1 || adaptiveJobSize) queue = new ArrayList<QueueIndividual>();
         batchMode = true;
+        submitted = 0;
+        }
+
+    // the number of individuals submitted so far in this batch, and in the last one
+    int submitted;
+    int lastSubmitted;
+
+    // estimates the number of individuals, including those queued, still to be scheduled in this batch
+    int remaining(EvolutionState state)
+        {
+        int expected = lastSubmitted;
+        if (expected == 0 && state.population != null)  // the first batch: guess that it's our share of the population
+            {
+            for(int i = 0; i < state.population.subpops.size(); i++)
+                expected += state.population.subpops.get(i).individuals.size();
+            expected /= Math.max(state.evalthreads, 1);
+            }
+        return Math.max(expected - submitted, 0) + queue.size();
         }
 
     // wait until a batch of evaluations is finished
@@ -149,6 +265,7 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
             state.output.message(Thread.currentThread().getName() + "Waiting for all slaves to finish.");
         flush(state, threadnum);
         queue = null;  // get rid of it just in case
+        if (submitted > 0) lastSubmitted = submitted;
                 
         monitor.waitForAllSlavesToFinishEvaluating( state );
         batchMode = false;
@@ -156,10 +273,29 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
             state.output.message(Thread.currentThread().getName() + "All slaves have finished their jobs.");
         }
 
+    /** Ends a batch of evaluations, as finishEvaluating() does, sending off any individuals still waiting to be
+        sent, but without waiting for any of them to come back.  You must collect them yourself as they do with
+        getNextEvaluatedIndividual(), and so queueEvaluatedIndividuals must have been set. */
+    public void flushEvaluating(final EvolutionState state, final int threadnum)
+        {
+        flush(state, threadnum);
+        queue = null;
+        if (submitted > 0) lastSubmitted = submitted;
+        batchMode = false;
+        }
+
     // evaluate a regular individual
     public void evaluate(EvolutionState state, Individual ind, int subpopulation, int threadnum)
         {
-        if (jobSize > 1 && batchMode == true)    // chunked evaluation mechanism
+        if (adaptiveJobSize && batchMode == true)    // adaptively chunked evaluation mechanism
+            {
+            queue.add(new QueueIndividual(ind, subpopulation));
+            submitted++;
+            // send the queue off once it's as big as the next free slave wants, else keep filling it
+            if (queue.size() >= Math.min(monitor.nextJobSize(remaining(state)), maxJobSize))
+                flush(state, threadnum);
+            }
+        else if (jobSize > 1 && batchMode == true)    // chunked evaluation mechanism
             {
             queue.add(new QueueIndividual(ind, subpopulation));
             if (queue.size() >= jobSize)
@@ -170,28 +306,36 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
         }
         
         
-    ArrayList queue;
+    ArrayList<QueueIndividual> queue;
     void flush(EvolutionState state, int threadnum)
         {
         int subpopulation;
         if (queue!=null && queue.size() > 0 )
             {
+            int remaining = (adaptiveJobSize ? remaining(state) : queue.size());
             Individual[] inds = new Individual[queue.size()];
             int[] subpopulations = new int[queue.size()];
             for(int i = 0; i < queue.size(); i++)
                 {
-                QueueIndividual qind = (QueueIndividual)(queue.get(i));
+                QueueIndividual qind = queue.get(i);
                 inds[i] = qind.ind;
                 subpopulations[i] = qind.subpop; 
                 }
-            evaluate(state, inds, subpopulations, threadnum);
+            evaluate(state, inds, subpopulations, remaining, threadnum);
             }
-        queue = new ArrayList();
+        queue = new ArrayList<QueueIndividual>();
         }
 
 
     // send a group of individuals to one slave for evaluation 
     void evaluate(EvolutionState state, Individual inds[], int[] subpopulations, int threadnum)
+        {
+        evaluate(state, inds, subpopulations, inds.length, threadnum);
+        }
+
+    // send a group of individuals to one slave for evaluation, or split among slaves if job sizes are adaptive,
+    // given the number of individuals (including these) still to be scheduled in this batch
+    void evaluate(EvolutionState state, Individual inds[], int[] subpopulations, int remaining, int threadnum)
         {
         if(showDebugInfo)
             state.output.message(Thread.currentThread().getName() + "Starting a " + (batchMode ? "batched " : "") + "SimpleProblemForm evaluation.");
@@ -204,7 +348,7 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
         job.updateFitness = new boolean[inds.length]; 
         for (int i=0 ; i < inds.length; i++) 
             job.updateFitness[i]=true; 
-        monitor.scheduleJobForEvaluation(state,job);
+        monitor.scheduleJobForEvaluation(state,job,remaining);
         if( !batchMode )
             monitor.waitForAllSlavesToFinishEvaluating( state );
         if(showDebugInfo) state.output.message(Thread.currentThread().getName() + "Finished a " + (batchMode ? "batched " : "") + "SimpleProblemForm evaluation.");
@@ -290,7 +434,9 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
         {
         if(showDebugInfo)
             state.output.message(Thread.currentThread().getName() + "Spawning the server thread.");
-        monitor = new SlaveMonitor(state, showDebugInfo, this);
+        if (state.parameters.getBoolean(new Parameter(SlaveMonitor.P_EVALNIO), null, false))
+            monitor = new NIOSlaveMonitor(state, showDebugInfo, this);
+        else monitor = new SlaveMonitor(state, showDebugInfo, this);
         }
 
     /** Reinitialize contacts with the slaves */
@@ -305,13 +451,25 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
         monitor.shutdown();
         }
         
+    /** Returns snapshots of the performance of each slave currently connected. */
+    public SlaveStatus[] getSlaveStatus()
+        {
+        return monitor.getSlaveStatus();
+        }
+
+    /** Returns a snapshot of the slaves as a whole: how many jobs are queued and in flight, and so on. */
+    public SlaveMetrics getMetrics()
+        {
+        return monitor.getMetrics();
+        }
+
     public boolean canEvaluate() 
         {
         return (monitor.numAvailableSlaves() != 0); 
         }
         
-    /** This will only return true if (1) the EvolutionState is a SteadyStateEvolutionState and
-        (2) an individual has returned from the system.  If you're not doing steady state evolution,
+    /** This will only return true if (1) the EvolutionState is a SteadyStateEvolutionState, or
+        queueEvaluatedIndividuals is set, and (2) an individual has returned from the system.  Otherwise
         you should not call this method.  */
     public boolean evaluatedIndividualAvailable()
         {
@@ -320,7 +478,7 @@ public class MasterProblem extends Problem implements SimpleProblemForm, Grouped
     
     /** This method blocks until an individual is available from the slaves (which will cause evaluatedIndividualAvailable()
         to return true), at which time it returns the individual.  You should only call this method
-        if you're doing steady state evolution -- otherwise, the method will block forever. */
+        if you're doing steady state evolution, or queueEvaluatedIndividuals is set -- otherwise, the method will block forever. */
     public QueueIndividual getNextEvaluatedIndividual()
         {
         return monitor.waitForIndividual();
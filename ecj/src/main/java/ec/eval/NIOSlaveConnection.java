@@ -0,0 +1,267 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import ec.*;
+
+/**
+ * NIOSlaveConnection.java
+ *
+ * A SlaveConnection for the NIOSlaveMonitor.  It has no threads of its own: it's a non-blocking
+ * SocketChannel, whose reading and writing is done by one of the NIOSlaveMonitor's selector threads.
+ *
+ * <p>Threads scheduling jobs serialize them, in the Slave's usual protocol, and hand them to the
+ * connection through a lock-free outbox.  The selector thread copies them through a direct buffer
+ * onto the channel as the channel can take them.  Results come back through another direct buffer.
+ * The Slave protocol doesn't give the length of a result, so the selector thread reads each individual
+ * as soon as it thinks it has all of it; if it runs out of bytes, it puts that individual back and
+ * waits for more.  So that a big individual arriving in many pieces isn't read over and over from the
+ * start, which would take time quadratic in its size, after each failed try the selector thread waits
+ * until it has twice as many of the individual's bytes, or until no more have come for DEFER_MILLIS,
+ * before trying again.  A finished job is put on the monitor's completion queue, and the threads waiting
+ * on the monitor merge the results into the original individuals.
+ */
+
+class NIOSlaveConnection extends SlaveConnection
+    {
+    static final int BUFFER_SIZE = 65536;
+    /** How long, in milliseconds, to wait for more of an individual before trying to read it with what we have. */
+    static final long DEFER_MILLIS = 10;
+
+    SocketChannel channel;
+    NIOSlaveMonitor.SelectorThread selector;
+    SelectionKey key;
+
+    // the number of jobs scheduled but not yet returned
+    AtomicInteger numJobs = new AtomicInteger();
+    // jobs scheduled and serialized, but not yet being written
+    ConcurrentLinkedQueue<Job> outbox = new ConcurrentLinkedQueue<Job>();
+    // set by the selector thread once the channel is closed
+    volatile boolean closed;
+
+    // The rest is only touched by the selector thread.
+
+    // jobs being written or already written, in order, whose results haven't all come back
+    ArrayDeque<Job> sent = new ArrayDeque<Job>();
+    // the bytes of the job being written, and how many of them are in the output buffer so far
+    byte[] writing;
+    int written;
+    ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // which individual of the first job in sent we're reading next
+    int reading;
+    // how many bytes of that individual we must have before trying to read it again, or 0
+    int needed;
+    // when, by System.nanoTime(), we last read anything from the channel, or last tried to read an individual
+    long lastRead;
+    DataInputStream dataIn = new DataInputStream(new InputStream()
+        {
+        public int read() { return input.hasRemaining() ? (input.get() & 0xff) : -1; }
+        public int read(byte[] b, int off, int len)
+            {
+            if (len == 0) return 0;
+            if (!input.hasRemaining()) return -1;
+            len = Math.min(len, input.remaining());
+            input.get(b, off, len);
+            return len;
+            }
+        });
+
+    public NIOSlaveConnection( EvolutionState state,
+        String slaveName,
+        SocketChannel channel,
+        NIOSlaveMonitor slaveMonitor,
+        NIOSlaveMonitor.SelectorThread selector )
+        {
+        super(state, slaveName, channel.socket(), slaveMonitor);
+        this.channel = channel;
+        this.selector = selector;
+        }
+
+    public int numJobs()
+        {
+        return numJobs.get();
+        }
+
+    int numQueuedJobs()
+        {
+        return outbox.size();
+        }
+
+    /**
+       Adds a new job to the outbox, serializing it first.  The caller must have already reserved room
+       for the job by incrementing numJobs.
+    */
+    public void scheduleJob( final Job job )
+        {
+        if (job.sent) // just in case
+            state.output.fatal("Tried to schedule a job which had already been scheduled.");
+        job.sent = true;
+        // jobs must go in the outbox in the order they were serialized, as the genotype cache depends on it
+        synchronized(outbox)
+            {
+            try
+                {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                writeJob(state, job, out, cache);
+                out.flush();
+                job.message = bytes.toByteArray();
+                }
+            catch (IOException e)
+                {
+                state.output.fatal("Could not serialize a job for " + this + ":\n" + e);
+                }
+            outbox.offer(job);
+            }
+        if (closed)  // too late: the selector thread may have missed it, so we hand it back ourselves
+            ((NIOSlaveMonitor)slaveMonitor).lost(this, drain(new ArrayList<Job>()));
+        else selector.wantsToWrite(this);
+        }
+
+    // moves the jobs in the outbox to the given list, ready to be rescheduled
+    ArrayList<Job> drain(ArrayList<Job> lost)
+        {
+        Job job;
+        while((job = outbox.poll()) != null)
+            {
+            job.sent = false;  // reuse
+            job.message = null;
+            lost.add(job);
+            }
+        return lost;
+        }
+
+    /** Called by the selector thread to write as much as the channel will take.  Returns true when there's nothing left to write. */
+    boolean write() throws IOException
+        {
+        while(true)
+            {
+            // fill the output buffer
+            while(output.hasRemaining())
+                {
+                if (writing == null)
+                    {
+                    Job job = outbox.poll();
+                    if (job == null) break;
+                    sent.addLast(job);
+                    job.sentTime = System.nanoTime();
+                    writing = job.message;
+                    written = 0;
+                    job.message = null;  // let GC
+                    }
+                int len = Math.min(output.remaining(), writing.length - written);
+                output.put(writing, written, len);
+                written += len;
+                if (written == writing.length) writing = null;
+                }
+
+            output.flip();
+            if (!output.hasRemaining())
+                {
+                output.clear();
+                return true;
+                }
+            channel.write(output);
+            boolean stuck = output.hasRemaining();
+            output.compact();
+            if (stuck) return false;  // the channel is full: wait for OP_WRITE
+            }
+        }
+
+    /** Called by the selector thread to read what's arrived from the channel, and then as many results as it
+        can, unless it's waiting for more of an individual.  Returns false on end of stream. */
+    boolean read() throws IOException
+        {
+        if (!input.hasRemaining())  // a single result is bigger than our buffer
+            {
+            ByteBuffer bigger = ByteBuffer.allocateDirect(input.capacity() * 2);
+            input.flip();
+            bigger.put(input);
+            input = bigger;
+            }
+        int count = channel.read(input);
+        if (count < 0) return false;
+        if (count > 0) lastRead = System.nanoTime();
+        if (!deferred()) parse();
+        return true;
+        }
+
+    /** Returns true if we're waiting for more of an individual before trying to read it again. */
+    boolean deferred()
+        {
+        return input.position() < needed;
+        }
+
+    /** Called by the selector thread to read as many results as it can from the bytes that have arrived. */
+    void parse() throws IOException
+        {
+        input.flip();
+        while(!sent.isEmpty())
+            {
+            Job job = sent.getFirst();
+            if (job.newinds == null)
+                job.copyIndividualsForward();
+            for( ; reading < job.newinds.length; reading++)
+                {
+                int mark = input.position();
+                try
+                    {
+                    readResult(state, job, reading, dataIn.readByte(), dataIn);
+                    needed = 0;
+                    }
+                catch (EOFException e)
+                    {
+                    // we haven't got all of this individual yet: put it back and wait for the rest
+                    needed = 2 * (input.limit() - mark);
+                    lastRead = System.nanoTime();
+                    input.position(mark);
+                    input.compact();
+                    return;
+                    }
+                }
+
+            // the job is done
+            sent.removeFirst();
+            reading = 0;
+            recordJob(job, System.nanoTime());
+            numJobs.decrementAndGet();
+            ((NIOSlaveMonitor)slaveMonitor).completed(job);
+            }
+
+        if (input.hasRemaining())
+            throw new IOException("Slave " + slaveName + " sent a result for a job it wasn't given.");
+        input.clear();
+        }
+
+    /** Called by the selector thread when the slave has been lost or shut down.  Returns the jobs it hadn't finished. */
+    ArrayList<Job> close()
+        {
+        closed = true;
+        try { channel.close(); } catch (IOException e) { }
+        ArrayList<Job> lost = new ArrayList<Job>(sent);
+        sent.clear();
+        for(int i = 0; i < lost.size(); i++)
+            {
+            Job job = lost.get(i);
+            job.sent = false;  // reuse
+            job.newinds = null;
+            }
+        writing = null;
+        reading = 0;
+        needed = 0;
+        return drain(lost);
+        }
+    }
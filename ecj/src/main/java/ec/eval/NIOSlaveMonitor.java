@@ -0,0 +1,546 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+import ec.*;
+import ec.util.*;
+import ec.steadystate.QueueIndividual;
+
+/**
+ * NIOSlaveMonitor.java
+ *
+ * A SlaveMonitor which talks to its slaves through non-blocking java.nio channels, rather than with two
+ * threads per slave.  This is for when there are so many slaves (hundreds) that the master would spend more
+ * time switching between their threads, and contending for the SlaveMonitor's locks, than doing anything useful.
+ * The Slaves themselves are unchanged, and speak the same protocol.  MasterProblem uses an NIOSlaveMonitor
+ * if <tt>eval.nio</tt> is true.
+ *
+ * <p>Slaves are still accepted, and shaken hands with, by a single thread as usual, after which their
+ * channels are handed round-robin to a small number of selector threads, which do all the reading and writing.
+ * Nothing is locked on the way: jobs are serialized by the thread scheduling them (so if you have several
+ * evaluation threads, they share the work), and are passed to the selector thread through a lock-free queue
+ * for each slave.  Room in a slave's queue is claimed by atomically incrementing its job count.  When a job's
+ * results have all been read, the selector thread puts the job on a single lock-free completion queue, and wakes
+ * any thread waiting on the monitor, which merges the results into the original individuals.  Threads with
+ * nothing to do wait with LockSupport.park().  See NIOSlaveConnection for how the messages are read and written.
+ *
+ * <p>Lost jobs are put on a queue of their own, and rescheduled by the next thread to schedule a job or wait
+ * for them to finish.  Compression, speculative re-execution, and health management (other than the
+ * metrics) are not supported.
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><tt>eval.nio</tt><br>
+ <font size=-1>boolean (default false)</font></td>
+ <td valign=top>(should the MasterProblem use an NIOSlaveMonitor?)</td></tr>
+ <tr><td valign=top><tt>eval.nio.selectors</tt><br>
+ <font size=-1>int &gt; 0 (default 1)</font></td>
+ <td valign=top>(the number of selector threads)</td></tr>
+ </table>
+ */
+
+public class NIOSlaveMonitor extends SlaveMonitor
+    {
+    public static final String P_SELECTORS = "eval.nio.selectors";
+
+    SelectorThread[] selectors;
+    int nextSelector;
+
+    // every slave currently connected
+    CopyOnWriteArrayList<NIOSlaveConnection> slaves = new CopyOnWriteArrayList<NIOSlaveConnection>();
+    // where we start looking for a slave with room for a job, so they're used round-robin
+    AtomicInteger nextSlave = new AtomicInteger();
+    // jobs scheduled but not yet merged back, or handed back as lost
+    AtomicInteger outstanding = new AtomicInteger();
+    // jobs whose results have all been read, but not yet merged back
+    ConcurrentLinkedQueue<Job> completed = new ConcurrentLinkedQueue<Job>();
+    // jobs lost along with their slaves, to be rescheduled
+    ConcurrentLinkedQueue<Job> lost = new ConcurrentLinkedQueue<Job>();
+    // merged individuals, for steady-state evolution
+    ConcurrentLinkedQueue<QueueIndividual> evaluated = new ConcurrentLinkedQueue<QueueIndividual>();
+    // threads waiting on the monitor
+    ConcurrentLinkedQueue<Thread> waiting = new ConcurrentLinkedQueue<Thread>();
+
+    public NIOSlaveMonitor( final EvolutionState state, boolean showDebugInfo, final MasterProblem problemPrototype)
+        {
+        super(state, showDebugInfo, problemPrototype, false);
+
+        if (useCompression)
+            state.output.fatal("Compression is not supported by NIOSlaveMonitor.  You must set eval.compression=false", new Parameter(P_EVALCOMPRESSION));
+        if (localDirectory != null)
+            state.output.fatal("Local slaves are not supported by NIOSlaveMonitor.", new Parameter(P_EVALLOCAL));
+        if (speculate)
+            {
+            state.output.warning("Speculative re-execution is not supported by NIOSlaveMonitor, and will be turned off.", new Parameter(P_SPECULATE));
+            speculate = false;
+            }
+        if (preferHealthy || maxErrorRate < 1.0 || healthTimeout > 0)
+            {
+            state.output.warning("Preferring, draining, and timing out slaves by their health is not supported by NIOSlaveMonitor, and will be turned off.");
+            preferHealthy = false;
+            maxErrorRate = 1.0;
+            healthTimeout = 0;
+            }
+        int numSelectors = state.parameters.getIntWithDefault(new Parameter(P_SELECTORS), null, 1);
+        if (numSelectors < 1)
+            state.output.fatal("The number of selectors must be an integer > 0.", new Parameter(P_SELECTORS));
+
+        selectors = new SelectorThread[numSelectors];
+        try
+            {
+            for(int i = 0; i < selectors.length; i++)
+                selectors[i] = new SelectorThread(i);
+            }
+        catch (IOException e)
+            {
+            state.output.fatal("Unable to open a selector: " + e);
+            }
+        for(int i = 0; i < selectors.length; i++)
+            selectors[i].thread.start();
+
+        listen(problemPrototype);
+        }
+
+    /** Binds a ServerSocketChannel, so that accepted sockets come with channels of their own. */
+    protected ServerSocket openServerSocket(int port) throws IOException
+        {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.socket().bind(new InetSocketAddress(port));
+        return channel.socket();
+        }
+
+    /**
+       A thread which does all the reading and writing for its share of the slaves.  New slaves and slaves
+       with jobs to write are handed to it through lock-free queues, after which it's woken up.
+    */
+    class SelectorThread implements Runnable
+        {
+        Selector selector;
+        Thread thread;
+        volatile boolean running = true;
+        ConcurrentLinkedQueue<NIOSlaveConnection> registering = new ConcurrentLinkedQueue<NIOSlaveConnection>();
+        ConcurrentLinkedQueue<NIOSlaveConnection> writing = new ConcurrentLinkedQueue<NIOSlaveConnection>();
+        // slaves waiting for more of an individual before trying to read it again
+        ArrayList<NIOSlaveConnection> deferred = new ArrayList<NIOSlaveConnection>();
+
+        SelectorThread(int num) throws IOException
+            {
+            selector = Selector.open();
+            thread = new Thread(this);
+            thread.setName("NIOSlaveMonitor Selector " + num);
+            thread.setDaemon(true);
+            }
+
+        void register(NIOSlaveConnection slave)
+            {
+            registering.offer(slave);
+            selector.wakeup();
+            }
+
+        void wantsToWrite(NIOSlaveConnection slave)
+            {
+            writing.offer(slave);
+            selector.wakeup();
+            }
+
+        public void run()
+            {
+            while(running)
+                {
+                try
+                    {
+                    selector.select(deferred.isEmpty() ? 0 : NIOSlaveConnection.DEFER_MILLIS);
+                    }
+                catch (IOException e)
+                    {
+                    state.output.fatal("The NIOSlaveMonitor's selector failed: " + e);
+                    }
+
+                NIOSlaveConnection slave;
+                while((slave = registering.poll()) != null)
+                    {
+                    try
+                        {
+                        slave.key = slave.channel.register(selector, SelectionKey.OP_READ, slave);
+                        }
+                    catch (IOException e)
+                        {
+                        lose(slave);
+                        }
+                    write(slave);  // in case jobs were scheduled before we got to it
+                    }
+                while((slave = writing.poll()) != null)
+                    write(slave);
+
+                Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+                while(i.hasNext())
+                    {
+                    SelectionKey key = i.next();
+                    i.remove();
+                    slave = (NIOSlaveConnection)(key.attachment());
+                    if (key.isValid() && key.isReadable())
+                        {
+                        try
+                            {
+                            if (!slave.read())
+                                lose(slave);
+                            else if (slave.deferred() && !deferred.contains(slave))
+                                deferred.add(slave);
+                            }
+                        catch (IOException e)
+                            {
+                            lose(slave);
+                            }
+                        }
+                    if (key.isValid() && key.isWritable())
+                        write(slave);
+                    }
+                retry();
+                }
+            }
+
+        // tries again to read the individuals of slaves from which nothing more has come for DEFER_MILLIS
+        void retry()
+            {
+            long now = System.nanoTime();
+            for(int i = deferred.size() - 1; i >= 0; i--)
+                {
+                NIOSlaveConnection slave = deferred.get(i);
+                if (!slave.closed && slave.deferred() && now - slave.lastRead < NIOSlaveConnection.DEFER_MILLIS * 1000000L)
+                    continue;
+                try
+                    {
+                    if (!slave.closed && slave.deferred())
+                        slave.parse();
+                    }
+                catch (IOException e)
+                    {
+                    lose(slave);
+                    }
+                if (slave.closed || !slave.deferred())
+                    deferred.remove(i);
+                }
+            }
+
+        void write(NIOSlaveConnection slave)
+            {
+            if (slave.key == null || !slave.key.isValid()) return;  // not registered yet, or already closed
+            try
+                {
+                if (slave.write())
+                    slave.key.interestOps(SelectionKey.OP_READ);
+                else slave.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+            catch (IOException e)
+                {
+                lose(slave);
+                }
+            }
+
+        void lose(NIOSlaveConnection slave)
+            {
+            if (slave.closed) return;
+            if (slave.key != null) slave.key.cancel();
+            lost(slave, slave.close());
+            }
+        }
+
+    /** Registers a new slave, whose socket must have come from our ServerSocketChannel, with one of the selector threads. */
+    public boolean registerSlave( EvolutionState state, String name, Socket socket, DataOutputStream out, DataInputStream in)
+        {
+        if (isShutdownInProgress())  // no more registrations.  Kill the socket
+            {
+            try { out.writeByte(Slave.V_SHUTDOWN); } catch (Exception e) { }
+            try { out.flush(); } catch (Exception e) { }
+            try { socket.close(); } catch (IOException e) { }
+            return false;
+            }
+
+        SocketChannel channel = socket.getChannel();
+        try
+            {
+            channel.configureBlocking(false);
+            }
+        catch (IOException e)
+            {
+            try { socket.close(); } catch (IOException e2) { }
+            return false;
+            }
+        SelectorThread selector = selectors[nextSelector];
+        nextSelector = (nextSelector + 1) % selectors.length;  // only the accepting thread registers slaves
+        NIOSlaveConnection slave = new NIOSlaveConnection(state, name, channel, this, selector);
+        slaves.add(slave);
+        selector.register(slave);
+        wake();
+        return true;
+        }
+
+    /** Unregisters a dead slave from the monitor. */
+    public void unregisterSlave( SlaveConnection slave )
+        {
+        slaves.remove(slave);
+        }
+
+    // called by the selector thread when a job's results have all been read
+    void completed(Job job)
+        {
+        completed.offer(job);
+        wake();
+        }
+
+    // called when a slave is lost, with the jobs it hadn't finished.  This may be called more than once for a slave,
+    // if a job is scheduled on it as it's being closed, but only the first call unregisters it.
+    void lost(NIOSlaveConnection slave, ArrayList<Job> jobs)
+        {
+        boolean first;
+        synchronized(slave.shutDownLock) { first = !slave.shuttingDown; slave.shuttingDown = true; }
+        if (first)
+            {
+            unregisterSlave(slave);
+            if (!isShutdownInProgress())
+                state.output.systemMessage("Slave " + slave.slaveName + " shut down." );
+            }
+        for(int i = 0; i < jobs.size(); i++)
+            {
+            if (rescheduleLostJobs) lost.offer(jobs.get(i));  // before we stop counting it
+            outstanding.decrementAndGet();
+            }
+        wake();
+        }
+
+    void wake()
+        {
+        Iterator<Thread> i = waiting.iterator();
+        while(i.hasNext())
+            LockSupport.unpark(i.next());
+        }
+
+    // merges back the results of completed jobs.  Returns true if there were any.
+    boolean merge(final EvolutionState state)
+        {
+        boolean merged = false;
+        Job job;
+        while((job = completed.poll()) != null)
+            {
+            job.copyIndividualsBack(state);
+            if (queueEvaluatedIndividuals)
+                for(int x = 0; x < job.inds.length; x++)
+                    evaluated.offer(new QueueIndividual(job.inds[x], job.subPops[x]));
+            outstanding.decrementAndGet();
+            merged = true;
+            }
+        return merged;
+        }
+
+    // reschedules lost jobs
+    void reschedule(final EvolutionState state)
+        {
+        Job job;
+        while((job = lost.poll()) != null)
+            scheduleJobForEvaluation(state, job);
+        }
+
+    // claims room for a job on a slave, or returns null if no slave has any room
+    NIOSlaveConnection claim()
+        {
+        Object[] s = slaves.toArray();
+        int start = nextSlave.getAndIncrement();
+        for(int i = 0; i < s.length; i++)
+            {
+            NIOSlaveConnection slave = (NIOSlaveConnection)(s[((start + i) & Integer.MAX_VALUE) % s.length]);
+            while(true)
+                {
+                int jobs = slave.numJobs.get();
+                if (jobs >= maxJobsPerSlave || slave.closed) break;
+                if (slave.numJobs.compareAndSet(jobs, jobs + 1)) return slave;
+                }
+            }
+        return null;
+        }
+
+    public void scheduleJobForEvaluation( final EvolutionState state, Job job, int remaining )
+        {
+        if (isShutdownInProgress()) return;
+
+        Thread me = Thread.currentThread();
+        while(true)
+            {
+            NIOSlaveConnection slave = claim();
+            if (slave == null)
+                {
+                // wait until a slave has room, merging results as they come in
+                waiting.offer(me);
+                try
+                    {
+                    while(!merge(state) && (slave = claim()) == null && !isShutdownInProgress())
+                        LockSupport.park(this);
+                    }
+                finally
+                    {
+                    waiting.remove(me);
+                    }
+                if (isShutdownInProgress()) return;
+                if (slave == null) continue;
+                }
+
+            Job part = job;
+            if (adaptiveJobSize && job.type == Slave.V_EVALUATESIMPLE)
+                {
+                int size = jobSize(slave, Math.max(remaining, job.inds.length));
+                if (size < job.inds.length)
+                    {
+                    part = job.split(size);
+                    remaining -= size;
+                    }
+                }
+            outstanding.incrementAndGet();
+            slave.scheduleJob(part);
+            if (part == job) break;
+            }
+        }
+
+    public int nextJobSize(int remaining)
+        {
+        Object[] s = slaves.toArray();
+        for(int i = 0; i < s.length; i++)
+            {
+            NIOSlaveConnection slave = (NIOSlaveConnection)(s[i]);
+            if (slave.numJobs.get() < maxJobsPerSlave)
+                return jobSize(slave, remaining);
+            }
+        return Integer.MAX_VALUE;
+        }
+
+    double totalThroughput()
+        {
+        double total = 0;
+        Object[] s = slaves.toArray();
+        for(int i = 0; i < s.length; i++)
+            {
+            NIOSlaveConnection slave = (NIOSlaveConnection)(s[i]);
+            synchronized(slave.statsLock)
+                {
+                if (slave.perIndividual > 0)
+                    total += 1.0 / slave.perIndividual;
+                }
+            }
+        return total;
+        }
+
+    public SlaveStatus[] getSlaveStatus()
+        {
+        Object[] s = slaves.toArray();
+        SlaveStatus[] status = new SlaveStatus[s.length];
+        for(int i = 0; i < s.length; i++)
+            status[i] = ((NIOSlaveConnection)(s[i])).getStatus();
+        return status;
+        }
+
+    public void waitForAllSlavesToFinishEvaluating( final EvolutionState state )
+        {
+        Thread me = Thread.currentThread();
+        while(true)
+            {
+            merge(state);
+            reschedule(state);
+            if (outstanding.get() == 0 && lost.isEmpty()) return;
+            waiting.offer(me);
+            try
+                {
+                while(completed.isEmpty() && lost.isEmpty() && outstanding.get() != 0)
+                    LockSupport.park(this);
+                }
+            finally
+                {
+                waiting.remove(me);
+                }
+            }
+        }
+
+    public boolean evaluatedIndividualAvailable()
+        {
+        merge(state);
+        return !evaluated.isEmpty();
+        }
+
+    public QueueIndividual waitForIndividual()
+        {
+        Thread me = Thread.currentThread();
+        while(true)
+            {
+            merge(state);
+            reschedule(state);
+            QueueIndividual ind = evaluated.poll();
+            if (ind != null) return ind;
+            waiting.offer(me);
+            try
+                {
+                while(completed.isEmpty() && lost.isEmpty())
+                    LockSupport.park(this);
+                }
+            finally
+                {
+                waiting.remove(me);
+                }
+            }
+        }
+
+    int numAvailableSlaves()
+        {
+        merge(state);
+        int i = 0;
+        Object[] s = slaves.toArray();
+        for(int x = 0; x < s.length; x++)
+            if (((NIOSlaveConnection)(s[x])).numJobs.get() < maxJobsPerSlave)
+                i++;
+        return i;
+        }
+
+    public void shutdown()
+        {
+        // stop accepting slaves
+        setShutdownInProgress(true);
+        try { servSock.close(); } catch (IOException e) { }
+        thread.interrupt();
+        try { thread.join(); }
+        catch (InterruptedException e) { }
+
+        // stop the selectors, then tell each slave to shut down
+        for(int i = 0; i < selectors.length; i++)
+            {
+            selectors[i].running = false;
+            selectors[i].selector.wakeup();
+            try { selectors[i].thread.join(); }
+            catch (InterruptedException e) { }
+            try { selectors[i].selector.close(); } catch (IOException e) { }
+            }
+        Object[] s = slaves.toArray();
+        for(int i = 0; i < s.length; i++)
+            {
+            NIOSlaveConnection slave = (NIOSlaveConnection)(s[i]);
+            try
+                {
+                slave.channel.configureBlocking(true);
+                slave.channel.write(java.nio.ByteBuffer.wrap(new byte[] { Slave.V_SHUTDOWN }));
+                }
+            catch (Exception e) { }
+            slave.close();
+            state.output.systemMessage("Slave " + slave.slaveName + " shut down." );
+            }
+        slaves.clear();
+        wake();
+        debug("Shut Down Completed");
+        }
+    }
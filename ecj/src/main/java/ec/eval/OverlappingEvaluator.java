@@ -0,0 +1,195 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import java.util.*;
+import ec.*;
+import ec.util.*;
+import ec.simple.*;
+import ec.steadystate.QueueIndividual;
+
+/**
+ * OverlappingEvaluator.java
+ *
+ * A generational Evaluator for master/slave evaluation which lets generations overlap.  SimpleEvaluator
+ * waits for every individual in the population to come back from the slaves before breeding begins, so
+ * the slaves sit idle while the last few jobs of each generation finish, and again while the next
+ * generation is bred.  OverlappingEvaluator instead sends the population off, and returns as soon as
+ * its Readiness says that enough of each subpopulation has come back.  The individuals which haven't
+ * yet come back (the <i>stragglers</i>) are taken out of the population, so that statistics, breeding,
+ * and exchange only ever see evaluated individuals, and they go on being evaluated meanwhile.  As each
+ * straggler comes back it is added to the population which is then being evaluated, alongside the
+ * children bred from its own generation.
+ *
+ * <p>Thus each subpopulation appears smaller than its nominal size by the number of its stragglers,
+ * and since SimpleBreeder breeds as many children as there are individuals, the subpopulation and its
+ * stragglers together keep the nominal size.  Make sure that the breeder's elites are fewer than
+ * a subpopulation will ever hold when it's ready.  The default Readiness, FractionReadiness, is ready once
+ * <tt>fraction</tt> of a subpopulation has been evaluated: with a fraction of 1.0 it waits for all of it,
+ * and so behaves just like SimpleEvaluator.  A subpopulation is never ready until at least one of its
+ * individuals has been evaluated.
+ *
+ * <p>Evaluations are counted as SimpleEvaluator counts them, except that individuals sent to the slaves are
+ * counted when they come back.  Stragglers still out when the run is
+ * checkpointed are lost when it is restarted, and the population is that much smaller from then on.
+ * OverlappingEvaluator doesn't support multiple tests per individual or speculative re-execution.  Lost
+ * jobs must be rescheduled (as they are by default), or it would wait forever for individuals which are
+ * never coming back.  If there is no MasterProblem (as on the slaves, which share the master's parameters)
+ * it behaves just like SimpleEvaluator.
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base</i>.<tt>readiness</tt><br>
+ <font size=-1>classname, inherits and != ec.eval.Readiness (default = ec.eval.FractionReadiness)</font></td>
+ <td valign=top>(decides when enough of a subpopulation has been evaluated to breed from it)</td></tr>
+ </table>
+
+ <p><b>Parameter bases</b><br>
+ <table>
+ <tr><td valign=top><i>base</i>.<tt>readiness</tt></td>
+ <td>readiness</td></tr>
+ </table>
+*/
+
+public class OverlappingEvaluator extends SimpleEvaluator
+    {
+    private static final long serialVersionUID = 1;
+
+    public static final String P_READINESS = "readiness";
+
+    public Readiness readiness;
+
+    /** The number of individuals which have come back after their generation was bred. */
+    public long lateIndividuals;
+
+    // individuals sent off in this generation which haven't come back yet
+    transient Set<Individual> inFlight;
+    // individuals which hadn't come back when their generation was bred, and so were taken out of the population
+    transient Set<Individual> stragglers;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+
+        Parameter p = base.push(P_READINESS);
+        if (state.parameters.exists(p, null))
+            readiness = (Readiness)(state.parameters.getInstanceForParameterEq(p, null, Readiness.class));
+        else  // use FractionReadiness
+            readiness = new FractionReadiness();
+        readiness.setup(state, p);
+
+        if (!(p_problem instanceof MasterProblem))
+            {
+            if (!state.parameters.getBoolean(base.push(P_IAMSLAVE), null, false))
+                state.output.warning("OverlappingEvaluator is being used without a MasterProblem, and so won't overlap generations.", base.push(P_MASTERPROBLEM));
+            return;
+            }
+        if (numTests > 1)
+            state.output.fatal("OverlappingEvaluator doesn't support more than one test per individual.", base.push(P_NUM_TESTS));
+        if (state.parameters.getBoolean(new Parameter(SlaveMonitor.P_SPECULATE), null, false))
+            state.output.fatal("OverlappingEvaluator doesn't support speculative re-execution.", new Parameter(SlaveMonitor.P_SPECULATE));
+        if (!state.parameters.getBoolean(new Parameter(SlaveMonitor.P_RESCHEDULELOSTJOBS), null, true))
+            state.output.fatal("OverlappingEvaluator needs lost jobs to be rescheduled, as it waits for every individual to come back.", new Parameter(SlaveMonitor.P_RESCHEDULELOSTJOBS));
+        ((MasterProblem)p_problem).queueEvaluatedIndividuals = true;
+        }
+
+    /** Returns the number of individuals which hadn't come back when their generation was bred, and still haven't. */
+    public int numStragglers()
+        {
+        return (stragglers == null ? 0 : stragglers.size());
+        }
+
+    public void evaluatePopulation(final EvolutionState state)
+        {
+        if (!(p_problem instanceof MasterProblem))
+            {
+            super.evaluatePopulation(state);
+            return;
+            }
+        MasterProblem problem = (MasterProblem)p_problem;
+        if (inFlight == null)  // we're starting, or restarting from a checkpoint
+            {
+            inFlight = Collections.newSetFromMap(new IdentityHashMap<Individual, Boolean>());
+            stragglers = Collections.newSetFromMap(new IdentityHashMap<Individual, Boolean>());
+            }
+
+        // send off everything unevaluated.  Stragglers which have come back meanwhile will be added as we wait.
+        ArrayList<Subpopulation> subpops = state.population.subpops;
+        int[] evaluated = new int[subpops.size()];
+        problem.prepareToEvaluate(state, 0);
+        for(int i = 0; i < subpops.size(); i++)
+            {
+            ArrayList<Individual> inds = subpops.get(i).individuals;
+            for(int j = 0; j < inds.size(); j++)
+                {
+                Individual ind = inds.get(j);
+                if (ind.evaluated) evaluated[i]++;  // an elite, say
+                else
+                    {
+                    inFlight.add(ind);
+                    problem.evaluate(state, ind, i, 0);
+                    }
+                }
+            state.incrementEvaluations(evaluated[i]);
+            }
+        problem.flushEvaluating(state, 0);
+
+        // wait until every subpopulation is ready
+        while(!ready(state, evaluated))
+            {
+            QueueIndividual qind = problem.getNextEvaluatedIndividual();
+            if (collect(state, qind)) evaluated[qind.subpop]++;
+            }
+
+        // take whatever hasn't come back out of the population
+        if (inFlight.isEmpty()) return;
+        stragglers.addAll(inFlight);
+        inFlight.clear();
+        for(int i = 0; i < subpops.size(); i++)
+            {
+            ArrayList<Individual> inds = subpops.get(i).individuals;
+            if (evaluated[i] == inds.size()) continue;
+            ArrayList<Individual> done = new ArrayList<Individual>(evaluated[i]);
+            for(int j = 0; j < inds.size(); j++)
+                if (!stragglers.contains(inds.get(j)))
+                    done.add(inds.get(j));
+            inds.clear();
+            inds.addAll(done);
+            }
+        }
+
+    /** Returns true if every subpopulation is ready to breed from, given the number of individuals evaluated in each. */
+    boolean ready(final EvolutionState state, int[] evaluated)
+        {
+        if (inFlight.isEmpty() && stragglers.isEmpty()) return true;  // nothing more is coming
+        for(int i = 0; i < evaluated.length; i++)
+            {
+            int total = state.population.subpops.get(i).individuals.size();
+            if (evaluated[i] == total && total > 0) continue;
+            if (evaluated[i] == 0 || !readiness.ready(state, i, evaluated[i], total))
+                return false;
+            }
+        return true;
+        }
+
+    /** Accounts for an individual which has come back, adding it to the population if it's a straggler.
+        Returns true if the individual was sent off in the current generation or is a straggler, and so
+        has just been evaluated in the population. */
+    boolean collect(final EvolutionState state, QueueIndividual qind)
+        {
+        if (stragglers.remove(qind.ind))
+            {
+            state.population.subpops.get(qind.subpop).individuals.add(qind.ind);
+            lateIndividuals++;
+            }
+        else if (!inFlight.remove(qind.ind))
+            return false;  // sent off before we were restarted from a checkpoint
+        state.incrementEvaluations(1);
+        return true;
+        }
+    }
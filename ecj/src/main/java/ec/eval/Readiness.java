@@ -0,0 +1,27 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import ec.*;
+
+/**
+ * Readiness.java
+ *
+ * Decides, for OverlappingEvaluator, when enough of a subpopulation has come back from the slaves
+ * for breeding to begin.  The rest of the subpopulation goes on being evaluated while the next
+ * generation is bred.
+ */
+
+public interface Readiness extends Setup
+    {
+    /** Returns true if subpopulation <i>subpop</i> is ready to breed from, given that <i>evaluated</i> of
+        the <i>total</i> individuals now in it have been evaluated.  This is asked again each time an individual
+        comes back, until it returns true.  A subpopulation is always ready once all of it has been evaluated,
+        and never before at least one individual has. */
+    public boolean ready(EvolutionState state, int subpop, int evaluated, int total);
+    }
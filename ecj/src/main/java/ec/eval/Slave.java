@@ -10,6 +10,7 @@
  */
 package ec.eval;
 
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
@@ -21,6 +22,7 @@ import java.net.ConnectException;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import ec.*;
 import ec.coevolve.GroupedProblemForm;
@@ -87,6 +89,14 @@ import ec.util.*;
  <font size=-1> integer &gt;= 1024 </font></td>
  <td valign=top>(the socket port number of the master.)</td></tr>
 
+ <tr><td valign=top><tt>eval.local.directory</tt><br>
+ <font size=-1> String (a directory), or nonexistant (default)</font></td>
+ <td valign=top>(if it exists, rather than connecting to the master with TCP, we connect through a LocalSocket: a memory-mapped file created in this directory, which the master must also be watching.  eval.master.host and eval.master.port are then ignored.)</td></tr>
+
+ <tr><td valign=top><tt>eval.local.buffer-size</tt><br>
+ <font size=-1> int, a power of two (default 1048576)</font></td>
+ <td valign=top>(if eval.local.directory exists, how many bytes the LocalSocket can hold in each direction)</td></tr>
+
  <tr><td valign=top><tt>eval.compression</tt><br>
  <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default) </font></td>
  <td valign=top>(should we use compressed streams in communicating with the master?)</td></tr>
@@ -102,7 +112,7 @@ import ec.util.*;
 
  <tr><td valign=top><tt>eval.return-inds</tt><br>
  <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default) </font></td>
- <td valign=top>(should we return whole individuals or (if false) just the fitnesses of the individuals?  This must be TRUE if eval.run-evolve is true.)</td></tr>
+ <td valign=top>(should we return whole individuals or (if false) just the fitnesses of the individuals?  This must be TRUE if eval.run-evolve is true.  If the master has asked us to cache genotypes (see GenotypeCache), individuals whose genotypes we didn't change are returned as just their fitnesses anyway.)</td></tr>
 
  <tr><td valign=top><tt>eval.one-shot</tt><br>
  <font size=-1> bool = <tt>true</tt> (default) or <tt>false</tt></font></td>
@@ -124,6 +134,10 @@ public class Slave
     public final static String P_EVALMASTERPORT = "eval.master.port";
         
     public final static String P_EVALCOMPRESSION = "eval.compression";
+
+    public final static String P_EVALLOCAL = "eval.local.directory";
+
+    public final static String P_EVALLOCALBUFFER = "eval.local.buffer-size";
     
     public final static String P_RETURNINDIVIDUALS = "eval.return-inds";
 
@@ -137,6 +151,8 @@ public class Slave
     public static final byte V_SHUTDOWN = 0;
     public static final byte V_EVALUATESIMPLE = 1;
     public static final byte V_EVALUATEGROUPED = 2;
+    /** Sent by the master, followed by the number of genotypes to cache, if it wants us to cache them.  See GenotypeCache. */
+    public static final byte V_GENOTYPECACHE = 3;
 
     /** The argument indicating that we're starting fresh from a new parameter file. */
     public static final String A_FILE = "-file";
@@ -221,9 +237,16 @@ public class Slave
         String slaveName = parameters.getString(
             new Parameter(P_EVALSLAVENAME),null);
                 
+        File localDirectory = parameters.getFile(new Parameter(P_EVALLOCAL), null);
+        int localBufferSize = parameters.getIntWithDefault(new Parameter(P_EVALLOCALBUFFER), null, LocalSocket.DEFAULT_CAPACITY);
+        if (localDirectory != null && !localDirectory.isDirectory())
+            Output.initialError("The local slave directory " + localDirectory + " does not exist or isn't a directory.", new Parameter(P_EVALLOCAL));
+        if (localDirectory != null && (localBufferSize <= 0 || (localBufferSize & (localBufferSize - 1)) != 0))
+            Output.initialError("The local buffer size must be a power of two.", new Parameter(P_EVALLOCALBUFFER));
+
         String masterHost = parameters.getString(
             new Parameter(P_EVALMASTERHOST),null );
-        if (masterHost == null)
+        if (masterHost == null && localDirectory == null)
             Output.initialError("Master Host missing", new Parameter(P_EVALMASTERHOST));
         int masterPort = parameters.getInt(
             new Parameter(P_EVALMASTERPORT),null, 0);
@@ -260,8 +283,15 @@ public class Slave
                 try
                     {
                     long connectAttemptCount = 0;
-                    if (!silent) Output.initialMessage("Connecting to master at "+masterHost+":"+masterPort);
-                    while (true)
+                    socket = null;
+                    if (localDirectory != null)
+                        {
+                        // the master will find us when it next looks in the directory
+                        if (!silent) Output.initialMessage("Connecting to master through " + localDirectory);
+                        socket = LocalSocket.connect(localDirectory, (slaveName == null ? "slave" : slaveName), localBufferSize);
+                        }
+                    else if (!silent) Output.initialMessage("Connecting to master at "+masterHost+":"+masterPort);
+                    while (socket == null)
                         {
                         try
                             {
@@ -280,7 +310,7 @@ public class Slave
                                 }
                             }
                         }
-                    if (!silent) Output.initialMessage("Connected to master after " + (connectAttemptCount * SLEEP_TIME) + " ms");
+                    if (!silent && localDirectory == null) Output.initialMessage("Connected to master after " + (connectAttemptCount * SLEEP_TIME) + " ms");
                     
                     DataInputStream dataIn = null;
                     DataOutputStream dataOut = null;
@@ -302,6 +332,9 @@ public class Slave
                                 }
                             }
                                                 
+                        else if (!(socket instanceof LocalSocket))  // which writes straight into its buffer anyway
+                            tmpOut = new BufferedOutputStream(tmpOut);  // we flush when we've nothing more to send for now
+                                                
                         dataIn = new DataInputStream(tmpIn);
                         dataOut = new DataOutputStream(tmpOut);
                         }
@@ -362,6 +395,9 @@ public class Slave
                         breedthreads : evalthreads];
         
                     int seed = dataIn.readInt();
+                    
+                    // the master will tell us if it wants us to cache genotypes
+                    GenotypeCache cache = null;
                     for(int i = 0; i < random.length; i++)
                         random[i] = Evolve.primeGenerator(new MersenneTwisterFast(seed++));  // we prime the generator to be more sure of randomness.
 
@@ -420,10 +456,16 @@ public class Slave
                                         throw new Output.OutputExitException("SHUTDOWN");
                                     }
                                 case V_EVALUATESIMPLE:
-                                    evaluateSimpleProblemForm(newState, returnIndividuals, dataIn, dataOut, args);
+                                    evaluateSimpleProblemForm(newState, returnIndividuals, dataIn, dataOut, cache, args);
                                     break;
                                 case V_EVALUATEGROUPED:
-                                    evaluateGroupedProblemForm(newState, returnIndividuals, dataIn, dataOut);
+                                    evaluateGroupedProblemForm(newState, returnIndividuals, dataIn, dataOut, cache);
+                                    break;
+                                case V_GENOTYPECACHE:
+                                    {
+                                    int genotypeCacheSize = dataIn.readInt();
+                                    cache = (genotypeCacheSize > 0 ? new GenotypeCache(genotypeCacheSize) : null);
+                                    }
                                     break;
                                 default:
                                     state.output.fatal("Unknown problem form specified: "+problemType);
@@ -477,6 +519,14 @@ public class Slave
     public static void evaluateSimpleProblemForm( final EvolutionState state, boolean returnIndividuals,
         DataInputStream dataIn, DataOutputStream dataOut, String[] args )
         {
+        evaluateSimpleProblemForm(state, returnIndividuals, dataIn, dataOut, null, args);
+        }
+
+    /** Evaluates a job from the master, reading and returning individuals through the given genotype cache,
+        or directly if it is null. */
+    public static void evaluateSimpleProblemForm( final EvolutionState state, final boolean returnIndividuals,
+        DataInputStream dataIn, final DataOutputStream dataOut, final GenotypeCache cache, String[] args )
+        {
         ParameterDatabase params=null; 
         
         // first load the individuals
@@ -513,6 +563,7 @@ public class Slave
         
         boolean[] updateFitness = new boolean[numInds];
         final Individual[] inds = new Individual[numInds];
+        byte[][] genotypes = new byte[numInds][];  // as sent to us, if we're caching them
         
                         
                         
@@ -521,48 +572,69 @@ public class Slave
         // and returning them as soon as they come in, albeit in the proper order)
         if (!runEvolve)
             {
-            ThreadPool.Worker[] threads = new ThreadPool.Worker[state.evalthreads];
+            // Each of the evalthreads threads, when it's done evaluating an individual, puts its
+            // thread number and the individual's number on the completion queue, so we can immediately
+            // start it on the next individual, whichever thread finishes first.  The master expects
+            // the individuals back in order, so we return each one as soon as it and all the
+            // individuals before it are done, and flush whenever we've nothing more to return yet and
+            // have returned something since we last flushed.
             final SimpleProblemForm[] problems = new SimpleProblemForm[state.evalthreads];
-            int[] indForThread = new int[state.evalthreads];
+            final LinkedBlockingQueue<int[]> completed = new LinkedBlockingQueue<int[]>();
+            int[] free = new int[state.evalthreads];  // threads not evaluating anything
+            int numFree = free.length;
+            for(int t = 0; t < free.length; t++)
+                free[t] = free.length - 1 - t;
+            boolean[] done = new boolean[numInds];
+            int next = 0;  // the next individual to return
+            int running = 0;
+            boolean unflushed = false;  // have we returned individuals since we last flushed?
                         
             try
                 {
-                int t = 0;              // thread index
-                        
-                // start up all the threads
                 for(int i = 0 ; i < numInds; i++)
                     {
                     // load individual
-                    inds[i] = state.population.subpops.get(subpops[i]).species.newIndividual(state, dataIn);
+                    inds[i] = readIndividual(state, subpops[i], dataIn, cache, genotypes, i);
                     updateFitness[i] = dataIn.readBoolean(); 
 
-                    // fire up evaluation thread on individual
-                    if (t >= state.evalthreads) t = 0;       // we can only be here if evalthreads > numInds
-                    if (threads[t] != null)
+                    // take in any threads which have finished, waiting for one if there are none free
+                    int[] c;
+                    while((c = (numFree == 0 ? completed.take() : completed.poll())) != null)
                         {
-                        pool.join(threads[t]);  // ran out of threads, wait for new ones
-                        returnIndividualsToMaster(state, inds, updateFitness, dataOut, returnIndividuals, indForThread[t]);  // return just that individual
+                        free[numFree++] = c[0];
+                        running--;
+                        done[c[1]] = true;
+                        int n = returnEvaluatedIndividuals(state, inds, updateFitness, done, next, dataOut, returnIndividuals, cache, genotypes);
+                        unflushed = unflushed || n > next;
+                        next = n;
+                        if (unflushed && completed.isEmpty()) { dataOut.flush(); unflushed = false; }
                         }
-                    if (problems[t] == null) problems[t] = ((SimpleProblemForm)(state.evaluator.p_problem.clone()));
 
+                    // fire up evaluation thread on individual
+                    final int t = free[--numFree];
+                    if (problems[t] == null) problems[t] = ((SimpleProblemForm)(state.evaluator.p_problem.clone()));
                     final int j = i;
-                    final int s = t;
-                    indForThread[t] = i;
-                    threads[t] = pool.start(new Runnable()
+                    running++;
+                    pool.start(new Runnable()
                         {
-                        public void run() { problems[s].evaluate( state, inds[j], subpops[j], 0 ); }
+                        public void run() 
+                            {
+                            try { problems[t].evaluate( state, inds[j], subpops[j], t ); }
+                            finally { completed.add(new int[] { t, j }); }
+                            }
                         }, "Evaluation of individual " + i);
-                    t++;
                     }
                                 
                 // gather everyone
-                for(t = 0; t < state.evalthreads; t++)
+                while(running > 0)
                     {
-                    if (threads[t] != null)
-                        {
-                        pool.join(threads[t]);
-                        returnIndividualsToMaster(state, inds, updateFitness, dataOut, returnIndividuals, indForThread[t]);   // return just that individual
-                        }
+                    int[] c = completed.take();
+                    running--;
+                    done[c[1]] = true;
+                    int n = returnEvaluatedIndividuals(state, inds, updateFitness, done, next, dataOut, returnIndividuals, cache, genotypes);
+                    unflushed = unflushed || n > next;
+                    next = n;
+                    if (unflushed && completed.isEmpty()) { dataOut.flush(); unflushed = false; }
                     }
                 }
             catch (Exception e)
@@ -587,7 +659,7 @@ public class Slave
                 {
                 for (int i=0; i < numInds; i++) 
                     { 
-                    inds[i] = state.population.subpops.get(subpops[i]).species.newIndividual(state, dataIn);
+                    inds[i] = readIndividual(state, subpops[i], dataIn, cache, genotypes, i);
                     updateFitness[i] = dataIn.readBoolean(); 
                     }
                 }
@@ -635,7 +707,7 @@ public class Slave
             // Return the evaluated individual to the master
             try 
                 { 
-                returnIndividualsToMaster(state, inds, updateFitness, dataOut, returnIndividuals, -1);  // -1 == write all individuals
+                returnIndividualsToMaster(state, inds, updateFitness, dataOut, returnIndividuals, cache, genotypes, -1);  // -1 == write all individuals
                 dataOut.flush();
                 } 
             catch( IOException e ) { state.output.fatal("Caught fatal IOException\n"+e ); }
@@ -652,6 +724,14 @@ public class Slave
     public static void evaluateGroupedProblemForm( EvolutionState state, boolean returnIndividuals,
         DataInputStream dataIn, DataOutputStream dataOut )
         {
+        evaluateGroupedProblemForm(state, returnIndividuals, dataIn, dataOut, null);
+        }
+
+    /** Evaluates a job from the master, reading and returning individuals through the given genotype cache,
+        or directly if it is null. */
+    public static void evaluateGroupedProblemForm( EvolutionState state, boolean returnIndividuals,
+        DataInputStream dataIn, DataOutputStream dataOut, GenotypeCache cache )
+        {
         boolean countVictoriesOnly = false;
 
         // first load the individuals
@@ -687,11 +767,12 @@ public class Slave
         // Read the individuals from the stream
         Individual inds[] = new Individual[numInds];
         boolean updateFitness[] = new boolean[numInds];
+        byte[][] genotypes = new byte[numInds][];
         try
             {
             for(int i=0;i<inds.length;++i)
                 {
-                inds[i] = state.population.subpops.get(subpops[i]).species.newIndividual( state, dataIn );
+                inds[i] = readIndividual(state, subpops[i], dataIn, cache, genotypes, i);
                 updateFitness[i] = dataIn.readBoolean();
                 }
             }
@@ -705,7 +786,7 @@ public class Slave
                                 
         try 
             {
-            returnIndividualsToMaster(state, inds, updateFitness, dataOut, returnIndividuals, -1);      // -1 == write all individuals
+            returnIndividualsToMaster(state, inds, updateFitness, dataOut, returnIndividuals, cache, genotypes, -1);      // -1 == write all individuals
             dataOut.flush();
             } 
         catch( IOException e ) { state.output.fatal("Caught fatal IOException\n"+e ); }
@@ -715,22 +796,51 @@ public class Slave
         
         
         
-    // if individualInQuestion is -1, all individuals are returned
+    // Returns individuals from next onwards until one isn't done, and returns the next individual to return
+    static int returnEvaluatedIndividuals(EvolutionState state, Individual[] inds, boolean[] updateFitness, boolean[] done, int next,
+        DataOutputStream dataOut, boolean returnIndividuals, GenotypeCache cache, byte[][] genotypes) throws IOException
+        {
+        while(next < done.length && done[next])
+            returnIndividualsToMaster(state, inds, updateFitness, dataOut, returnIndividuals, cache, genotypes, next++);
+        return next;
+        }
+
+    // Reads an individual from the master, through the genotype cache if there is one
+    static Individual readIndividual(EvolutionState state, int subpop, DataInputStream dataIn, GenotypeCache cache,
+        byte[][] genotypes, int index) throws IOException
+        {
+        Species species = state.population.subpops.get(subpop).species;
+        if (cache == null)
+            return species.newIndividual(state, dataIn);
+        else return cache.readIndividual(state, species, dataIn, genotypes, index);
+        }
+
     static void returnIndividualsToMaster(EvolutionState state, Individual []inds, boolean[] updateFitness,
         DataOutputStream dataOut, boolean returnIndividuals, int individualInQuestion) throws IOException 
         {
+        returnIndividualsToMaster(state, inds, updateFitness, dataOut, returnIndividuals, null, null, individualInQuestion);
+        }
+
+    // if individualInQuestion is -1, all individuals are returned.  If we're caching genotypes, individuals
+    // whose genotypes are unchanged since the master sent them are returned as just their fitnesses.
+    static void returnIndividualsToMaster(EvolutionState state, Individual []inds, boolean[] updateFitness,
+        DataOutputStream dataOut, boolean returnIndividuals, GenotypeCache cache, byte[][] genotypes, int individualInQuestion) throws IOException 
+        {
         // Return the evaluated individual to the master
         // just write evaluated and fitness
         int startInd = (individualInQuestion == -1 ? 0 : individualInQuestion);
         int endInd = (individualInQuestion == -1 ? inds.length : individualInQuestion + 1);
         for(int i = startInd; i<endInd;i++)
             {
-            dataOut.writeByte(returnIndividuals ? V_INDIVIDUAL : (updateFitness[i] ? V_FITNESS : V_NOTHING));
-            if (returnIndividuals)
+            byte val = (returnIndividuals ? V_INDIVIDUAL : (updateFitness[i] ? V_FITNESS : V_NOTHING));
+            if (val == V_INDIVIDUAL && cache != null && cache.hasGenotype(state, inds[i], genotypes[i]))
+                val = V_FITNESS;  // the master already has the rest
+            dataOut.writeByte(val);
+            if (val == V_INDIVIDUAL)
                 {
                 inds[i].writeIndividual(state, dataOut);
                 }
-            else if (updateFitness[i])
+            else if (val == V_FITNESS)
                 {
                 dataOut.writeBoolean(inds[i].evaluated);
                 inds[i].fitness.writeFitness(state,dataOut);
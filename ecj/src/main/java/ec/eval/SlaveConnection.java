@@ -51,6 +51,9 @@ class SlaveConnection
     // a pointer to the monitor
     SlaveMonitor slaveMonitor;
 
+    // a mirror of the slave's genotype cache, or null if it has none.  Only used by whoever writes to the slave.
+    GenotypeCache cache;
+
     // a pointer to the worker thread that is working for this slave
     ThreadPool.Worker reader;
     Runnable readerRun;
@@ -59,7 +62,34 @@ class SlaveConnection
 
     // given that we expect the slave to return the evaluated individuals in the exact same order,
     // the jobs need to be represented as a queue.
-    LinkedList jobs = new LinkedList();
+    LinkedList<Job> jobs = new LinkedList<Job>();
+
+    // Estimates of the slave's performance, for adaptive job sizing and for SlaveStatus.
+    // The time the slave takes to do a job of n individuals is modeled as latency + n * perIndividual
+    // (both in seconds), fitted by least squares over the jobs so far, exponentially weighted so that
+    // recent jobs count more.  These are updated by the reader thread and read by whoever is scheduling
+    // jobs, so they're guarded by statsLock.
+    Object statsLock = new int[0];  // serializable and lockable
+    long jobsDone;
+    long individualsDone;
+    long duplicateJobs;  // copies of straggling jobs we were given
+    long wastedIndividuals;  // individuals whose results were thrown away because another copy got there first
+    int lastJobSize;
+    long lastDone;  // by System.nanoTime(), when the previous job came back
+    double meanSize;
+    double meanTime;
+    double meanSizeSquared;
+    double meanSizeTime;
+    double latency;
+    double perIndividual;
+    // whether the jobs so far have been different enough in size to tell latency apart from perIndividual
+    boolean resolved;
+    // Health: jobs which took more than the monitor's lateFactor times as long as expected, and the fraction of
+    // recent jobs which did, weighted as the estimates are.  Also guarded by statsLock.
+    long lateJobs;
+    double errorRate;
+    // whether the monitor is draining the slave, so it gets no more jobs.  Guarded by the monitor's availableSlaves.
+    boolean draining;
 
     /**
        The constructor also creates the queue storing the jobs that the slave
@@ -80,9 +110,26 @@ class SlaveConnection
         this.dataIn = dataIn;
         this.state = state;
         this.slaveMonitor = slaveMonitor;
+        if (slaveMonitor.genotypeCacheSize > 0)
+            cache = new GenotypeCache(slaveMonitor.genotypeCacheSize);
         buildThreads();
         showDebugInfo = slaveMonitor.showDebugInfo;
         }
+
+    /** Creates a SlaveConnection without streams or threads, for subclasses which talk to the slave some other way. */
+    SlaveConnection( EvolutionState state,
+        String slaveName,
+        Socket evalSocket,
+        SlaveMonitor slaveMonitor )
+        {
+        this.slaveName = slaveName;
+        this.evalSocket = evalSocket;
+        this.state = state;
+        this.slaveMonitor = slaveMonitor;
+        if (slaveMonitor.genotypeCacheSize > 0)
+            cache = new GenotypeCache(slaveMonitor.genotypeCacheSize);
+        showDebugInfo = slaveMonitor.showDebugInfo;
+        }
         
     /**
        This method is called whenever there are any communication problems with the slave
@@ -172,10 +219,10 @@ class SlaveConnection
         
         // This all could have been O(1) if we had used two queues, but we're being
         // intentionally lazy to keep this from getting to complex.
-        Iterator i = jobs.iterator();
+        Iterator<Job> i = jobs.iterator();
         while(i.hasNext())
             {
-            Job job = (Job)(i.next());
+            Job job = i.next();
             if (!job.sent) { job.sent = true; return job; }
             }
         return null;
@@ -203,35 +250,21 @@ class SlaveConnection
                 {
                 // send the job
                 debug("" + Thread.currentThread().getName() + "Sending Job");
-                if( job.type == Slave.V_EVALUATESIMPLE )
-                    {
-                    // Tell the server we're evaluating a SimpleProblemForm
-                    dataOut.writeByte(Slave.V_EVALUATESIMPLE);
-                    }
-                else
-                    {
-                    // Tell the server we're evaluating a GroupedProblemForm
-                    dataOut.writeByte(Slave.V_EVALUATEGROUPED);
-                                        
-                    // Tell the server whether to count victories only or not.
-                    dataOut.writeBoolean(job.countVictoriesOnly);
-                    }
-                                
-                // transmit number of individuals 
-                dataOut.writeInt(job.inds.length); 
-                            
-                // Transmit the subpopulations to the slave 
-                for(int x=0;x<job.subPops.length;x++)
-                    dataOut.writeInt(job.subPops[x]);
-                            
-                debug("Starting to transmit individuals"); 
-                            
-                // Transmit the individuals to the server for evaluation...
-                for(int i=0;i<job.inds.length;i++)
+                job.sentTime = System.nanoTime();
+                if (slaveMonitor.speculate)
                     {
-                    job.inds[i].writeIndividual(state, dataOut);
-                    dataOut.writeBoolean(job.updateFitness[i]);
+                    // the job's individuals may be shared with a copy of it, so we write it out first, without blocking on the slave
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    if (!writeSharedJob(state, job, new DataOutputStream(bytes), cache))
+                        {
+                        // a copy of the job has already come back, so there's nothing to do
+                        synchronized(jobs) { jobs.remove(job); }
+                        slaveMonitor.notifySlaveAvailability( SlaveConnection.this, job, state );
+                        return true;
+                        }
+                    bytes.writeTo(dataOut);
                     }
+                else writeJob(state, job, dataOut, cache);
                 dataOut.flush();
                 }
             }
@@ -247,6 +280,73 @@ class SlaveConnection
         
         
         
+    /** Writes a job to the slave, in the Slave's protocol, sending genotypes through the slave's cache if it has one. */
+    static void writeJob(EvolutionState state, Job job, DataOutputStream dataOut, GenotypeCache cache) throws IOException
+        {
+        if( job.type == Slave.V_EVALUATESIMPLE )
+            {
+            // Tell the server we're evaluating a SimpleProblemForm
+            dataOut.writeByte(Slave.V_EVALUATESIMPLE);
+            }
+        else
+            {
+            // Tell the server we're evaluating a GroupedProblemForm
+            dataOut.writeByte(Slave.V_EVALUATEGROUPED);
+                                        
+            // Tell the server whether to count victories only or not.
+            dataOut.writeBoolean(job.countVictoriesOnly);
+            }
+                                
+        // transmit number of individuals 
+        dataOut.writeInt(job.inds.length); 
+                            
+        // Transmit the subpopulations to the slave 
+        for(int x=0;x<job.subPops.length;x++)
+            dataOut.writeInt(job.subPops[x]);
+                            
+        // Transmit the individuals to the server for evaluation...
+        for(int i=0;i<job.inds.length;i++)
+            {
+            if (cache == null)
+                job.inds[i].writeIndividual(state, dataOut);
+            else cache.writeIndividual(state, job.inds[i], dataOut);
+            dataOut.writeBoolean(job.updateFitness[i]);
+            }
+        }
+
+    /** Writes a job whose individuals may be shared with copies of it on other slaves, as writeJob(...) does, but holding
+        its primary's lock, so that no copy's results are merged into the individuals as they're written.  Returns false,
+        having written nothing, if the results of a copy have already been merged. */
+    static boolean writeSharedJob(EvolutionState state, Job job, DataOutputStream dataOut, GenotypeCache cache) throws IOException
+        {
+        Job p = job.primary();
+        synchronized(p)
+            {
+            if (p.claimed) return false;
+            writeJob(state, job, dataOut, cache);
+            dataOut.flush();
+            return true;
+            }
+        }
+
+    /** Reads the result for individual i of a job from the slave, in the Slave's protocol, given the byte which starts it. */
+    static void readResult(EvolutionState state, Job job, int i, byte val, DataInputStream dataIn) throws IOException
+        {
+        if (val == Slave.V_INDIVIDUAL)
+            {
+            job.newinds[i].readIndividual(state, dataIn);
+            }
+        else if (val == Slave.V_FITNESS)
+            {
+            job.newinds[i].evaluated = dataIn.readBoolean();
+            job.newinds[i].fitness.readFitness(state,dataIn);
+            }
+        else if (val == Slave.V_NOTHING)
+            {
+            // do nothing
+            }
+        }
+        
     boolean readLoop()
         {
         Job job = null;
@@ -261,7 +361,7 @@ class SlaveConnection
             
             synchronized(jobs) 
                 {
-                job = (Job)(jobs.getFirst());                           // NO SUCH ELEMENT EXCEPTION
+                job = jobs.getFirst();                           // NO SUCH ELEMENT EXCEPTION
                 }
             debug("Got job: " + job);
             
@@ -271,7 +371,7 @@ class SlaveConnection
             ///// AND THEN COPY THEM BACK INTO THE ORIGINAL INDS, BECAUSE ECJ
             ///// DOESN'T HAVE A COPY(INDIVIDUAL,INTO_INDIVIDUAL) FUNCTION
             
-            job.copyIndividualsForward();
+            synchronized(job.primary()) { job.copyIndividualsForward(); }
 
             // now start reading.  Remember that we've already got a byte.
             
@@ -281,19 +381,7 @@ class SlaveConnection
                 debug(SlaveConnection.this.toString() + " Reading Byte" );
                 if (i > 0) val = dataIn.readByte();  // otherwise we've got it already
                 debug(SlaveConnection.this.toString() + " Reading Individual" );
-                if (val == Slave.V_INDIVIDUAL)
-                    {
-                    job.newinds[i].readIndividual(state, dataIn);
-                    }
-                else if (val == Slave.V_FITNESS)
-                    {
-                    job.newinds[i].evaluated = dataIn.readBoolean();
-                    job.newinds[i].fitness.readFitness(state,dataIn);
-                    }
-                else if (val == Slave.V_NOTHING)
-                    {
-                    // do nothing
-                    }
+                readResult(state, job, i, val, dataIn);
                 debug( SlaveConnection.this.toString() + " Read Individual" );
                 }
 
@@ -301,7 +389,8 @@ class SlaveConnection
             ///// INDIVIDUALS.  THIS IS QUITE A HACK, IF YOU READ JOB.JAVA
 
             // Now we have all the individuals in so we're good.  Copy them back into the original individuals
-            job.copyIndividualsBack(state);
+            job.claimAndCopyIndividualsBack(state);
+            recordJob(job, System.nanoTime());
             
             ///// LAST STEP: LET OTHERS KNOW WE'RE DONE AND AVAILABLE FOR ANOTHER JOB
             // we're all done!  Yank the job from the queue so others think we're available
@@ -325,6 +414,117 @@ class SlaveConnection
     
 
 
+    /**
+       Updates the performance estimates with a job which has just come back.  If the slave has more than
+       one job at a time, it can't start on this one until it's done with the previous one, so we time it
+       from whichever is later: when it was sent, or when the previous one came back.
+    */
+    void recordJob(Job job, long done)
+        {
+        synchronized(statsLock)
+            {
+            double time = (done - Math.max(job.sentTime, lastDone)) / 1.0e9;
+            double size = job.inds.length;
+            double weight = (jobsDone == 0 ? 1.0 : slaveMonitor.adaptiveWeight);
+            
+            // was the job late, given what we expected of the slave before it?
+            boolean late = (jobsDone >= SlaveMonitor.MIN_HEALTH_JOBS && 
+                time > slaveMonitor.lateFactor * (latency + size * perIndividual));
+            if (late) lateJobs++;
+            errorRate += weight * ((late ? 1.0 : 0.0) - errorRate);
+
+            lastDone = done;
+            lastJobSize = job.inds.length;
+            jobsDone++;
+            individualsDone += job.inds.length;
+            if (job.primary != null) duplicateJobs++;
+            if (job.discarded) wastedIndividuals += job.inds.length;
+
+            meanSize += weight * (size - meanSize);
+            meanTime += weight * (time - meanTime);
+            meanSizeSquared += weight * (size * size - meanSizeSquared);
+            meanSizeTime += weight * (size * time - meanSizeTime);
+
+            double variance = meanSizeSquared - meanSize * meanSize;
+            if (variance > MIN_RELATIVE_VARIANCE * meanSize * meanSize)
+                {
+                double slope = (meanSizeTime - meanSize * meanTime) / variance;
+                if (slope > 0)
+                    {
+                    perIndividual = slope;
+                    latency = Math.max(meanTime - slope * meanSize, 0);
+                    resolved = true;
+                    return;
+                    }
+                }
+                
+            // The job sizes have been too similar to separate the two, so we hold on to the latency we
+            // had and put the rest down to the individuals (but at least half, in case the latency is stale)
+            latency = Math.min(latency, meanTime / 2);
+            perIndividual = (meanTime - latency) / meanSize;
+            }
+        }
+
+    // jobs must vary in size with a coefficient of variation of at least 0.1 for the regression to be trusted
+    static final double MIN_RELATIVE_VARIANCE = 0.01;
+
+    /** Returns the slave's score when scheduling prefers healthy slaves: its estimated throughput, times one less its
+        error rate.  This is infinite until the slave has returned a job, so that new slaves are tried at once. */
+    double score()
+        {
+        synchronized(statsLock)
+            {
+            if (jobsDone == 0 || perIndividual <= 0) return Double.POSITIVE_INFINITY;
+            return (1.0 - errorRate) / perIndividual;
+            }
+        }
+
+    /** Returns the number of jobs which the slave has been given but which haven't yet been sent to it. */
+    int numQueuedJobs()
+        {
+        synchronized(jobs)
+            {
+            int queued = 0;
+            Iterator<Job> i = jobs.iterator();
+            while(i.hasNext())
+                if (!(i.next()).sent) queued++;
+            return queued;
+            }
+        }
+
+    /** Returns how long, in nanoseconds, the slave has been working on its oldest job without returning it, as of
+        <i>now</i> (by System.nanoTime()), or 0 if it has no job or hasn't been sent it yet.  Since the slave can't
+        start on a job until it has finished the one before, this is timed from whichever is later: when the job
+        was sent, or when the last job came back.  */
+    long silence(long now)
+        {
+        long sent;
+        synchronized(jobs)
+            {
+            if (jobs.isEmpty()) return 0;
+            sent = (jobs.getFirst()).sentTime;
+            }
+        if (sent == 0) return 0;
+        synchronized(statsLock) { return Math.max(0, now - Math.max(sent, lastDone)); }
+        }
+
+    /** Returns a snapshot of the slave's performance so far. */
+    public SlaveStatus getStatus()
+        {
+        int outstanding = numJobs();
+        int queued = numQueuedJobs();
+        double silence = silence(System.nanoTime()) / 1.0e9;
+        double score = score();
+        boolean draining;
+        synchronized(slaveMonitor.availableSlaves) { draining = this.draining; }
+        synchronized(statsLock)
+            {
+            return new SlaveStatus(slaveName, jobsDone, individualsDone, outstanding, queued, lastJobSize,
+                perIndividual > 0 ? 1.0 / perIndividual : 0.0, latency, duplicateJobs, wastedIndividuals,
+                meanTime > 0 ? 1.0 / meanTime : 0.0, lateJobs, errorRate, silence, score, draining);
+            }
+        }
+
     /**
        Adds a new jobs to the queue.  This implies that the slave will be in charge of executing
        this particular job.
@@ -353,10 +553,12 @@ class SlaveConnection
             synchronized(jobs)
                 {
                 if( jobs.isEmpty() ) { return; }
-                job = (Job)(jobs.removeFirst());
+                job = jobs.removeFirst();
                 }
+            synchronized(job.primary()) { if (job.primary().claimed) continue; }  // another copy already came back
             debug(Thread.currentThread().getName() + " Waiting for a slave to reschedule the evaluation.");
             job.sent = false;  // reuse
+            job.sentTime = 0;
             slaveMonitor.scheduleJobForEvaluation(state,job);
             debug(Thread.currentThread().getName() + " Got a slave to reschedule the evaluation.");
             }
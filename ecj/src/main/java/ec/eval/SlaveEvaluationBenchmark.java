@@ -0,0 +1,189 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import java.io.*;
+import java.util.*;
+import ec.*;
+import ec.simple.*;
+import ec.util.*;
+import ec.vector.*;
+
+/**
+ * SlaveEvaluationBenchmark.java
+ *
+ * Times how long a multithreaded Slave takes to evaluate a job of individuals whose evaluation times
+ * are heavy-tailed (Pareto distributed, with shape <i>alpha</i> and a minimum of 1 millisecond, capped
+ * at 1 second), as Slave.evaluateSimpleProblemForm(...) does it, against the older scheme which handed
+ * individuals to the threads round-robin and waited for each thread in turn.  Evaluation is
+ * simulated by sleeping, so the timings don't depend on the number of processors.  Run as:
+ *
+ * <p><tt>java ec.eval.SlaveEvaluationBenchmark [job-size] [alpha] [repetitions]</tt>
+ *
+ * <p>By default the job size is 200, alpha is 1.5, and there are 3 repetitions.  Output is one line per
+ * number of threads giving the mean milliseconds for each scheme, and the least time any scheme could
+ * take (the larger of the total evaluation time divided by the number of threads, and the longest
+ * single evaluation).  The new scheme is checked to return the right results in the right order; the last
+ * column says whether the older one did.
+ */
+
+public class SlaveEvaluationBenchmark
+    {
+    static final int[] THREADS = { 1, 2, 4, 8, 16 };
+    static final double MINIMUM = 1.0;  // milliseconds
+    static final double MAXIMUM = 1000.0;  // milliseconds
+
+    /** A Problem whose individuals take as many milliseconds to evaluate as their first gene says, and
+        whose fitness is that gene. */
+    public static class SleepingProblem extends Problem implements SimpleProblemForm
+        {
+        public void evaluate(final EvolutionState state, final Individual ind, final int subpopulation, final int threadnum)
+            {
+            double millis = ((DoubleVectorIndividual)ind).genome[0];
+            try
+                {
+                Thread.sleep((long)millis, (int)((millis - (long)millis) * 1000000));
+                }
+            catch (InterruptedException e) { }
+            ((SimpleFitness)(ind.fitness)).setFitness(state, millis, false);
+            ind.evaluated = true;
+            }
+        }
+
+    // serializes a job, as the master would, of individuals with the given evaluation times, and writes
+    // to expected what the slave ought to send back
+    static byte[] job(EvolutionState state, double[] millis, DataOutputStream expected) throws IOException
+        {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(millis.length);
+        for(int i = 0; i < millis.length; i++)
+            out.writeInt(0);
+        Species species = state.population.subpops.get(0).species;
+        for(int i = 0; i < millis.length; i++)
+            {
+            DoubleVectorIndividual ind = (DoubleVectorIndividual)(species.newIndividual(state, 0));
+            ind.genome[0] = millis[i];
+            ind.writeIndividual(state, out);
+            out.writeBoolean(true);
+            ((SimpleFitness)(ind.fitness)).setFitness(state, millis[i], false);
+            ind.evaluated = true;
+            Slave.returnIndividualsToMaster(state, new Individual[] { ind }, new boolean[] { true }, expected, false, 0);
+            }
+        expected.flush();
+        out.flush();
+        return bytes.toByteArray();
+        }
+
+    // The older scheme: individuals are handed to threads 0, 1, 2, ... in turn, and before a thread is given a
+    // new individual we wait for it to finish its previous one and return it.  Note that at the end it
+    // returns the individuals still being evaluated in thread order, which isn't the order they were sent
+    // unless the job size is a multiple of the number of threads.
+    static void evaluateRoundRobin(final EvolutionState state, DataInputStream dataIn, DataOutputStream dataOut) throws Exception
+        {
+        int numInds = dataIn.readInt();
+        final int[] subpops = new int[numInds];
+        for(int i = 0; i < numInds; i++)
+            subpops[i] = dataIn.readInt();
+        boolean[] updateFitness = new boolean[numInds];
+        final Individual[] inds = new Individual[numInds];
+        ThreadPool.Worker[] threads = new ThreadPool.Worker[state.evalthreads];
+        final SimpleProblemForm[] problems = new SimpleProblemForm[state.evalthreads];
+        int[] indForThread = new int[state.evalthreads];
+        int t = 0;
+        for(int i = 0; i < numInds; i++)
+            {
+            inds[i] = state.population.subpops.get(subpops[i]).species.newIndividual(state, dataIn);
+            updateFitness[i] = dataIn.readBoolean();
+            if (t >= state.evalthreads) t = 0;
+            if (threads[t] != null)
+                {
+                Slave.pool.join(threads[t]);
+                Slave.returnIndividualsToMaster(state, inds, updateFitness, dataOut, false, indForThread[t]);
+                }
+            if (problems[t] == null) problems[t] = ((SimpleProblemForm)(state.evaluator.p_problem.clone()));
+            final int j = i;
+            final int s = t;
+            indForThread[t] = i;
+            threads[t] = Slave.pool.start(new Runnable()
+                {
+                public void run() { problems[s].evaluate(state, inds[j], subpops[j], 0); }
+                }, "Evaluation of individual " + i);
+            t++;
+            }
+        for(t = 0; t < state.evalthreads; t++)
+            if (threads[t] != null)
+                {
+                Slave.pool.join(threads[t]);
+                Slave.returnIndividualsToMaster(state, inds, updateFitness, dataOut, false, indForThread[t]);
+                }
+        dataOut.flush();
+        }
+
+    public static void main(String[] args) throws Exception
+        {
+        int size = (args.length > 0 ? Integer.parseInt(args[0]) : 200);
+        double alpha = (args.length > 1 ? Double.parseDouble(args[1]) : 1.5);
+        int repetitions = (args.length > 2 ? Integer.parseInt(args[2]) : 3);
+        int maxThreads = THREADS[THREADS.length - 1];
+
+        ParameterDatabase parameters = new ParameterDatabase("ecsuite.params", ec.app.ecsuite.ECSuite.class);
+        parameters.set(new Parameter(Evolve.P_SILENT), "true");
+        for(int i = 0; i < maxThreads; i++)
+            parameters.set(new Parameter("seed." + i), "" + (i + 1));
+        parameters.set(new Parameter("evalthreads"), "" + maxThreads);
+        parameters.set(new Parameter("pop.subpop.0.species.genome-size"), "1");
+        parameters.set(new Parameter("eval.problem"), SleepingProblem.class.getName());
+        EvolutionState state = Evolve.initialize(parameters, 0);
+        state.setup(state, null);
+        state.population = state.initializer.setupPopulation(state, 0);
+        MersenneTwisterFast random = state.random[0];
+
+        System.out.println("threads\tround-robin\tcompletion-queue\tbound\tround-robin-order");
+        for(int th = 0; th < THREADS.length; th++)
+            {
+            state.evalthreads = THREADS[th];
+            long roundRobin = 0;
+            long completionQueue = 0;
+            double bound = 0;
+            boolean inOrder = true;
+            for(int r = 0; r < repetitions; r++)
+                {
+                double[] millis = new double[size];
+                double total = 0;
+                double longest = 0;
+                for(int i = 0; i < size; i++)
+                    {
+                    millis[i] = Math.min(MAXIMUM, MINIMUM / Math.pow(1.0 - random.nextDouble(), 1.0 / alpha));
+                    total += millis[i];
+                    longest = Math.max(longest, millis[i]);
+                    }
+                bound += Math.max(total / state.evalthreads, longest);
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                byte[] job = job(state, millis, new DataOutputStream(expected));
+
+                ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+                long time = System.nanoTime();
+                evaluateRoundRobin(state, new DataInputStream(new ByteArrayInputStream(job)), new DataOutputStream(legacy));
+                roundRobin += System.nanoTime() - time;
+
+                ByteArrayOutputStream result = new ByteArrayOutputStream();
+                time = System.nanoTime();
+                Slave.evaluateSimpleProblemForm(state, false, new DataInputStream(new ByteArrayInputStream(job)), new DataOutputStream(result), args);
+                completionQueue += System.nanoTime() - time;
+
+                inOrder = inOrder && Arrays.equals(expected.toByteArray(), legacy.toByteArray());
+                if (!Arrays.equals(expected.toByteArray(), result.toByteArray()))
+                    throw new RuntimeException("Slave.evaluateSimpleProblemForm(...) returned the wrong results with " + state.evalthreads + " threads");
+                }
+            System.out.println(state.evalthreads + "\t" + (roundRobin / 1000000.0 / repetitions) + "\t" +
+                (completionQueue / 1000000.0 / repetitions) + "\t" + (bound / repetitions) + "\t" + (inOrder ? "right" : "WRONG"));
+            }
+        System.exit(0);
+        }
+    }
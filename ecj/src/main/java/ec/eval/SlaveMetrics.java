@@ -0,0 +1,103 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import java.io.*;
+
+/**
+ * SlaveMetrics.java
+ *
+ * A snapshot of the SlaveMonitor as a whole, as returned by MasterProblem.getMetrics(): how many slaves there are,
+ * how many jobs are waiting to be sent to them and how many they're working on, how fast they're going, and the
+ * status of each one.  The SlaveMonitor can also write this out every so often, in the text format read by
+ * Prometheus and similar scrapers, with write(...).
+ */
+
+public class SlaveMetrics implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    /** When the snapshot was taken, by System.currentTimeMillis(). */
+    public final long time;
+    /** The status of each slave currently connected. */
+    public final SlaveStatus[] slaves;
+    /** The number of slaves with room for another job. */
+    public final int availableSlaves;
+    /** The number of slaves which have been blacklisted so far. */
+    public final int blacklistedSlaves;
+    /** The number of jobs given to slaves but not yet sent to them. */
+    public final int queuedJobs;
+    /** The number of jobs sent to slaves but not yet returned. */
+    public final int inFlightJobs;
+    /** The estimated number of individuals evaluated per second by all the slaves together. */
+    public final double throughput;
+    /** The number of individuals sent to slaves as copies of straggling jobs. */
+    public final long duplicatedEvaluations;
+    /** The number of individuals whose results were thrown away, because another copy of their job got there first. */
+    public final long wastedEvaluations;
+
+    public SlaveMetrics(long time, SlaveStatus[] slaves, int availableSlaves, int blacklistedSlaves,
+        long duplicatedEvaluations, long wastedEvaluations)
+        {
+        this.time = time;
+        this.slaves = slaves;
+        this.availableSlaves = availableSlaves;
+        this.blacklistedSlaves = blacklistedSlaves;
+        this.duplicatedEvaluations = duplicatedEvaluations;
+        this.wastedEvaluations = wastedEvaluations;
+        int queued = 0;
+        int outstanding = 0;
+        double throughput = 0;
+        for(int i = 0; i < slaves.length; i++)
+            {
+            queued += slaves[i].queuedJobs;
+            outstanding += slaves[i].outstandingJobs;
+            throughput += slaves[i].throughput;
+            }
+        this.queuedJobs = queued;
+        this.inFlightJobs = outstanding - queued;
+        this.throughput = throughput;
+        }
+
+    /** Writes the metrics in the Prometheus text format, one metric per line, with per-slave metrics labelled by slave. */
+    public void write(PrintWriter out)
+        {
+        out.println("ecj_slaves " + slaves.length);
+        out.println("ecj_slaves_available " + availableSlaves);
+        out.println("ecj_slaves_blacklisted " + blacklistedSlaves);
+        out.println("ecj_jobs_queued " + queuedJobs);
+        out.println("ecj_jobs_in_flight " + inFlightJobs);
+        out.println("ecj_throughput " + throughput);
+        out.println("ecj_evaluations_duplicated " + duplicatedEvaluations);
+        out.println("ecj_evaluations_wasted " + wastedEvaluations);
+        for(int i = 0; i < slaves.length; i++)
+            {
+            SlaveStatus s = slaves[i];
+            String label = "{slave=\"" + s.name.replace("\\", "\\\\").replace("\"", "\\\"") + "\"} ";
+            out.println("ecj_slave_jobs" + label + s.jobs);
+            out.println("ecj_slave_individuals" + label + s.individuals);
+            out.println("ecj_slave_jobs_outstanding" + label + s.outstandingJobs);
+            out.println("ecj_slave_jobs_queued" + label + s.queuedJobs);
+            out.println("ecj_slave_jobs_late" + label + s.lateJobs);
+            out.println("ecj_slave_throughput" + label + s.throughput);
+            out.println("ecj_slave_latency" + label + s.latency);
+            out.println("ecj_slave_jobs_per_second" + label + s.jobsPerSecond);
+            out.println("ecj_slave_error_rate" + label + s.errorRate);
+            out.println("ecj_slave_silence" + label + s.silence);
+            out.println("ecj_slave_draining" + label + (s.draining ? 1 : 0));
+            }
+        out.flush();
+        }
+
+    public String toString()
+        {
+        StringWriter s = new StringWriter();
+        write(new PrintWriter(s));
+        return s.toString();
+        }
+    }
@@ -32,6 +32,47 @@ import ec.steadystate.QueueIndividual;
  
  <p>Generally speaking, the SlaveMonitor owns the SlaveConnections -- no one else
  should speak to them.  Also generally speaking, only MasterProblems create and speak to the SlaveMonitor.
+
+ <p>The monitor keeps track of the health of each slave, as well as its speed.  A job is <i>late</i> if it takes 
+ more than <tt>late-factor</tt> times as long as the slave's estimated latency and throughput say it should,
+ once the slave has returned a few jobs, and a slave's <i>error rate</i> is the fraction of its recent jobs which were late, weighted
+ towards recent jobs by <tt>adaptive-weight</tt> (see MasterProblem).  Ordinarily jobs go to the slaves round-robin,
+ but if <tt>prefer-healthy</tt> is true, each job goes to the available slave with the highest score, which is its 
+ throughput times one less its error rate.  A slave which has yet to return a job has an infinite score, and so
+ slaves which join in the middle of a generation are put to work at once.  If a slave's error rate rises above
+ <tt>max-error-rate</tt>, it is <i>drained</i>: it is given no more jobs, and once it has returned the ones it has, it 
+ is let go and blacklisted, unless it is the only slave left.  If a slave has been working on a job for more than 
+ <tt>health-timeout</tt> seconds without returning it, it is assumed to have hung: it is let go and blacklisted at once,
+ and its jobs are rescheduled.  A blacklisted slave is refused if it tries to connect again under the same name.  Since
+ by default a slave's name includes a number the master gives it, this only keeps out slaves which were given
+ their names with <tt>eval.slave.name</tt>.  The protocol has no heartbeat, so it is the jobs themselves
+ which tell the monitor that a slave is alive.  These facilities are not supported by NIOSlaveMonitor.
+
+ <p>You can get a snapshot of the slaves with getMetrics(), and if <tt>eval.metrics.file</tt> is given, the monitor
+ writes one to it, in the format described in SlaveMetrics, every <tt>eval.metrics.interval</tt> seconds.  The file
+ is written anew each time, so an external scraper can simply read it.
+
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><tt>eval.masterproblem.prefer-healthy</tt><br>
+ <font size=-1>boolean (default false)</font></td>
+ <td valign=top>(should jobs go to the available slave with the highest score, rather than round-robin?)</td></tr>
+ <tr><td valign=top><tt>eval.masterproblem.late-factor</tt><br>
+ <font size=-1>double &gt; 1.0 (default 3.0)</font></td>
+ <td valign=top>(how many times longer than expected must a job take to be late?)</td></tr>
+ <tr><td valign=top><tt>eval.masterproblem.max-error-rate</tt><br>
+ <font size=-1>0.0 &lt; double &lt;= 1.0 (default 1.0)</font></td>
+ <td valign=top>(slaves whose error rate rises above this are drained and blacklisted.  1.0 means never)</td></tr>
+ <tr><td valign=top><tt>eval.masterproblem.health-timeout</tt><br>
+ <font size=-1>double &gt;= 0.0 (default 0.0)</font></td>
+ <td valign=top>(slaves which have been working on a job for this many seconds are let go and blacklisted.  0.0 means never)</td></tr>
+ <tr><td valign=top><tt>eval.metrics.file</tt><br>
+ <font size=-1>String (a filename), or nonexistant (default)</font></td>
+ <td valign=top>(if it exists, the file to which the monitor writes its metrics)</td></tr>
+ <tr><td valign=top><tt>eval.metrics.interval</tt><br>
+ <font size=-1>double &gt; 0.0 (default 5.0)</font></td>
+ <td valign=top>(how often, in seconds, the metrics file is written)</td></tr>
+ </table>
   
  * @author Sean Luke, Liviu Panait, and Keith Sullivan
  * @version 1.0 
@@ -41,8 +82,27 @@ public class SlaveMonitor
     {
     public static final String P_EVALMASTERPORT = "eval.master.port";
     public static final String P_EVALCOMPRESSION = "eval.compression";
+    public static final String P_EVALNIO = "eval.nio";
+    public static final String P_GENOTYPECACHE = "eval.genotype-cache";
+    public static final String P_EVALLOCAL = "eval.local.directory";
+
+    /** How long, in milliseconds, the monitor waits between looking for new local slaves. */
+    public static final int LOCAL_SLEEP_TIME = 100;
     public static final String P_MAXIMUMNUMBEROFCONCURRENTJOBSPERSLAVE = "eval.masterproblem.max-jobs-per-slave";
     public static final String P_RESCHEDULELOSTJOBS = "eval.masterproblem.reschedule-lost-jobs";
+    public static final String P_SPECULATE = "eval.masterproblem.speculate";
+    public static final String P_SPECULATEFRACTION = "eval.masterproblem.speculate-fraction";
+    public static final String P_SPECULATEPERCENTILE = "eval.masterproblem.speculate-percentile";
+    public static final String P_PREFERHEALTHY = "eval.masterproblem.prefer-healthy";
+    public static final String P_LATEFACTOR = "eval.masterproblem.late-factor";
+    public static final String P_MAXERRORRATE = "eval.masterproblem.max-error-rate";
+    public static final String P_HEALTHTIMEOUT = "eval.masterproblem.health-timeout";
+    public static final String P_METRICSFILE = "eval.metrics.file";
+    public static final String P_METRICSINTERVAL = "eval.metrics.interval";
+    /** How long, in milliseconds, the monitor waits between checking on the health of its slaves. */
+    public static final int HEALTH_SLEEP_TIME = 250;
+    /** How many jobs a slave must return before the monitor decides whether its jobs are late. */
+    public static final int MIN_HEALTH_JOBS = 5;
     public static final int SEED_INCREMENT = 7919; // a large value (prime for fun) bigger than expected number of threads per slave
 
     public EvolutionState state;
@@ -70,6 +130,17 @@ public class SlaveMonitor
      */
     public boolean useCompression;
 
+    /**
+     * The number of genotypes each slave is asked to cache, or 0 if none.  See GenotypeCache.
+     */
+    public int genotypeCacheSize;
+
+    /**
+     * The directory in which local slaves create their LocalSockets, or null if there are none.
+     */
+    public File localDirectory;
+    Thread localThread;
+
     boolean shutdownInProgress = false;
     Object[] shutdownInProgressLock = new Object[0];  // arrays are serializable
     final boolean isShutdownInProgress() { synchronized (shutdownInProgressLock) { return shutdownInProgress; } }
@@ -98,14 +169,46 @@ public class SlaveMonitor
         }
 
     // the slaves (not really a queue)
-    LinkedList allSlaves = new LinkedList();
+    LinkedList<SlaveConnection> allSlaves = new LinkedList<SlaveConnection>();
 
     // the available slaves
-    LinkedList availableSlaves = new LinkedList();
+    LinkedList<SlaveConnection> availableSlaves = new LinkedList<SlaveConnection>();
 
     // the maximum number of jobs per slave
     int maxJobsPerSlave;
 
+    // adaptive job sizing: see MasterProblem
+    boolean adaptiveJobSize;
+    int initialJobSize;
+    int maxJobSize;
+    double adaptiveWeight;
+    double targetOverhead;
+
+    // Speculative re-execution.  In generational evolution, we keep track of the jobs in the batch whose
+    // results haven't yet come back, and the times the returned ones took.  While waiting for the batch
+    // to finish, once speculateFraction of its jobs have come back, or a job has taken longer than
+    // speculatePercentile of those times, we copy straggling jobs onto idle slaves.  All this is guarded by allSlaves.
+    boolean speculate;
+    double speculateFraction;
+    double speculatePercentile;
+    LinkedHashSet<Job> batch = new LinkedHashSet<Job>();
+    ArrayList<Long> times = new ArrayList<Long>();
+    int batchDone;
+    long duplicatedEvaluations;
+    long wastedEvaluations;
+    // we need at least this many times before we trust the percentile
+    static final int MIN_SPECULATION_TIMES = 5;
+
+    // Health.  The names of blacklisted slaves are guarded by allSlaves.
+    boolean preferHealthy;
+    double lateFactor;
+    double maxErrorRate;
+    long healthTimeout;  // in nanoseconds, or 0
+    HashSet<String> blacklist = new HashSet<String>();
+    File metricsFile;
+    long metricsInterval;  // in nanoseconds
+    Thread healthThread;
+
     // whether the system should display information that is useful for debugging 
     boolean showDebugInfo;
     
@@ -121,25 +224,93 @@ public class SlaveMonitor
        that a slave can be entrusted with at each time).
     */
     public SlaveMonitor( final EvolutionState state, boolean showDebugInfo, final MasterProblem problemPrototype)
+        {
+        this(state, showDebugInfo, problemPrototype, true);
+        }
+
+    /**
+       Initializes the data structures for keeping track of the state of each slave, and if <i>listen</i> is true,
+       starts listening for slaves.  Subclasses may pass false, and call listen(...) once they're ready for slaves.
+    */
+    protected SlaveMonitor( final EvolutionState state, boolean showDebugInfo, final MasterProblem problemPrototype, boolean listen)
         {
         this.showDebugInfo = showDebugInfo;
         this.state = state;
         
         pool = new ThreadPool();
                 
-        int port = state.parameters.getInt(
-            new Parameter( P_EVALMASTERPORT ),null);
-                
         maxJobsPerSlave = state.parameters.getInt(
             new Parameter( P_MAXIMUMNUMBEROFCONCURRENTJOBSPERSLAVE ),null);
 
         rescheduleLostJobs = state.parameters.getBoolean(new Parameter(P_RESCHEDULELOSTJOBS), null, true);
 
         useCompression = state.parameters.getBoolean(new Parameter(P_EVALCOMPRESSION),null,false);
+
+        genotypeCacheSize = state.parameters.getIntWithDefault(new Parameter(P_GENOTYPECACHE), null, 0);
+        if (genotypeCacheSize < 0)
+            state.output.fatal("The genotype cache size must be >= 0.", new Parameter(P_GENOTYPECACHE));
+
+        localDirectory = state.parameters.getFile(new Parameter(P_EVALLOCAL), null);
+        if (localDirectory != null && !localDirectory.isDirectory())
+            state.output.fatal("The local slave directory " + localDirectory + " does not exist or isn't a directory.", new Parameter(P_EVALLOCAL));
+
+        adaptiveJobSize = problemPrototype.adaptiveJobSize;
+        initialJobSize = problemPrototype.jobSize;
+        maxJobSize = problemPrototype.maxJobSize;
+        adaptiveWeight = problemPrototype.adaptiveWeight;
+        targetOverhead = problemPrototype.targetOverhead;
+
+        queueEvaluatedIndividuals = (state instanceof ec.steadystate.SteadyStateEvolutionState) || problemPrototype.queueEvaluatedIndividuals;
+
+        speculate = state.parameters.getBoolean(new Parameter(P_SPECULATE), null, false);
+        if (speculate && state instanceof ec.steadystate.SteadyStateEvolutionState)
+            {
+            state.output.warning("Speculative re-execution doesn't apply to steady-state evolution, and will be turned off.", new Parameter(P_SPECULATE));
+            speculate = false;
+            }
+        speculateFraction = state.parameters.getDoubleWithDefault(new Parameter(P_SPECULATEFRACTION), null, 0.9);
+        if (speculateFraction < 0 || speculateFraction > 1)
+            state.output.fatal("The speculation fraction must be a number between 0 and 1.", new Parameter(P_SPECULATEFRACTION));
+        speculatePercentile = state.parameters.getDoubleWithDefault(new Parameter(P_SPECULATEPERCENTILE), null, 0.95);
+        if (speculatePercentile <= 0 || speculatePercentile > 1)
+            state.output.fatal("The speculation percentile must be a number > 0 and <= 1.", new Parameter(P_SPECULATEPERCENTILE));
+
+        preferHealthy = state.parameters.getBoolean(new Parameter(P_PREFERHEALTHY), null, false);
+        lateFactor = state.parameters.getDoubleWithDefault(new Parameter(P_LATEFACTOR), null, 3.0);
+        if (lateFactor <= 1)
+            state.output.fatal("The late factor must be a number > 1.", new Parameter(P_LATEFACTOR));
+        maxErrorRate = state.parameters.getDoubleWithDefault(new Parameter(P_MAXERRORRATE), null, 1.0);
+        if (maxErrorRate <= 0 || maxErrorRate > 1)
+            state.output.fatal("The maximum error rate must be a number > 0 and <= 1.", new Parameter(P_MAXERRORRATE));
+        double timeout = state.parameters.getDoubleWithDefault(new Parameter(P_HEALTHTIMEOUT), null, 0.0);
+        if (timeout < 0)
+            state.output.fatal("The health timeout must be a number >= 0.", new Parameter(P_HEALTHTIMEOUT));
+        healthTimeout = (long)(timeout * 1.0e9);
+        metricsFile = state.parameters.getFile(new Parameter(P_METRICSFILE), null);
+        double interval = state.parameters.getDoubleWithDefault(new Parameter(P_METRICSINTERVAL), null, 5.0);
+        if (interval <= 0)
+            state.output.fatal("The metrics interval must be a number > 0.", new Parameter(P_METRICSINTERVAL));
+        metricsInterval = (long)(interval * 1.0e9);
+
+        if (listen)
+            listen(problemPrototype);
+        }
+
+    /** Returns a new ServerSocket bound to the given port, on which slaves will connect. */
+    protected ServerSocket openServerSocket(int port) throws IOException
+        {
+        return new ServerSocket(port);
+        }
+
+    /** Opens the ServerSocket and starts the thread which accepts slaves, shakes hands with them, and registers them. */
+    protected void listen(final MasterProblem problemPrototype)
+        {
+        int port = state.parameters.getInt(
+            new Parameter( P_EVALMASTERPORT ),null);
                 
         try
             {
-            servSock = new ServerSocket(port);
+            servSock = openServerSocket(port);
             }
         catch( IOException e )
             {
@@ -174,48 +345,7 @@ public class SlaveMonitor
 
                     try
                         {
-                        DataInputStream dataIn = null;
-                        DataOutputStream dataOut = null;
-                        InputStream tmpIn = slaveSock.getInputStream();
-                        OutputStream tmpOut = slaveSock.getOutputStream();
-                        if (useCompression)
-                            {
-                            /*
-                              state.output.fatal("JDK 1.5 has broken compression.  For now, you must set eval.compression=false");
-                              tmpIn = new CompressingInputStream(tmpIn);
-                              tmpOut = new CompressingOutputStream(tmpOut);
-                            */
-                            tmpIn = Output.makeCompressingInputStream(tmpIn);
-                            tmpOut = Output.makeCompressingOutputStream(tmpOut);
-                            if (tmpIn == null || tmpOut == null)
-                                Output.initialError("You do not appear to have JZLib installed on your system, and so must set eval.compression=false. " +
-                                    "To get JZLib, download from the ECJ website or from http://www.jcraft.com/jzlib/");
-                            }
-                                                                                                        
-                        dataIn = new DataInputStream(tmpIn);
-                        dataOut = new DataOutputStream(tmpOut);
-                        
-                        // write unique integer
-                        dataOut.writeInt(slaveNum++);
-                        dataOut.flush();
-                        
-                        // read slave name
-                        String slaveName = dataIn.readUTF();
-
-                        dataOut.writeInt(randomSeed);
-                        randomSeed+=SEED_INCREMENT;
-                        
-                        // Write random state for eval thread to slave
-                        dataOut.flush();
-
-                        // write out additional data as necessary
-                        problemPrototype.sendAdditionalData(state, dataOut);
-                        dataOut.flush();
-                                                
-                        if (registerSlave(state, slaveName, slaveSock, dataOut, dataIn))
-                            state.output.systemMessage( "Slave " + slaveName + " connected successfully." );
-                        else
-                            state.output.systemMessage( "Slave " + slaveName + " not permitted to connect." );
+                        handshake(slaveSock, problemPrototype);
                         }
                     catch (IOException e) {  }
                     }
@@ -224,6 +354,247 @@ public class SlaveMonitor
                 }
             });
         thread.start();
+
+        if (localDirectory != null)
+            listenLocally(problemPrototype);
+        if (healthTimeout > 0 || metricsFile != null)
+            watchHealth();
+        }
+
+    /** Starts the thread which checks the local directory for slaves connecting through LocalSockets. */
+    protected void listenLocally(final MasterProblem problemPrototype)
+        {
+        localThread = new Thread(new Runnable()
+            {
+            public void run()
+                {
+                Thread.currentThread().setName("SlaveMonitor::local    ");
+                while (!isShutdownInProgress())
+                    {
+                    File[] files = localDirectory.listFiles();
+                    for(int i = 0; files != null && i < files.length && !isShutdownInProgress(); i++)
+                        if (files[i].getName().endsWith(LocalSocket.SUFFIX))
+                            {
+                            debug(Thread.currentThread().getName() + " Local slave attempts to connect." );
+                            try
+                                {
+                                handshake(LocalSocket.accept(files[i]), problemPrototype);
+                                }
+                            catch (IOException e) {  }
+                            }
+                    try
+                        {
+                        Thread.sleep(LOCAL_SLEEP_TIME);
+                        }
+                    catch (InterruptedException e) { }
+                    }
+                }
+            });
+        localThread.setDaemon(true);
+        localThread.start();
+        }
+
+    /** Starts the thread which lets go of hung slaves, and writes out the metrics. */
+    protected void watchHealth()
+        {
+        healthThread = new Thread(new Runnable()
+            {
+            public void run()
+                {
+                Thread.currentThread().setName("SlaveMonitor::health    ");
+                long written = 0;
+                while (!isShutdownInProgress())
+                    {
+                    long now = System.nanoTime();
+                    if (healthTimeout > 0)
+                        checkForHungSlaves(now);
+                    if (metricsFile != null && (written == 0 || now - written >= metricsInterval))
+                        {
+                        writeMetrics();
+                        written = now;
+                        }
+                    try
+                        {
+                        Thread.sleep(HEALTH_SLEEP_TIME);
+                        }
+                    catch (InterruptedException e) { }
+                    }
+                }
+            });
+        healthThread.setDaemon(true);
+        healthThread.start();
+        }
+
+    /** Lets go of, and blacklists, slaves which have been working on a job for more than healthTimeout, unless
+        all the other slaves are being drained. */
+    void checkForHungSlaves(long now)
+        {
+        SlaveConnection[] slaves;
+        synchronized(allSlaves)
+            {
+            slaves = allSlaves.toArray(new SlaveConnection[allSlaves.size()]);
+            }
+        for(int i = 0; i < slaves.length; i++)
+            {
+            long silence = slaves[i].silence(now);
+            if (silence > healthTimeout && !lastHealthy(slaves[i]))
+                retire(slaves[i], "hasn't returned a job in " + (silence / 1000000000L) + " seconds");
+            }
+        }
+
+    /** Writes the metrics to a temporary file, then renames it to metricsFile, so that readers never see it half-written. */
+    void writeMetrics()
+        {
+        File tmp = new File(metricsFile.getPath() + ".tmp");
+        try
+            {
+            PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(tmp)));
+            getMetrics().write(out);
+            out.close();
+            if (!tmp.renameTo(metricsFile))
+                {
+                metricsFile.delete();  // some platforms won't rename over an existing file
+                tmp.renameTo(metricsFile);
+                }
+            }
+        catch (IOException e)
+            {
+            state.output.warnOnce("Unable to write the slave metrics to " + metricsFile + ": " + e);
+            }
+        }
+
+    /** Returns a snapshot of the monitor and its slaves. */
+    public SlaveMetrics getMetrics()
+        {
+        int blacklisted;
+        synchronized(allSlaves) { blacklisted = blacklist.size(); }
+        return new SlaveMetrics(System.currentTimeMillis(), getSlaveStatus(), numAvailableSlaves(), blacklisted,
+            getDuplicatedEvaluations(), getWastedEvaluations());
+        }
+
+    /** Returns true if the slave of the given name has been blacklisted. */
+    public boolean isBlacklisted(String name)
+        {
+        synchronized(allSlaves) { return blacklist.contains(name); }
+        }
+
+    /** Drains a slave: it is given no more jobs, and is retired once it has returned the jobs it has.  This is
+        not done if it is the only slave not already being drained, and returns whether it was done. */
+    boolean drain(SlaveConnection slave, String why)
+        {
+        synchronized(allSlaves)
+            {
+            synchronized(availableSlaves)
+                {
+                if (slave.draining || lastHealthy(slave)) return false;
+                slave.draining = true;
+                availableSlaves.remove(slave);
+                notifyMonitor(availableSlaves);
+                }
+            blacklist.add(slave.slaveName);
+            }
+        state.output.systemMessage("Slave " + slave.slaveName + " " + why + ", and is being drained.");
+        return true;
+        }
+
+    /** Returns true if every slave other than the given one is being drained, so without it there would be none
+        to give jobs to. */
+    boolean lastHealthy(SlaveConnection slave)
+        {
+        synchronized(allSlaves)
+            {
+            synchronized(availableSlaves)
+                {
+                Iterator<SlaveConnection> iter = allSlaves.iterator();
+                while(iter.hasNext())
+                    {
+                    SlaveConnection other = iter.next();
+                    if (other != slave && !other.draining) return false;
+                    }
+                return true;
+                }
+            }
+        }
+
+    /** Lets go of a slave and blacklists it.  We just close its socket: its reader then finds it can't read,
+        and shuts it down as it would any lost slave, rescheduling its jobs. */
+    void retire(SlaveConnection slave, String why)
+        {
+        synchronized(allSlaves)
+            {
+            if (!allSlaves.contains(slave)) return;  // it's already gone
+            blacklist.add(slave.slaveName);
+            }
+        synchronized(availableSlaves)
+            {
+            slave.draining = true;
+            availableSlaves.remove(slave);
+            }
+        state.output.systemMessage("Slave " + slave.slaveName + " " + why + ", and has been let go.");
+        try { slave.evalSocket.close(); } catch (IOException e) { }
+        }
+
+    /** Shakes hands with a newly connected slave, then registers it. */
+    void handshake(Socket slaveSock, MasterProblem problemPrototype) throws IOException
+        {
+        DataInputStream dataIn = null;
+        DataOutputStream dataOut = null;
+        InputStream tmpIn = slaveSock.getInputStream();
+        OutputStream tmpOut = slaveSock.getOutputStream();
+        if (useCompression)
+            {
+            /*
+              state.output.fatal("JDK 1.5 has broken compression.  For now, you must set eval.compression=false");
+              tmpIn = new CompressingInputStream(tmpIn);
+              tmpOut = new CompressingOutputStream(tmpOut);
+            */
+            tmpIn = Output.makeCompressingInputStream(tmpIn);
+            tmpOut = Output.makeCompressingOutputStream(tmpOut);
+            if (tmpIn == null || tmpOut == null)
+                Output.initialError("You do not appear to have JZLib installed on your system, and so must set eval.compression=false. " +
+                    "To get JZLib, download from the ECJ website or from http://www.jcraft.com/jzlib/");
+            }
+                                                                                        
+        dataIn = new DataInputStream(tmpIn);
+        dataOut = new DataOutputStream(tmpOut);
+        
+        // write unique integer
+        int num;
+        int seed;
+        synchronized(this)  // slaves may be connecting through both a socket and local files
+            {
+            num = slaveNum++;
+            seed = randomSeed;
+            randomSeed+=SEED_INCREMENT;
+            }
+        dataOut.writeInt(num);
+        dataOut.flush();
+        
+        // read slave name
+        String slaveName = dataIn.readUTF();
+
+        dataOut.writeInt(seed);
+        
+        // Write random state for eval thread to slave
+        dataOut.flush();
+
+        // write out additional data as necessary
+        problemPrototype.sendAdditionalData(state, dataOut);
+        dataOut.flush();
+
+        // tell the slave how many genotypes to cache, if any.  This is sent as a command ahead of the first job, so
+        // slaves which don't know about caching can still connect to masters which don't cache.
+        if (genotypeCacheSize > 0)
+            {
+            dataOut.writeByte(Slave.V_GENOTYPECACHE);
+            dataOut.writeInt(genotypeCacheSize);
+            dataOut.flush();
+            }
+                                
+        if (registerSlave(state, slaveName, slaveSock, dataOut, dataIn))
+            state.output.systemMessage( "Slave " + slaveName + " connected successfully." );
+        else
+            state.output.systemMessage( "Slave " + slaveName + " not permitted to connect." );
         }
 
     /**
@@ -231,7 +602,7 @@ public class SlaveMonitor
     */
     public boolean registerSlave( EvolutionState state, String name, Socket socket, DataOutputStream out, DataInputStream in)
         {
-        if (isShutdownInProgress())  // no more registrations.  Kill the socket
+        if (isShutdownInProgress() || isBlacklisted(name))  // no more registrations.  Kill the socket
             {
             try { out.writeByte(Slave.V_SHUTDOWN); } catch (Exception e) { }  // exception, not IOException, because JZLib throws some array exceptions
             try { out.flush(); } catch (Exception e) { }
@@ -296,6 +667,18 @@ public class SlaveMonitor
         thread.interrupt();
         try { thread.join(); }
         catch (InterruptedException e) { }
+        if (localThread != null)
+            {
+            localThread.interrupt();
+            try { localThread.join(); }
+            catch (InterruptedException e) { }
+            }
+        if (healthThread != null)
+            {
+            healthThread.interrupt();
+            try { healthThread.join(); }
+            catch (InterruptedException e) { }
+            }
         
         debug("Main Monitor Thread Shut Down");
         // gather all the slaves
@@ -306,7 +689,7 @@ public class SlaveMonitor
             synchronized(allSlaves)
                 {
                 if (allSlaves.isEmpty()) break;
-                sc = (SlaveConnection)(allSlaves.removeFirst());
+                sc = allSlaves.removeFirst();
                 }
             debug("Shutting Down Slave" + sc);
             if (sc != null) 
@@ -327,36 +710,171 @@ public class SlaveMonitor
        slave is available to perform the job.
     */
     public void scheduleJobForEvaluation( final EvolutionState state, Job job )
+        {
+        scheduleJobForEvaluation(state, job, job.inds.length);
+        }
+
+    /**
+       Schedules a job for execution on the available slaves, given that there are <i>remaining</i> individuals
+       (including those in the job) still to be scheduled in this batch of evaluations.  Ordinarily the whole job
+       goes to the first available slave, but if we're sizing jobs adaptively and the job isn't coevolutionary,
+       it's split up, in order, among slaves as they come available, each slave getting as many individuals as 
+       jobSize(...) says it should.  The monitor waits until a slave is available for each part.
+    */
+    public void scheduleJobForEvaluation( final EvolutionState state, Job job, int remaining )
         {
         if (isShutdownInProgress()) return;  // no more jobs allowed.  This line rejects requests from slaveConnections when THEY'RE shutting down.
         
-        SlaveConnection result = null;
-        synchronized(availableSlaves)
+        while(true)
             {
-            while( true)
+            SlaveConnection result = null;
+            synchronized(availableSlaves)
+                {
+                while( true)
+                    {
+                    if (!availableSlaves.isEmpty()) 
+                        {
+                        result = takeAvailableSlave();
+                        break;
+                        }
+                    debug("Waiting for an available slave." );
+                    waitOnMonitor(availableSlaves);
+                    }
+                notifyMonitor(availableSlaves);
+                }       
+            debug( "Got a slave available for work." );
+
+            Job part = job;
+            if (adaptiveJobSize && job.type == Slave.V_EVALUATESIMPLE && job.primary == null && !job.duplicated)  // don't split copies
                 {
-                if (!availableSlaves.isEmpty()) 
+                int size = jobSize(result, Math.max(remaining, job.inds.length));
+                if (size < job.inds.length)
                     {
-                    result = (SlaveConnection)(availableSlaves.removeFirst());
-                    break;
+                    part = job.split(size);
+                    remaining -= size;
                     }
-                debug("Waiting for an available slave." );
-                waitOnMonitor(availableSlaves);
                 }
-            notifyMonitor(availableSlaves);
-            }       
-        debug( "Got a slave available for work." );
+                
+            if (speculate)
+                synchronized(allSlaves) { batch.add(part.primary()); }
+            result.scheduleJob(part);
 
-        result.scheduleJob(job);
+            if( result.numJobs() < maxJobsPerSlave )
+                {
+                synchronized(availableSlaves) 
+                    {
+                    if( !availableSlaves.contains(result) && !result.draining) availableSlaves.addLast(result);  // so we're round-robin
+                    notifyMonitor(availableSlaves);
+                    }
+                }
+            
+            if (part == job) break;
+            }
+        }
 
-        if( result.numJobs() < maxJobsPerSlave )
+    /**
+       Removes and returns the available slave which should get the next job: ordinarily the first, so that
+       slaves are used round-robin, but if we prefer healthy slaves, the one with the highest score (the first
+       of them if there's a tie).  Must be called holding the availableSlaves lock, with a slave available.
+    */
+    SlaveConnection takeAvailableSlave()
+        {
+        if (!preferHealthy)
+            return availableSlaves.removeFirst();
+        SlaveConnection best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        Iterator<SlaveConnection> iter = availableSlaves.iterator();
+        while(iter.hasNext())
             {
-            synchronized(availableSlaves) 
+            SlaveConnection slave = iter.next();
+            double score = slave.score();
+            if (best == null || score > bestScore) { best = slave; bestScore = score; }
+            }
+        availableSlaves.remove(best);
+        return best;
+        }
+
+    /**
+       Returns how many individuals the next job for the given slave should have, when we're sizing jobs adaptively
+       and there are <i>remaining</i> individuals still to be scheduled in this batch of evaluations.
+       
+       <p>The job should be big enough that the slave's latency is no more than targetOverhead of the time
+       the job takes.  But it should take no more than half the time that all the slaves together would take
+       to evaluate the remaining individuals, so jobs shrink as the batch comes to its end, and the slaves
+       finish together.  Until a slave has returned a job we use the initial job size, and until its jobs have
+       varied enough in size to estimate its latency, we double the size of each job.  The result is between
+       1 and maxJobSize.
+    */
+    int jobSize(SlaveConnection slave, int remaining)
+        {
+        double size;
+        double perIndividual;
+        synchronized(slave.statsLock)
+            {
+            perIndividual = slave.perIndividual;
+            if (slave.jobsDone == 0)
+                size = initialJobSize;
+            else if (!slave.resolved)
+                size = 2.0 * slave.lastJobSize;
+            else 
+                size = Math.ceil(slave.latency * (1 - targetOverhead) / (targetOverhead * perIndividual));
+            }
+        
+        double throughput = totalThroughput();
+        if (perIndividual > 0 && throughput > 0)
+            size = Math.min(size, Math.ceil(remaining / (2 * throughput * perIndividual)));
+        
+        if (!(size >= 1)) return 1;  // also catches NaN
+        return (int)Math.min(size, Math.min(maxJobSize, remaining));
+        }
+
+    /**
+       Returns how many individuals the next job should have if it were scheduled right now, when we're sizing
+       jobs adaptively, or Integer.MAX_VALUE if no slave is available to take it.
+    */
+    public int nextJobSize(int remaining)
+        {
+        SlaveConnection slave = null;
+        synchronized(availableSlaves)
+            {
+            if (availableSlaves.isEmpty()) return Integer.MAX_VALUE;
+            slave = availableSlaves.getFirst();
+            }
+        return jobSize(slave, remaining);
+        }
+
+    // the total estimated number of individuals per second evaluated by all the slaves, not counting latency
+    double totalThroughput()
+        {
+        double total = 0;
+        synchronized(allSlaves)
+            {
+            Iterator<SlaveConnection> iter = allSlaves.iterator();
+            while( iter.hasNext() )
                 {
-                if( !availableSlaves.contains(result)) availableSlaves.addLast(result);  // so we're round-robin
-                notifyMonitor(availableSlaves);
+                SlaveConnection slave = iter.next();
+                synchronized(slave.statsLock)
+                    {
+                    if (slave.perIndividual > 0)
+                        total += 1.0 / slave.perIndividual;
+                    }
                 }
             }
+        return total;
+        }
+
+    /** Returns snapshots of the performance of each slave currently connected. */
+    public SlaveStatus[] getSlaveStatus()
+        {
+        SlaveConnection[] slaves;
+        synchronized(allSlaves)
+            {
+            slaves = allSlaves.toArray(new SlaveConnection[allSlaves.size()]);
+            }
+        SlaveStatus[] status = new SlaveStatus[slaves.length];
+        for(int i = 0; i < slaves.length; i++)
+            status[i] = slaves[i].getStatus();
+        return status;
         }
 
     /**
@@ -370,25 +888,31 @@ public class SlaveMonitor
         {
         synchronized(allSlaves)
             {
-            Iterator iter = allSlaves.iterator();
+            Iterator<SlaveConnection> iter = allSlaves.iterator();
             while( iter.hasNext() )
                 {
-                SlaveConnection slaveConnection = (SlaveConnection)(iter.next());
+                SlaveConnection slaveConnection = iter.next();
                 try { slaveConnection.dataOut.flush(); } catch (java.io.IOException e) {} // we'll catch this error later....
                 }
             notifyMonitor(allSlaves);
             }
             
+        if (speculate)
+            {
+            waitForBatch(state);
+            return;
+            }
+            
         boolean shouldCycle = true;
         synchronized(allSlaves)
             {
             while( shouldCycle )
                 {
                 shouldCycle = false;
-                Iterator iter = allSlaves.iterator();
+                Iterator<SlaveConnection> iter = allSlaves.iterator();
                 while( iter.hasNext() )
                     {
-                    SlaveConnection slaveConnection = (SlaveConnection)(iter.next());
+                    SlaveConnection slaveConnection = iter.next();
                     int jobs = slaveConnection.numJobs();
                     if( jobs != 0 )
                         {
@@ -409,6 +933,100 @@ public class SlaveMonitor
         debug("All slaves have finished their jobs." );
         }
 
+    /**
+       Waits, when we're speculating, until every job in the batch has come back from at least one slave,
+       meanwhile copying straggling jobs onto idle slaves.  Jobs which were copied may still be running
+       when this returns: their results will be thrown away when they come back.
+    */
+    void waitForBatch( final EvolutionState state )
+        {
+        synchronized(allSlaves)
+            {
+            while(!batch.isEmpty())
+                {
+                long limit = speculate(state);
+                debug("Waiting for " + batch.size() + " more jobs in the batch." );
+                try
+                    {
+                    if (limit == Long.MAX_VALUE) allSlaves.wait();
+                    else allSlaves.wait(Math.max(1, limit / 1000000L));
+                    }
+                catch (InterruptedException e) { }
+                }
+            batchDone = 0;
+            times.clear();
+            notifyMonitor(allSlaves);
+            }
+        }
+
+    /**
+       Copies straggling jobs in the batch onto idle slaves, oldest first, one per slave.  A job is straggling if it 
+       hasn't already been copied, and either speculateFraction of the batch's jobs have come back, or it has 
+       been running longer than speculatePercentile of the times of those which have.  Returns how long to wait
+       before the next job would start straggling, in nanoseconds, or Long.MAX_VALUE if we'll know when
+       a job comes back.  Must be called holding the allSlaves lock.
+    */
+    long speculate( final EvolutionState state )
+        {
+        if (batch.isEmpty()) return Long.MAX_VALUE;
+
+        long percentile = Long.MAX_VALUE;
+        if (times.size() >= MIN_SPECULATION_TIMES)
+            {
+            ArrayList<Long> sorted = new ArrayList<Long>(times);
+            Collections.sort(sorted);
+            percentile = sorted.get(Math.max(0, (int)Math.ceil(speculatePercentile * sorted.size()) - 1));
+            }
+        boolean tail = (batchDone >= speculateFraction * (batchDone + batch.size()));
+
+        LinkedList<SlaveConnection> idle = new LinkedList<SlaveConnection>();
+        Iterator<SlaveConnection> iter = allSlaves.iterator();
+        while(iter.hasNext())
+            {
+            SlaveConnection slave = iter.next();
+            if (slave.numJobs() == 0) idle.add(slave);
+            }
+            
+        long now = System.nanoTime();
+        long wait = Long.MAX_VALUE;
+        Iterator<Job> jobs = batch.iterator();
+        while(jobs.hasNext() && !idle.isEmpty())
+            {
+            Job job = jobs.next();
+            if (job.duplicated) continue;
+            long sent = job.sentTime;
+            if (!tail)
+                {
+                if (sent == 0 || percentile == Long.MAX_VALUE) continue;
+                if (now - sent < percentile) { wait = Math.min(wait, percentile - (now - sent)); continue; }
+                }
+                
+            SlaveConnection slave = idle.removeFirst();
+            debug("Copying a straggling job onto " + slave );
+            slave.scheduleJob(job.duplicate());
+            duplicatedEvaluations += job.inds.length;
+            if (slave.numJobs() >= maxJobsPerSlave)
+                {
+                synchronized(availableSlaves) { availableSlaves.remove(slave); }
+                }
+            }
+        if (wait == Long.MAX_VALUE && !tail && percentile != Long.MAX_VALUE)
+            wait = percentile;  // jobs not yet sent will be
+        return wait;
+        }
+
+    /** Returns the number of individuals sent to slaves as copies of straggling jobs. */
+    public long getDuplicatedEvaluations()
+        {
+        synchronized(allSlaves) { return duplicatedEvaluations; }
+        }
+
+    /** Returns the number of individuals whose results came back from slaves but were thrown away, because another copy of their job got there first. */
+    public long getWastedEvaluations()
+        {
+        synchronized(allSlaves) { return wastedEvaluations; }
+        }
+
     /**
        Notifies the monitor that the particular slave has finished performing a job, and it (probably) is
        available for other jobs.
@@ -420,16 +1038,38 @@ public class SlaveMonitor
         
         synchronized(allSlaves)
             {
+            if (job.discarded)
+                wastedEvaluations += job.inds.length;
+            else if (speculate && batch.remove(job.primary()))
+                {
+                batchDone++;
+                times.add(System.nanoTime() - job.sentTime);
+                }
             notifyMonitor(allSlaves);
             }
 
+        // drain the slave if it's been returning too many jobs late, and let it go once it's drained
+        
+        boolean draining;
+        synchronized(availableSlaves) { draining = slave.draining; }
+        if (!draining && maxErrorRate < 1.0)
+            {
+            double errorRate;
+            long jobsDone;
+            synchronized(slave.statsLock) { errorRate = slave.errorRate; jobsDone = slave.jobsDone; }
+            if (jobsDone > MIN_HEALTH_JOBS && errorRate > maxErrorRate)
+                draining = drain(slave, "has an error rate of " + errorRate);
+            }
+        if (draining && slave.numJobs() == 0)
+            retire(slave, "has been drained");
+
         // now announce that we've got a new available slave if someone wants it
         
         if( slave.numJobs() < maxJobsPerSlave )
             {
             synchronized(availableSlaves)
                 { 
-                if( !availableSlaves.contains(slave)) availableSlaves.addLast(slave);
+                if( !availableSlaves.contains(slave) && !slave.draining) availableSlaves.addLast(slave);
                 notifyMonitor(availableSlaves);
                 }
             }
@@ -438,7 +1078,7 @@ public class SlaveMonitor
 
         // now announce that we've got a new completed individual if someone is waiting for it
 
-        if( state instanceof ec.steadystate.SteadyStateEvolutionState )
+        if( queueEvaluatedIndividuals && !job.discarded )
             {
             // Perhaps we should the individuals by fitness first, so the fitter ones show up later
             // and don't get immediately wiped out by less fit ones.  Or should it be the other way
@@ -454,7 +1094,10 @@ public class SlaveMonitor
             }
         }
 
-    LinkedList evaluatedIndividuals =  new LinkedList();
+    LinkedList<QueueIndividual> evaluatedIndividuals =  new LinkedList<QueueIndividual>();
+    
+    // whether returned individuals are added to evaluatedIndividuals: in steady-state evolution, or if the MasterProblem asks
+    boolean queueEvaluatedIndividuals;
 
     public boolean evaluatedIndividualAvailable()
         {
@@ -474,7 +1117,7 @@ public class SlaveMonitor
             synchronized(evaluatedIndividuals)
                 {
                 if (evaluatedIndividualAvailable())
-                    return (QueueIndividual)(evaluatedIndividuals.removeFirst());
+                    return evaluatedIndividuals.removeFirst();
 
                 debug("Waiting for individual to be evaluated." );
                 waitOnMonitor(evaluatedIndividuals);  // lets go of evaluatedIndividuals loc
@@ -0,0 +1,95 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+import java.io.*;
+import ec.*;
+import ec.util.*;
+
+/**
+ * SlaveStatistics.java
+ *
+ * Logs, after each generation's evaluation, how each slave connected to the MasterProblem is doing.
+ * There is one line per slave, of the form:
+ *
+ * <p><tt>generation name jobs individuals outstanding-jobs last-job-size throughput latency duplicate-jobs wasted-individuals
+ * queued-jobs jobs-per-second late-jobs error-rate draining</tt>
+ *
+ * <p>where jobs, individuals, duplicate-jobs, wasted-individuals, and late-jobs are those the slave has returned in this
+ * generation alone, and the rest are as in SlaveStatus.  For a snapshot of the monitor as a whole, see SlaveMetrics.  If there is no MasterProblem, a warning is given and nothing is logged.
+ *
+ * <p>Add this as a child of your existing Statistics, for example:
+ * <tt>stat.num-children = 1</tt>, <tt>stat.child.0 = ec.eval.SlaveStatistics</tt>,
+ * <tt>stat.child.0.file = $slaves.stat</tt>
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base.</i><tt>file</tt><br>
+ <font size=-1>String (a filename), or nonexistant (signifies stdout)</font></td>
+ <td valign=top>(the log for slave statistics)</td></tr>
+ </table>
+ */
+
+public class SlaveStatistics extends Statistics
+    {
+    public static final String P_STATISTICS_FILE = "file";
+
+    public int statisticslog = 0;  // stdout by default
+
+    // jobs, individuals, duplicate jobs, wasted individuals, and late jobs returned by each slave as of the last generation, by name
+    java.util.HashMap<String, long[]> last = new java.util.HashMap<String, long[]>();
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+        File statisticsFile = state.parameters.getFile(base.push(P_STATISTICS_FILE), null);
+
+        if (silentFile)
+            {
+            statisticslog = Output.NO_LOGS;
+            }
+        else if (statisticsFile != null)
+            {
+            try
+                {
+                statisticslog = state.output.addLog(statisticsFile, true, false);
+                }
+            catch (IOException i)
+                {
+                state.output.fatal("An IOException occurred while trying to create the log " + statisticsFile + ":\n" + i);
+                }
+            }
+        }
+
+    public void postEvaluationStatistics(final EvolutionState state)
+        {
+        super.postEvaluationStatistics(state);
+
+        MasterProblem problem = state.evaluator.masterproblem;
+        if (problem == null || problem.monitor == null)
+            {
+            state.output.warnOnce("SlaveStatistics is being used but there is no MasterProblem.");
+            return;
+            }
+
+        SlaveStatus[] status = problem.getSlaveStatus();
+        for(int i = 0; i < status.length; i++)
+            {
+            long[] previous = last.get(status[i].name);
+            if (previous == null) previous = new long[5];
+            state.output.println(state.generation + " " + status[i].name + " " +
+                (status[i].jobs - previous[0]) + " " + (status[i].individuals - previous[1]) + " " +
+                status[i].outstandingJobs + " " + status[i].lastJobSize + " " +
+                status[i].throughput + " " + status[i].latency + " " +
+                (status[i].duplicateJobs - previous[2]) + " " + (status[i].wastedIndividuals - previous[3]) + " " +
+                status[i].queuedJobs + " " + status[i].jobsPerSecond + " " + (status[i].lateJobs - previous[4]) + " " +
+                status[i].errorRate + " " + status[i].draining, statisticslog);
+            last.put(status[i].name, new long[] { status[i].jobs, status[i].individuals, status[i].duplicateJobs, status[i].wastedIndividuals, status[i].lateJobs });
+            }
+        }
+    }
@@ -0,0 +1,81 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.eval;
+
+/**
+ * SlaveStatus.java
+ *
+ * A snapshot of how a slave connected to the SlaveMonitor has performed so far, as returned by
+ * MasterProblem.getSlaveStatus().  Throughput and latency are estimated as described in MasterProblem,
+ * and are 0 until the slave has returned a job.  The slave's health is described in SlaveMonitor.
+ */
+
+public class SlaveStatus implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    /** The slave's name. */
+    public final String name;
+    /** The number of jobs the slave has returned. */
+    public final long jobs;
+    /** The number of individuals the slave has returned. */
+    public final long individuals;
+    /** The number of jobs the slave has been given but has not yet returned. */
+    public final int outstandingJobs;
+    /** The number of the outstanding jobs which are still waiting to be sent to the slave. */
+    public final int queuedJobs;
+    /** The size of the last job the slave returned. */
+    public final int lastJobSize;
+    /** The estimated number of individuals the slave evaluates per second, not counting latency. */
+    public final double throughput;
+    /** The estimated fixed time, in seconds, that each job costs regardless of its size. */
+    public final double latency;
+    /** The number of the jobs returned which were copies of other slaves' straggling jobs. */
+    public final long duplicateJobs;
+    /** The number of individuals returned whose results were thrown away, because another copy of their job got there first. */
+    public final long wastedIndividuals;
+    /** The estimated number of jobs the slave finishes per second while busy, or 0 until it has returned a job. */
+    public final double jobsPerSecond;
+    /** The number of jobs the slave has returned late: see SlaveMonitor. */
+    public final long lateJobs;
+    /** The fraction of recent jobs which the slave returned late, weighted towards recent jobs as the estimates are. */
+    public final double errorRate;
+    /** How long, in seconds, the slave has been working on its oldest outstanding job without returning it, or 0 if it has none. */
+    public final double silence;
+    /** The slave's score when scheduling prefers healthy slaves: its throughput less its error rate, or infinite until it has returned a job. */
+    public final double score;
+    /** Whether the slave is being drained: it will be given no more jobs, and will be let go and blacklisted once it has returned the ones it has. */
+    public final boolean draining;
+
+    public SlaveStatus(String name, long jobs, long individuals, int outstandingJobs, int queuedJobs, int lastJobSize, double throughput, double latency,
+        long duplicateJobs, long wastedIndividuals, double jobsPerSecond, long lateJobs, double errorRate, double silence, double score, boolean draining)
+        {
+        this.name = name;
+        this.jobs = jobs;
+        this.individuals = individuals;
+        this.outstandingJobs = outstandingJobs;
+        this.queuedJobs = queuedJobs;
+        this.lastJobSize = lastJobSize;
+        this.throughput = throughput;
+        this.latency = latency;
+        this.duplicateJobs = duplicateJobs;
+        this.wastedIndividuals = wastedIndividuals;
+        this.jobsPerSecond = jobsPerSecond;
+        this.lateJobs = lateJobs;
+        this.errorRate = errorRate;
+        this.silence = silence;
+        this.score = score;
+        this.draining = draining;
+        }
+
+    public String toString()
+        {
+        return name + " " + jobs + " " + individuals + " " + outstandingJobs + " " + queuedJobs + " " + lastJobSize + " " + throughput + " " + latency + " " + 
+            duplicateJobs + " " + wastedIndividuals + " " + jobsPerSecond + " " + lateJobs + " " + errorRate + " " + silence + " " + score + " " + draining;
+        }
+    }
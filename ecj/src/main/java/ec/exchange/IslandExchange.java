@@ -9,6 +9,7 @@ package ec.exchange;
 import java.util.*;
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import ec.*;
 import ec.util.*;
 
@@ -173,6 +174,11 @@ import ec.util.*;
  <td valign=top>
  <i>client</i>: Whether the communication with other islands should be compressed or not.  Compressing uses more CPU, but it may also significantly reduce communication.
  </td></tr>
+ <tr><td valign=top><tt><i>base</i>.nio</tt><br>
+ <font size=-1>bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>
+ <i>client</i>: Whether to use a single thread and selector for all of the island's links (see NIOIslandExchangeMailbox) rather than a blocking socket per link.  Migrants to each island are then sent as one message, compressed on its own with java.util.zip rather than JZLib, and the breeding thread never waits on the network.  Either all of the islands must set this, or none of them.
+ </td></tr>
  <tr><td valign=top><tt><i>base</i>.i-am-server</tt><br>
  <font size=-1>bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
  <td valign=top>
@@ -280,6 +286,9 @@ public class IslandExchange extends Exchanger
     /** Whether the communication is compressed or not */
     public static final String P_COMPRESSED_COMMUNICATION = "compressed";
 
+    /** Whether to multiplex all the links over a selector */
+    public static final String P_NIO = "nio";
+
     /** The selection method for sending individuals to other islands */
     public static final String P_SELECT_METHOD = "select";
 
@@ -339,6 +348,10 @@ public class IslandExchange extends Exchanger
     // SERIALIZE
     public boolean compressedCommunication;
 
+    /** whether all the links are handled by a NIOIslandExchangeMailbox */
+    // SERIALIZE
+    public boolean nio;
+
     /** the selection method for immigrants */
     // SERIALIZE
     public SelectionMethod immigrantsSelectionMethod;
@@ -350,6 +363,9 @@ public class IslandExchange extends Exchanger
     // the mailbox of the current client (exchanger)
     IslandExchangeMailbox mailbox;
 
+    // the mailbox of the current client when nio is true.  It also handles the links to the destination islands
+    NIOIslandExchangeMailbox nioMailbox;
+
     // the thread of the mailbox
     Thread mailboxThread;
 
@@ -375,6 +391,10 @@ public class IslandExchange extends Exchanger
     // DataOutputStream to the destination islands
     DataOutputStream[] outWriters;
 
+    // the channels to the destination islands, and the mailbox's links over them, when nio is true
+    SocketChannel[] outChannels;
+    NIOIslandExchangeMailbox.Link[] outLinks;
+
     // so we can print out nice names for our outgoing connections
     public String[] outgoingIds;
 
@@ -499,6 +519,8 @@ public class IslandExchange extends Exchanger
             //            state.output.fatal("JDK 1.5 has broken compression.  For now, you must set " + base.push(P_COMPRESSED_COMMUNICATION) + "=false");
             state.output.message( "Communication will be compressed" ); 
             }
+
+        nio = state.parameters.getBoolean(base.push(P_NIO),null,false);
             
         // check whether it has to launch the main server for coordination
         p = base.push( P_IS_SERVER );
@@ -561,6 +583,7 @@ public class IslandExchange extends Exchanger
         out.writeObject(serverAddress);
         out.writeObject(ownId);
         out.writeBoolean(compressedCommunication);
+        out.writeBoolean(nio);
         out.writeObject(immigrantsSelectionMethod);
         out.writeObject(indsToDieSelectionMethod);
         out.writeInt(serverPort);
@@ -578,6 +601,7 @@ public class IslandExchange extends Exchanger
         serverAddress=(String)(in.readObject());
         ownId=(String)(in.readObject());
         compressedCommunication = in.readBoolean();
+        nio = in.readBoolean();
         immigrantsSelectionMethod=(SelectionMethod)(in.readObject());
         indsToDieSelectionMethod=(SelectionMethod)(in.readObject());
         serverPort = in.readInt();
@@ -659,9 +683,21 @@ public class IslandExchange extends Exchanger
 
             // Launch the mailbox thread (read from the server how many sockets to allocate
             // on the mailbox. Obtain the port and address of the mailbox.
-            mailbox = new IslandExchangeMailbox( state, clientPort, fromServer.readInt(),
-                fromServer.readInt(), ownId, chatty, compressedCommunication );
-            mailboxThread = new Thread( mailbox );
+            int mailboxPort;
+            if (nio)
+                {
+                nioMailbox = new NIOIslandExchangeMailbox( state, clientPort, fromServer.readInt(),
+                    fromServer.readInt(), ownId, chatty, compressedCommunication );
+                mailboxThread = new Thread( nioMailbox );
+                mailboxPort = nioMailbox.getPort();
+                }
+            else
+                {
+                mailbox = new IslandExchangeMailbox( state, clientPort, fromServer.readInt(),
+                    fromServer.readInt(), ownId, chatty, compressedCommunication );
+                mailboxThread = new Thread( mailbox );
+                mailboxPort = mailbox.getPort();
+                }
             mailboxThread.start();
 
             // record that the mailbox has been created
@@ -678,7 +714,7 @@ public class IslandExchange extends Exchanger
                 {
                 state.output.fatal( "Could not get the address of the local computer." );
                 }
-            toServer.writeInt( mailbox.getPort() );
+            toServer.writeInt( mailboxPort );
             toServer.flush();
 
             // read from the server the modulo, offset and size it has to use.
@@ -702,6 +738,8 @@ public class IslandExchange extends Exchanger
 
             // allocate the arrays
             outSockets = new Socket[ number_of_destination_islands ];
+            outChannels = new SocketChannel[ number_of_destination_islands ];
+            outLinks = new NIOIslandExchangeMailbox.Link[ number_of_destination_islands ];
             outWriters = new DataOutputStream[ number_of_destination_islands ];
             running = new boolean[ number_of_destination_islands ];
             outgoingIds = new String[ number_of_destination_islands ];
@@ -718,7 +756,13 @@ public class IslandExchange extends Exchanger
                         {
                         state.output.message( "Trying to connect to " + address + " : " + port );
                         // try opening a connection
-                        outSockets[y] = new Socket( address, port );
+                        if (nio)
+                            {
+                            outChannels[y] = SocketChannel.open( new InetSocketAddress( address, port ) );
+                            outSockets[y] = outChannels[y].socket();
+                            outSockets[y].setTcpNoDelay( true );
+                            }
+                        else outSockets[y] = new Socket( address, port );
                         }
                     catch( UnknownHostException e )
                         {
@@ -728,7 +772,18 @@ public class IslandExchange extends Exchanger
                         continue;
                         }
 
-                    if( compressedCommunication )
+                    if( nio )
+                        {
+                        // the ids are exchanged uncompressed; after that the mailbox has the link
+                        outgoingIds[y] = new DataInputStream(outSockets[y].getInputStream()).readUTF().trim();
+                        DataOutputStream idOut = new DataOutputStream(outSockets[y].getOutputStream());
+                        idOut.writeUTF(ownId);
+                        idOut.flush();
+                        outLinks[y] = nioMailbox.addDestination(outChannels[y], outgoingIds[y]);
+                        running[y] = true;
+                        continue;
+                        }
+                    else if( compressedCommunication )
                         {
                         /*                        
                                                   outWriters[y] = new DataOutputStream(new CompressingOutputStream(outSockets[y].getOutputStream()));
@@ -831,6 +886,12 @@ public class IslandExchange extends Exchanger
 
             // send the individuals!!!!
 
+            if (nio)
+                {
+                sendMigrants(state);
+                return state.population;
+                }
+
             // for each of the islands where we have to send individuals
             for( int x = 0 ; x < number_of_destination_islands ; x++ )
                 try
@@ -876,6 +937,41 @@ public class IslandExchange extends Exchanger
 
         }
 
+    // Serializes the migrants for each destination into one message and hands it to the NIO mailbox
+    void sendMigrants(EvolutionState state)
+        {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for( int x = 0 ; x < number_of_destination_islands ; x++ )
+            {
+            if( !running[x] ) continue;
+            if (chatty) state.output.message( "Sending " + size + " immigrants to island " + outgoingIds[x] );
+            bytes.reset();
+            try
+                {
+                out.writeInt( state.population.subpops.size() );
+                for(int subpop = 0; subpop < state.population.subpops.size(); subpop++ )
+                    {
+                    out.writeInt( subpop );
+                    out.writeInt( size );
+                    immigrantsSelectionMethod.prepareToProduce( state, subpop, 0 );
+                    for( int y = 0 ; y < size ; y++ )
+                        {
+                        int index = immigrantsSelectionMethod.produce( subpop, state, 0 );
+                        process(state, 0, outgoingIds[x], subpop, state.population.subpops.get(subpop).individuals.get(index)).writeIndividual( state, out );
+                        }
+                    immigrantsSelectionMethod.finishProducing( state, subpop, 0 );
+                    }
+                out.flush();
+                }
+            catch( IOException e )  // can't happen writing to memory, but writeIndividual(...) says it might
+                {
+                state.output.fatal( "Could not write migrants for island " + outgoingIds[x] + ": " + e );
+                }
+            running[x] = nioMailbox.send( outLinks[x], nioMailbox.frame( bytes.toByteArray(), bytes.size() ) );
+            }
+        }
+
 
     public Population postBreedingExchangePopulation(EvolutionState state)
         {
@@ -928,6 +1024,18 @@ public class IslandExchange extends Exchanger
             //state.output.message( "Synchronized. Reading individuals...." );
             }
 
+        if (nio)
+            {
+            // the mailbox's queues are lock-free, so there's nothing to synchronize on
+            for( int x = 0 ; x < nioMailbox.immigrants.size() ; x++ )
+                {
+                ArrayList<Individual> inds = nioMailbox.takeImmigrants(x);
+                if( inds.size() > 0 )
+                    immigrate( state, x, inds.toArray(new Individual[inds.size()]), inds.size() );
+                }
+            return state.population;
+            }
+
         // synchronize, because immigrants is also accessed by the mailbox thread
         synchronized( mailbox.immigrants )
             {
@@ -935,36 +1043,7 @@ public class IslandExchange extends Exchanger
                 {
                 if( mailbox.nImmigrants[x] > 0 )
                     {
-                    if (chatty) state.output.message( "Immigrating " +  mailbox.nImmigrants[x] + " individuals from mailbox for subpopulation " + x );
-
-                    boolean[] selected = new boolean[ state.population.subpops.get(x).individuals.size() ];
-                    int[] indices = new int[ mailbox.nImmigrants[x] ];
-                    for( int i = 0 ; i < selected.length ; i++ )
-                        selected[i] = false;
-                    indsToDieSelectionMethod.prepareToProduce( state, x, 0 );
-                    for( int i = 0 ; i < mailbox.nImmigrants[x] ; i++ )
-                        {
-                        do {
-                            indices[i] = indsToDieSelectionMethod.produce( x, state, 0 );
-                            } while( selected[indices[i]] );
-                        selected[indices[i]] = true;
-                        }
-                    indsToDieSelectionMethod.finishProducing( state, x, 0 );
-
-                    // there is no need to check for the differences in size: the mailbox.immigrants,
-                    // state.population.subpops and the mailbox.nextIndexPosition should have the same size
-                    for( int y = 0 ; y < mailbox.nImmigrants[x] ; y++ )
-                        {
-
-                        // read the individual
-                        state.population.subpops.get(x).
-                            individuals.set(indices[y],mailbox.immigrants[x][y]);
-
-                        // reset the evaluated flag (the individuals are not evaluated in the current island */
-                        state.population.subpops.get(x).
-                            individuals.get(indices[y]).evaluated = false;
-
-                        }
+                    immigrate( state, x, mailbox.immigrants[x], mailbox.nImmigrants[x] );
 
                     // reset the number of immigrants in the mailbox for the current subpopulation
                     // this doesn't need another synchronization, because the thread is already synchronized
@@ -978,6 +1057,46 @@ public class IslandExchange extends Exchanger
         return state.population;
         }
 
+    // replaces individuals in subpopulation x, chosen by indsToDieSelectionMethod, with the first n immigrants
+    void immigrate(EvolutionState state, int x, Individual[] immigrants, int n)
+        {
+        if (chatty) state.output.message( "Immigrating " +  n + " individuals from mailbox for subpopulation " + x );
+        immigrate(state, indsToDieSelectionMethod, x, immigrants, n, true);
+        }
+
+    /** Replaces individuals in subpopulation x, chosen by indsToDieSelectionMethod, with the first n immigrants.
+        If unevaluate is true, the immigrants are marked as not evaluated. */
+    static void immigrate(EvolutionState state, SelectionMethod indsToDieSelectionMethod, int x, Individual[] immigrants, int n, boolean unevaluate)
+        {
+        boolean[] selected = new boolean[ state.population.subpops.get(x).individuals.size() ];
+        int[] indices = new int[ n ];
+        for( int i = 0 ; i < selected.length ; i++ )
+            selected[i] = false;
+        indsToDieSelectionMethod.prepareToProduce( state, x, 0 );
+        for( int i = 0 ; i < n ; i++ )
+            {
+            do {
+                indices[i] = indsToDieSelectionMethod.produce( x, state, 0 );
+                } while( selected[indices[i]] );
+            selected[indices[i]] = true;
+            }
+        indsToDieSelectionMethod.finishProducing( state, x, 0 );
+
+        for( int y = 0 ; y < n ; y++ )
+            {
+
+            // read the individual
+            state.population.subpops.get(x).
+                individuals.set(indices[y],immigrants[y]);
+
+            // reset the evaluated flag (the individuals are not evaluated in the current island */
+            if (unevaluate)
+                state.population.subpops.get(x).
+                    individuals.get(indices[y]).evaluated = false;
+
+            }
+        }
+
     // if the GOODBYE message sent by the server gets read in the wrong place, this
     // variable is set to true
     boolean alreadyReadGoodBye = false;
@@ -1077,7 +1196,8 @@ public class IslandExchange extends Exchanger
 
         state.output.message( "Shutting down the mailbox" );
         // close the mailbox and wait for the thread to terminate
-        mailbox.shutDown();
+        if (nio) nioMailbox.shutDown();
+        else mailbox.shutDown();
         mailboxThread.interrupt();
         try
             {
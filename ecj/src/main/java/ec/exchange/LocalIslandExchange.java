@@ -0,0 +1,185 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.exchange;
+
+import java.util.*;
+import ec.*;
+import ec.util.*;
+
+/**
+ * LocalIslandExchange.java
+ *
+ * The Exchanger used by each island of a LocalIslands run: an island model in which all the islands are
+ * EvolutionStates in the same process.  Migrants are passed from island to island as references through
+ * MigrationQueues, without being serialized or going through a socket.  You don't run it with ec.Evolve,
+ * but with ec.exchange.LocalIslands, which reads the topology and starts the islands; see LocalIslands for
+ * the topology parameters, which are the same as IslandExchange's server parameters.
+ *
+ * <p>Each time an island sends migrants, it selects <tt>size</tt> of them from each subpopulation for each island
+ * it sends to, just as IslandExchange does.  After breeding, it replaces individuals chosen by
+ * <tt>select-to-die</tt> with whatever immigrants have arrived, up to its <tt>mailbox-capacity</tt> per
+ * subpopulation.  If more than that have arrived, the oldest are thrown away.
+ *
+ * <p>By default migrants are cloned by the island which sends them, and then marked as unevaluated by the island
+ * which receives them, as in IslandExchange.  If <tt>clone</tt> is false, the receiving island gets the very same
+ * object, and keeps its fitness.  This is only safe if neither island changes individuals already in its population
+ * (as for example NSGA-II's ranking does), and if both islands have the same Problem.
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><tt><i>base</i>.chatty</tt><br>
+ <font size=-1>boolean, default = true</font></td>
+ <td valign=top> Should we be verbose or silent about our exchanges?
+ </td></tr>
+ <tr><td valign=top><tt><i>base</i>.select</tt><br>
+ <font size=-1>classname, inherits and != ec.SelectionMethod</font></td>
+ <td valign=top>
+ The selection method used for picking migrants to emigrate to other islands
+ </td></tr>
+ <tr><td valign=top><tt><i>base</i>.select-to-die</tt><br>
+ <font size=-1>classname, inherits and != ec.SelectionMethod, default is ec.select.RandomSelection</font></td>
+ <td valign=top>
+ The selection method used for picking individuals to be replaced by incoming migrants.  As with IslandExchange,
+ it must <i>not</i> pick an individual based on fitness.
+ </td></tr>
+ <tr><td valign=top><tt><i>base</i>.clone</tt><br>
+ <font size=-1>boolean, default = true</font></td>
+ <td valign=top> Should migrants be cloned before they are sent?
+ </td></tr>
+ </table>
+
+ <p><b>Parameter bases</b><br>
+ <table>
+ <tr><td valign=top><tt><i>base</i>.select</tt></td>
+ <td>selection method for the island's migrants</td></tr>
+ <tr><td valign=top><tt><i>base</i>.select-to-die</tt></td>
+ <td>selection method for the individuals replaced by immigrants</td></tr>
+ </table>
+*/
+
+public class LocalIslandExchange extends Exchanger
+    {
+    private static final long serialVersionUID = 1;
+
+    public static final String P_CLONE = "clone";
+
+    /** The selection method for migrants */
+    public SelectionMethod immigrantsSelectionMethod;
+
+    /** The selection method for individuals to be replaced by immigrants */
+    public SelectionMethod indsToDieSelectionMethod;
+
+    public boolean chatty;
+
+    /** Whether migrants are cloned before they're sent */
+    public boolean cloneMigrants;
+
+    /** The islands, and which one we are.  These are set by LocalIslands after the island has been set up. */
+    public transient LocalIslands islands;
+    public int island = -1;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        chatty = state.parameters.getBoolean(base.push(IslandExchange.P_CHATTY), null, true);
+        cloneMigrants = state.parameters.getBoolean(base.push(P_CLONE), null, true);
+
+        Parameter p = base.push(IslandExchange.P_SELECT_METHOD);
+        immigrantsSelectionMethod = (SelectionMethod)
+            state.parameters.getInstanceForParameter(p, null, ec.SelectionMethod.class);
+        immigrantsSelectionMethod.setup(state, p);
+
+        p = base.push(IslandExchange.P_SELECT_TO_DIE_METHOD);
+        if (state.parameters.exists(p, null))
+            indsToDieSelectionMethod = (SelectionMethod)
+                state.parameters.getInstanceForParameter(p, null, ec.SelectionMethod.class);
+        else // use RandomSelection
+            indsToDieSelectionMethod = new ec.select.RandomSelection();
+        indsToDieSelectionMethod.setup(state, p);
+        }
+
+    void checkIslands(EvolutionState state)
+        {
+        if (islands == null)
+            state.output.fatal("LocalIslandExchange must be run by ec.exchange.LocalIslands, not ec.Evolve.");
+        }
+
+    public Population preBreedingExchangePopulation(EvolutionState state)
+        {
+        checkIslands(state);
+        int offset = islands.offset[island];
+        int modulo = islands.modulo[island];
+        if ((state.generation >= offset) &&
+            ((modulo == 0) || (((state.generation - offset) % modulo) == 0)))
+            {
+            LocalIslands.Link[] links = islands.outgoing[island];
+            int size = islands.size[island];
+            for(int x = 0; x < links.length; x++)
+                {
+                String id = islands.ids[links[x].to];
+                if (chatty) state.output.message("Sending " + size + " immigrants to island " + id);
+                for(int subpop = 0; subpop < state.population.subpops.size(); subpop++)
+                    {
+                    ArrayList<Individual> individuals = state.population.subpops.get(subpop).individuals;
+                    immigrantsSelectionMethod.prepareToProduce(state, subpop, 0);
+                    for(int y = 0; y < size; y++)
+                        {
+                        Individual ind = process(state, 0, id, subpop, individuals.get(immigrantsSelectionMethod.produce(subpop, state, 0)));
+                        links[x].send(subpop, cloneMigrants ? (Individual)(ind.clone()) : ind);
+                        }
+                    immigrantsSelectionMethod.finishProducing(state, subpop, 0);
+                    }
+                }
+            }
+        return state.population;
+        }
+
+    public Population postBreedingExchangePopulation(EvolutionState state)
+        {
+        checkIslands(state);
+        LocalIslands.Link[] links = islands.incoming[island];
+        int capacity = islands.capacity[island];
+        for(int subpop = 0; subpop < state.population.subpops.size(); subpop++)
+            {
+            // take everything that's arrived, from each island in turn, then keep the newest
+            ArrayList<Individual> immigrants = new ArrayList<Individual>();
+            for(int x = 0; x < links.length; x++)
+                {
+                int before = immigrants.size();
+                links[x].receive(subpop, immigrants);
+                if (chatty && immigrants.size() > before)
+                    state.output.message("Receiving " + (immigrants.size() - before) + " immigrants for subpopulation " + subpop + " from island " + islands.ids[links[x].from]);
+                }
+            if (immigrants.size() == 0) continue;
+            int start = Math.max(0, immigrants.size() - capacity);
+            int n = immigrants.size() - start;
+            Individual[] inds = new Individual[n];
+            Species species = state.population.subpops.get(subpop).species;
+            for(int y = 0; y < n; y++)
+                {
+                inds[y] = immigrants.get(start + y);
+                if (cloneMigrants) inds[y].species = species;  // it's ours now
+                }
+            if (chatty) state.output.message("Immigrating " + n + " individuals from mailbox for subpopulation " + subpop);
+            IslandExchange.immigrate(state, indsToDieSelectionMethod, subpop, inds, n, cloneMigrants);
+            }
+        return state.population;
+        }
+
+    public String runComplete(EvolutionState state)
+        {
+        if (islands != null && islands.found && state.quitOnRunComplete)
+            return "Exit: Another island found the perfect individual.";
+        return null;
+        }
+
+    public void closeContacts(EvolutionState state, int result)
+        {
+        if (islands != null && result == EvolutionState.R_SUCCESS)
+            islands.found = true;
+        }
+    }
@@ -0,0 +1,378 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.exchange;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import ec.*;
+import ec.util.*;
+
+/**
+ * LocalIslands.java
+ *
+ * Runs an island model in a single process.  Each island is a separate EvolutionState, with its own parameter
+ * database, random number generators, and Output, but rather than running in its own process and talking to the
+ * others through IslandExchange's sockets, it runs on a thread pool shared with all the other islands, and passes
+ * migrants to them through a MigrationQueue for each pair of islands and each subpopulation.  Each island's
+ * exchanger must be a LocalIslandExchange.  Run as:
+ *
+ * <p><tt>java ec.exchange.LocalIslands -file <i>islands.params</i> [-p <i>parameter=value</i>] ...</tt>
+ *
+ * <p>The topology is given in the same way as for IslandExchange's server, below.  Every island loads the
+ * parameter file (and the command-line parameters) afresh, or if <tt>exch.island.<i>n</i>.file</tt> is set,
+ * loads that file instead, which might have the first file as its parent.  Island <i>n</i>'s random number seeds
+ * are increased by <i>n</i> times its number of threads, as if it were job <i>n</i>, so no two islands have the
+ * same seeds.  Its output files and checkpoints have its id and a period prepended to their names.
+ *
+ * <p>Each island is run a generation at a time: when an island's thread has finished a generation, the island is
+ * given back to the pool to do the next one.  If the model is asynchronous, this happens right away, and an island
+ * picks up whatever migrants have arrived.  If it is synchronous (<tt>exch.sync</tt>), no island begins a generation
+ * until all islands have finished the previous one, and migrants aren't passed on until then.  So each island
+ * receives in generation <i>g</i> exactly the migrants which were sent to it in generation <i>g</i>-1, and as
+ * this doesn't depend on the order in which the threads ran, a synchronous run can be repeated exactly.  As
+ * there is no waiting on other islands within a generation, there may be fewer threads than islands.
+ *
+ * <p>When an island finds the ideal individual, the others stop at the end of their current generation if their
+ * <tt>quit-on-run-complete</tt> is true, just as with IslandExchange.  Runs can't be restarted from checkpoints.
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><tt>exch.threads</tt><br>
+ <font size=-1>int &gt;= 1, or "auto" (default = the number of islands)</font></td>
+ <td valign=top> The number of threads shared by the islands.
+ </td></tr>
+ <tr><td valign=top><tt>exch.sync</tt><br>
+ <font size=-1>bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top> Are we doing a synchronous island model?
+ </td></tr>
+ <tr><td valign=top><tt>exch.num-islands</tt><br>
+ <font size=-1>int >= 1</font></td>
+ <td valign=top> The number of islands.
+ </td></tr>
+ <tr><td valign=top><tt>exch.island.<i>n</i>.id</tt><br>
+ <font size=-1>String</font></td>
+ <td valign=top> The ID of island #n.
+ </td></tr>
+ <tr><td valign=top><tt>exch.island.<i>n</i>.file</tt><br>
+ <font size=-1>String (optional)</font></td>
+ <td valign=top> The parameter file for island #n.  If not set, the island uses the file given on the command line.
+ </td></tr>
+ <tr><td valign=top><tt>exch.island.<i>n</i>.num-mig</tt><br>
+ <font size=-1>int >= 0</font></td>
+ <td valign=top> The number of islands that island #n sends immigrants to.
+ </td></tr>
+ <tr><td valign=top><tt>exch.island.<i>n</i>.mig.</tt><i>m</i><br>
+ <font size=-1>String</font></td>
+ <td valign=top> The ID of island #m that island #n sends immigrants to.
+ </td></tr>
+ <tr><td valign=top><tt>exch.island.<i>n</i>.size</tt><br>
+ <font size=-1>int >= 0</font></td>
+ <td valign=top> The number of immigrants (per subpopulation) that island #n sends to each island.  If not set, uses <tt>exch.size</tt>.
+ </td></tr>
+ <tr><td valign=top><tt>exch.island.<i>n</i>.start</tt><br>
+ <font size=-1>int >= 0</font></td>
+ <td valign=top> The generation when island #n begins sending immigrants.  If not set, uses <tt>exch.start</tt>.
+ </td></tr>
+ <tr><td valign=top><tt>exch.island.<i>n</i>.mod</tt><br>
+ <font size=-1>int >= 1</font></td>
+ <td valign=top> The number of generations that island #n waits between sending immigrants.  If not set, uses <tt>exch.mod</tt>.
+ </td></tr>
+ <tr><td valign=top><tt>exch.island.<i>n</i>.mailbox-capacity</tt><br>
+ <font size=-1>int >= 1</font></td>
+ <td valign=top> The most immigrants (per subpopulation) island #n takes in at once.  If not set, uses <tt>exch.mailbox-capacity</tt>.
+ </td></tr>
+ </table>
+*/
+
+public class LocalIslands
+    {
+    public static final String P_THREADS = "threads";
+    public static final String P_FILE = "file";
+
+    // The topology is read from the same parameters as IslandExchange's server reads
+    public static final String P_NUM_ISLANDS = "num-islands";
+    public static final String P_ISLAND = "island";
+    public static final String P_ID = "id";
+    public static final String P_NUM_MIGRATING_COUNTRIES = "num-mig";
+    public static final String P_MIGRATING_ISLAND = "mig";
+    public static final String P_MAILBOX_CAPACITY = "mailbox-capacity";
+    public static final String P_MODULO = "mod";
+    public static final String P_SIZE = "size";
+    public static final String P_OFFSET = "start";
+    public static final String P_SYNCHRONOUS = "sync";
+
+    /** A one-way link from one island to another, with a MigrationQueue for each subpopulation.  In a
+        synchronous run, migrants wait in the link until every island has finished the generation. */
+    public class Link
+        {
+        public int from;
+        public int to;
+        ArrayList<MigrationQueue<Individual>> queues;
+        ArrayList<ArrayList<Individual>> staged;
+
+        Link(int from, int to, int numSubpops)
+            {
+            this.from = from;
+            this.to = to;
+            queues = new ArrayList<MigrationQueue<Individual>>(numSubpops);
+            staged = new ArrayList<ArrayList<Individual>>(numSubpops);
+            for(int s = 0; s < numSubpops; s++)
+                {
+                queues.add(new MigrationQueue<Individual>(capacity[to]));
+                staged.add(new ArrayList<Individual>());
+                }
+            }
+
+        /** Sends a migrant.  Only called by the sending island. */
+        public void send(int subpop, Individual ind)
+            {
+            if (synchronous) staged.get(subpop).add(ind);
+            else queues.get(subpop).offer(ind);
+            }
+
+        /** Adds all the immigrants that have arrived for the given subpopulation to the list, oldest first.
+            Only called by the receiving island. */
+        public void receive(int subpop, ArrayList<Individual> immigrants)
+            {
+            Individual ind;
+            while((ind = queues.get(subpop).poll()) != null)
+                immigrants.add(ind);
+            }
+
+        // passes on the migrants sent during the last generation of a synchronous run
+        void deliver()
+            {
+            for(int s = 0; s < staged.size(); s++)
+                {
+                ArrayList<Individual> migrants = staged.get(s);
+                for(int i = 0; i < migrants.size(); i++)
+                    queues.get(s).offer(migrants.get(i));
+                migrants.clear();
+                }
+            }
+        }
+
+    // An island, which the pool runs a generation at a time
+    class Island implements Runnable
+        {
+        int index;
+        EvolutionState state;
+        boolean started;
+        int result = EvolutionState.R_NOTDONE;
+
+        public void run()
+            {
+            try
+                {
+                if (!started)
+                    {
+                    state.startFresh();
+                    if (!(state.exchanger instanceof LocalIslandExchange))
+                        state.output.fatal("Each island's exchanger must be a LocalIslandExchange.", new Parameter(EvolutionState.P_EXCHANGER));
+                    LocalIslandExchange exchanger = (LocalIslandExchange)(state.exchanger);
+                    exchanger.islands = LocalIslands.this;
+                    exchanger.island = index;
+                    started = true;
+                    }
+                result = state.evolve();
+                if (result != EvolutionState.R_NOTDONE)
+                    {
+                    state.finish(result);
+                    Checkpoint.finishCheckpoint(state);
+                    Evolve.cleanup(state);
+                    }
+                }
+            catch (RuntimeException e)
+                {
+                // the other islands carry on without it
+                StringWriter trace = new StringWriter();
+                e.printStackTrace(new PrintWriter(trace));
+                state.output.warning("Island " + ids[index] + " failed, and has been stopped:\n" + trace);
+                result = EvolutionState.R_FAILURE;
+                }
+            finished(this);
+            }
+        }
+
+    /** The islands' ids */
+    public String[] ids;
+    /** For each island, how many migrants it sends per subpopulation, how often, starting when, and how many immigrants it takes in at most. */
+    public int[] size;
+    public int[] modulo;
+    public int[] offset;
+    public int[] capacity;
+    public boolean synchronous;
+    /** For each island, its links to the islands it sends to, in the order they're listed */
+    public Link[][] outgoing;
+    /** For each island, its links from the islands which send to it, in island order */
+    public Link[][] incoming;
+    /** Set once an island has found the ideal individual */
+    public volatile boolean found;
+
+    int threads;
+    File[] files;
+    Island[] islands;
+    ExecutorService pool;
+    AtomicInteger running = new AtomicInteger();     // islands in the current generation, if synchronous
+    CountDownLatch done;
+
+    static int getInt(ParameterDatabase parameters, Parameter p, Parameter d, int min)
+        {
+        int val = parameters.getInt(p, d, min);
+        if (val < min)
+            Output.initialError("Parameter not found, or it has an incorrect value: " + p + (d == null ? "" : " or " + d));
+        return val;
+        }
+
+    /** Reads the topology. */
+    public void setup(ParameterDatabase parameters)
+        {
+        Parameter base = new Parameter(EvolutionState.P_EXCHANGER);
+        int numIslands = getInt(parameters, base.push(P_NUM_ISLANDS), null, 1);
+        synchronous = parameters.getBoolean(base.push(P_SYNCHRONOUS), null, false);
+        threads = numIslands;
+        if (parameters.exists(base.push(P_THREADS), null))
+            threads = Evolve.determineThreads(Evolve.buildOutput(), parameters, base.push(P_THREADS));
+        int numSubpops = parameters.getInt(new Parameter(ec.Initializer.P_POP).push(ec.Population.P_SIZE), null, 1);
+
+        ids = new String[numIslands];
+        size = new int[numIslands];
+        modulo = new int[numIslands];
+        offset = new int[numIslands];
+        capacity = new int[numIslands];
+        files = new File[numIslands];
+        HashMap<String, Integer> index = new HashMap<String, Integer>();
+        for(int x = 0; x < numIslands; x++)
+            {
+            Parameter local = base.push(P_ISLAND).push("" + x);
+            ids[x] = parameters.getString(local.push(P_ID), null);
+            if (ids[x] == null || ids[x].equals(""))
+                Output.initialError("Parameter not found: " + local.push(P_ID));
+            if (index.put(ids[x], Integer.valueOf(x)) != null)
+                Output.initialError("Two islands have the id " + ids[x]);
+            size[x] = getInt(parameters, local.push(P_SIZE), base.push(P_SIZE), 0);
+            modulo[x] = getInt(parameters, local.push(P_MODULO), base.push(P_MODULO), 1);
+            offset[x] = getInt(parameters, local.push(P_OFFSET), base.push(P_OFFSET), 0);
+            capacity[x] = getInt(parameters, local.push(P_MAILBOX_CAPACITY), base.push(P_MAILBOX_CAPACITY), 1);
+            if (parameters.exists(local.push(P_FILE), null))
+                files[x] = parameters.getFile(local.push(P_FILE), null);
+            }
+
+        outgoing = new Link[numIslands][];
+        ArrayList<ArrayList<Link>> in = new ArrayList<ArrayList<Link>>();
+        for(int x = 0; x < numIslands; x++)
+            in.add(new ArrayList<Link>());
+        for(int x = 0; x < numIslands; x++)
+            {
+            Parameter local = base.push(P_ISLAND).push("" + x);
+            outgoing[x] = new Link[getInt(parameters, local.push(P_NUM_MIGRATING_COUNTRIES), null, 0)];
+            for(int y = 0; y < outgoing[x].length; y++)
+                {
+                Parameter p = local.push(P_MIGRATING_ISLAND).push("" + y);
+                Integer to = index.get(parameters.getString(p, null));
+                if (to == null)
+                    Output.initialError("Unknown island: " + p);
+                outgoing[x][y] = new Link(x, to.intValue(), numSubpops);
+                in.get(to.intValue()).add(outgoing[x][y]);
+                }
+            }
+        incoming = new Link[numIslands][];
+        for(int x = 0; x < numIslands; x++)
+            {
+            ArrayList<Link> links = in.get(x);
+            Collections.sort(links, new Comparator<Link>()
+                {
+                public int compare(Link a, Link b) { return a.from - b.from; }
+                });
+            incoming[x] = links.toArray(new Link[links.size()]);
+            }
+        }
+
+    /** Builds the islands and runs them to completion. */
+    public void run(String[] args)
+        {
+        islands = new Island[ids.length];
+        for(int x = 0; x < ids.length; x++)
+            {
+            ParameterDatabase parameters = null;
+            if (files[x] == null)
+                parameters = Evolve.loadParameterDatabase(args);
+            else
+                {
+                try
+                    {
+                    parameters = new ParameterDatabase(files[x], args);
+                    }
+                catch (IOException e)
+                    {
+                    Output.initialError("An exception was generated upon reading the parameter file \"" + files[x] + "\" for island " + ids[x] + ".\nHere it is:\n" + e);
+                    }
+                }
+            islands[x] = new Island();
+            islands[x].index = x;
+            islands[x].state = Evolve.initialize(parameters, x);
+            islands[x].state.output.systemMessage("Island: " + ids[x]);
+            islands[x].state.output.setFilePrefix(ids[x] + ".");
+            islands[x].state.checkpointPrefix = ids[x] + "." + islands[x].state.checkpointPrefix;
+            islands[x].state.job = new Object[] { Integer.valueOf(x) };
+            islands[x].state.runtimeArguments = args;
+            }
+
+        done = new CountDownLatch(islands.length);
+        running.set(islands.length);
+        pool = Executors.newFixedThreadPool(threads);
+        for(int x = 0; x < islands.length; x++)
+            pool.execute(islands[x]);
+        try
+            {
+            done.await();
+            }
+        catch (InterruptedException e) { }
+        pool.shutdown();
+        }
+
+    // called when an island has finished a generation
+    void finished(Island island)
+        {
+        if (island.result != EvolutionState.R_NOTDONE)
+            done.countDown();
+
+        if (!synchronous)
+            {
+            if (island.result == EvolutionState.R_NOTDONE)
+                pool.execute(island);
+            }
+        else if (running.decrementAndGet() == 0)
+            {
+            // the last island to finish the generation passes on the migrants, then starts the next one
+            for(int x = 0; x < outgoing.length; x++)
+                for(int y = 0; y < outgoing[x].length; y++)
+                    outgoing[x][y].deliver();
+            int n = 0;
+            for(int x = 0; x < islands.length; x++)
+                if (islands[x].result == EvolutionState.R_NOTDONE)
+                    n++;
+            running.set(n);
+            for(int x = 0; x < islands.length; x++)
+                if (islands[x].result == EvolutionState.R_NOTDONE)
+                    pool.execute(islands[x]);
+            }
+        }
+
+    public static void main(String[] args)
+        {
+        Evolve.checkForHelp(args);
+        ParameterDatabase parameters = Evolve.loadParameterDatabase(args);
+        LocalIslands islands = new LocalIslands();
+        islands.setup(parameters);
+        islands.run(args);
+        System.exit(0);
+        }
+    }
@@ -0,0 +1,81 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.exchange;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * MigrationQueue.java
+ *
+ * A bounded, lock-free queue between one producer thread and one consumer thread, used by LocalIslands
+ * to carry migrants from one island to another.  Like IslandExchange's mailbox, when it is full the
+ * oldest element makes way for the new one rather than the producer waiting.
+ *
+ * <p>The queue is a ring of slots indexed by two ever-increasing counters, head and tail.  Only the producer
+ * advances tail.  Both may advance head, by compare-and-set: the consumer when it takes an element, and the
+ * producer when it throws the oldest element away.  A consumer which reads a slot and then loses the race to
+ * advance head just tries again, so it never returns an element which has been thrown away or overwritten.
+ * Elements are not cleared from their slots when taken, so up to capacity of them may stay reachable until
+ * they're overwritten.
+ */
+
+public class MigrationQueue<E>
+    {
+    final AtomicReferenceArray<E> slots;
+    final int capacity;
+    final AtomicLong head = new AtomicLong();  // the next element to take
+    final AtomicLong tail = new AtomicLong();  // the next slot to fill
+    final AtomicLong dropped = new AtomicLong();
+
+    public MigrationQueue(int capacity)
+        {
+        if (capacity < 1)
+            throw new IllegalArgumentException("MigrationQueue capacity must be > 0: " + capacity);
+        this.capacity = capacity;
+        slots = new AtomicReferenceArray<E>(capacity);
+        }
+
+    /** Adds an element, throwing away the oldest one if the queue is full.  Only called by the producer. */
+    public void offer(E element)
+        {
+        long t = tail.get();
+        while(true)
+            {
+            long h = head.get();
+            if (t - h < capacity) break;
+            if (head.compareAndSet(h, h + 1)) { dropped.incrementAndGet(); break; }
+            }
+        slots.set((int)(t % capacity), element);
+        tail.set(t + 1);
+        }
+
+    /** Removes and returns the oldest element, or null if there is none.  Only called by the consumer. */
+    public E poll()
+        {
+        while(true)
+            {
+            long h = head.get();
+            if (h >= tail.get()) return null;
+            E element = slots.get((int)(h % capacity));
+            if (head.compareAndSet(h, h + 1)) return element;
+            }
+        }
+
+    /** Returns the number of elements in the queue, which may be out of date by the time you look. */
+    public int size()
+        {
+        long h = head.get();
+        return (int)Math.max(0, tail.get() - h);
+        }
+
+    /** Returns the number of elements thrown away so far to make room for newer ones. */
+    public long dropped()
+        {
+        return dropped.get();
+        }
+    }
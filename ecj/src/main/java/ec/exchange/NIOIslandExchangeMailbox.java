@@ -0,0 +1,439 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.exchange;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.zip.*;
+import ec.*;
+import ec.util.*;
+
+/**
+ * NIOIslandExchangeMailbox.java
+ *
+ * The mailbox IslandExchange uses when <tt>exch.nio</tt> is true.  A single thread and a single Selector
+ * handle every link an island has: the connections from the islands which send it immigrants, and the
+ * connections to the islands it sends migrants to.  The breeding thread never blocks on the network.  It
+ * serializes all the migrants for a destination into one message and hands it to this thread, which writes
+ * it out as the destination can take it; and this thread reads immigrants as they come in and leaves them
+ * in a lock-free queue per subpopulation, where the breeding thread picks them up.
+ *
+ * <p>A message is an int giving the length of the rest of the message, a flags byte, and the body.  If the
+ * flags byte is FLAG_COMPRESSED, the body is the uncompressed length followed by the rest of the body
+ * compressed with java.util.zip's Deflater; as each message is compressed on its own, JZLib isn't needed.
+ * The body is the number of subpopulations sent, then for each subpopulation its number, the number of
+ * individuals, and the individuals as written by writeIndividual(...).
+ *
+ * <p>Connecting is done just as with the older mailbox: the mailbox sends its id with writeUTF(...), then
+ * reads the sending island's id.  But after that, the older mailbox's format isn't understood, so either all of
+ * the islands or none of them must set <tt>exch.nio</tt>.
+ */
+
+class NIOIslandExchangeMailbox implements Runnable
+    {
+    /** How long to wait in select(...) before checking whether we've been shut down, in milliseconds */
+    public static final int SELECT_TIMEOUT = 1000;
+
+    public static final byte FLAG_COMPRESSED = 1;
+
+    // A connection to or from another island
+    class Link
+        {
+        SocketChannel channel;
+        SelectionKey key;
+        String id;                  // null until we've read it, for incoming links
+        boolean incoming;
+        volatile boolean running = true;
+
+        // incoming links: what's been read but not yet handled
+        ByteBuffer in = ByteBuffer.allocate(8192);
+
+        // outgoing links: messages waiting to be written
+        ConcurrentLinkedQueue<ByteBuffer> outbox = new ConcurrentLinkedQueue<ByteBuffer>();
+        }
+
+    // the immigrants for each subpopulation, oldest first, and how many there are
+    ArrayList<ConcurrentLinkedQueue<Individual>> immigrants;
+    AtomicInteger[] nImmigrants;
+    int capacity;
+
+    Selector selector;
+    ServerSocketChannel serverChannel;
+    int n_incoming;
+    int connected;
+
+    // links to the islands we send to
+    ArrayList<Link> destinations = new ArrayList<Link>();
+    // links the breeding thread has added, or has given something to write, which this thread hasn't seen yet
+    ConcurrentLinkedQueue<Link> newLinks = new ConcurrentLinkedQueue<Link>();
+    ConcurrentLinkedQueue<Link> wantWrite = new ConcurrentLinkedQueue<Link>();
+    ArrayList<Link> incoming = new ArrayList<Link>();
+
+    EvolutionState state;
+    String myId;
+    boolean chatty;
+    boolean compressedCommunication;
+    volatile boolean shutdown;
+
+    /**
+       state_p : the EvolutionState, used mainly for displaying messages
+       port : the port used to listen for incoming messages
+       n_incoming_p : the number of islands that will send messages to the current island
+       how_many : how many immigrants to hold for each of the subpopulations
+    */
+    public NIOIslandExchangeMailbox( final EvolutionState state_p, int port, int n_incoming_p, int how_many, String _myId, boolean chatty, boolean _compressedCommunication )
+        {
+        state = state_p;
+        n_incoming = n_incoming_p;
+        capacity = how_many;
+        myId = _myId;
+        this.chatty = chatty;
+        compressedCommunication = _compressedCommunication;
+
+        Parameter p_numsubpops = new Parameter( ec.Initializer.P_POP ).push( ec.Population.P_SIZE );
+        int numsubpops = state.parameters.getInt(p_numsubpops,null,1);
+        if (numsubpops < 0) numsubpops = 0;  // Population will complain about this soon enough
+        immigrants = new ArrayList<ConcurrentLinkedQueue<Individual>>(numsubpops);
+        nImmigrants = new AtomicInteger[numsubpops];
+        for(int x = 0; x < numsubpops; x++)
+            {
+            immigrants.add(new ConcurrentLinkedQueue<Individual>());
+            nImmigrants[x] = new AtomicInteger();
+            }
+
+        try
+            {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(new InetSocketAddress(port), Math.max(1, n_incoming));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            }
+        catch( IOException e )
+            {
+            state.output.fatal( "Could not start mailbox for incoming messages.  Perhaps the port (" + port + ") is bad?\n...or someone else already has it?");
+            }
+        }
+
+    /** Returns the port where the other islands should connect in order to send their immigrants. */
+    public int getPort()
+        {
+        return serverChannel.socket().getLocalPort();
+        }
+
+    /** Adds a link to an island we'll be sending migrants to, whose id has already been exchanged
+        over the given blocking channel.  Returns the link, for send(...). */
+    public Link addDestination(SocketChannel channel, String id) throws IOException
+        {
+        channel.configureBlocking(false);
+        Link link = new Link();
+        link.channel = channel;
+        link.id = id;
+        destinations.add(link);
+        newLinks.add(link);
+        selector.wakeup();
+        return link;
+        }
+
+    /** Builds a message out of a body written by the caller.  Called by the breeding thread. */
+    public ByteBuffer frame(byte[] body, int length)
+        {
+        byte flags = 0;
+        byte[] payload = body;
+        int payloadLength = length;
+        if (compressedCommunication)
+            {
+            Deflater deflater = new Deflater();
+            deflater.setInput(body, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 16);
+            DataOutputStream out = new DataOutputStream(compressed);
+            byte[] chunk = new byte[8192];
+            try
+                {
+                out.writeInt(length);
+                while(!deflater.finished())
+                    out.write(chunk, 0, deflater.deflate(chunk));
+                }
+            catch (IOException e) { }  // can't happen
+            deflater.end();
+            flags = FLAG_COMPRESSED;
+            payload = compressed.toByteArray();
+            payloadLength = payload.length;
+            }
+        ByteBuffer message = ByteBuffer.allocate(5 + payloadLength);
+        message.putInt(1 + payloadLength);
+        message.put(flags);
+        message.put(payload, 0, payloadLength);
+        message.flip();
+        return message;
+        }
+
+    /** Queues a message, built by frame(...), to be written to the given destination.  Returns false if the
+        destination has gone away.  Called by the breeding thread. */
+    public boolean send(Link link, ByteBuffer message)
+        {
+        if (!link.running) return false;
+        link.outbox.add(message);
+        wantWrite.add(link);
+        selector.wakeup();
+        return true;
+        }
+
+    /** Removes and returns up to the mailbox's capacity of immigrants for the given subpopulation, oldest first.
+        Called by the breeding thread. */
+    public ArrayList<Individual> takeImmigrants(int subpop)
+        {
+        ArrayList<Individual> inds = new ArrayList<Individual>();
+        Individual ind;
+        while(inds.size() < capacity && (ind = immigrants.get(subpop).poll()) != null)
+            {
+            nImmigrants[subpop].decrementAndGet();
+            inds.add(ind);
+            }
+        return inds;
+        }
+
+    /** The main functionality of the mailbox: handling all the links until we're shut down */
+    public void run()
+        {
+        while(!shutdown)
+            {
+            try
+                {
+                selector.select(SELECT_TIMEOUT);
+                }
+            catch (IOException e)
+                {
+                state.output.warning("IO exception while waiting for islands: " + e);
+                break;
+                }
+
+            Link link;
+            while((link = newLinks.poll()) != null)
+                {
+                try
+                    {
+                    // we read from our outgoing links only to learn when they close
+                    link.key = link.channel.register(selector, SelectionKey.OP_READ, link);
+                    }
+                catch (IOException e) { close(link, e); }
+                }
+            while((link = wantWrite.poll()) != null)
+                if (link.key != null && link.key.isValid())
+                    link.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+
+            Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+            while(i.hasNext())
+                {
+                SelectionKey key = i.next();
+                i.remove();
+                if (!key.isValid()) continue;
+                if (key.isAcceptable()) accept();
+                else
+                    {
+                    link = (Link)(key.attachment());
+                    try
+                        {
+                        if (key.isReadable()) read(link);
+                        if (key.isValid() && key.isWritable()) write(link);
+                        }
+                    catch (IOException e) { close(link, e); }
+                    }
+                }
+            }
+
+        try { serverChannel.close(); } catch (IOException e) { }
+        for(int x = 0; x < incoming.size(); x++)
+            try { incoming.get(x).channel.close(); } catch (IOException e) { }
+        for(int x = 0; x < destinations.size(); x++)
+            try { destinations.get(x).channel.close(); } catch (IOException e) { }
+        try { selector.close(); } catch (IOException e) { }
+        }
+
+    void accept()
+        {
+        Link link = new Link();
+        try
+            {
+            link.channel = serverChannel.accept();
+            if (link.channel == null) return;
+            link.incoming = true;
+            link.channel.configureBlocking(false);
+
+            // send my id.  It's tiny, and the connection is new, so this won't take long
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new DataOutputStream(bytes).writeUTF(myId);
+            ByteBuffer id = ByteBuffer.wrap(bytes.toByteArray());
+            while(id.hasRemaining())
+                if (link.channel.write(id) == 0) Thread.yield();
+            link.key = link.channel.register(selector, SelectionKey.OP_READ, link);
+            incoming.add(link);
+            }
+        catch (IOException e)
+            {
+            state.output.warning("An exception was generated while accepting a connection from an island.  Here it is: " + e);
+            if (link.channel != null)
+                try { link.channel.close(); } catch (IOException e2) { }
+            }
+        }
+
+    void read(Link link) throws IOException
+        {
+        if (link.in.remaining() == 0)  // grow
+            {
+            ByteBuffer bigger = ByteBuffer.allocate(link.in.capacity() * 2);
+            link.in.flip();
+            bigger.put(link.in);
+            link.in = bigger;
+            }
+        int n = link.channel.read(link.in);
+        if (n < 0)
+            {
+            close(link, null);
+            return;
+            }
+        if (!link.incoming)
+            {
+            link.in.clear();  // nobody should be saying anything to us
+            return;
+            }
+
+        link.in.flip();
+        while(true)
+            {
+            if (link.id == null)
+                {
+                if (link.in.remaining() < 2) break;
+                int len = link.in.getShort(link.in.position()) & 0xffff;
+                if (link.in.remaining() < 2 + len) break;
+                byte[] utf = new byte[2 + len];
+                link.in.get(utf);
+                link.id = new DataInputStream(new ByteArrayInputStream(utf)).readUTF().trim();
+                connected++;
+                state.output.message( "Island " + link.id + " connected to my mailbox" );
+                if (connected == n_incoming)
+                    state.output.message( "All islands have connected to my client." );
+                }
+            else
+                {
+                if (link.in.remaining() < 4) break;
+                int len = link.in.getInt(link.in.position());
+                if (len < 1) throw new IOException("Bad message length " + len + " from island " + link.id);
+                if (link.in.remaining() < 4 + len)
+                    {
+                    if (link.in.capacity() < 4 + len)  // make sure it'll fit
+                        {
+                        ByteBuffer bigger = ByteBuffer.allocate(4 + len);
+                        bigger.put(link.in);
+                        bigger.flip();
+                        link.in = bigger;
+                        }
+                    break;
+                    }
+                link.in.getInt();
+                byte flags = link.in.get();
+                byte[] body = new byte[len - 1];
+                link.in.get(body);
+                receive(link, flags, body);
+                }
+            }
+        link.in.compact();
+        }
+
+    // reads a message's immigrants into the queues
+    void receive(Link link, byte flags, byte[] body) throws IOException
+        {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        if (flags == FLAG_COMPRESSED)
+            {
+            int length = in.readInt();
+            Inflater inflater = new Inflater();
+            inflater.setInput(body, 4, body.length - 4);
+            byte[] uncompressed = new byte[length];
+            try
+                {
+                int n = 0;
+                while(n < length && !inflater.finished())
+                    {
+                    int m = inflater.inflate(uncompressed, n, length - n);
+                    if (m == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                        throw new IOException("Truncated message from island " + link.id);
+                    n += m;
+                    }
+                }
+            catch (DataFormatException e)
+                {
+                throw new IOException("Corrupt message from island " + link.id + ": " + e);
+                }
+            finally
+                {
+                inflater.end();
+                }
+            in = new DataInputStream(new ByteArrayInputStream(uncompressed));
+            }
+        else if (flags != 0)
+            throw new IOException("Unknown message flags " + flags + " from island " + link.id);
+
+        int numSubpops = in.readInt();
+        for(int s = 0; s < numSubpops; s++)
+            {
+            int subpop = in.readInt();
+            int how_many_to_come = in.readInt();
+            if (subpop < 0 || subpop >= immigrants.size())
+                throw new IOException("Island " + link.id + " sent immigrants for nonexistent subpopulation " + subpop);
+            if (chatty) state.output.message( "Receiving " + how_many_to_come + " immigrants for subpopulation "  + subpop + " from island " + link.id);
+            Species species = state.population.subpops.get(subpop).species;
+            for(int ind = 0; ind < how_many_to_come; ind++)
+                {
+                immigrants.get(subpop).add(species.newIndividual(state, in));
+                // if we're over capacity, the oldest immigrant makes way
+                if (nImmigrants[subpop].incrementAndGet() > capacity && immigrants.get(subpop).poll() != null)
+                    nImmigrants[subpop].decrementAndGet();
+                }
+            }
+        }
+
+    void write(Link link) throws IOException
+        {
+        ByteBuffer message;
+        while((message = link.outbox.peek()) != null)
+            {
+            link.channel.write(message);
+            if (message.hasRemaining()) return;  // it'll tell us when it can take more
+            link.outbox.poll();
+            }
+        link.key.interestOps(SelectionKey.OP_READ);
+        // send(...) may have added a message since we looked: if so, it'll have also added us to wantWrite
+        }
+
+    void close(Link link, IOException e)
+        {
+        if (!link.running) return;
+        link.running = false;
+        link.outbox.clear();
+        if (link.key != null) link.key.cancel();
+        try { link.channel.close(); } catch (IOException e2) { }
+        String id = (link.id == null ? "an island" : "island " + link.id);
+        if (e == null) state.output.message( "Connection " + (link.incoming ? "from " : "to ") + id + " closed" );
+        else state.output.message( "IO exception while communicating with " + id + ": " + e );
+        }
+
+    /** Shuts the mailbox down: its thread will close all the links and exit. */
+    public void shutDown()
+        {
+        shutdown = true;
+        selector.wakeup();
+        }
+    }
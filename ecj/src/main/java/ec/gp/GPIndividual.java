@@ -300,13 +300,25 @@ public class GPIndividual extends Individual
         return myobj;
         }
 
+    /** Returns the number of nodes in tree x. */
+    public int treeSize(int x)
+        {
+        return trees[x].child.numNodes(GPNode.NODESEARCH_ALL);
+        }
+
+    /** Returns the depth of tree x. */
+    public int treeDepth(int x)
+        {
+        return trees[x].child.depth();
+        }
+
     /** Returns the "size" of the individual, namely, the number of nodes
         in all of its subtrees.  */
     public long size()
         {
         long size = 0;
         for(int x=0;x<trees.length;x++)
-            size += trees[x].child.numNodes(GPNode.NODESEARCH_ALL);
+            size += treeSize(x);
         return size;
         }
 
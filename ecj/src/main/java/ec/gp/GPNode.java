@@ -38,6 +38,14 @@ import java.util.*;
  * <li>An argument position in its parent.
  * </ul>
  *
+ * <p>A GPNode also caches the <i>shape</i> of its subtree: its number of nodes, its number of terminals,
+ * and its depth.  numNodes(nodesearch), depth(), and nodeInPosition(p, nodesearch) use the shape to run in
+ * O(1), O(1), and O(depth) respectively rather than traversing the entire subtree.  Shapes are computed
+ * when first needed: clone() copies the shape along with the subtree, lightClone() and the cloneReplacing(...)
+ * methods leave it to be computed again, and replaceWith(...) keeps it.  If you modify a tree in place, by setting
+ * <tt>children[...]</tt> directly, you must afterwards call shapeChanged() on each node you've hung somewhere
+ * new, so it and its ancestors forget their shapes.
+ *
 
  * <p>In addition to serialization for checkpointing, GPNodes may read and write themselves to streams in three ways.
  *
@@ -118,6 +126,17 @@ public abstract class GPNode implements GPNodeParent, Prototype
         method instead. */
     public byte constraints;
 
+    // The shape of my subtree, or 0 if it's unknown.  The low 32 bits hold the number of terminals
+    // (shifted up by SHAPE_DEPTH_BITS) and the depth, and the high 32 bits hold the number of nodes.
+    // Neither half of a known shape is ever 0, so even if a long is written in two halves, a reader
+    // racing a thread which is computing the same shape will see it as either known and correct, or
+    // unknown.  8 bytes.  :-(  But it makes breeding large trees much cheaper.
+    transient long shape;
+
+    static final int SHAPE_DEPTH_BITS = 12;
+    static final int SHAPE_MAX_DEPTH = (1 << SHAPE_DEPTH_BITS) - 1;
+    static final int SHAPE_MAX_TERMINALS = (1 << (32 - SHAPE_DEPTH_BITS)) - 1;
+
     /* Returns the GPNode's constraints.  A good JIT compiler should inline this. */
     public final GPNodeConstraints constraints(final GPInitializer initializer) 
         { 
@@ -333,9 +352,17 @@ public abstract class GPNode implements GPNodeParent, Prototype
 
     /** Returns the number of nodes, constrained by nodesearch,
         in the subtree for which this GPNode is root.
-        This might be sped up by cacheing the value somehow.  O(n). */
+        O(1) if the shape of the subtree is known, else O(n). */
     public int numNodes(final int nodesearch)
         {
+        long shape = shape();
+        if (shape != 0)
+            {
+            if (nodesearch==NODESEARCH_ALL) return (int)(shape >>> 32);
+            else if (nodesearch==NODESEARCH_TERMINALS) return ((int)shape) >>> SHAPE_DEPTH_BITS;
+            else if (nodesearch==NODESEARCH_NONTERMINALS) return (int)(shape >>> 32) - (((int)shape) >>> SHAPE_DEPTH_BITS);
+            }
+
         int s=0;
         for(int x=0;x<children.length;x++) s += children[x].numNodes(nodesearch);
         return s + ((nodesearch==NODESEARCH_ALL ||
@@ -343,9 +370,13 @@ public abstract class GPNode implements GPNodeParent, Prototype
                 (nodesearch==NODESEARCH_NONTERMINALS && children.length>0)) ? 1 : 0);
         }
 
-    /** Returns the depth of the tree, which is a value >= 1.  O(n). */
+    /** Returns the depth of the tree, which is a value >= 1.  O(1) if the shape of the subtree is known, else O(n). */
     public int depth()
         {
+        long shape = shape();
+        if (shape != 0)
+            return ((int)shape) & SHAPE_MAX_DEPTH;
+
         int d=0;
         int newdepth;
         for(int x=0;x<children.length;x++)
@@ -355,6 +386,52 @@ public abstract class GPNode implements GPNodeParent, Prototype
             }
         return d + 1;
         }
+
+    /** Returns the shape of the subtree rooted at this node, computing it and the shapes of all its
+        descendants if need be, or 0 if the subtree is too big to have a shape (more than
+        SHAPE_MAX_TERMINALS terminals or deeper than SHAPE_MAX_DEPTH).  O(1) if the shape is known, else O(n). */
+    final long shape()
+        {
+        long s = shape;
+        if (((int)s) != 0 && (s >>> 32) != 0) return s;
+        for(int x=0;x<children.length;x++)
+            if (children[x].shape() == 0) return 0;
+        return updateShape();
+        }
+
+    // Sets my shape from the known shapes of my children, or to 0 if any of them isn't known.  O(children).
+    final long updateShape()
+        {
+        long nodes = 1;
+        int terminals = (children.length==0 ? 1 : 0);
+        int depth = 0;
+        for(int x=0;x<children.length;x++)
+            {
+            long s = children[x].shape;
+            if (((int)s) == 0 || (s >>> 32) == 0) return shape = 0;
+            nodes += s >>> 32;
+            terminals += ((int)s) >>> SHAPE_DEPTH_BITS;
+            depth = Math.max(depth, ((int)s) & SHAPE_MAX_DEPTH);
+            }
+        depth++;
+        if (terminals > SHAPE_MAX_TERMINALS || depth > SHAPE_MAX_DEPTH || nodes > Integer.MAX_VALUE)
+            return shape = 0;
+        return shape = (nodes << 32) | (((long)terminals) << SHAPE_DEPTH_BITS) | depth;
+        }
+
+    /** Tells this node that its subtree has changed, or that it's been hung in a new spot in its tree,
+        so it and all its ancestors forget the shapes of their subtrees.  You must call this if you modify
+        a tree by setting <tt>children[...]</tt> directly.  O(depth). */
+    public final void shapeChanged()
+        {
+        shape = 0;
+        GPNodeParent cparent = parent;
+        while(cparent instanceof GPNode)
+            {
+            ((GPNode)cparent).shape = 0;
+            cparent = ((GPNode)(cparent)).parent;
+            }
+        }
         
     /** Returns the path length of the tree, which is the sum of all paths from all nodes to the root.   O(n). */
     public int pathLength(int nodesearch) { return pathLength(NODESEARCH_ALL, 0); }
@@ -542,11 +619,37 @@ public abstract class GPNode implements GPNodeParent, Prototype
     /** Returns the p'th node, constrained by nodesearch,
         in the subtree for which this GPNode is root.
         Use numNodes(nodesearch) to determine the total number.  
-        g.test(...) is used as the constraining predicate.
-        p ranges from 0 to this number minus 1. O(n). The
-        resultant node is returned in <i>g</i>.*/
+        p ranges from 0 to this number minus 1.  O(depth) if
+        the shape of the subtree is known, else O(n). */
     public GPNode nodeInPosition(int p, int nodesearch)
         {
+        if ((nodesearch==NODESEARCH_ALL || nodesearch==NODESEARCH_TERMINALS || nodesearch==NODESEARCH_NONTERMINALS) &&
+            shape() != 0)
+            {
+            // descend straight to the node, skipping over each child whose subtree is too small to hold it
+            GPNode node = this;
+            if (p < 0) return null;
+            while(true)
+                {
+                if (nodesearch==NODESEARCH_ALL ||
+                    (nodesearch==NODESEARCH_TERMINALS && node.children.length==0) ||
+                    (nodesearch==NODESEARCH_NONTERMINALS && node.children.length>0))
+                    {
+                    if (p==0) return node;
+                    else p--;
+                    }
+                GPNode next = null;
+                for(int x=0;x<node.children.length;x++)
+                    {
+                    int count = node.children[x].numNodes(nodesearch);
+                    if (p < count) { next = node.children[x]; break; }
+                    else p -= count;
+                    }
+                if (next == null) return null;  // p is out of range
+                node = next;
+                }
+            }
+
         GPNodeGatherer g = new GPNodeGatherer() { public boolean test(GPNode node) { return true; } };
         nodeInPosition(p, g , nodesearch);
         return g.node;
@@ -628,6 +731,7 @@ public abstract class GPNode implements GPNodeParent, Prototype
         try
             {
             GPNode obj = (GPNode)(super.clone());
+            obj.shape = 0;  // we don't know what its children will be
             int len = children.length;
             if (len == 0) obj.children = children;  // we'll share arrays -- probably just using GPNodeConstraints.zeroChildren anyway
             else obj.children = new GPNode[len];
@@ -654,6 +758,7 @@ public abstract class GPNode implements GPNodeParent, Prototype
             newnode.children[x].parent = newnode;
             newnode.children[x].argposition = (byte)x;
             }
+        newnode.shape = shape;  // an exact copy has my shape
         return newnode;
         }
 
@@ -880,6 +985,9 @@ public abstract class GPNode implements GPNodeParent, Prototype
             newNode.children[x].parent = newNode;
             newNode.children[x].argposition = x;
             }
+
+        // with my children, newNode has my shape, so my ancestors' shapes don't change
+        newNode.shape = shape;
         }
     
     /** Returns true if I and the provided node are the same kind of
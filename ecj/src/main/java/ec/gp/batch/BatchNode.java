@@ -0,0 +1,67 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.batch;
+
+import ec.*;
+import ec.gp.*;
+
+/**
+ * BatchNode.java
+ *
+ * An interface implemented by GPNodes which can evaluate many fitness cases at once.
+ * Rather than passing a single value through a GPData, evalBatch(...) passes a whole
+ * <i>column</i> of values, one per fitness case, through a DoubleBatchData or a BitBatchData.
+ * Each node is called once per batch of fitness cases rather than once per fitness case,
+ * and does its work in a tight loop over arrays.
+ *
+ * <p>evalBatch(...) has the same arguments as eval(...).  It must leave the node's results for
+ * fitness cases 0 ... input.length - 1 in the first input.length elements of the input's column
+ * <tt>x</tt>.  Nodes with children typically evaluate their first child into <tt>x</tt>, then
+ * set <tt>x</tt> to a scratch column popped from the GPData, evaluate the next child into that,
+ * combine the two, and push the scratch column back.  Children are best evaluated with
+ * DoubleBatchData.eval(...), which calls their evalBatch(...) but can also find their results in a
+ * SemanticCache instead.  For example, Add does:
+ *
+ * <pre><tt>
+ * DoubleBatchData d = (DoubleBatchData)input;
+ * d.eval(children[0],state,thread,stack,individual,problem);
+ * double[] x = d.x;
+ * d.x = d.pop();
+ * d.eval(children[1],state,thread,stack,individual,problem);
+ * double[] y = d.x;
+ * for(int i = 0; i < d.length; i++)
+ *     x[i] += y[i];
+ * d.push(y);
+ * d.x = x;
+ * </tt></pre>
+ *
+ * <p>evalBatch(...) must produce exactly the same results as calling eval(...) once per fitness
+ * case.  Because all the children are evaluated for every fitness case, this only works for
+ * nodes without side effects.
+ *
+ * <p>Only trees made entirely of BatchNodes can be evaluated this way: Problems should check with
+ * <tt>tree.child.numNodes(BatchNode.NON_BATCH_NODES) == 0</tt>, and fall back to eval(...) otherwise.
+ */
+
+public interface BatchNode
+    {
+    /** Counts the nodes which are not BatchNodes. */
+    public static final GPNodeGatherer NON_BATCH_NODES = new GPNodeGatherer()
+        {
+        private static final long serialVersionUID = 1;
+        public boolean test(final GPNode thisNode) { return !(thisNode instanceof BatchNode); }
+        };
+
+    /** Evaluates this node (and its subtree) for every fitness case in the batch. */
+    public void evalBatch(final EvolutionState state,
+        final int thread,
+        final GPData input,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem);
+    }
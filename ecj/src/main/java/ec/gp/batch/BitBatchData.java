@@ -0,0 +1,82 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.batch;
+
+import ec.gp.*;
+
+/**
+ * BitBatchData.java
+ *
+ * GPData for BatchNodes which return booleans: rather than holding a single bit,
+ * it holds a column <tt>x</tt> of bits, one per fitness case in the batch, packed 64 to a long.
+ * Bit <i>j</i> of <tt>x[i]</tt> is the result for fitness case 64<i>i</i> + <i>j</i> of the batch.
+ * Only the first <tt>length</tt> longs of <tt>x</tt> are meaningful, and if the number of fitness
+ * cases is not a multiple of 64, the Problem must ignore the unused high bits of the last long.
+ * Boolean nodes can then evaluate 64 fitness cases at a time with Java's bitwise operators.
+ *
+ * <p>Scratch columns are pooled as in DoubleBatchData.
+ */
+
+public class BitBatchData extends GPData
+    {
+    /** The results, 64 fitness cases per long.  Only the first <tt>length</tt> are meaningful. */
+    public long[] x = new long[0];
+    /** The number of longs in the batch (the number of fitness cases divided by 64, rounded up). */
+    public int length;
+
+    long[][] pool = new long[0][];
+    int poolSize;
+
+    /** Sets the number of longs in the batch.  If this is larger than the columns
+        in use, the columns are reallocated, and the pool is emptied. */
+    public void setLength(int length)
+        {
+        if (length > x.length)
+            {
+            x = new long[length];
+            pool = new long[0][];
+            poolSize = 0;
+            }
+        this.length = length;
+        }
+
+    /** Pops a scratch column off of the pool; if the pool is empty, creates a new column and returns that. */
+    public long[] pop()
+        {
+        if (poolSize == 0)
+            return new long[x.length];
+        long[] column = pool[--poolSize];
+        pool[poolSize] = null;
+        return column;
+        }
+
+    /** Pushes a scratch column back onto the pool. */
+    public void push(long[] column)
+        {
+        if (column.length < x.length) return;  // left over from a smaller batch
+        if (poolSize == pool.length)
+            pool = java.util.Arrays.copyOf(pool, poolSize * 2 + 1);
+        pool[poolSize++] = column;
+        }
+
+    public Object clone()
+        {
+        BitBatchData dat = (BitBatchData)(super.clone());
+        dat.x = x.clone();
+        dat.pool = new long[0][];
+        dat.poolSize = 0;
+        return dat;
+        }
+
+    public void copyTo(final GPData gpd)
+        {
+        BitBatchData d = (BitBatchData)gpd;
+        d.setLength(length);
+        System.arraycopy(x, 0, d.x, 0, length);
+        }
+    }
@@ -0,0 +1,188 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.batch;
+
+import ec.*;
+import ec.gp.*;
+
+/**
+ * DoubleBatchData.java
+ *
+ * GPData for BatchNodes which return doubles: rather than holding a single double,
+ * it holds a column <tt>x</tt> of doubles, one per fitness case in the batch.  Only the first
+ * <tt>length</tt> elements of <tt>x</tt> are meaningful.
+ *
+ * <p>Nodes need scratch columns to hold the results of one child while the next is evaluated.
+ * Rather than allocating these, nodes pop(...) them from a pool in the DoubleBatchData and
+ * push(...) them back when done, much as MultiplexerData does.  Since each thread has its own
+ * clone of the GPData, the pool is per-thread, and it grows to about the depth of the deepest
+ * tree evaluated, after which no further columns are allocated.
+ *
+ * <p>A Problem may evaluate a tree by handing it to setTree(...) and then calling evalTree(...)
+ * once per batch.  If the DoubleBatchData has a SemanticCache, setTree(...) records the
+ * structural hash of every subtree of the tree, and nodes which evaluate their children with
+ * eval(...) rather than calling their evalBatch(...) directly then have each child looked up in
+ * the cache before it is evaluated.  Subtrees found there are not evaluated at all, and those
+ * which are evaluated are added to the cache.  The cache is shared among clones, and so among
+ * threads.
+ */
+
+public class DoubleBatchData extends GPData
+    {
+    /** The results, one per fitness case.  Only the first <tt>length</tt> are meaningful. */
+    public double[] x = new double[0];
+    /** The number of fitness cases in the batch. */
+    public int length;
+
+    /** The cache of the semantics of subtrees, or null if there isn't one.  It is shared among clones. */
+    public SemanticCache cache;
+
+    double[][] pool = new double[0][];
+    int poolSize;
+
+    // the tree presently being evaluated, its nodes in prefix order, the hash of the subtree rooted at each,
+    // and the size of that subtree
+    GPNode tree;
+    GPNode[] nodes = new GPNode[0];
+    long[] hashes = new long[0];
+    int[] sizes = new int[0];
+    int count;
+    // the position of the next node expected to be evaluated, and the first fitness case of the batch
+    int cursor;
+    int start;
+
+    /** Sets the number of fitness cases in the batch.  If this is larger than the columns
+        in use, the columns are reallocated, and the pool is emptied. */
+    public void setLength(int length)
+        {
+        if (length > x.length)
+            {
+            x = new double[length];
+            pool = new double[0][];
+            poolSize = 0;
+            }
+        this.length = length;
+        }
+
+    /** Pops a scratch column off of the pool; if the pool is empty, creates a new column and returns that. */
+    public double[] pop()
+        {
+        if (poolSize == 0)
+            return new double[x.length];
+        double[] column = pool[--poolSize];
+        pool[poolSize] = null;
+        return column;
+        }
+
+    /** Pushes a scratch column back onto the pool. */
+    public void push(double[] column)
+        {
+        if (column.length < x.length) return;  // left over from a smaller batch
+        if (poolSize == pool.length)
+            pool = java.util.Arrays.copyOf(pool, poolSize * 2 + 1);
+        pool[poolSize++] = column;
+        }
+
+    /** Sets the tree to be evaluated with evalTree(...), recording all its subtrees for eval(...) to look up if there
+        is a cache.  The tree must not be modified until setTree(...) is called again.  Call setTree(null)
+        when done with the tree, so as not to hang on to it. */
+    public void setTree(GPNode root)
+        {
+        for(int i = 0; i < count; i++)
+            nodes[i] = null;
+        count = 0;
+        tree = root;
+        if (root != null && cache != null) record(root);
+        }
+
+    /** Evaluates the tree given to setTree(...) for the batch, whose first fitness case is start. */
+    public void evalTree(int start,
+        final EvolutionState state,
+        final int thread,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        cursor = 0;
+        this.start = start;
+        eval(tree, state, thread, stack, individual, problem);
+        }
+
+    // Records the subtree rooted at the given node, returning its position
+    int record(GPNode node)
+        {
+        int p = count++;
+        if (p == nodes.length)
+            {
+            int n = p * 2 + 16;
+            nodes = java.util.Arrays.copyOf(nodes, n);
+            hashes = java.util.Arrays.copyOf(hashes, n);
+            sizes = java.util.Arrays.copyOf(sizes, n);
+            }
+        nodes[p] = node;
+        long hash = SemanticCache.nodeHash(node);
+        for(int i = 0; i < node.children.length; i++)
+            {
+            int c = record(node.children[i]);  // which may reallocate hashes
+            hash = SemanticCache.combine(hash, hashes[c]);
+            }
+        hashes[p] = hash;
+        sizes[p] = count - p;
+        return p;
+        }
+
+    /** Evaluates the given node, typically a child of the node calling this method, with evalBatch(...).
+        If setTree(...) recorded the tree, and the node is the one which it expects next in prefix
+        order, the node's subtree is first looked up in the cache, and if it's found, the node isn't
+        evaluated at all.  Otherwise the node is evaluated as usual, and its results added to the cache. */
+    public void eval(final GPNode node,
+        final EvolutionState state,
+        final int thread,
+        final ADFStack stack,
+        final GPIndividual individual,
+        final Problem problem)
+        {
+        int p = cursor;
+        if (p >= count || nodes[p] != node)  // no cache, or nodes aren't being evaluated in prefix order
+            {
+            ((BatchNode)node).evalBatch(state, thread, this, stack, individual, problem);
+            return;
+            }
+
+        int size = sizes[p];
+        boolean cached = (size >= cache.minSize);
+        if (!cached || !cache.get(hashes[p], size, start, length, x))
+            {
+            cursor = p + 1;
+            ((BatchNode)node).evalBatch(state, thread, this, stack, individual, problem);
+            if (cached) cache.put(hashes[p], size, start, length, x);
+            }
+        cursor = p + size;  // skip past the subtree, however much of it was evaluated
+        }
+
+    public Object clone()
+        {
+        DoubleBatchData dat = (DoubleBatchData)(super.clone());
+        dat.x = x.clone();
+        dat.pool = new double[0][];
+        dat.poolSize = 0;
+        dat.tree = null;
+        dat.nodes = new GPNode[0];
+        dat.hashes = new long[0];
+        dat.sizes = new int[0];
+        dat.count = 0;
+        return dat;
+        }
+
+    public void copyTo(final GPData gpd)
+        {
+        DoubleBatchData d = (DoubleBatchData)gpd;
+        d.setLength(length);
+        System.arraycopy(x, 0, d.x, 0, length);
+        }
+    }
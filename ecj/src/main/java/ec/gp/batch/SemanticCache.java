@@ -0,0 +1,300 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.batch;
+
+import java.io.*;
+import java.util.*;
+import ec.gp.*;
+import ec.gp.linear.*;
+
+/**
+ * SemanticCache.java
+ *
+ * A bounded, thread-safe, least-recently-used map from subtrees to their <i>semantics</i>: the
+ * columns of results which they produce for a batch of fitness cases.  Most subtrees of a child
+ * are unchanged copies of subtrees of its parents, and so were evaluated on the very same fitness
+ * cases the generation before.  With a SemanticCache, DoubleBatchData.eval(...) looks each
+ * subtree up before evaluating it, and if it's found, just copies its column rather than
+ * evaluating the subtree again.
+ *
+ * <p>Subtrees are identified by a 64-bit structural hash, computed by DoubleBatchData from
+ * nodeHash(...) of each of their nodes, together with their size and the first fitness case and
+ * length of the batch.  The cache doesn't hold the subtrees themselves, so two different subtrees
+ * with the same hash and size would be confused: with a 64-bit hash this is vanishingly
+ * unlikely, but not impossible.  The semantics of a subtree must depend only on its nodes and on
+ * the fitness cases, and not (for example) on ADF arguments or on earlier evaluations.  Since the
+ * fitness cases are identified only by their position, a cache must be used with a single
+ * training set: a Problem would typically hold one SemanticCache shared among all its clones.
+ *
+ * <p>The cache is bounded by the memory its columns take up, rather than by their number, since
+ * their size depends on the batch size.  Each entry is reckoned at 8 bytes per fitness case plus
+ * ENTRY_OVERHEAD bytes for the key and the map entry, and once the total goes over the capacity,
+ * the least recently used entries are evicted.  Subtrees of fewer than <tt>minSize</tt> nodes are
+ * cheaper to evaluate than to look up, and are never cached.
+ *
+ * <p>The cache is split into segments, each locked separately, so many threads may use it at once.
+ * Like CompiledTreeCache, a SemanticCache is written out empty (though with its counters) and
+ * refills itself after a checkpoint is restored.
+ */
+
+public class SemanticCache implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    /** The estimated bytes taken up by an entry, other than its column of doubles. */
+    public static final int ENTRY_OVERHEAD = 96;
+
+    // the cache is split into 2^SEGMENT_BITS segments by the top bits of the hash
+    static final int SEGMENT_BITS = 4;
+
+    static final class Key
+        {
+        final long hash;
+        final int size;
+        final int start;
+        final int length;
+
+        Key(long hash, int size, int start, int length)
+            {
+            this.hash = hash;
+            this.size = size;
+            this.start = start;
+            this.length = length;
+            }
+
+        // the same subtree is cached once per batch, so the batches mustn't share a bucket
+        public int hashCode() { return (int)hash + start * 0x9e3779b9; }
+
+        public boolean equals(Object other)
+            {
+            if (!(other instanceof Key)) return false;
+            Key k = (Key)other;
+            return hash == k.hash && size == k.size && start == k.start && length == k.length;
+            }
+        }
+
+    // An access-ordered map of the entries in one segment, along with its counters
+    static final class Segment extends LinkedHashMap<Key, double[]>
+        {
+        private static final long serialVersionUID = 1;
+        long bytes;
+        long hits;
+        long misses;
+        long evictions;
+
+        Segment()
+            {
+            super(16, 0.75f, true);  // access order
+            }
+        }
+
+    final long capacity;
+    final int minSize;
+    transient Segment[] segments;
+    // the counters of the segments as they were when the cache was written out, if it was
+    long savedHits;
+    long savedMisses;
+    long savedEvictions;
+
+    /** Builds a cache whose entries take up at most (about) capacity bytes, and which holds subtrees of minSize
+        or more nodes. */
+    public SemanticCache(long capacity, int minSize)
+        {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be >= 1: " + capacity);
+        if (minSize < 1)
+            throw new IllegalArgumentException("Minimum size must be >= 1: " + minSize);
+        this.capacity = capacity;
+        this.minSize = minSize;
+        buildSegments();
+        }
+
+    void buildSegments()
+        {
+        segments = new Segment[1 << SEGMENT_BITS];
+        for(int i = 0; i < segments.length; i++)
+            segments[i] = new Segment();
+        }
+
+    Segment segment(long hash)
+        {
+        return segments[(int)(hash >>> (64 - SEGMENT_BITS))];
+        }
+
+    /** Returns the hash of the given node alone, not counting its children, from its class, its number of children,
+        and its value if it's an ERC.  The values of LinearERCs are hashed bit for bit; those of other ERCs are
+        hashed from their encode() strings. */
+    public static long nodeHash(GPNode node)
+        {
+        long h = mix(node.getClass().getName().hashCode() * 31L + node.children.length);
+        if (node instanceof LinearERC)
+            h = mix(h ^ Double.doubleToLongBits(((LinearERC)node).getConstant()));
+        else if (node instanceof ERC)
+            {
+            String s = ((ERC)node).encode();
+            for(int i = 0; i < s.length(); i++)
+                h = h * 1099511628211L + s.charAt(i);  // FNV prime
+            h = mix(h);
+            }
+        return h;
+        }
+
+    /** Combines the hash of a node (or of a node and its earlier children) with the hash of its next child.  This
+        isn't symmetric, so that (for example) (sin (cos x)) and (cos (sin x)) hash differently. */
+    public static long combine(long hash, long child)
+        {
+        return mix(hash * 0x9e3779b97f4a7c15L + child);
+        }
+
+    // the finalizer of MurmurHash3
+    static long mix(long h)
+        {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+        }
+
+    /** Returns the minimum number of nodes a subtree must have to be cached. */
+    public int getMinSize() { return minSize; }
+
+    /** Returns the maximum number of bytes the cache's entries take up. */
+    public long getCapacity() { return capacity; }
+
+    /** Copies into the first length elements of the given column those of the subtree with the given hash and size,
+        for the batch of the given length starting at fitness case start, and returns true; or returns false if
+        the subtree isn't in the cache. */
+    public boolean get(long hash, int size, int start, int length, double[] column)
+        {
+        Key key = new Key(hash, size, start, length);
+        Segment s = segment(hash);
+        synchronized(s)
+            {
+            double[] c = s.get(key);
+            if (c == null)
+                {
+                s.misses++;
+                return false;
+                }
+            s.hits++;
+            System.arraycopy(c, 0, column, 0, length);
+            return true;
+            }
+        }
+
+    /** Adds a copy of the first length elements of the given column, as that of the subtree with the given hash
+        and size for the batch of the given length starting at fitness case start, first evicting the least
+        recently used entries of its segment if need be.  The copy reuses an evicted column if it can,
+        so that once the cache is full it hardly allocates anything. */
+    public void put(long hash, int size, int start, int length, double[] column)
+        {
+        Key key = new Key(hash, size, start, length);
+        long bytes = 8L * length + ENTRY_OVERHEAD;
+        long max = capacity >>> SEGMENT_BITS;
+        if (bytes > max) return;  // it would evict everything else
+
+        Segment s = segment(hash);
+        synchronized(s)
+            {
+            if (s.containsKey(key)) return;  // another thread got here first
+            double[] copy = null;
+            Iterator<Map.Entry<Key, double[]>> i = s.entrySet().iterator();
+            while(s.bytes + bytes > max)
+                {
+                double[] evicted = i.next().getValue();
+                i.remove();
+                s.bytes -= 8L * evicted.length + ENTRY_OVERHEAD;
+                s.evictions++;
+                if (evicted.length == length) copy = evicted;
+                }
+            if (copy == null) copy = new double[length];
+            System.arraycopy(column, 0, copy, 0, length);
+            s.put(key, copy);
+            s.bytes += bytes;
+            }
+        }
+
+    /** Removes all entries, but not the counters. */
+    public void clear()
+        {
+        for(int i = 0; i < segments.length; i++)
+            synchronized(segments[i])
+                {
+                segments[i].clear();
+                segments[i].bytes = 0;
+                }
+        }
+
+    // Returns the total of the given counter over all the segments
+    long sum(int counter)
+        {
+        long total = 0;
+        for(int i = 0; i < segments.length; i++)
+            synchronized(segments[i])
+                {
+                Segment s = segments[i];
+                total += (counter == HITS ? s.hits : counter == MISSES ? s.misses :
+                    counter == EVICTIONS ? s.evictions : counter == BYTES ? s.bytes : s.size());
+                }
+        return total;
+        }
+
+    static final int HITS = 0;
+    static final int MISSES = 1;
+    static final int EVICTIONS = 2;
+    static final int BYTES = 3;
+    static final int ENTRIES = 4;
+
+    /** Returns the number of subtrees presently in the cache. */
+    public int size() { return (int)sum(ENTRIES); }
+
+    /** Returns the estimated number of bytes presently taken up by the cache's entries. */
+    public long getBytes() { return sum(BYTES); }
+
+    /** Returns the number of calls to get(...) which found the subtree in the cache. */
+    public long getHits() { return savedHits + sum(HITS); }
+
+    /** Returns the number of calls to get(...) which didn't find the subtree in the cache. */
+    public long getMisses() { return savedMisses + sum(MISSES); }
+
+    /** Returns the number of entries evicted to keep the cache within its capacity. */
+    public long getEvictions() { return savedEvictions + sum(EVICTIONS); }
+
+    /** Returns the fraction of calls to get(...) which found the subtree in the cache, or 0 if there have been none. */
+    public double getHitRate()
+        {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return (total == 0 ? 0.0 : hits / (double)total);
+        }
+
+    public String toString()
+        {
+        return "SemanticCache hits: " + getHits() + " misses: " + getMisses() +
+            " hit rate: " + getHitRate() + " evictions: " + getEvictions() +
+            " entries: " + size() + " bytes: " + getBytes() + " of " + capacity;
+        }
+
+    private void writeObject(ObjectOutputStream out) throws IOException
+        {
+        savedHits = getHits();
+        savedMisses = getMisses();
+        savedEvictions = getEvictions();
+        out.defaultWriteObject();
+        savedHits -= sum(HITS);  // since getHits() etc. will go on adding up the segments
+        savedMisses -= sum(MISSES);
+        savedEvictions -= sum(EVICTIONS);
+        }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+        {
+        in.defaultReadObject();
+        buildSegments();
+        }
+    }
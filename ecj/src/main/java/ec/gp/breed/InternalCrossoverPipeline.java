@@ -343,6 +343,9 @@ public class InternalCrossoverPipeline extends GPBreedingPipeline
                     ((GPNode)(p2.parent)).children[p2.argposition] = p2;
                 else ((GPTree)(p2.parent)).child = p2;
 
+                p1.shapeChanged();
+                p2.shapeChanged();
+
                 i.evaluated = false;  // we've modified it
                 }
             
@@ -276,6 +276,7 @@ public class MutateAllNodesPipeline extends GPBreedingPipeline
             if (p2.parent instanceof GPNode)
                 ((GPNode)(p2.parent)).children[p2.argposition] = p2;
             else ((GPTree)(p2.parent)).child = p2;
+            p2.shapeChanged();
             i.evaluated = false;  // we've modified it
 
             // add the new individual, replacing its previous source
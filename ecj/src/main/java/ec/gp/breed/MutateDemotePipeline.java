@@ -275,6 +275,7 @@ public class MutateDemotePipeline extends GPBreedingPipeline
                                 term.argposition = (byte)z;  // just in case
                                 term.resetNode(state,thread);  // let it randomize itself if necessary
                                 }
+                        cnode.shapeChanged();
                         return;
                         }
                     else 
@@ -335,6 +336,7 @@ public class MutateDemotePipeline extends GPBreedingPipeline
                 term.argposition = (byte)z;  // just in case
                 term.resetNode(state,thread);  // let it randomize itself if necessary
                 }
+        cnode.shapeChanged();
         }
 
 
@@ -141,6 +141,7 @@ public class MutatePromotePipeline extends GPBreedingPipeline
         if (parent.parent instanceof GPNode)
             ((GPNode)(parent.parent)).children[parent.argposition] = node;
         else ((GPTree)(parent.parent)).child = node;
+        node.shapeChanged();
         return;
         }
 
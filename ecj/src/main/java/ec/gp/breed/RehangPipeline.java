@@ -218,6 +218,9 @@ public class RehangPipeline extends GPBreedingPipeline
         cut.parent = pivot;
         cut.argposition = newSpot;
         pivot.children[newSpot] = cut;
+
+        // the old root is now at the bottom of the path we've turned upside-down
+        pivot.shapeChanged();
         }
 
 
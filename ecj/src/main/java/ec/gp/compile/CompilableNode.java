@@ -0,0 +1,37 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.compile;
+
+/**
+ * CompilableNode.java
+ *
+ * An interface implemented by GPNodes which can be compiled by TreeCompiler into JVM
+ * bytecode.  Such nodes must compute a single double from their children and
+ * from the tree's input variables, with no side effects.
+ *
+ * <p>compile(...) describes the node's semantics to the compiler: it must emit code which,
+ * when run, leaves exactly one double, the node's value, on the operand stack.  It usually
+ * does so by calling compiler.compile(children[i]) for each child and then emitting an
+ * operation to combine them.  For example, Add is compiled as:
+ *
+ * <pre><tt>
+ * compiler.compile(children[0]);
+ * compiler.compile(children[1]);
+ * compiler.add();
+ * </tt></pre>
+ *
+ * <p>The code emitted must produce exactly the same result as the node's eval(...) method.
+ * In particular, children should be compiled in the order in which eval(...) evaluates them,
+ * and protected operators must be protected in the same way.
+ */
+
+public interface CompilableNode
+    {
+    /** Emits code computing the value of this node (and its subtree) onto the compiler's operand stack. */
+    public void compile(TreeCompiler compiler);
+    }
@@ -0,0 +1,30 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.compile;
+
+/**
+ * CompiledTree.java
+ *
+ * The superclass of the classes generated by TreeCompiler.  Each generated class
+ * implements eval(...) as a single straight-line method computing the value of one
+ * GP tree, so evaluating the tree on a fitness case is a single method call rather than
+ * a recursive walk through its GPNodes.
+ *
+ * <p>The tree's input variables (for example <i>x</i> in symbolic regression) are passed in
+ * as an array of doubles.  Variables are numbered by the nodes which read them: see
+ * TreeCompiler.pushVariable(...).
+ *
+ * <p>CompiledTrees hold no state and are thread-safe.  They are not Serializable, since
+ * their classes only exist in the JVM in which they were generated.
+ */
+
+public abstract class CompiledTree
+    {
+    /** Returns the value of the tree given the values of its input variables. */
+    public abstract double eval(double[] variables);
+    }
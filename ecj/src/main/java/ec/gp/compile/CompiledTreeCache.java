@@ -0,0 +1,147 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.compile;
+
+import java.io.*;
+import java.util.*;
+import ec.gp.*;
+
+/**
+ * CompiledTreeCache.java
+ *
+ * A bounded, thread-safe, least-recently-used map from GP trees to their CompiledTrees,
+ * so that each tree is compiled once and then reused for all of its fitness cases, and
+ * again whenever the same tree is evaluated later (as happens with reproduced or elite
+ * individuals, or when describing the best individual of a run).
+ *
+ * <p>Trees are compared by treeEquals(...) and treeHashCode(), that is, by their structure,
+ * so two individuals with the same tree share one CompiledTree.  The cache holds the trees
+ * themselves as keys rather than copies, so a tree must not be modified after it has been
+ * compiled.  ECJ's breeding pipelines always copy an individual before modifying it, so this is
+ * normally not a problem.  Trees which cannot be compiled are remembered too, so that the
+ * compiler is not asked again.
+ *
+ * <p>A Problem would typically hold one CompiledTreeCache shared among all its clones and
+ * call get(...) in its evaluate(...) method, falling back to the tree's ordinary eval(...)
+ * if get(...) returns null.  Compiling is done outside the cache's lock, so on rare occasions
+ * two threads may compile the same tree at the same time; one of the results is discarded.
+ *
+ * <p>A CompiledTreeCache is Serializable, but the CompiledTrees themselves are not, so it is
+ * written out empty (though with its counters) and refills itself after a checkpoint is restored.
+ */
+
+public class CompiledTreeCache implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    // A key wrapping a GPTree with its hash code cached
+    static class Key
+        {
+        final GPTree tree;
+        final int hash;
+
+        Key(GPTree tree) { this.tree = tree; hash = tree.treeHashCode(); }
+
+        public int hashCode() { return hash; }
+
+        public boolean equals(Object other)
+            {
+            if (other == this) return true;
+            if (!(other instanceof Key)) return false;
+            Key k = (Key)other;
+            return hash == k.hash && tree.treeEquals(k.tree);
+            }
+        }
+
+    static class Entries extends LinkedHashMap<Key, CompiledTree>
+        {
+        private static final long serialVersionUID = 1;
+        final int capacity;
+
+        Entries(int capacity)
+            {
+            super(16, 0.75f, true);  // access order
+            this.capacity = capacity;
+            }
+
+        protected boolean removeEldestEntry(Map.Entry<Key, CompiledTree> eldest)
+            {
+            return size() > capacity;
+            }
+        }
+
+    int capacity;
+    transient Entries entries;
+    long hits;
+    long compiled;
+    long failures;
+
+    /** Builds a cache holding at most capacity trees. */
+    public CompiledTreeCache(int capacity)
+        {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be >= 1: " + capacity);
+        this.capacity = capacity;
+        entries = new Entries(capacity);
+        }
+
+    /** Returns the CompiledTree for the given tree, compiling it if necessary, or null if
+        the tree cannot be compiled. */
+    public CompiledTree get(GPTree tree)
+        {
+        Key key = new Key(tree);
+        synchronized(this)
+            {
+            CompiledTree c = entries.get(key);
+            if (c != null || entries.containsKey(key))
+                {
+                hits++;
+                return c;
+                }
+            }
+
+        CompiledTree c = TreeCompiler.compileTree(tree.child);
+
+        synchronized(this)
+            {
+            if (c == null) failures++;
+            else compiled++;
+            entries.put(key, c);
+            }
+        return c;
+        }
+
+    /** Removes all entries, but not the counters. */
+    public synchronized void clear() { entries.clear(); }
+
+    /** Returns the number of trees presently in the cache. */
+    public synchronized int size() { return entries.size(); }
+
+    /** Returns the maximum number of trees the cache holds. */
+    public int getCapacity() { return capacity; }
+
+    /** Returns the number of calls to get(...) which found the tree already in the cache. */
+    public synchronized long getHits() { return hits; }
+
+    /** Returns the number of trees which have been compiled. */
+    public synchronized long getCompiled() { return compiled; }
+
+    /** Returns the number of trees which could not be compiled. */
+    public synchronized long getFailures() { return failures; }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException
+        {
+        out.defaultWriteObject();
+        }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+        {
+        in.defaultReadObject();
+        entries = new Entries(capacity);
+        }
+    }
@@ -0,0 +1,578 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.compile;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import ec.gp.*;
+
+/**
+ * TreeCompiler.java
+ *
+ * Compiles a GP tree made entirely of CompilableNodes into a new JVM class, a subclass
+ * of CompiledTree whose eval(...) method computes the value of the tree in a single
+ * straight-line method over primitive doubles.  The JIT can then treat the whole tree as
+ * one ordinary method, rather than a chain of virtual eval(...) calls each copying its
+ * result through a GPData.
+ *
+ * <p>The usual way to compile a tree is with the static method compileTree(GPNode), which returns
+ * null if the tree cannot be compiled, either because some node is not a CompilableNode
+ * (ADFs for example) or because the tree is too large to fit in a single JVM method.
+ * A CompiledTreeCache will remember compiled trees so that each tree is compiled only once.
+ *
+ * <p>The remaining public methods are for CompilableNodes to emit their code.  They describe
+ * a small stack machine over doubles: each pushes or pops doubles on the JVM operand stack.
+ * Nodes may also allocate local double variables, and branch to Labels.
+ *
+ * <p>Each generated class is defined in its own ClassLoader, so that it can be garbage
+ * collected along with its CompiledTree once it is no longer used.  Classes are generated in
+ * the Java 5 class file format, which does not require stack map frames for verification.
+ *
+ * <p>Generating and loading a class takes on the order of a hundred microseconds, far longer
+ * than interpreting a typical tree once.  Compiling pays off when each tree is evaluated on
+ * many fitness cases (hundreds or more), or is found again in the CompiledTreeCache.
+ * RegressionEvaluationBenchmark in ec.app.regression measures this.
+ */
+
+public class TreeCompiler
+    {
+    /** The longest a compiled method may be, in bytes, so that all branch offsets fit in 16 bits. */
+    public static final int MAX_CODE_LENGTH = 32767;
+    /** The largest a constant pool or the number of local variable slots may be. */
+    public static final int MAX_POOL_SIZE = 65535;
+
+    static final String SUPERCLASS = "ec/gp/compile/CompiledTree";
+    static final String CLASS_PREFIX = "ec/gp/compile/GeneratedTree";
+    static final AtomicLong classCount = new AtomicLong();
+
+    // the few opcodes we use
+    static final int DCONST_0 = 0x0e;
+    static final int DCONST_1 = 0x0f;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int DLOAD = 0x18;
+    static final int ALOAD_0 = 0x2a;
+    static final int ALOAD_1 = 0x2b;
+    static final int DALOAD = 0x31;
+    static final int DSTORE = 0x39;
+    static final int DUP2 = 0x5c;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int DREM = 0x73;
+    static final int DNEG = 0x77;
+    static final int DCMPL = 0x97;
+    static final int IFEQ = 0x99;
+    static final int IF_ICMPLE = 0xa4;
+    static final int GOTO = 0xa7;
+    static final int DRETURN = 0xaf;
+    static final int RETURN = 0xb1;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int ARRAYLENGTH = 0xbe;
+    static final int WIDE = 0xc4;
+
+    // constant pool tags
+    static final int CONSTANT_UTF8 = 1;
+    static final int CONSTANT_INTEGER = 3;
+    static final int CONSTANT_DOUBLE = 6;
+    static final int CONSTANT_CLASS = 7;
+    static final int CONSTANT_METHODREF = 10;
+    static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    /** A position in the code which may be jumped to.  Create Labels with newLabel(), jump
+        to them with jump(...) or ifZero(...), and place them with mark(...). */
+    public static class Label
+        {
+        int position = -1;   // where the Label has been marked, or -1
+        int depth = -1;      // the stack depth on arrival at the Label, or -1 if not yet known
+        int[] fixups = new int[2];  // locations of branches to this Label before it was marked
+        int numFixups;
+        }
+
+    // Thrown when a node in the tree is not a CompilableNode
+    static class NotCompilableException extends RuntimeException
+        {
+        private static final long serialVersionUID = 1;
+        }
+
+    // One ClassLoader per generated class, so the class may be unloaded on its own.
+    static class Loader extends ClassLoader
+        {
+        Loader(ClassLoader parent) { super(parent); }
+        Class<?> define(String name, byte[] bytes) { return defineClass(name, bytes, 0, bytes.length); }
+        }
+
+    ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    DataOutputStream pool = new DataOutputStream(poolBytes);
+    HashMap<String, Integer> poolEntries = new HashMap<String, Integer>();
+    int poolSize = 1;  // entry 0 is unused
+
+    byte[] code = new byte[256];
+    int length = 0;
+    int depth = 0;        // current operand stack depth, in slots, or -1 if the code is unreachable
+    int maxDepth = 0;
+    int maxLocals = 2;    // 0 is this, 1 is the variables array
+
+    TreeCompiler() { }
+
+    /** Compiles the tree rooted at root and returns it as a CompiledTree, or returns null
+        if the tree cannot be compiled. */
+    public static CompiledTree compileTree(GPNode root)
+        {
+        TreeCompiler compiler = new TreeCompiler();
+        try
+            {
+            compiler.compile(root);
+            }
+        catch (NotCompilableException e)
+            {
+            return null;
+            }
+        compiler.op(DRETURN);
+        return compiler.load();
+        }
+
+    /** Emits the code for the given node, typically one of the children of the node
+        calling this method.  This leaves the node's value on top of the stack. */
+    public void compile(GPNode node)
+        {
+        if (!(node instanceof CompilableNode))
+            throw new NotCompilableException();
+        int d = depth;
+        ((CompilableNode)node).compile(this);
+        if (depth != d + 2)
+            throw new IllegalStateException("Compiled code for GPNode " + node.toStringForError() +
+                " did not leave exactly one double on the stack.");
+        }
+
+
+
+    ///// Emitting code
+
+
+    /** Pushes a constant. */
+    public void pushConstant(double value)
+        {
+        if (Double.doubleToLongBits(value) == 0L)  // not -0.0
+            op(DCONST_0);
+        else if (value == 1.0)
+            op(DCONST_1);
+        else
+            {
+            op(LDC2_W);
+            u2(doubleConstant(value));
+            }
+        grow(2);
+        }
+
+    /** Pushes input variable number index, that is, variables[index] where variables is the
+        array passed to CompiledTree.eval(...).  If the array is too short to hold that
+        variable, 0.0 is pushed instead. */
+    public void pushVariable(int index)
+        {
+        if (index < 0)
+            throw new IllegalArgumentException("Variable index must be >= 0: " + index);
+        Label missing = newLabel();
+        Label done = newLabel();
+        op(ALOAD_1);
+        op(ARRAYLENGTH);
+        grow(1);
+        pushInt(index);
+        branch(IF_ICMPLE, missing, 2);
+        op(ALOAD_1);
+        grow(1);
+        pushInt(index);
+        op(DALOAD);  // the array and index (two slots) become a double (two slots)
+        jump(done);
+        mark(missing);
+        pushConstant(0.0);
+        mark(done);
+        }
+
+    /** Pops b, then a, and pushes a + b. */
+    public void add() { op(DADD); shrink(2); }
+
+    /** Pops b, then a, and pushes a - b. */
+    public void sub() { op(DSUB); shrink(2); }
+
+    /** Pops b, then a, and pushes a * b. */
+    public void mul() { op(DMUL); shrink(2); }
+
+    /** Pops b, then a, and pushes a / b (unprotected). */
+    public void div() { op(DDIV); shrink(2); }
+
+    /** Pops b, then a, and pushes a % b. */
+    public void rem() { op(DREM); shrink(2); }
+
+    /** Pops a and pushes -a.  Note that this is not the same as 0.0 - a when a is 0.0. */
+    public void neg() { op(DNEG); }
+
+    /** Duplicates the double on top of the stack. */
+    public void dup() { op(DUP2); grow(2); }
+
+    /** Pops numArgs doubles and pushes the result of calling the public static method owner.name(...),
+        which must take numArgs doubles as arguments and return a double.  For example,
+        invokeStatic(Math.class, "sin", 1) or invokeStatic(Math.class, "pow", 2).  */
+    public void invokeStatic(Class<?> owner, String name, int numArgs)
+        {
+        StringBuilder desc = new StringBuilder("(");
+        for(int i = 0; i < numArgs; i++)
+            desc.append('D');
+        desc.append(")D");
+        op(INVOKESTATIC);
+        u2(methodRef(owner.getName().replace('.', '/'), name, desc.toString()));
+        shrink(2 * numArgs);
+        grow(2);
+        }
+
+    /** Allocates a new local double variable and returns its index, for use in store(...) and load(...). */
+    public int newLocal()
+        {
+        int local = maxLocals;
+        maxLocals += 2;
+        return local;
+        }
+
+    /** Pops a double and stores it in the given local variable. */
+    public void store(int local)
+        {
+        localOp(DSTORE, local);
+        shrink(2);
+        }
+
+    /** Pushes the double in the given local variable. */
+    public void load(int local)
+        {
+        localOp(DLOAD, local);
+        grow(2);
+        }
+
+    /** Returns a new, unmarked Label. */
+    public Label newLabel()
+        {
+        return new Label();
+        }
+
+    /** Places the Label at the current position in the code. */
+    public void mark(Label label)
+        {
+        if (label.position >= 0)
+            throw new IllegalStateException("Label marked twice");
+        label.position = length;
+        for(int i = 0; i < label.numFixups; i++)
+            {
+            int at = label.fixups[i];
+            int offset = length - at;
+            code[at + 1] = (byte)(offset >>> 8);
+            code[at + 2] = (byte)offset;
+            }
+        if (label.depth >= 0)
+            {
+            if (depth >= 0 && depth != label.depth)
+                throw new IllegalStateException("Stack depths differ at Label: " + depth + " and " + label.depth);
+            depth = label.depth;
+            }
+        else label.depth = depth;
+        }
+
+    /** Jumps unconditionally to the Label.  The code following a jump is unreachable until
+        the next Label is marked. */
+    public void jump(Label label)
+        {
+        branch(GOTO, label, 0);
+        depth = -1;
+        }
+
+    /** Pops a double and jumps to the Label if it is equal to 0.0 (or -0.0). */
+    public void ifZero(Label label)
+        {
+        op(DCONST_0);
+        grow(2);
+        op(DCMPL);
+        shrink(4);
+        grow(1);
+        branch(IFEQ, label, 1);
+        }
+
+
+
+    ///// Internals
+
+
+    void grow(int slots)
+        {
+        if (depth < 0)
+            throw new IllegalStateException("Code emitted where it can never be reached");
+        depth += slots;
+        if (depth > maxDepth) maxDepth = depth;
+        }
+
+    void shrink(int slots)
+        {
+        depth -= slots;
+        if (depth < 0)
+            throw new IllegalStateException("Operand stack underflow");
+        }
+
+    void op(int opcode)
+        {
+        if (length == code.length)
+            code = Arrays.copyOf(code, code.length * 2);
+        code[length++] = (byte)opcode;
+        }
+
+    void u2(int value)
+        {
+        op(value >>> 8);
+        op(value);
+        }
+
+    void pushInt(int value)
+        {
+        if (value <= Byte.MAX_VALUE)
+            {
+            op(BIPUSH);
+            op(value);
+            }
+        else if (value <= Short.MAX_VALUE)
+            {
+            op(SIPUSH);
+            u2(value);
+            }
+        else
+            {
+            op(LDC_W);
+            u2(intConstant(value));
+            }
+        grow(1);
+        }
+
+    void localOp(int opcode, int local)
+        {
+        if (local < 2 || local >= maxLocals)
+            throw new IllegalArgumentException("Not a local variable: " + local);
+        if (local <= 255)
+            {
+            op(opcode);
+            op(local);
+            }
+        else
+            {
+            op(WIDE);
+            op(opcode);
+            u2(local);
+            }
+        }
+
+    // Emits a branch which first pops popSlots from the stack
+    void branch(int opcode, Label label, int popSlots)
+        {
+        shrink(popSlots);
+        int at = length;
+        op(opcode);
+        if (label.position >= 0)
+            u2(label.position - at);
+        else
+            {
+            if (label.numFixups == label.fixups.length)
+                label.fixups = Arrays.copyOf(label.fixups, label.numFixups * 2);
+            label.fixups[label.numFixups++] = at;
+            u2(0);
+            }
+        if (label.depth >= 0)
+            {
+            if (label.depth != depth)
+                throw new IllegalStateException("Stack depths differ at Label: " + depth + " and " + label.depth);
+            }
+        else label.depth = depth;
+        }
+
+
+
+    ///// The constant pool
+
+
+    int entry(String key)
+        {
+        Integer index = poolEntries.get(key);
+        return (index == null ? 0 : index.intValue());
+        }
+
+    int addEntry(String key, int slots)
+        {
+        int index = poolSize;
+        poolEntries.put(key, Integer.valueOf(index));
+        poolSize += slots;
+        return index;
+        }
+
+    int utf8(String s)
+        {
+        String key = "U" + s;
+        int index = entry(key);
+        if (index != 0) return index;
+        try
+            {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(s);
+            }
+        catch (IOException e) { throw new RuntimeException(e); }  // can't happen
+        return addEntry(key, 1);
+        }
+
+    int classRef(String internalName)
+        {
+        String key = "C" + internalName;
+        int index = entry(key);
+        if (index != 0) return index;
+        int name = utf8(internalName);
+        try
+            {
+            pool.writeByte(CONSTANT_CLASS);
+            pool.writeShort(name);
+            }
+        catch (IOException e) { throw new RuntimeException(e); }  // can't happen
+        return addEntry(key, 1);
+        }
+
+    int methodRef(String owner, String name, String descriptor)
+        {
+        String key = "M" + owner + "." + name + descriptor;
+        int index = entry(key);
+        if (index != 0) return index;
+        int cls = classRef(owner);
+        int n = utf8(name);
+        int d = utf8(descriptor);
+        try
+            {
+            pool.writeByte(CONSTANT_NAME_AND_TYPE);
+            pool.writeShort(n);
+            pool.writeShort(d);
+            int nameAndType = addEntry("N" + name + descriptor, 1);
+            pool.writeByte(CONSTANT_METHODREF);
+            pool.writeShort(cls);
+            pool.writeShort(nameAndType);
+            }
+        catch (IOException e) { throw new RuntimeException(e); }  // can't happen
+        return addEntry(key, 1);
+        }
+
+    int doubleConstant(double value)
+        {
+        long bits = Double.doubleToRawLongBits(value);
+        String key = "D" + bits;
+        int index = entry(key);
+        if (index != 0) return index;
+        try
+            {
+            pool.writeByte(CONSTANT_DOUBLE);
+            pool.writeLong(bits);
+            }
+        catch (IOException e) { throw new RuntimeException(e); }  // can't happen
+        return addEntry(key, 2);  // doubles take two entries
+        }
+
+    int intConstant(int value)
+        {
+        String key = "I" + value;
+        int index = entry(key);
+        if (index != 0) return index;
+        try
+            {
+            pool.writeByte(CONSTANT_INTEGER);
+            pool.writeInt(value);
+            }
+        catch (IOException e) { throw new RuntimeException(e); }  // can't happen
+        return addEntry(key, 1);
+        }
+
+
+
+    ///// Building the class
+
+
+    // Assembles the class file and loads it, or returns null if the code is too big.
+    CompiledTree load()
+        {
+        String name = CLASS_PREFIX + classCount.incrementAndGet();
+        int thisClass = classRef(name);
+        int superClass = classRef(SUPERCLASS);
+        int superInit = methodRef(SUPERCLASS, "<init>", "()V");
+        int init = utf8("<init>");
+        int initDesc = utf8("()V");
+        int eval = utf8("eval");
+        int evalDesc = utf8("([D)D");
+        int codeAttribute = utf8("Code");
+
+        if (length > MAX_CODE_LENGTH || poolSize > MAX_POOL_SIZE || maxLocals > MAX_POOL_SIZE)
+            return null;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(poolBytes.size() + length + 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try
+            {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);                      // minor version
+            out.writeShort(49);                     // major version: Java 5
+            out.writeShort(poolSize);
+            poolBytes.writeTo(out);
+            out.writeShort(0x0001 | 0x0010 | 0x0020);  // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);                      // interfaces
+            out.writeShort(0);                      // fields
+            out.writeShort(2);                      // methods
+
+            // public <init>() { super(); }
+            out.writeShort(0x0001);
+            out.writeShort(init);
+            out.writeShort(initDesc);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + 5);
+            out.writeShort(1);                      // max stack
+            out.writeShort(1);                      // max locals
+            out.writeInt(5);
+            out.writeByte(ALOAD_0);
+            out.writeByte(INVOKESPECIAL);
+            out.writeShort(superInit);
+            out.writeByte(RETURN);
+            out.writeShort(0);                      // exception table
+            out.writeShort(0);                      // attributes
+
+            // public final double eval(double[] variables) { ... }
+            out.writeShort(0x0001 | 0x0010);
+            out.writeShort(eval);
+            out.writeShort(evalDesc);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + length);
+            out.writeShort(maxDepth);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(0);                      // exception table
+            out.writeShort(0);                      // attributes
+
+            out.writeShort(0);                      // class attributes
+            }
+        catch (IOException e) { throw new RuntimeException(e); }  // can't happen
+
+        Loader loader = new Loader(CompiledTree.class.getClassLoader());
+        try
+            {
+            return (CompiledTree)(loader.define(name.replace('/', '.'), bytes.toByteArray()).getDeclaredConstructor().newInstance());
+            }
+        catch (ReflectiveOperationException e) { throw new RuntimeException(e); }
+        }
+    }
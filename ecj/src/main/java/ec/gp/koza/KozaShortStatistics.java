@@ -134,9 +134,9 @@ public class KozaShortStatistics extends SimpleShortStatistics
         GPIndividual i = (GPIndividual)(state.population.subpops.get(subpop).individuals.get(individual));
         for(int z =0; z < i.trees.length; z++)
             {
-            totalDepthThisGenTree[subpop][z] += i.trees[z].child.depth();
+            totalDepthThisGenTree[subpop][z] += i.treeDepth(z);
+            totalSizeThisGenTree[subpop][z] += i.treeSize(z);
             totalDepthSoFarTree[subpop][z] += totalDepthThisGenTree[subpop][z];
-            totalSizeThisGenTree[subpop][z] += i.trees[z].child.numNodes(GPNode.NODESEARCH_ALL);
             totalSizeSoFarTree[subpop][z] += totalSizeThisGenTree[subpop][z];
             }
         }
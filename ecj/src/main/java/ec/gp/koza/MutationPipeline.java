@@ -136,6 +136,11 @@ public class MutationPipeline extends GPBreedingPipeline
     /** Is our tree fixed?  If not, this is -1 */
     int tree;
 
+    public int getNumTries() { return numTries; }
+    public int getMaxDepth() { return maxDepth; }
+    public boolean getEqualSize() { return equalSize; }
+    public int getTree() { return tree; }
+
     public Parameter defaultBase() { return GPKozaDefaults.base().push(P_MUTATION); }
 
     public int numSources() { return NUM_SOURCES; }
@@ -319,6 +324,7 @@ public class MutationPipeline extends GPBreedingPipeline
                 if (p2.parent instanceof GPNode)
                     ((GPNode)(p2.parent)).children[p2.argposition] = p2;
                 else ((GPTree)(p2.parent)).child = p2;
+                p2.shapeChanged();
                 i.evaluated = false;  // we've modified it
                 }
             
@@ -0,0 +1,235 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import java.util.*;
+import ec.*;
+import ec.gp.*;
+import ec.gp.koza.*;
+import ec.util.*;
+
+/**
+ * LinearCrossoverPipeline.java
+ *
+ * A CrossoverPipeline for LinearGPIndividuals.  It picks nodes, checks types, depths, and sizes, and
+ * swaps subtrees just as CrossoverPipeline does, and takes the same parameters, but does it all with the
+ * LinearTrees of the individuals' genomes: each child is its parent's genome with one range of positions
+ * spliced in from the other parent, and no GPNodes are built or copied at all.  Given the same random numbers
+ * it produces exactly the same children as CrossoverPipeline would.  Its node selectors must be
+ * LinearNodeSelectors, such as LinearKozaNodeSelector.
+ *
+ <p><b>Default Base</b><br>
+ gp.koza.xover
+*/
+
+public class LinearCrossoverPipeline extends CrossoverPipeline
+    {
+    private static final long serialVersionUID = 1;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+
+        Parameter def = defaultBase();
+        if (!(nodeselect1 instanceof LinearNodeSelector))
+            state.output.fatal("LinearCrossoverPipeline's node selectors must be LinearNodeSelectors, such as ec.gp.linear.LinearKozaNodeSelector.",
+                base.push(P_NODESELECTOR).push("0"), def.push(P_NODESELECTOR).push("0"));
+        if (!(nodeselect2 instanceof LinearNodeSelector))
+            state.output.fatal("LinearCrossoverPipeline's node selectors must be LinearNodeSelectors, such as ec.gp.linear.LinearKozaNodeSelector.",
+                base.push(P_NODESELECTOR).push("1"), def.push(P_NODESELECTOR).push("1"));
+        }
+
+    /** Returns true if the subtree at position q in tree2 can feasibly be swapped into position p in tree1. */
+    public boolean verifyPoints(final GPInitializer initializer,
+        final LinearTree tree1, final int p, final LinearTree tree2, final int q)
+        {
+        // first check to see if q is swap-compatible with p on a type basis
+        if (!tree1.swapCompatible(initializer, p, tree2, q)) return false;
+
+        // next check to see if q can fit in p's spot
+        if (tree2.depth(q) + tree1.atDepth(p) > maxDepth) return false;
+
+        // check for size, only if the tree grows, as CrossoverPipeline does
+        if (maxSize != NO_SIZE_LIMIT && tree2.subtreeSize(q) > tree1.subtreeSize(p) &&
+            tree1.size() - tree1.subtreeSize(p) + tree2.subtreeSize(q) > maxSize)
+            return false;
+
+        // checks done!
+        return true;
+        }
+
+    public int produce(final int min,
+        final int max,
+        final int subpopulation,
+        final ArrayList<Individual> inds,
+        final EvolutionState state,
+        final int thread, HashMap<String, Object> misc)
+        {
+        int start = inds.size();
+
+        // how many individuals should we make?
+        int n = typicalIndsProduced();
+        if (n < min) n = min;
+        if (n > max) n = max;
+
+        // should we bother?
+        if (!state.random[thread].nextBoolean(likelihood))
+            {
+            // just load from source 0 and clone 'em
+            sources[0].produce(n,n,subpopulation,inds, state,thread,misc);
+            return n;
+            }
+
+        IntBag[] parentparents = null;
+        IntBag[] preserveParents = null;
+        if (misc!=null&&misc.get(KEY_PARENTS) != null)
+            {
+            preserveParents = (IntBag[])misc.get(KEY_PARENTS);
+            parentparents = new IntBag[2];
+            misc.put(KEY_PARENTS, parentparents);
+            }
+
+        GPInitializer initializer = ((GPInitializer)state.initializer);
+        LinearNodeSelector select1 = (LinearNodeSelector)nodeselect1;
+        LinearNodeSelector select2 = (LinearNodeSelector)nodeselect2;
+
+        for(int q=start;q<n+start; /* no increment */)  // keep on going until we're filled up
+            {
+            parents.clear();
+
+            // grab two individuals from our sources
+            if (sources[0]==sources[1])  // grab from the same source
+                sources[0].produce(2,2,subpopulation, parents, state,thread, misc);
+            else // grab from different sources
+                {
+                sources[0].produce(1,1,subpopulation, parents, state,thread, misc);
+                sources[1].produce(1,1,subpopulation, parents, state,thread, misc);
+                }
+
+            if (!(parents.get(0) instanceof LinearGPIndividual) || !(parents.get(1) instanceof LinearGPIndividual))
+                state.output.fatal("LinearCrossoverPipeline only works with LinearGPIndividuals.");
+            LinearGPIndividual parent1 = (LinearGPIndividual)(parents.get(0));
+            LinearGPIndividual parent2 = (LinearGPIndividual)(parents.get(1));
+
+            // are our tree values valid?
+            if (tree1!=TREE_UNFIXED && (tree1<0 || tree1 >= parent1.trees.length))
+                // uh oh
+                state.output.fatal("GP Crossover Pipeline attempted to fix tree.0 to a value which was out of bounds of the array of the individual's trees.  Check the pipeline's fixed tree values -- they may be negative or greater than the number of trees in an individual");
+            if (tree2!=TREE_UNFIXED && (tree2<0 || tree2 >= parent2.trees.length))
+                // uh oh
+                state.output.fatal("GP Crossover Pipeline attempted to fix tree.1 to a value which was out of bounds of the array of the individual's trees.  Check the pipeline's fixed tree values -- they may be negative or greater than the number of trees in an individual");
+
+            int t1=0; int t2=0;
+            if (tree1==TREE_UNFIXED || tree2==TREE_UNFIXED)
+                {
+                do
+                    // pick random trees  -- their GPTreeConstraints must be the same
+                    {
+                    if (tree1==TREE_UNFIXED)
+                        if (parent1.trees.length > 1)
+                            t1 = state.random[thread].nextInt(parent1.trees.length);
+                        else t1 = 0;
+                    else t1 = tree1;
+
+                    if (tree2==TREE_UNFIXED)
+                        if (parent2.trees.length>1)
+                            t2 = state.random[thread].nextInt(parent2.trees.length);
+                        else t2 = 0;
+                    else t2 = tree2;
+                    } while (parent1.trees[t1].constraints(initializer) != parent2.trees[t2].constraints(initializer));
+                }
+            else
+                {
+                t1 = tree1;
+                t2 = tree2;
+                // make sure the constraints are okay
+                if (parent1.trees[t1].constraints(initializer) != parent2.trees[t2].constraints(initializer)) // uh oh
+                    state.output.fatal("GP Crossover Pipeline's two tree choices are both specified by the user -- but their GPTreeConstraints are not the same");
+                }
+
+            LinearTree[] genome1 = parent1.getGenome();
+            LinearTree[] genome2 = parent2.getGenome();
+
+            // validity results...
+            boolean res1 = false;
+            boolean res2 = false;
+
+            // prepare the nodeselectors
+            nodeselect1.reset();
+            nodeselect2.reset();
+
+            // pick some nodes
+
+            int p1 = 0;
+            int p2 = 0;
+
+            for(int x=0;x<numTries;x++)
+                {
+                // pick a node in individual 1
+                p1 = select1.pickPosition(state,subpopulation,thread,parent1,genome1[t1]);
+
+                // pick a node in individual 2
+                p2 = select2.pickPosition(state,subpopulation,thread,parent2,genome2[t2]);
+
+                // check for depth and swap-compatibility limits
+                res1 = verifyPoints(initializer,genome1[t1],p1,genome2[t2],p2);  // p2 can fill p1's spot
+                if (n-(q-start)<2 || tossSecondParent) res2 = true;
+                else res2 = verifyPoints(initializer,genome2[t2],p2,genome1[t1],p1);  // p1 can fill p2's spot
+
+                // did we get something that had both nodes verified?
+                // we reject if EITHER of them is invalid, as CrossoverPipeline does.
+                if (res1 && res2) break;
+                }
+
+            // Create the children.  Cloning a LinearGPIndividual just shares its genome, so we only
+            // need to build a new genome array for a child whose tree has changed.
+
+            LinearGPIndividual j1 = (LinearGPIndividual)(parent1.clone());
+            if (res1)
+                {
+                LinearTree[] g = genome1.clone();
+                g[t1] = genome1[t1].replace(p1, genome2[t2], p2);
+                j1.setGenome(g);
+                j1.evaluated = false;
+                }
+
+            LinearGPIndividual j2 = null;
+            if (n-(q-start)>=2 && !tossSecondParent)
+                {
+                j2 = (LinearGPIndividual)(parent2.clone());
+                if (res2)
+                    {
+                    LinearTree[] g = genome2.clone();
+                    g[t2] = genome2[t2].replace(p2, genome1[t1], p1);
+                    j2.setGenome(g);
+                    j2.evaluated = false;
+                    }
+                }
+
+            // add the individuals to the population
+            inds.add(j1);
+            if (preserveParents != null)
+                {
+                parentparents[0].addAll(parentparents[1]);
+                preserveParents[q] = parentparents[0];
+                }
+            q++;
+            if (q<n+start && !tossSecondParent)
+                {
+                inds.add(j2);
+                if (preserveParents != null)
+                    {
+                    parentparents[0].addAll(parentparents[1]);
+                    preserveParents[q] = parentparents[0];
+                    }
+                q++;
+                }
+            }
+        return n;
+        }
+    }
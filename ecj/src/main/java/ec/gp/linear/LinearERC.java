@@ -0,0 +1,27 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+/**
+ * LinearERC.java
+ *
+ * An ERC whose entire value is a single double.  LinearTree stores the values of such ERCs in its
+ * primitive constant pool rather than keeping the ERC objects themselves.  When a LinearTree is
+ * turned back into GPNodes, each such ERC is light-cloned from its prototype and given its value
+ * with setConstant(...), so the value must be all that distinguishes one instance from another.
+ * ERCs which don't implement LinearERC are kept as objects instead.
+ */
+
+public interface LinearERC
+    {
+    /** Returns the ERC's value. */
+    public double getConstant();
+
+    /** Sets the ERC's value. */
+    public void setConstant(double value);
+    }
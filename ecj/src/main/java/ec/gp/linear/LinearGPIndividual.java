@@ -0,0 +1,247 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import java.io.*;
+import java.util.*;
+import ec.*;
+import ec.gp.*;
+import ec.util.*;
+
+/**
+ * LinearGPIndividual.java
+ *
+ * A GPIndividual which keeps its trees as LinearTrees (its <i>genome</i>) rather than as trees of GPNodes,
+ * and builds the GPNodes only when something needs them.  A population of large trees then takes
+ * up several times less memory, most of it in a few big arrays rather than a great many small objects,
+ * and cloning an individual costs next to nothing since LinearTrees are shared rather than copied.
+ * SharedGPIndividual goes further, and shares identical subtrees among all the individuals of a population.
+ *
+ * <p>A LinearGPIndividual is in one of two forms.  If <tt>genome</tt> is non-null it is the individual, and
+ * <tt>trees[...]</tt> have null roots.  If <tt>genome</tt> is null, the GPTrees are the individual, as they
+ * are just after the individual has been built by the initializer or read in; getGenome() encodes them,
+ * and compact() then discards them.  clone() always returns an individual in the first form.
+ *
+ * <p>Use LinearGPIndividual with a LinearProblem, which hands your Problem a materialized copy of each
+ * individual just while it's being evaluated or described, and with breeding pipelines which work on
+ * the genome: LinearCrossoverPipeline, LinearMutationPipeline, or those from ec.breed which don't look
+ * inside individuals, such as ReproductionPipeline.  The GP pipelines in ec.gp.koza and ec.gp.breed modify GPNodes directly, and
+ * won't work with it.  Printing, writing, reading, and size() all work as usual.  Every node in a tree,
+ * other than ERCs, must be fully determined by the prototype it was cloned from: see NodeTable.
+ */
+
+public class LinearGPIndividual extends GPIndividual
+    {
+    private static final long serialVersionUID = 1;
+
+    /** The NodeTable for each tree, shared with the prototype. */
+    public NodeTable[] tables;
+
+    /** The individual's trees as LinearTrees, or null if trees[...] are the only form of the individual.  This array
+        is shared among clones, and so must never be modified: replace it with setGenome(...) instead. */
+    public LinearTree[] genome;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+
+        GPInitializer initializer = ((GPInitializer)state.initializer);
+        HashMap<GPTreeConstraints, NodeTable> shared = new HashMap<GPTreeConstraints, NodeTable>();
+        tables = new NodeTable[trees.length];
+        for(int x = 0; x < trees.length; x++)
+            {
+            GPTreeConstraints tc = trees[x].constraints(initializer);
+            tables[x] = shared.get(tc);
+            if (tables[x] == null)
+                {
+                tables[x] = new NodeTable(tc, initializer);
+                shared.put(tc, tables[x]);
+                }
+            }
+        }
+
+    /** Returns the genome, encoding it from the trees first if need be. */
+    public LinearTree[] getGenome()
+        {
+        if (genome == null)
+            {
+            LinearTree[] g = new LinearTree[trees.length];
+            for(int x = 0; x < trees.length; x++)
+                g[x] = LinearTree.encode(trees[x].child, tables[x]);
+            genome = g;
+            }
+        return genome;
+        }
+
+    /** Replaces the genome, discarding any materialized trees. */
+    public void setGenome(LinearTree[] genome)
+        {
+        this.genome = genome;
+        for(int x = 0; x < trees.length; x++)
+            trees[x].child = null;
+        }
+
+    /** Returns true if trees[...] hold GPNodes. */
+    public boolean isMaterialized()
+        {
+        for(int x = 0; x < trees.length; x++)
+            if (trees[x].child == null) return false;
+        return true;
+        }
+
+    /** Returns an individual with materialized trees, for the Problem to evaluate or describe: this individual if its
+        trees are already materialized, else a light copy of it which shares its fitness (and genome) and whose
+        trees are built from the genome.  Since the copy is new, this is safe even if several threads are
+        evaluating the individual at once.  The trees must be treated as read-only. */
+    public GPIndividual materialized()
+        {
+        if (isMaterialized()) return this;
+        LinearGPIndividual copy = (LinearGPIndividual)(lightClone());
+        copy.fitness = fitness;
+        for(int x = 0; x < trees.length; x++)
+            copy.trees[x].child = copy.root(x, copy.trees[x]);
+        return copy;
+        }
+
+    /** Discards the GPNodes of trees[...], encoding them into the genome first if need be. */
+    public void compact()
+        {
+        getGenome();
+        for(int x = 0; x < trees.length; x++)
+            trees[x].child = null;
+        }
+
+    /** Builds the GPNodes of tree x from the genome, and returns the root.  Everything is set except for the root's
+        parent and argposition. */
+    protected GPNode decodeTree(int x)
+        {
+        return genome[x].decode();
+        }
+
+    GPNode root(int x, GPTree parent)
+        {
+        GPNode root = decodeTree(x);
+        root.parent = parent;
+        root.argposition = 0;
+        return root;
+        }
+
+    // Returns the trees if they're materialized, else equivalent trees built from the genome, which
+    // the individual doesn't keep.
+    GPTree[] view()
+        {
+        if (isMaterialized()) return trees;
+        GPTree[] view = new GPTree[trees.length];
+        for(int x = 0; x < trees.length; x++)
+            {
+            view[x] = trees[x].lightClone();
+            view[x].child = root(x, view[x]);
+            }
+        return view;
+        }
+
+    /** Returns the number of nodes in tree x, from the genome if there is one, without materializing the tree. */
+    public int treeSize(int x)
+        {
+        LinearTree[] g = genome;
+        return (g == null ? super.treeSize(x) : g[x].size());
+        }
+
+    /** Returns the depth of tree x, from the genome if there is one, without materializing the tree. */
+    public int treeDepth(int x)
+        {
+        LinearTree[] g = genome;
+        return (g == null ? super.treeDepth(x) : g[x].depth());
+        }
+
+    /** Two LinearGPIndividuals are equal if their genomes are equal.  This is a little stricter than GPIndividual's
+        notion of equality, which only compares nodes with nodeEquivalentTo(...), and so (for example) considers
+        ARG0 and ARG1 to be equal.  Thus with duplicate-retries and ADFs, a run may produce a slightly different
+        initial population than the same run with GPIndividuals. */
+    public boolean equals(Object ind)
+        {
+        if (ind == null) return false;
+        if (!(this.getClass().equals(ind.getClass()))) return false;
+        return Arrays.equals(getGenome(), ((LinearGPIndividual)ind).getGenome());
+        }
+
+    public int hashCode()
+        {
+        // as in GPIndividual
+        LinearTree[] g = getGenome();
+        int hash = this.getClass().hashCode();
+        for(int x = 0; x < g.length; x++)
+            hash = (hash << 1 | hash >>> 31) ^ g[x].hashCode();
+        return hash;
+        }
+
+    public void printTrees(final EvolutionState state, final int log)
+        {
+        GPTree[] view = view();
+        for(int x = 0; x < view.length; x++)
+            {
+            state.output.println("Tree " + x + ":", log);
+            view[x].printTreeForHumans(state, log);
+            }
+        }
+
+    public void printIndividual(final EvolutionState state, final int log)
+        {
+        state.output.println(EVALUATED_PREAMBLE + Code.encode(evaluated), log);
+        fitness.printFitness(state, log);
+        GPTree[] view = view();
+        for(int x = 0; x < view.length; x++)
+            {
+            state.output.println("Tree " + x + ":", log);
+            view[x].printTree(state, log);
+            }
+        }
+
+    public void printIndividual(final EvolutionState state, final PrintWriter writer)
+        {
+        writer.println(EVALUATED_PREAMBLE + Code.encode(evaluated));
+        fitness.printFitness(state, writer);
+        GPTree[] view = view();
+        for(int x = 0; x < view.length; x++)
+            {
+            writer.println("Tree " + x + ":");
+            view[x].printTree(state, writer);
+            }
+        }
+
+    public void writeGenotype(final EvolutionState state, final DataOutput dataOutput) throws IOException
+        {
+        GPTree[] view = view();
+        dataOutput.writeInt(view.length);
+        for(int x = 0; x < view.length; x++)
+            view[x].writeTree(state, dataOutput);
+        }
+
+    public void readGenotype(final EvolutionState state, final DataInput dataInput) throws IOException
+        {
+        super.readGenotype(state, dataInput);
+        genome = null;
+        }
+
+    public void parseGenotype(final EvolutionState state, final LineNumberReader reader) throws IOException
+        {
+        super.parseGenotype(state, reader);
+        genome = null;
+        }
+
+    /** Returns a copy of the individual which shares its genome, and whose trees are not materialized.  The genome is
+        encoded first if need be. */
+    public Object clone()
+        {
+        getGenome();
+        LinearGPIndividual myobj = (LinearGPIndividual)(lightClone());
+        for(int x = 0; x < myobj.trees.length; x++)
+            myobj.trees[x].child = null;
+        return myobj;
+        }
+    }
@@ -0,0 +1,60 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import ec.*;
+import ec.gp.*;
+import ec.gp.koza.*;
+
+/**
+ * LinearKozaNodeSelector.java
+ *
+ * A KozaNodeSelector which can also pick nodes from LinearTrees.  It takes the same parameters, and given the
+ * same random numbers, pickPosition(...) picks the position in a LinearTree of the very node which pickNode(...)
+ * would pick from the equivalent tree of GPNodes.  Counting terminals and nonterminals and finding the
+ * n'th of them are simple loops over the LinearTree's array.
+ */
+
+public class LinearKozaNodeSelector extends KozaNodeSelector implements LinearNodeSelector
+    {
+    public int pickPosition(final EvolutionState s,
+        final int subpopulation,
+        final int thread,
+        final LinearGPIndividual ind,
+        final LinearTree tree)
+        {
+        double rnd = s.random[thread].nextDouble();
+
+        if (rnd > nonterminalProbability + terminalProbability + rootProbability)  // pick anyone
+            {
+            if (nodes==-1) nodes = tree.size();
+            return s.random[thread].nextInt(nodes);
+            }
+        else if (rnd > nonterminalProbability + terminalProbability)  // pick the root
+            {
+            return 0;
+            }
+        else if (rnd > nonterminalProbability)  // pick terminals
+            {
+            if (terminals==-1) terminals = tree.numNodes(GPNode.NODESEARCH_TERMINALS);
+            return tree.position(s.random[thread].nextInt(terminals), GPNode.NODESEARCH_TERMINALS);
+            }
+        else  // pick nonterminals if you can
+            {
+            if (nonterminals==-1) nonterminals = tree.numNodes(GPNode.NODESEARCH_NONTERMINALS);
+            if (nonterminals > 0) // there are some nonterminals
+                {
+                return tree.position(s.random[thread].nextInt(nonterminals), GPNode.NODESEARCH_NONTERMINALS);
+                }
+            else // there ARE no nonterminals!  It must be the root node
+                {
+                return 0;
+                }
+            }
+        }
+    }
@@ -0,0 +1,153 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import java.util.*;
+import ec.*;
+import ec.gp.*;
+import ec.gp.koza.*;
+import ec.util.*;
+
+/**
+ * LinearMutationPipeline.java
+ *
+ * A MutationPipeline for LinearGPIndividuals.  It picks a node in the individual's genome, has its builder grow
+ * a new subtree to fit that node's slot, and splices the new subtree into the genome in place of the old one,
+ * checking depths and sizes just as MutationPipeline does.  It takes the same parameters, and given the same
+ * random numbers it produces exactly the same children.  Only the new subtree is ever built out of GPNodes.
+ * Its node selector must be a LinearNodeSelector, such as LinearKozaNodeSelector.
+ *
+ <p><b>Default Base</b><br>
+ gp.koza.mutate
+*/
+
+public class LinearMutationPipeline extends MutationPipeline
+    {
+    private static final long serialVersionUID = 1;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+
+        if (!(nodeselect instanceof LinearNodeSelector))
+            state.output.fatal("LinearMutationPipeline's node selector must be a LinearNodeSelector, such as ec.gp.linear.LinearKozaNodeSelector.",
+                base.push(P_NODESELECTOR).push("0"), defaultBase().push(P_NODESELECTOR).push("0"));
+        }
+
+    /** Returns true if the subtree can feasibly replace the subtree at position p in tree. */
+    public boolean verifyPoints(LinearTree subtree, LinearTree tree, int p)
+        {
+        // We know they're swap-compatible since we generated the subtree
+        // to be exactly that.  So don't bother.
+
+        // next check to see if the subtree can fit in p's spot
+        if (subtree.depth() + tree.atDepth(p) > getMaxDepth()) return false;
+
+        // check for size, only if the tree grows, as MutationPipeline does
+        if (maxSize != NO_SIZE_LIMIT && subtree.size() > tree.subtreeSize(p) &&
+            tree.size() - tree.subtreeSize(p) + subtree.size() > maxSize)
+            return false;
+
+        // checks done!
+        return true;
+        }
+
+    public int produce(final int min,
+        final int max,
+        final int subpopulation,
+        final ArrayList<Individual> inds,
+        final EvolutionState state,
+        final int thread, HashMap<String, Object> misc)
+        {
+        int start = inds.size();
+
+        // grab individuals from our source and stick 'em right into inds.
+        // we'll modify them from there
+        int n = sources[0].produce(min,max,subpopulation,inds, state,thread, misc);
+
+        // should we bother?
+        if (!state.random[thread].nextBoolean(likelihood))
+            {
+            return n;
+            }
+
+        GPInitializer initializer = ((GPInitializer)state.initializer);
+        int fixedTree = getTree();
+        LinearNodeSelector select = (LinearNodeSelector)nodeselect;
+
+        // now let's mutate 'em
+        for(int q=start; q < n+start; q++)
+            {
+            if (!(inds.get(q) instanceof LinearGPIndividual))
+                state.output.fatal("LinearMutationPipeline only works with LinearGPIndividuals.");
+            LinearGPIndividual i = (LinearGPIndividual)inds.get(q);
+
+            if (fixedTree!=TREE_UNFIXED && (fixedTree<0 || fixedTree >= i.trees.length))
+                // uh oh
+                state.output.fatal("GP Mutation Pipeline attempted to fix tree.0 to a value which was out of bounds of the array of the individual's trees.  Check the pipeline's fixed tree values -- they may be negative or greater than the number of trees in an individual");
+
+            int t;
+            // pick random tree
+            if (fixedTree==TREE_UNFIXED)
+                if (i.trees.length>1) t = state.random[thread].nextInt(i.trees.length);
+                else t = 0;
+            else t = fixedTree;
+
+            LinearTree[] genome = i.getGenome();
+
+            // validity result...
+            boolean res = false;
+
+            // prepare the nodeselector
+            nodeselect.reset();
+
+            // pick a node
+
+            int p1 = 0;                 // the position we pick
+            LinearTree p2 = null;       // the subtree we build to go there
+
+            for(int x=0;x<getNumTries();x++)
+                {
+                // pick a node in individual 1
+                p1 = select.pickPosition(state,subpopulation,thread,i,genome[t]);
+
+                // generate a tree swap-compatible with p1's position
+
+                int size = GPNodeBuilder.NOSIZEGIVEN;
+                if (getEqualSize()) size = genome[t].subtreeSize(p1);
+
+                GPNode root = builder.newRootedTree(state,
+                    genome[t].slotType(p1),
+                    thread,
+                    i.trees[t],
+                    i.trees[t].constraints(initializer).functionset,
+                    genome[t].argposition(p1),
+                    size);
+                p2 = LinearTree.encode(root, genome[t].table);
+
+                // check for depth and size limits
+                res = verifyPoints(p2,genome[t],p1);
+
+                // did we get something that had both nodes verified?
+                if (res) break;
+                }
+
+            if (res)  // we're in business
+                {
+                LinearTree[] g = genome.clone();
+                g[t] = genome[t].replace(p1, p2, 0);
+                i.setGenome(g);
+                i.evaluated = false;  // we've modified it
+                }
+
+            // add the new individual, replacing its previous source
+            inds.set(q, i);
+            }
+        return n;
+        }
+    }
@@ -0,0 +1,30 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import ec.*;
+import ec.gp.*;
+
+/**
+ * LinearNodeSelector.java
+ *
+ * A GPNodeSelector which can also pick nodes from LinearTrees, for the breeding pipelines of LinearGPIndividuals.
+ * Just as with pickNode(...), pickPosition(...) is preceded by a call to reset(), and may then be called several
+ * times for the same tree.
+ */
+
+public interface LinearNodeSelector extends GPNodeSelector
+    {
+    /** Picks a node at random from tree, and returns its position.  The tree is located in ind, which is
+        located in s.population[subpopulation]. */
+    public int pickPosition(final EvolutionState s,
+        final int subpopulation,
+        final int thread,
+        final LinearGPIndividual ind,
+        final LinearTree tree);
+    }
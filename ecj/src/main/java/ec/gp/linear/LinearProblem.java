@@ -0,0 +1,170 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import ec.*;
+import ec.gp.*;
+import ec.simple.*;
+import ec.coevolve.*;
+import ec.util.*;
+
+/**
+ * LinearProblem.java
+ *
+ * A Problem which hands LinearGPIndividuals to a GPProblem as ordinary trees of GPNodes.  As with GEProblem, you
+ * don't subclass LinearProblem: you hang your GPProblem, and all its parameters, from LinearProblem's
+ * <tt>problem</tt> parameter.  So instead of...
+ *
+ * <p><tt>eval.problem = ec.app.regression.Regression<br>
+ * eval.problem.data = ec.app.regression.RegressionData<br>
+ * eval.problem.size = 20
+ * </tt>
+ *
+ * <p>... you'd say:
+ *
+ * <p><tt>eval.problem = ec.gp.linear.LinearProblem<br>
+ * eval.problem.problem = ec.app.regression.Regression<br>
+ * eval.problem.problem.data = ec.app.regression.RegressionData<br>
+ * eval.problem.problem.size = 20
+ * </tt>
+ *
+ * <p>Each LinearGPIndividual to be evaluated or described is materialized into a short-lived copy which
+ * shares its fitness, and the copy is passed to the GPProblem: thus the GPNodes of only a few individuals
+ * exist at any time.  An individual whose trees are its only form, as in the initial population, is
+ * evaluated as it is, and then compacted.  Other individuals are passed to the GPProblem unchanged.
+ * LinearProblem works with MasterProblem too: the master sends individuals to the slaves as trees of
+ * GPNodes, built on the fly, and the slaves' LinearProblems evaluate them.
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base</i>.<tt>problem</tt><br>
+ <font size=-1>classname, inherits from GPProblem</font></td>
+ <td valign=top>(The GPProblem which actually evaluates the materialized GPIndividuals)</td></tr>
+ </table>
+*/
+
+public class LinearProblem extends Problem implements SimpleProblemForm, GroupedProblemForm
+    {
+    private static final long serialVersionUID = 1;
+
+    public final static String P_PROBLEM = "problem";
+    public GPProblem problem;
+
+    public void setup(EvolutionState state, Parameter base)
+        {
+        problem = (GPProblem)state.parameters.getInstanceForParameter(base.push(P_PROBLEM), null, GPProblem.class);
+        problem.setup(state, base.push(P_PROBLEM));
+        }
+
+    public Object clone()
+        {
+        LinearProblem other = (LinearProblem)(super.clone());
+        other.problem = (GPProblem)(problem.clone());
+        return other;
+        }
+
+    public void prepareToEvaluate(final EvolutionState state, final int threadnum)
+        {
+        problem.prepareToEvaluate(state, threadnum);
+        }
+
+    public void finishEvaluating(final EvolutionState state, final int threadnum)
+        {
+        problem.finishEvaluating(state, threadnum);
+        }
+
+    public void initializeContacts(EvolutionState state)
+        {
+        problem.initializeContacts(state);
+        }
+
+    public void reinitializeContacts(EvolutionState state)
+        {
+        problem.reinitializeContacts(state);
+        }
+
+    public void closeContacts(EvolutionState state, int result)
+        {
+        problem.closeContacts(state, result);
+        }
+
+    public boolean canEvaluate()
+        {
+        return problem.canEvaluate();
+        }
+
+    public void preprocessPopulation(final EvolutionState state, Population pop, final boolean[] prepareForFitnessAssessment, boolean countVictoriesOnly)
+        {
+        if (!(problem instanceof GroupedProblemForm))
+            state.output.fatal("LinearProblem's underlying Problem is not a GroupedProblemForm");
+        ((GroupedProblemForm)problem).preprocessPopulation(state, pop, prepareForFitnessAssessment, countVictoriesOnly);
+        }
+
+    public int postprocessPopulation(final EvolutionState state, Population pop, boolean[] assessFitness, final boolean countVictoriesOnly)
+        {
+        return ((GroupedProblemForm)problem).postprocessPopulation(state, pop, assessFitness, countVictoriesOnly);
+        }
+
+    // returns a materialized version of ind, if it's a LinearGPIndividual, else ind itself
+    static Individual materialized(Individual ind)
+        {
+        return (ind instanceof LinearGPIndividual ? ((LinearGPIndividual)ind).materialized() : ind);
+        }
+
+    // copies the results of evaluation back from the materialized version of ind
+    static void copyBack(Individual ind, Individual gpi)
+        {
+        // the Problem may have replaced the Fitness rather than just modifying it
+        ind.fitness = gpi.fitness;
+        ind.evaluated = gpi.evaluated;
+        }
+
+    public void evaluate(final EvolutionState state,
+        final Individual[] ind,  // the individuals to evaluate together
+        final boolean[] updateFitness,  // should this individuals' fitness be updated?
+        final boolean countVictoriesOnly, // don't bother updating Fitness with socres, just victories
+        final int[] subpops,
+        final int threadnum)
+        {
+        if (!(problem instanceof GroupedProblemForm))
+            state.output.fatal("LinearProblem's underlying Problem is not a GroupedProblemForm");
+
+        // An individual may appear in several groups at once, so we never compact it here
+        Individual[] gpi = new Individual[ind.length];
+        for(int i = 0; i < gpi.length; i++)
+            gpi[i] = materialized(ind[i]);
+
+        ((GroupedProblemForm)problem).evaluate(state, gpi, updateFitness, countVictoriesOnly, subpops, threadnum);
+
+        for(int i = 0; i < gpi.length; i++)
+            copyBack(ind[i], gpi[i]);
+        }
+
+    public void evaluate(final EvolutionState state,
+        final Individual ind,
+        final int subpopulation,
+        final int threadnum)
+        {
+        Individual gpi = materialized(ind);
+        ((SimpleProblemForm)problem).evaluate(state, gpi, subpopulation, threadnum);
+        copyBack(ind, gpi);
+        if (gpi == ind && ind instanceof LinearGPIndividual)  // its trees were its only form
+            ((LinearGPIndividual)ind).compact();
+        }
+
+    public void describe(final EvolutionState state,
+        final Individual ind,
+        final int subpopulation,
+        final int threadnum,
+        final int log)
+        {
+        Individual gpi = materialized(ind);
+        problem.describe(state, gpi, subpopulation, threadnum, log);
+        copyBack(ind, gpi);
+        }
+    }
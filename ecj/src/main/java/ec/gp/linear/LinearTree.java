@@ -0,0 +1,374 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import java.util.*;
+import ec.gp.*;
+
+/**
+ * LinearTree.java
+ *
+ * A compact, immutable form of a tree of GPNodes.  The tree is laid out in prefix order (the order of
+ * GPNode.nodeInPosition(...)) as an array of node ids from a NodeTable, and the values of its LinearERCs are
+ * held in a parallel array of doubles.  Any other ERCs are kept as objects in a third parallel array.  A
+ * subtree is thus a contiguous range of positions, which runs from its root to end(root), and crossover or
+ * mutation is just a matter of splicing arrays together with replace(...).  A LinearTree takes up a few
+ * bytes per node rather than a GPNode object and a children array per node, and copying one costs
+ * nothing at all: since LinearTrees are never modified, they are simply shared.
+ *
+ * <p>The extent and depth of every subtree are computed together, in a single scan, the first time
+ * they're needed, and cached.  decode() builds the equivalent tree of GPNodes for evaluation, printing,
+ * and so on.
+ */
+
+public class LinearTree implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    /** The table which the node ids refer to. */
+    public final NodeTable table;
+    /** The id of the node at each position, in prefix order.  Don't modify this array. */
+    public final int[] code;
+    /** The value of the LinearERC at each position, or null if the tree has no LinearERCs.  Don't modify this array. */
+    public final double[] constants;
+    /** The (parentless) ERC at each position which isn't a LinearERC, or null if the tree has no such ERCs.  Don't modify this array. */
+    public final GPNode[] ercs;
+
+    // for each position p, extents[p] is the position just past the end of the subtree rooted at p, and
+    // extents[size() + p] is the depth at which p appears in the tree, the root being at 0.  Computed
+    // lazily: since LinearTrees are shared among breeding threads, it's volatile so it's safely published.
+    transient volatile int[] extents;
+
+    // Set only for a LinearTree flattened from a SharedTree (source), or made by replace(...) from one (splice),
+    // so that a SubtreeTable can intern it without scanning it all: see SubtreeTable.intern(LinearTree).
+    transient SharedTree source;
+    transient Splice splice;
+
+    // The subtree at q in donor, spliced into base at position p.
+    static final class Splice
+        {
+        final SharedTree base;
+        final int p;
+        final LinearTree donor;
+        final int q;
+
+        Splice(SharedTree base, int p, LinearTree donor, int q)
+            {
+            this.base = base;
+            this.p = p;
+            this.donor = donor;
+            this.q = q;
+            }
+        }
+
+    public LinearTree(NodeTable table, int[] code, double[] constants, GPNode[] ercs)
+        {
+        this.table = table;
+        this.code = code;
+        this.constants = constants;
+        this.ercs = ercs;
+        }
+
+    /** Builds the LinearTree equivalent to the tree rooted at the given node.  Throws an IllegalArgumentException if
+        some node in the tree is not in the table. */
+    public static LinearTree encode(GPNode root, NodeTable table)
+        {
+        int n = root.numNodes(GPNode.NODESEARCH_ALL);
+        Encoder e = new Encoder(table, n);
+        e.encode(root);
+        return new LinearTree(table, e.code, e.constants, e.ercs);
+        }
+
+    static class Encoder
+        {
+        final NodeTable table;
+        final int[] code;
+        double[] constants;
+        GPNode[] ercs;
+        int pos;
+
+        Encoder(NodeTable table, int n)
+            {
+            this.table = table;
+            code = new int[n];
+            }
+
+        void encode(GPNode node)
+            {
+            int id = table.id(node);
+            if (id < 0)
+                throw new IllegalArgumentException("GPNode " + node.toStringForError() + " is not in the function set of this LinearTree.");
+            int p = pos++;
+            code[p] = id;
+            if (table.kind[id] == NodeTable.KIND_LINEAR_ERC)
+                {
+                if (constants == null) constants = new double[code.length];
+                constants[p] = ((LinearERC)node).getConstant();
+                }
+            else if (table.kind[id] == NodeTable.KIND_ERC)
+                {
+                if (ercs == null) ercs = new GPNode[code.length];
+                GPNode erc = node.lightClone();
+                erc.parent = null;
+                erc.argposition = 0;
+                ercs[p] = erc;
+                }
+            for(int x = 0; x < node.children.length; x++)
+                encode(node.children[x]);
+            }
+        }
+
+    /** Builds the tree of GPNodes equivalent to this LinearTree, and returns its root.  Everything is set except for
+        the root's parent and argposition. */
+    public GPNode decode()
+        {
+        int[] pos = new int[1];
+        return decode(pos);
+        }
+
+    GPNode decode(int[] pos)
+        {
+        int p = pos[0]++;
+        int id = code[p];
+        GPNode node;
+        byte kind = table.kind[id];
+        if (kind == NodeTable.KIND_ERC)
+            node = ercs[p].lightClone();
+        else
+            {
+            node = table.nodes[id].lightClone();
+            if (kind == NodeTable.KIND_LINEAR_ERC)
+                ((LinearERC)node).setConstant(constants[p]);
+            }
+        for(int x = 0; x < node.children.length; x++)
+            {
+            GPNode child = decode(pos);
+            child.parent = node;
+            child.argposition = (byte)x;
+            node.children[x] = child;
+            }
+        return node;
+        }
+
+    /** Returns the number of nodes in the tree. */
+    public int size() { return code.length; }
+
+    /** Returns the number of children of the node at position p. */
+    public int arity(int p) { return table.arity[code[p]]; }
+
+    /** Returns the number of nodes, constrained by nodesearch (GPNode.NODESEARCH_ALL, NODESEARCH_TERMINALS, or
+        NODESEARCH_NONTERMINALS), in the tree.  O(n) but allocates nothing. */
+    public int numNodes(int nodesearch)
+        {
+        if (nodesearch == GPNode.NODESEARCH_ALL) return code.length;
+        int terminals = 0;
+        int[] arity = table.arity;
+        for(int p = 0; p < code.length; p++)
+            if (arity[code[p]] == 0) terminals++;
+        return (nodesearch == GPNode.NODESEARCH_TERMINALS ? terminals : code.length - terminals);
+        }
+
+    /** Returns the position of the k'th node, constrained by nodesearch, in prefix order: thus the position
+        of the node which GPNode.nodeInPosition(k, nodesearch) would return from the root. */
+    public int position(int k, int nodesearch)
+        {
+        if (nodesearch == GPNode.NODESEARCH_ALL) return k;
+        boolean terminals = (nodesearch == GPNode.NODESEARCH_TERMINALS);
+        int[] arity = table.arity;
+        for(int p = 0; p < code.length; p++)
+            if ((arity[code[p]] == 0) == terminals && k-- == 0)
+                return p;
+        throw new IndexOutOfBoundsException("There are too few nodes of that kind in the tree");
+        }
+
+    // computes the extents in a single prefix-order scan
+    int[] extents()
+        {
+        int[] x = extents;
+        if (x != null) return x;
+
+        int n = code.length;
+        x = new int[n * 2];
+        int[] open = new int[n];        // the nonterminals whose subtrees we're in
+        int[] remaining = new int[n];   // ... and how many of their children are still to come
+        int depth = 0;
+        int[] arity = table.arity;
+        for(int p = 0; p < n; p++)
+            {
+            x[n + p] = depth;
+            int a = arity[code[p]];
+            if (a > 0)
+                {
+                open[depth] = p;
+                remaining[depth] = a;
+                depth++;
+                }
+            else
+                {
+                x[p] = p + 1;
+                while(depth > 0 && --remaining[depth - 1] == 0)  // close every subtree this terminal finishes
+                    x[open[--depth]] = p + 1;
+                }
+            }
+        extents = x;
+        return x;
+        }
+
+    /** Returns the position just past the end of the subtree rooted at position p.  Thus the subtree occupies positions
+        p through end(p) - 1. */
+    public int end(int p) { return extents()[p]; }
+
+    /** Returns the number of nodes in the subtree rooted at position p. */
+    public int subtreeSize(int p) { return end(p) - p; }
+
+    /** Returns the depth at which position p appears in the tree, which is a value >= 0.  Like GPNode.atDepth(). */
+    public int atDepth(int p) { return extents()[code.length + p]; }
+
+    /** Returns the depth of the subtree rooted at position p, which is a value >= 1.  Like GPNode.depth(). */
+    public int depth(int p)
+        {
+        int[] x = extents();
+        int n = code.length;
+        int max = x[n + p];
+        for(int q = p + 1; q < x[p]; q++)
+            if (x[n + q] > max) max = x[n + q];
+        return max - x[n + p] + 1;
+        }
+
+    /** Returns the depth of the tree, which is a value >= 1. */
+    public int depth() { return depth(0); }
+
+    /** Returns the position of the parent of the node at position p, or -1 if p is the root. */
+    public int parent(int p)
+        {
+        if (p == 0) return -1;
+        int[] x = extents();
+        int n = code.length;
+        int level = x[n + p] - 1;
+        int q = p - 1;
+        while(x[n + q] != level) q--;
+        return q;
+        }
+
+    /** Returns the node at position p's argposition in its parent, or 0 if p is the root. */
+    public int argposition(int p)
+        {
+        int parent = parent(p);
+        if (parent == -1) return 0;
+        int arg = 0;
+        for(int q = parent + 1; q != p; q = end(q))
+            arg++;
+        return arg;
+        }
+
+    /** Returns the type of the slot which the node at position p fills: the type of its argument in its parent,
+        or if it's the root, the tree's type.  Like GPNode.parentType(...). */
+    public GPType slotType(int p)
+        {
+        int parent = parent(p);
+        if (parent == -1) return table.treetype;
+        return table.childtypes[code[parent]][argposition(p)];
+        }
+
+    /** Returns true if the subtree rooted at position q in donor may replace the subtree at position p in this tree,
+        on a type basis.  Like GPNode.swapCompatibleWith(...). */
+    public boolean swapCompatible(GPInitializer initializer, int p, LinearTree donor, int q)
+        {
+        GPType type = donor.table.returntype[donor.code[q]];
+        if (type == table.returntype[code[p]]) return true;
+        return type.compatibleWith(initializer, slotType(p));
+        }
+
+    /** Returns a new LinearTree which is this tree with the subtree at position p replaced by the subtree
+        at position q in donor.  The two trees must share the same NodeTable. */
+    public LinearTree replace(int p, LinearTree donor, int q)
+        {
+        int pEnd = end(p);
+        int qEnd = donor.end(q);
+        int head = p;
+        int middle = qEnd - q;
+        int tail = code.length - pEnd;
+        int n = head + middle + tail;
+
+        int[] c = new int[n];
+        System.arraycopy(code, 0, c, 0, head);
+        System.arraycopy(donor.code, q, c, head, middle);
+        System.arraycopy(code, pEnd, c, head + middle, tail);
+
+        double[] k = null;
+        if ((constants != null && (head > 0 || tail > 0)) || donor.constants != null)
+            {
+            k = new double[n];
+            if (constants != null)
+                {
+                System.arraycopy(constants, 0, k, 0, head);
+                System.arraycopy(constants, pEnd, k, head + middle, tail);
+                }
+            if (donor.constants != null)
+                System.arraycopy(donor.constants, q, k, head, middle);
+            }
+
+        GPNode[] o = null;
+        if ((ercs != null && (head > 0 || tail > 0)) || donor.ercs != null)
+            {
+            o = new GPNode[n];
+            if (ercs != null)
+                {
+                System.arraycopy(ercs, 0, o, 0, head);
+                System.arraycopy(ercs, pEnd, o, head + middle, tail);
+                }
+            if (donor.ercs != null)
+                System.arraycopy(donor.ercs, q, o, head, middle);
+            }
+
+        LinearTree tree = new LinearTree(table, c, k, o);
+        if (source != null) tree.splice = new Splice(source, p, donor, q);
+        return tree;
+        }
+
+    /** Returns a new LinearTree holding just the subtree rooted at position p. */
+    public LinearTree subtree(int p)
+        {
+        int e = end(p);
+        return new LinearTree(table, Arrays.copyOfRange(code, p, e),
+            (constants == null ? null : Arrays.copyOfRange(constants, p, e)),
+            (ercs == null ? null : Arrays.copyOfRange(ercs, p, e)));
+        }
+
+    public boolean equals(Object obj)
+        {
+        if (obj == this) return true;
+        if (!(obj instanceof LinearTree)) return false;
+        LinearTree other = (LinearTree)obj;
+        if (table != other.table || !Arrays.equals(code, other.code)) return false;
+        for(int p = 0; p < code.length; p++)
+            {
+            byte kind = table.kind[code[p]];
+            if (kind == NodeTable.KIND_LINEAR_ERC && constants[p] != other.constants[p]) return false;
+            if (kind == NodeTable.KIND_ERC && !ercs[p].nodeEquals(other.ercs[p])) return false;
+            }
+        return true;
+        }
+
+    public int hashCode()
+        {
+        int hash = Arrays.hashCode(code);
+        for(int p = 0; p < code.length; p++)
+            {
+            byte kind = table.kind[code[p]];
+            if (kind == NodeTable.KIND_LINEAR_ERC)
+                {
+                long bits = Double.doubleToLongBits(constants[p]);
+                hash = 31 * hash + (int)(bits ^ (bits >>> 32));
+                }
+            else if (kind == NodeTable.KIND_ERC)
+                hash = 31 * hash + ercs[p].nodeHashCode();
+            }
+        return hash;
+        }
+    }
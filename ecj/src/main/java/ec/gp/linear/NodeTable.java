@@ -0,0 +1,124 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import java.util.*;
+import ec.gp.*;
+
+/**
+ * NodeTable.java
+ *
+ * Numbers the prototypical GPNodes in a tree's function set, so that a LinearTree can store each of its
+ * nodes as an int.  One NodeTable is built for each GPTreeConstraints used by a LinearGPIndividual, and
+ * is shared by every LinearTree with those constraints.  Besides the prototypes themselves, the table holds
+ * each node's arity and types by id, so that LinearTrees may be scanned and type-checked without
+ * touching any GPNodes at all.
+ *
+ * <p>A GPNode in a tree is recognized by its class, and if its function set holds more than one
+ * node of that class, by its constraints and name() as well.  Thus apart from ERCs, every node must be
+ * fully determined by the prototype it was cloned from, as is almost always the case.
+ */
+
+public class NodeTable implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    /** The node is an ordinary node, fully determined by its prototype. */
+    public static final byte KIND_NODE = 0;
+    /** The node is a LinearERC, whose value is kept in a LinearTree's constant pool. */
+    public static final byte KIND_LINEAR_ERC = 1;
+    /** The node is some other ERC, which a LinearTree keeps as an object. */
+    public static final byte KIND_ERC = 2;
+
+    /** The type returned by the root of the tree. */
+    public final GPType treetype;
+    /** The prototypical nodes, by id. */
+    public final GPNode[] nodes;
+    /** The number of children of each node, by id. */
+    public final int[] arity;
+    /** The kind of each node (KIND_NODE, KIND_LINEAR_ERC, or KIND_ERC), by id. */
+    public final byte[] kind;
+    /** The return type of each node, by id. */
+    public final GPType[] returntype;
+    /** The child types of each node, by id. */
+    public final GPType[][] childtypes;
+
+    // node classes mapped to the ids of the nodes of that class
+    final HashMap<Class<?>, int[]> ids = new HashMap<Class<?>, int[]>();
+
+    // made lazily, and not checkpointed: see subtrees()
+    transient volatile SubtreeTable subtrees;
+
+    public NodeTable(GPTreeConstraints constraints, GPInitializer initializer)
+        {
+        treetype = constraints.treetype;
+
+        // gather the distinct prototypes, in order of type
+        ArrayList<GPNode> list = new ArrayList<GPNode>();
+        IdentityHashMap<GPNode, GPNode> seen = new IdentityHashMap<GPNode, GPNode>();
+        GPNode[][] byType = constraints.functionset.nodes;
+        for(int t = 0; t < byType.length; t++)
+            for(int i = 0; i < byType[t].length; i++)
+                if (seen.put(byType[t][i], byType[t][i]) == null)
+                    list.add(byType[t][i]);
+
+        int n = list.size();
+        nodes = list.toArray(new GPNode[n]);
+        arity = new int[n];
+        kind = new byte[n];
+        returntype = new GPType[n];
+        childtypes = new GPType[n][];
+        for(int id = 0; id < n; id++)
+            {
+            GPNode node = nodes[id];
+            arity[id] = node.children.length;
+            kind[id] = (node instanceof LinearERC ? KIND_LINEAR_ERC : node instanceof ERC ? KIND_ERC : KIND_NODE);
+            returntype[id] = node.constraints(initializer).returntype;
+            childtypes[id] = node.constraints(initializer).childtypes;
+
+            int[] old = ids.get(node.getClass());
+            int[] same = new int[old == null ? 1 : old.length + 1];
+            if (old != null) System.arraycopy(old, 0, same, 0, old.length);
+            same[same.length - 1] = id;
+            ids.put(node.getClass(), same);
+            }
+        }
+
+    /** Returns the number of prototypical nodes. */
+    public int size() { return nodes.length; }
+
+    /** Returns the SubtreeTable which interns SharedTrees built from this table's nodes, making it if need be. */
+    public SubtreeTable subtrees()
+        {
+        SubtreeTable s = subtrees;
+        if (s == null)
+            {
+            synchronized(this)
+                {
+                if (subtrees == null) subtrees = new SubtreeTable(this);
+                s = subtrees;
+                }
+            }
+        return s;
+        }
+
+    /** Returns the id of the prototype which the given node was cloned from, or -1 if it is not in the table. */
+    public int id(GPNode node)
+        {
+        int[] same = ids.get(node.getClass());
+        if (same == null) return -1;
+        if (same.length == 1) return same[0];
+        for(int i = 0; i < same.length; i++)
+            {
+            GPNode proto = nodes[same[i]];
+            if (proto.constraints == node.constraints && proto.name().equals(node.name()))
+                return same[i];
+            }
+        return -1;
+        }
+    }
@@ -0,0 +1,159 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import java.io.*;
+import java.util.*;
+import ec.*;
+import ec.gp.*;
+
+/**
+ * SharedGPIndividual.java
+ *
+ * A LinearGPIndividual which keeps its trees as interned SharedTrees, so that a subtree which appears in many
+ * individuals, or many times in one individual, is stored only once for the whole population.  Cloning an
+ * individual costs nothing, and comparing two individuals for equality is mostly a matter of comparing
+ * pointers.  A distinct subtree takes up about a hundred bytes, table entry included, against a few bytes
+ * per node in a LinearTree: so a population of SharedGPIndividuals takes up several times less memory than
+ * one of ordinary GPIndividuals, but less than one of LinearGPIndividuals only once its subtrees are each
+ * shared a dozen or more times, as they may be late in a long run whose population has converged.
+ *
+ * <p>SharedGPIndividual is a drop-in replacement for LinearGPIndividual, and works with the same Problem and
+ * pipelines: just change the individual's class, as in ec/app/regression/shared.params.  Given the same seed,
+ * a run is identical to one with LinearGPIndividual.  The pipelines still see the genome as LinearTrees:
+ * getGenome() flattens the SharedTrees of the (short-lived) selected copies of the parents, the pipelines
+ * splice them as usual, and setGenome(...) interns the children's trees back into their NodeTable's
+ * SubtreeTable.  There every subtree which the child got unchanged from a parent is found as it is, and
+ * so the only new nodes are those on the path from the root down to the point of crossover or mutation.
+ * Even so, flattening the parents and looking up those new nodes make breeding a few times slower than
+ * with LinearGPIndividuals.
+ */
+
+public class SharedGPIndividual extends LinearGPIndividual
+    {
+    private static final long serialVersionUID = 1;
+
+    /** The individual's trees as SharedTrees, or null if trees[...] are the only form of the individual.  This array
+        is shared among clones, and so must never be modified: replace it with setShared(...) instead.  The
+        genome, if any, is only a flattened copy of these trees, which clones don't get. */
+    public SharedTree[] shared;
+
+    /** Returns the individual's trees as SharedTrees, interning them from trees[...] first if need be. */
+    public SharedTree[] getShared()
+        {
+        if (shared == null)
+            {
+            SharedTree[] s = new SharedTree[trees.length];
+            for(int x = 0; x < trees.length; x++)
+                s[x] = tables[x].subtrees().intern(trees[x].child);
+            shared = s;
+            }
+        return shared;
+        }
+
+    /** Replaces the individual's trees, discarding the genome and any materialized trees. */
+    public void setShared(SharedTree[] shared)
+        {
+        this.shared = shared;
+        genome = null;
+        for(int x = 0; x < trees.length; x++)
+            trees[x].child = null;
+        }
+
+    /** Returns the genome, flattened from the SharedTrees.  The genome is kept until the trees are next replaced, but
+        isn't passed on to clones. */
+    public LinearTree[] getGenome()
+        {
+        if (genome == null)
+            {
+            SharedTree[] s = getShared();
+            LinearTree[] g = new LinearTree[s.length];
+            for(int x = 0; x < s.length; x++)
+                g[x] = s[x].toLinearTree();
+            genome = g;
+            }
+        return genome;
+        }
+
+    /** Replaces the individual's trees with the interned equivalents of the given LinearTrees. */
+    public void setGenome(LinearTree[] genome)
+        {
+        SharedTree[] s = new SharedTree[genome.length];
+        for(int x = 0; x < genome.length; x++)
+            s[x] = tables[x].subtrees().intern(genome[x]);
+        setShared(s);
+        }
+
+    /** Discards the GPNodes of trees[...], and the genome, interning the trees first if need be. */
+    public void compact()
+        {
+        getShared();
+        genome = null;
+        for(int x = 0; x < trees.length; x++)
+            trees[x].child = null;
+        }
+
+    protected GPNode decodeTree(int x)
+        {
+        return shared[x].decode();
+        }
+
+    public int treeSize(int x)
+        {
+        SharedTree[] s = shared;
+        return (s == null ? trees[x].child.numNodes(GPNode.NODESEARCH_ALL) : s[x].size);
+        }
+
+    public int treeDepth(int x)
+        {
+        SharedTree[] s = shared;
+        return (s == null ? trees[x].child.depth() : s[x].depth);
+        }
+
+    /** Two SharedGPIndividuals are equal if their SharedTrees are equal, as with LinearGPIndividual. */
+    public boolean equals(Object ind)
+        {
+        if (ind == null) return false;
+        if (!(this.getClass().equals(ind.getClass()))) return false;
+        return Arrays.equals(getShared(), ((SharedGPIndividual)ind).getShared());
+        }
+
+    public int hashCode()
+        {
+        // as in GPIndividual
+        SharedTree[] s = getShared();
+        int hash = this.getClass().hashCode();
+        for(int x = 0; x < s.length; x++)
+            hash = (hash << 1 | hash >>> 31) ^ s[x].hashCode();
+        return hash;
+        }
+
+    public void readGenotype(final EvolutionState state, final DataInput dataInput) throws IOException
+        {
+        super.readGenotype(state, dataInput);
+        shared = null;
+        }
+
+    public void parseGenotype(final EvolutionState state, final LineNumberReader reader) throws IOException
+        {
+        super.parseGenotype(state, reader);
+        shared = null;
+        }
+
+    /** Returns a copy of the individual which shares its SharedTrees, and whose trees are not materialized.  The trees
+        are interned first if need be. */
+    public Object clone()
+        {
+        getShared();
+        SharedGPIndividual myobj = (SharedGPIndividual)(lightClone());
+        myobj.genome = null;
+        for(int x = 0; x < myobj.trees.length; x++)
+            myobj.trees[x].child = null;
+        return myobj;
+        }
+    }
@@ -0,0 +1,205 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import ec.gp.*;
+
+/**
+ * SharedTree.java
+ *
+ * An immutable tree of nodes, each named by its id in a NodeTable as in a LinearTree, which may be shared by
+ * any number of individuals.  SharedTrees are only built by a SubtreeTable, which <i>interns</i> them: for
+ * each distinct subtree there is just one SharedTree, which every larger tree containing that subtree
+ * points to.  Thus two SharedTrees from the same SubtreeTable are equal if and only if they are the same
+ * object.  A SharedTree's size, depth, and hash code are computed once, when it's built, from those of its
+ * children.
+ *
+ * <p>equals(...) and hashCode() are the counterparts of GPNode.rootedTreeEquals(...) and rootedTreeHashCode(), and
+ * compare trees node by node (though they stop at the first pair of identical subtrees, which in the
+ * same SubtreeTable is right away), so they work even for SharedTrees which have been read back from a
+ * checkpoint and are no longer in their table.
+ */
+
+public final class SharedTree implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    static final SharedTree[] NO_CHILDREN = new SharedTree[0];
+
+    /** The table which the node id refers to. */
+    public final NodeTable table;
+    /** The id of the root node. */
+    public final int id;
+    /** The value of the root if it is a LinearERC, else 0. */
+    public final double constant;
+    /** The (parentless) root if it is an ERC other than a LinearERC, else null. */
+    public final GPNode erc;
+    /** The subtrees hanging from the root.  Don't modify this array. */
+    public final SharedTree[] children;
+    /** The number of nodes in the tree. */
+    public final int size;
+    /** The depth of the tree, as in GPNode.depth(). */
+    public final int depth;
+
+    final int hash;
+
+    SharedTree(NodeTable table, int id, double constant, GPNode erc, SharedTree[] children, int hash)
+        {
+        this.table = table;
+        this.id = id;
+        this.constant = constant;
+        this.erc = erc;
+        this.children = children;
+        this.hash = hash;
+
+        int s = 1;
+        int d = 0;
+        for(int x = 0; x < children.length; x++)
+            {
+            s += children[x].size;
+            if (children[x].depth > d) d = children[x].depth;
+            }
+        size = s;
+        depth = d + 1;
+        }
+
+    // The hash code of the tree with the given root and children.  It's mixed well, since a SubtreeTable
+    // may hold a great many trees which differ only slightly.
+    static int hash(int id, double constant, GPNode erc, SharedTree[] children)
+        {
+        long h = mix(id + 1) ^ Double.doubleToLongBits(constant);
+        if (erc != null) h = mix(h) + erc.nodeHashCode();
+        for(int x = 0; x < children.length; x++)
+            h = mix(h) + children[x].hash;
+        h = mix(h);
+        return (int)(h ^ (h >>> 32));
+        }
+
+    // the finalizer of MurmurHash3
+    static long mix(long h)
+        {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+        }
+
+    // Returns true if the root of this tree is the given node, ignoring the children.  Constants are compared
+    // bit for bit, so that a tree never has its 0.0 replaced with another's -0.0.
+    boolean nodeEquals(int id, double constant, GPNode erc)
+        {
+        return this.id == id &&
+            Double.doubleToLongBits(this.constant) == Double.doubleToLongBits(constant) &&
+            (this.erc == null ? erc == null : erc != null && this.erc.nodeEquals(erc));
+        }
+
+    // Returns true if this tree has the given root, and exactly the given children.
+    boolean matches(int id, double constant, GPNode erc, SharedTree[] children)
+        {
+        if (!nodeEquals(id, constant, erc) || this.children.length != children.length) return false;
+        for(int x = 0; x < children.length; x++)
+            if (this.children[x] != children[x]) return false;
+        return true;
+        }
+
+    public boolean equals(Object obj)
+        {
+        if (obj == this) return true;
+        if (!(obj instanceof SharedTree)) return false;
+        SharedTree other = (SharedTree)obj;
+        if (hash != other.hash || size != other.size || table != other.table ||
+            !nodeEquals(other.id, other.constant, other.erc)) return false;
+        for(int x = 0; x < children.length; x++)
+            if (!children[x].equals(other.children[x])) return false;
+        return true;
+        }
+
+    public int hashCode() { return hash; }
+
+    /** Returns the subtree rooted at position p, where positions are numbered in prefix order as in a LinearTree. */
+    public SharedTree subtree(int p)
+        {
+        SharedTree tree = this;
+        while(p > 0)
+            {
+            p--;  // skip the root
+            SharedTree[] c = tree.children;
+            int x = 0;
+            while(p >= c[x].size) p -= c[x++].size;
+            tree = c[x];
+            }
+        return tree;
+        }
+
+    /** Builds the tree of GPNodes equivalent to this SharedTree, and returns its root.  Everything is set except for
+        the root's parent and argposition. */
+    public GPNode decode()
+        {
+        GPNode node;
+        byte kind = table.kind[id];
+        if (kind == NodeTable.KIND_ERC)
+            node = erc.lightClone();
+        else
+            {
+            node = table.nodes[id].lightClone();
+            if (kind == NodeTable.KIND_LINEAR_ERC)
+                ((LinearERC)node).setConstant(constant);
+            }
+        for(int x = 0; x < children.length; x++)
+            {
+            GPNode child = children[x].decode();
+            child.parent = node;
+            child.argposition = (byte)x;
+            node.children[x] = child;
+            }
+        return node;
+        }
+
+    /** Builds the LinearTree equivalent to this SharedTree. */
+    public LinearTree toLinearTree()
+        {
+        Flattener f = new Flattener(size);
+        f.flatten(this);
+        LinearTree tree = new LinearTree(table, f.code, f.constants, f.ercs);
+        tree.source = this;
+        return tree;
+        }
+
+    static class Flattener
+        {
+        final int[] code;
+        double[] constants;
+        GPNode[] ercs;
+        int pos;
+
+        Flattener(int n)
+            {
+            code = new int[n];
+            }
+
+        void flatten(SharedTree tree)
+            {
+            int p = pos++;
+            code[p] = tree.id;
+            byte kind = tree.table.kind[tree.id];
+            if (kind == NodeTable.KIND_LINEAR_ERC)
+                {
+                if (constants == null) constants = new double[code.length];
+                constants[p] = tree.constant;
+                }
+            else if (kind == NodeTable.KIND_ERC)
+                {
+                if (ercs == null) ercs = new GPNode[code.length];
+                ercs[p] = tree.erc;
+                }
+            for(int x = 0; x < tree.children.length; x++)
+                flatten(tree.children[x]);
+            }
+        }
+    }
@@ -0,0 +1,227 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.gp.linear;
+
+import java.lang.ref.*;
+import ec.gp.*;
+
+/**
+ * SubtreeTable.java
+ *
+ * A hash-cons table of the SharedTrees built from the nodes of a NodeTable, which guarantees that there is
+ * only one SharedTree for each distinct subtree.  A tree is interned from the bottom up: each node is
+ * looked up by its own id and constant and by the <i>identities</i> of its already-interned children,
+ * so every lookup takes constant time no matter how large the subtree below it.  A tree which differs
+ * from an interned one only at some subtree, as a child does from its parent, is interned with
+ * replace(...), which looks up just the nodes on the path from the root down to that subtree.
+ *
+ * <p>The table holds its SharedTrees only weakly, so a subtree is dropped once no individual uses it any more,
+ * and it may be used by any number of breeding and evaluation threads at once.  Each NodeTable has
+ * one SubtreeTable, made when it's first needed: see NodeTable.subtrees().
+ */
+
+public class SubtreeTable
+    {
+    // the table is split into 2^SEGMENT_BITS segments, each locked separately, by the top bits of the hash
+    static final int SEGMENT_BITS = 4;
+    static final int MIN_CAPACITY = 16;
+
+    /** The table which the node ids refer to. */
+    public final NodeTable table;
+
+    final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    final ReferenceQueue<SharedTree> cleared = new ReferenceQueue<SharedTree>();
+
+    // A weak reference to an interned SharedTree, in the chain of its bucket.
+    static final class Entry extends WeakReference<SharedTree>
+        {
+        final int hash;
+        Entry next;
+
+        Entry(SharedTree tree, ReferenceQueue<SharedTree> queue, Entry next)
+            {
+            super(tree, queue);
+            hash = tree.hash;
+            this.next = next;
+            }
+        }
+
+    // A chained hash table of Entries, which grows and shrinks with the number of entries.  An entry whose
+    // tree has been collected stays in its chain, ignored, until it's purged.
+    final class Segment
+        {
+        Entry[] buckets = new Entry[MIN_CAPACITY];
+        int count;
+
+        synchronized SharedTree intern(int hash, int id, double constant, GPNode erc, SharedTree[] children)
+            {
+            Entry[] b = buckets;
+            int i = hash & (b.length - 1);
+            for(Entry e = b[i]; e != null; e = e.next)
+                if (e.hash == hash)
+                    {
+                    SharedTree tree = e.get();
+                    if (tree != null && tree.matches(id, constant, erc, children)) return tree;
+                    }
+
+            SharedTree tree = new SharedTree(table, id, constant, erc, children, hash);
+            b[i] = new Entry(tree, cleared, b[i]);
+            if (++count > b.length - (b.length >>> 2)) resize(b.length << 1);
+            return tree;
+            }
+
+        synchronized void remove(Entry entry)
+            {
+            Entry[] b = buckets;
+            int i = entry.hash & (b.length - 1);
+            Entry prev = null;
+            for(Entry e = b[i]; e != null; prev = e, e = e.next)
+                if (e == entry)
+                    {
+                    if (prev == null) b[i] = e.next;
+                    else prev.next = e.next;
+                    if (--count < (b.length >>> 3) && b.length > MIN_CAPACITY) resize(b.length >>> 1);
+                    return;
+                    }
+            }
+
+        synchronized int count() { return count; }
+
+        void resize(int capacity)
+            {
+            Entry[] b = buckets;
+            Entry[] n = new Entry[capacity];
+            for(int i = 0; i < b.length; i++)
+                {
+                Entry e = b[i];
+                while(e != null)
+                    {
+                    Entry next = e.next;
+                    int j = e.hash & (capacity - 1);
+                    e.next = n[j];
+                    n[j] = e;
+                    e = next;
+                    }
+                }
+            buckets = n;
+            }
+        }
+
+    public SubtreeTable(NodeTable table)
+        {
+        this.table = table;
+        for(int i = 0; i < segments.length; i++)
+            segments[i] = new Segment();
+        }
+
+    /** Returns the number of distinct subtrees in the table, including any which have just been collected but not yet purged. */
+    public int size()
+        {
+        purge();
+        int size = 0;
+        for(int i = 0; i < segments.length; i++)
+            size += segments[i].count();
+        return size;
+        }
+
+    // Removes the entries whose trees have been collected.
+    void purge()
+        {
+        Reference<? extends SharedTree> ref;
+        while((ref = cleared.poll()) != null)
+            {
+            Entry entry = (Entry)ref;
+            segments[entry.hash >>> (32 - SEGMENT_BITS)].remove(entry);
+            }
+        }
+
+    // Returns the interned tree with the given root and children, which must already be interned:
+    // either an existing SharedTree, or a new one which is added to the table.
+    SharedTree intern(int id, double constant, GPNode erc, SharedTree[] children)
+        {
+        purge();
+        int hash = SharedTree.hash(id, constant, erc, children);
+        return segments[hash >>> (32 - SEGMENT_BITS)].intern(hash, id, constant, erc, children);
+        }
+
+    /** Returns the SharedTree equivalent to the tree rooted at the given node.  Throws an IllegalArgumentException if
+        some node in the tree is not in the table. */
+    public SharedTree intern(GPNode node)
+        {
+        int id = table.id(node);
+        if (id < 0)
+            throw new IllegalArgumentException("GPNode " + node.toStringForError() + " is not in the function set of this SubtreeTable.");
+        SharedTree[] children = (node.children.length == 0 ? SharedTree.NO_CHILDREN : new SharedTree[node.children.length]);
+        for(int x = 0; x < children.length; x++)
+            children[x] = intern(node.children[x]);
+
+        double constant = 0;
+        GPNode erc = null;
+        if (table.kind[id] == NodeTable.KIND_LINEAR_ERC)
+            constant = ((LinearERC)node).getConstant();
+        else if (table.kind[id] == NodeTable.KIND_ERC)
+            {
+            erc = node.lightClone();
+            erc.parent = null;
+            erc.argposition = 0;
+            }
+        return intern(id, constant, erc, children);
+        }
+
+    /** Returns the SharedTree equivalent to the given LinearTree, which must have been built from the same NodeTable.
+        A LinearTree flattened from a SharedTree just returns that tree, and one made from it with
+        LinearTree.replace(...) is interned with replace(...) below, without scanning the rest of the tree.
+        Any other LinearTree is interned node by node. */
+    public SharedTree intern(LinearTree tree)
+        {
+        if (tree.table != table)
+            throw new IllegalArgumentException("LinearTree was not built from the NodeTable of this SubtreeTable.");
+        if (tree.source != null)
+            return tree.source;
+        LinearTree.Splice splice = tree.splice;
+        if (splice != null)
+            {
+            LinearTree donor = splice.donor;
+            return replace(splice.base, splice.p,
+                (donor.source != null ? donor.source.subtree(splice.q) : intern(donor, new int[] { splice.q })));
+            }
+        return intern(tree, new int[1]);
+        }
+
+    /** Returns the SharedTree which is the given tree with the subtree at position p replaced by the donor, where
+        positions are numbered in prefix order as in a LinearTree.  Only the nodes on the path from the root
+        down to p are interned anew, and all the others are shared with the two trees. */
+    public SharedTree replace(SharedTree tree, int p, SharedTree donor)
+        {
+        if (p == 0) return donor;
+        p--;  // skip the root
+        SharedTree[] children = tree.children;
+        int x = 0;
+        while(p >= children[x].size) p -= children[x++].size;
+        children = children.clone();
+        children[x] = replace(children[x], p, donor);
+        return intern(tree.id, tree.constant, tree.erc, children);
+        }
+
+    // Interns the subtree at position pos[0], leaving pos[0] just past its end.
+    SharedTree intern(LinearTree tree, int[] pos)
+        {
+        int p = pos[0]++;
+        int id = tree.code[p];
+        int arity = table.arity[id];
+        SharedTree[] children = (arity == 0 ? SharedTree.NO_CHILDREN : new SharedTree[arity]);
+        for(int x = 0; x < arity; x++)
+            children[x] = intern(tree, pos);
+
+        byte kind = table.kind[id];
+        return intern(id,
+            (kind == NodeTable.KIND_LINEAR_ERC ? tree.constants[p] : 0),
+            (kind == NodeTable.KIND_ERC ? tree.ercs[p] : null),
+            children);
+        }
+    }
@@ -0,0 +1,363 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+
+import java.util.*;
+
+/**
+ * DivideAndConquerSorter.java
+ *
+ * A NonDominatedSorter using Jensen's divide-and-conquer algorithm, from M. T. Jensen,
+ * "Reducing the Run-Time Complexity of Multiobjective EAs: The NSGA-II and Other Algorithms",
+ * IEEE Transactions on Evolutionary Computation 7(5), 2003, as generalized by F.-A. Fortin,
+ * S. Grenier, and M. Parizeau, "Generalizing the Improved Run-Time Complexity Algorithm for
+ * Non-Dominated Sorting", GECCO 2013, to handle points which share objective values.  This
+ * takes O(n log^(m-1) n) time, so it is the better choice for two to four or so objectives.
+ *
+ * <p>Points are identified by their position in lexicographic order, which takes the place of
+ * objective 0.  helperA(S, k) ranks the points in S among themselves, considering only objectives
+ * 1 through k (the points in S are known not to conflict in the others): it splits S at the median
+ * of objective k into the points below (L), at (M), and above (H) the median, ranks L, uses L to
+ * raise the ranks of M, ranks M ignoring objective k, uses L and M to raise the ranks of H, and
+ * finally ranks H.  helperB(L, H, k) similarly raises the ranks of the points in H using those of
+ * the (already ranked) points in L.  Both finish with two-objective sweeps over a Fenwick tree
+ * of ranks.  Each helper leaves its points in position order, as it found them.
+ */
+
+public class DivideAndConquerSorter extends NonDominatedSorter
+    {
+    private static final long serialVersionUID = 1;
+
+    // subproblems at most this big are done by brute force
+    static final int SMALL_A = 16;
+    static final int SMALL_B = 256;
+
+    // the points being worked on, as positions
+    transient int[] work;
+    // scratch for partitioning and merging work
+    transient int[] scratch;
+    // scratch for medians and sweeps
+    transient double[] values;
+    // Fenwick tree of maximum ranks, from 1 on
+    transient int[] tree;
+
+    // the current problem
+    transient double[] pts;
+    transient int m;
+    transient int[] rnk;
+
+    // bounds set by partition(...)
+    transient int lowEnd;
+    transient int highStart;
+
+    protected int rank(double[] points, int n, int m, int[] ranks)
+        {
+        Arrays.fill(ranks, 0, n, 0);
+        if (m == 1)
+            {
+            // unique and sorted, so each point is in its own front
+            for(int p = 0; p < n; p++)
+                ranks[p] = p;
+            return n;
+            }
+
+        work = ensure(work, n);
+        scratch = ensure(scratch, n);
+        values = ensure(values, n);
+        tree = ensure(tree, n + 1);
+        for(int p = 0; p < n; p++)
+            work[p] = p;
+
+        pts = points;
+        this.m = m;
+        rnk = ranks;
+        try
+            {
+            helperA(0, n, m - 1);
+            }
+        finally
+            {
+            pts = null;
+            rnk = null;
+            }
+
+        int max = 0;
+        for(int p = 0; p < n; p++)
+            if (ranks[p] > max) max = ranks[p];
+        return max + 1;
+        }
+
+    double value(int p, int k)
+        {
+        return pts[p * m + k];
+        }
+
+    // Returns true if p is no greater than q in objectives 1 ... k
+    boolean dominates(int p, int q, int k)
+        {
+        int pp = p * m;
+        int qq = q * m;
+        for(int x = 1; x <= k; x++)
+            if (pts[pp + x] > pts[qq + x]) return false;
+        return true;
+        }
+
+    void raise(int p, int q)
+        {
+        if (rnk[q] <= rnk[p]) rnk[q] = rnk[p] + 1;
+        }
+
+    // Ranks the points in work[from ... to-1] among themselves using objectives 1 ... k
+    void helperA(int from, int to, int k)
+        {
+        int size = to - from;
+        if (size < 2) return;
+        if (size <= SMALL_A)
+            {
+            // each point's rank is final before it is used, since only earlier points can raise it
+            for(int j = from + 1; j < to; j++)
+                for(int i = from; i < j; i++)
+                    if (dominates(work[i], work[j], k))
+                        raise(work[i], work[j]);
+            return;
+            }
+        if (k == 1)
+            {
+            sweepA(from, to);
+            return;
+            }
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for(int i = from; i < to; i++)
+            {
+            double v = value(work[i], k);
+            if (v < min) min = v;
+            if (v > max) max = v;
+            }
+        if (min == max)
+            {
+            helperA(from, to, k - 1);
+            return;
+            }
+
+        for(int i = from; i < to; i++)
+            values[i - from] = value(work[i], k);
+        partition(from, to, k, select(values, size, size / 2));
+        int a = lowEnd;
+        int b = highStart;
+
+        helperA(from, a, k);
+        helperB(from, a, a, b, k - 1);
+        helperA(a, b, k - 1);
+        merge(from, a, b);
+        helperB(from, b, b, to, k - 1);
+        helperA(b, to, k);
+        merge(from, b, to);
+        }
+
+    // Raises the ranks of the points in work[hf ... ht-1] using the points in work[lf ... lt-1],
+    // using objectives 1 ... k
+    void helperB(int lf, int lt, int hf, int ht, int k)
+        {
+        if (lf == lt || hf == ht) return;
+        if ((long)(lt - lf) * (ht - hf) <= SMALL_B)
+            {
+            for(int i = lf; i < lt; i++)
+                for(int j = hf; j < ht; j++)
+                    if (work[i] < work[j] && dominates(work[i], work[j], k))
+                        raise(work[i], work[j]);
+            return;
+            }
+        if (k == 1)
+            {
+            sweepB(lf, lt, hf, ht);
+            return;
+            }
+
+        double minL = Double.POSITIVE_INFINITY;
+        double maxL = Double.NEGATIVE_INFINITY;
+        for(int i = lf; i < lt; i++)
+            {
+            double v = value(work[i], k);
+            if (v < minL) minL = v;
+            if (v > maxL) maxL = v;
+            }
+        double minH = Double.POSITIVE_INFINITY;
+        double maxH = Double.NEGATIVE_INFINITY;
+        for(int i = hf; i < ht; i++)
+            {
+            double v = value(work[i], k);
+            if (v < minH) minH = v;
+            if (v > maxH) maxH = v;
+            }
+        if (maxL <= minH)
+            {
+            helperB(lf, lt, hf, ht, k - 1);
+            return;
+            }
+        if (minL > maxH) return;
+
+        int n = 0;
+        for(int i = lf; i < lt; i++)
+            values[n++] = value(work[i], k);
+        for(int i = hf; i < ht; i++)
+            values[n++] = value(work[i], k);
+        double median = select(values, n, n / 2);
+        partition(lf, lt, k, median);
+        int la = lowEnd;
+        int lb = highStart;
+        partition(hf, ht, k, median);
+        int ha = lowEnd;
+        int hb = highStart;
+
+        helperB(lf, la, hf, ha, k);
+        helperB(lb, lt, hb, ht, k);
+        merge(lf, la, lb);
+        merge(ha, hb, ht);
+        helperB(lf, lb, ha, ht, k - 1);
+        merge(lf, lb, lt);
+        merge(hf, ha, ht);
+        }
+
+    // Two-objective version of helperA
+    void sweepA(int from, int to)
+        {
+        int size = to - from;
+        for(int i = from; i < to; i++)
+            values[i - from] = value(work[i], 1);
+        Arrays.sort(values, 0, size);
+        Arrays.fill(tree, 1, size + 1, -1);
+        for(int i = from; i < to; i++)
+            {
+            int p = work[i];
+            int index = upperBound(values, size, value(p, 1));
+            int r = query(index);
+            if (r >= rnk[p]) rnk[p] = r + 1;
+            update(index, size, rnk[p]);
+            }
+        }
+
+    // Two-objective version of helperB
+    void sweepB(int lf, int lt, int hf, int ht)
+        {
+        int size = lt - lf;
+        for(int i = lf; i < lt; i++)
+            values[i - lf] = value(work[i], 1);
+        Arrays.sort(values, 0, size);
+        Arrays.fill(tree, 1, size + 1, -1);
+        int i = lf;
+        for(int j = hf; j < ht; j++)
+            {
+            int q = work[j];
+            for( ; i < lt && work[i] < q; i++)
+                {
+                int p = work[i];
+                update(upperBound(values, size, value(p, 1)), size, rnk[p]);
+                }
+            int r = query(upperBound(values, size, value(q, 1)));
+            if (r >= rnk[q]) rnk[q] = r + 1;
+            }
+        }
+
+    // Returns the number of values[0 ... size-1], which is sorted, that are <= v
+    static int upperBound(double[] values, int size, double v)
+        {
+        int low = 0;
+        int high = size;
+        while(low < high)
+            {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= v) low = mid + 1;
+            else high = mid;
+            }
+        return low;
+        }
+
+    // Returns the maximum rank stored at 1 ... index, or -1
+    int query(int index)
+        {
+        int r = -1;
+        for( ; index > 0; index -= (index & -index))
+            if (tree[index] > r) r = tree[index];
+        return r;
+        }
+
+    void update(int index, int size, int rank)
+        {
+        for( ; index <= size; index += (index & -index))
+            if (tree[index] < rank) tree[index] = rank;
+        }
+
+    // Stably partitions work[from ... to-1] into the points whose objective k is below, equal to,
+    // and above the median, setting lowEnd and highStart to the starts of the second and third groups
+    void partition(int from, int to, int k, double median)
+        {
+        int low = from;
+        int equal = 0;
+        int high = 0;
+        for(int i = from; i < to; i++)
+            {
+            double v = value(work[i], k);
+            if (v < median) work[low++] = work[i];
+            else if (v == median) scratch[from + equal++] = work[i];
+            else scratch[to - ++high] = work[i];  // filled backwards, from the end
+            }
+        System.arraycopy(scratch, from, work, low, equal);
+        lowEnd = low;
+        highStart = low + equal;
+        for(int i = 0; i < high; i++)
+            work[highStart + i] = scratch[to - 1 - i];
+        }
+
+    // Merges work[from ... mid-1] and work[mid ... to-1], each in position order
+    void merge(int from, int mid, int to)
+        {
+        if (from == mid || mid == to || work[mid - 1] < work[mid]) return;
+        System.arraycopy(work, from, scratch, from, to - from);
+        int i = from;
+        int j = mid;
+        for(int k = from; k < to; k++)
+            {
+            if (j >= to || (i < mid && scratch[i] < scratch[j]))
+                work[k] = scratch[i++];
+            else
+                work[k] = scratch[j++];
+            }
+        }
+
+    // Returns the nth smallest of values[0 ... size-1], reordering them
+    static double select(double[] values, int size, int nth)
+        {
+        int left = 0;
+        int right = size - 1;
+        while(left < right)
+            {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while(i <= j)
+                {
+                while(values[i] < pivot) i++;
+                while(values[j] > pivot) j--;
+                if (i <= j)
+                    {
+                    double t = values[i];
+                    values[i] = values[j];
+                    values[j] = t;
+                    i++;
+                    j--;
+                    }
+                }
+            if (nth <= j) right = j;
+            else if (nth >= i) left = i;
+            else break;
+            }
+        return values[nth];
+        }
+    }
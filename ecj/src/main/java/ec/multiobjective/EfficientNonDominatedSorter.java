@@ -0,0 +1,74 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+
+/**
+ * EfficientNonDominatedSorter.java
+ *
+ * A NonDominatedSorter using Efficient Non-dominated Sort with binary search (ENS-BS),
+ * from X. Zhang, Y. Tian, R. Cheng, and Y. Jin, "An Efficient Approach to Nondominated
+ * Sorting for Evolutionary Multiobjective Optimization", IEEE Transactions on Evolutionary
+ * Computation 19(2), 2015.
+ *
+ * <p>Points are visited in lexicographic order, so each can only be dominated by points
+ * already placed in a front.  A point is dominated by some member of front k whenever it is
+ * dominated by some member of each front before k, so the front for each point is found by a
+ * binary search over the fronts built so far, comparing the point against each front's members,
+ * most recently added first.  Each comparison costs at most O(m), and there are at most
+ * O(n log F) front checks, F being the number of fronts, so this is O(m n^2) in the worst case
+ * but close to O(m n log n) when, as usual with many objectives, there are few fronts.
+ */
+
+public class EfficientNonDominatedSorter extends NonDominatedSorter
+    {
+    private static final long serialVersionUID = 1;
+
+    // the most recently added member of each front
+    transient int[] last;
+    // the member added to the same front just before each point, or -1
+    transient int[] previous;
+
+    protected int rank(double[] points, int n, int m, int[] ranks)
+        {
+        last = ensure(last, n);
+        previous = ensure(previous, n);
+
+        int numFronts = 0;
+        for(int p = 0; p < n; p++)
+            {
+            int low = 0;
+            int high = numFronts;
+            while(low < high)
+                {
+                int mid = (low + high) >>> 1;
+                if (dominated(points, m, p, last[mid])) low = mid + 1;
+                else high = mid;
+                }
+            ranks[p] = low;
+            if (low == numFronts) { previous[p] = -1; numFronts++; }
+            else previous[p] = last[low];
+            last[low] = p;
+            }
+        return numFronts;
+        }
+
+    // Returns true if p is dominated by q or by anyone added to q's front before q
+    boolean dominated(double[] points, int m, int p, int q)
+        {
+        int pp = p * m;
+        for( ; q >= 0; q = previous[q])
+            {
+            // q precedes p, so it is no greater in objective 0, and differs from p
+            int qq = q * m;
+            int k = 1;
+            while(k < m && points[qq + k] <= points[pp + k]) k++;
+            if (k == m) return true;
+            }
+        return false;
+        }
+    }
@@ -8,6 +8,8 @@ package ec.multiobjective;
 import ec.EvolutionState;
 import ec.Individual;
 import ec.simple.SimpleStatistics;
+import ec.multiobjective.hypervolume.*;
+import ec.util.MersenneTwisterFast;
 import ec.util.Parameter;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,18 +17,41 @@ import java.util.Arrays;
 /**
  * Measures the hypervolume of a population's Pareto front.
  * 
- * Our implementation follows the WFG algorithm, described in
+ * The hypervolume is computed by ec.multiobjective.hypervolume.Hypervolume, which uses
+ * dimension sweeps for two and three objectives and otherwise the WFG algorithm, described in
  * 
  * Lyndon While, Lucas Bradstreet, and Luigi Barone, "A Fast Way of Calculating
  * Exact Hypervolumes," IEEE Transactions on Evolutionary Computation, 16 (1),
  * February, 2012.
+ *
+ * <p>Exact hypervolume is exponential in the number of objectives, so for many objectives you
+ * may instead have it estimated by Monte Carlo sampling, with MonteCarloHypervolume.  In this case
+ * each subpopulation's estimate is followed in the statistics log by its standard error.
+ *
+ * <p><b>Parameters</b><br>
+ * <table>
+ * <tr><td valign=top><i>base</i>.<tt>reference-point</tt><br>
+ * <font size=-1>doubles</font></td>
+ * <td valign=top>(the reference point, one value per objective)</td></tr>
+ * <tr><td valign=top><i>base</i>.<tt>monte-carlo-samples</tt><br>
+ * <font size=-1>int &gt;= 0 (default = 0)</font></td>
+ * <td valign=top>(if greater than 0, the number of samples with which to estimate the hypervolume, rather than computing it exactly)</td></tr>
+ * <tr><td valign=top><i>base</i>.<tt>monte-carlo-seed</tt><br>
+ * <font size=-1>int (default = 0)</font></td>
+ * <td valign=top>(the random number seed for the Monte Carlo samples, which are drawn independently of the run's own generators)</td></tr>
+ * </table>
  * 
  * @author Eric O. Scott
  */
 public class HypervolumeStatistics extends SimpleStatistics
     {
     public final static String P_REFERENCE_POINT = "reference-point";
+    public final static String P_MONTE_CARLO_SAMPLES = "monte-carlo-samples";
+    public final static String P_MONTE_CARLO_SEED = "monte-carlo-seed";
     private double[] referencePoint;
+    private int monteCarloSamples;
+    private Hypervolume hypervolume = new Hypervolume();
+    private MonteCarloHypervolume estimator;
     
     public double[] getReferencePoint()
         {
@@ -47,8 +72,15 @@ public class HypervolumeStatistics extends SimpleStatistics
         referencePoint = state.parameters.getDoubles(base.push(P_REFERENCE_POINT), null, Double.NEGATIVE_INFINITY);
         if (referencePoint == null)
             state.output.fatal("Missing required parameter.", base.push(P_REFERENCE_POINT));
-        if (doGeneration && referencePoint.length > 3)
-            state.output.warnOnce(String.format("You calculating hypervolume on %d objectives at every generation.  Note that hypervolume calculation can very costly for more than a few objectives.", referencePoint.length), base.push(P_REFERENCE_POINT));
+
+        monteCarloSamples = state.parameters.getIntWithDefault(base.push(P_MONTE_CARLO_SAMPLES), null, 0);
+        if (monteCarloSamples < 0)
+            state.output.fatal("The number of Monte Carlo samples must be >= 0.", base.push(P_MONTE_CARLO_SAMPLES));
+        if (monteCarloSamples > 0)
+            estimator = new MonteCarloHypervolume(new MersenneTwisterFast(
+                    state.parameters.getIntWithDefault(base.push(P_MONTE_CARLO_SEED), null, 0)));
+        else if (doGeneration && referencePoint.length > 3)
+            state.output.warnOnce(String.format("You calculating hypervolume on %d objectives at every generation.  Note that hypervolume calculation can very costly for more than a few objectives.  Consider setting %s.", referencePoint.length, P_MONTE_CARLO_SAMPLES), base.push(P_REFERENCE_POINT));
         }
     
     @Override
@@ -64,8 +96,10 @@ public class HypervolumeStatistics extends SimpleStatistics
                 ArrayList<Individual> paretoFront = MultiObjectiveFitness.partitionIntoParetoFront(state.population.subpops.get(s).individuals, null, null);
                 try
                     {
-                    final double hv = hypervolume(paretoFront, referencePoint);
+                    final double hv = hypervolume(paretoFront);
                     state.output.print(", " + hv, statisticslog);
+                    if (estimator != null)
+                        state.output.print(", " + estimator.getStandardError(), statisticslog);
                     }
                 catch (final Exception e)
                     {
@@ -77,10 +111,16 @@ public class HypervolumeStatistics extends SimpleStatistics
         }
     
     /** Compute the hypervolume of the Pareto front induced by a collection of points,
-     *  relative to the reference point that was provided to this class's setup() method. */
+     *  relative to the reference point that was provided to this class's setup() method.
+     *  If monte-carlo-samples was set, this is an estimate. */
     public double hypervolume(final ArrayList<Individual> paretoFront)
         {
-        return hypervolume(paretoFront, referencePoint);
+        double[] reference = referencePoint.clone();
+        double[] points = pack(paretoFront, reference);
+        int m = reference.length;
+        if (estimator != null)
+            return estimator.estimate(points, paretoFront.size(), m, reference, monteCarloSamples);
+        else return hypervolume.compute(points, paretoFront.size(), m, reference);
         }
     
     /** Compute the hypervolume of the Pareto front induced by a collection of points,
@@ -88,44 +128,64 @@ public class HypervolumeStatistics extends SimpleStatistics
     public static double hypervolume(final ArrayList<Individual> paretoFront, final double[] referencePoint)
         {
         assert(paretoFront != null);
-        double exclusiveSum = 0.0;
-        for (int i = 0; i < paretoFront.size(); i++)
-            exclusiveSum += exclusiveHypervolume(paretoFront, i, referencePoint);
-        return exclusiveSum;
+        double[] reference = referencePoint.clone();
+        double[] points = pack(paretoFront, reference);
+        return new Hypervolume().compute(points, paretoFront.size(), reference.length, reference);
         }
-    
-    /** Compute the exclusive hypervolume of the indIDth element of a collection 
-     * of points against the elements whose ID is greater than indID.
-     * 
-     * Note that this does not compute the exclusive hypervolume with respect to
-     * *every* other element in the collection, but only the elements that follow
-     * indID!
-     */
-    private static double exclusiveHypervolume(final ArrayList<Individual> paretoFront, final int indID, final double[] referencePoint)
+
+    /** Compute the exclusive hypervolume contribution of each of a collection of points (the
+     *  hypervolume lost if it alone were removed), relative to the provided reference point,
+     *  as is used by SMS-EMOA style selection. */
+    public static double[] exclusiveContributions(final ArrayList<Individual> paretoFront, final double[] referencePoint)
         {
         assert(paretoFront != null);
-        assert(indID >= 0);
-        assert(indID < paretoFront.size());
-        
-        final Individual ind = paretoFront.get(indID);
-        if (!(ind.fitness instanceof MultiObjectiveFitness))
-            throw new IllegalStateException(String.format("%s: found an individual with a %s.  Hypervolume can only be computed for %s.", HypervolumeStatistics.class.getSimpleName(), ind.fitness.getClass().getSimpleName(), MultiObjectiveFitness.class.getSimpleName()));
-        
-        final MultiObjectiveFitness indFitness = (MultiObjectiveFitness) ind.fitness;
-        final MultiObjectiveFitness refFitness = (MultiObjectiveFitness) ind.fitness.clone();
-        refFitness.objectives = referencePoint;
-        
-        if (!indFitness.paretoDominates(refFitness))
-            throw new IllegalStateException(String.format("%s: found an individual (fitness: %s) that does not dominate the reference point (%s).  Cowardly refusing to compute a negative hypervolume contribution for this individual.  You probably need to choosing a different reference pointor check the maximization/minimization setting for the objectives.", HypervolumeStatistics.class.getSimpleName(), Arrays.toString(indFitness.objectives), Arrays.toString(referencePoint)));
+        double[] reference = referencePoint.clone();
+        double[] points = pack(paretoFront, reference);
+        return new Hypervolume().contributions(points, paretoFront.size(), reference.length, reference, null);
+        }
+
+    /** Packs the objectives of the individuals into a matrix for Hypervolume, and negates the
+     *  objectives of the provided reference point which are maximized, so that all are minimized.
+     *  Throws an IllegalStateException if an individual doesn't Pareto-dominate the reference point. */
+    static double[] pack(final ArrayList<Individual> paretoFront, final double[] reference)
+        {
+        if (paretoFront.isEmpty()) return new double[0];
+        for (int i = 0; i < paretoFront.size(); i++)
+            {
+            final Individual ind = paretoFront.get(i);
+            if (!(ind.fitness instanceof MultiObjectiveFitness))
+                throw new IllegalStateException(String.format("%s: found an individual with a %s.  Hypervolume can only be computed for %s.", HypervolumeStatistics.class.getSimpleName(), ind.fitness.getClass().getSimpleName(), MultiObjectiveFitness.class.getSimpleName()));
+            final MultiObjectiveFitness fitness = (MultiObjectiveFitness) ind.fitness;
+            if (fitness.objectives.length != reference.length)
+                throw new IllegalStateException(String.format("%s: %s has %d dimensions, but we encountered an individual with an %d-dimensional fitness.", HypervolumeStatistics.class.getSimpleName(), P_REFERENCE_POINT, reference.length, fitness.objectives.length));
+            }
+
+        final MultiObjectiveFitness first = (MultiObjectiveFitness) paretoFront.get(0).fitness;
+        final double[] points = NonDominatedSorter.pack(paretoFront, null);
+        final int m = reference.length;
+        for (int j = 0; j < m; j++)
+            if (first.isMaximizing(j))
+                reference[j] = -reference[j];
         
-        final ArrayList<Individual> limitSet = limitSet(paretoFront, indID, referencePoint);
-        final double ihv = inclusiveHypervolume(ind, referencePoint);
-        assert(ihv >= 0);
-        final double result = limitSet.isEmpty() ?
-            ihv :
-            ihv - hypervolume(MultiObjectiveFitness.partitionIntoParetoFront(limitSet, null, null), referencePoint);
-        assert(result >= 0);
-        return result;
+        for (int i = 0; i < paretoFront.size(); i++)
+            {
+            boolean better = false;
+            boolean worse = false;
+            for (int j = 0; j < m; j++)
+                {
+                if (points[i * m + j] < reference[j]) better = true;
+                else if (points[i * m + j] > reference[j]) worse = true;
+                }
+            if (worse || !better)
+                {
+                final MultiObjectiveFitness fitness = (MultiObjectiveFitness) paretoFront.get(i).fitness;
+                final double[] original = new double[m];
+                for (int j = 0; j < m; j++)
+                    original[j] = first.isMaximizing(j) ? -reference[j] : reference[j];
+                throw new IllegalStateException(String.format("%s: found an individual (fitness: %s) that does not dominate the reference point (%s).  Cowardly refusing to compute a negative hypervolume contribution for this individual.  You probably need to choosing a different reference pointor check the maximization/minimization setting for the objectives.", HypervolumeStatistics.class.getSimpleName(), Arrays.toString(fitness.objectives), Arrays.toString(original)));
+                }
+            }
+        return points;
         }
     
     /** Compute the hypervolume covered by a single individual,
@@ -149,42 +209,6 @@ public class HypervolumeStatistics extends SimpleStatistics
             product *= Math.abs(fitness.objectives[i] - referencePoint[i]);
         return product;
         }
-    
-    /** Compute a set of points that define the boundary of the *intersection* 
-     * between an individual's inclusive hypervolume and the area dominated by
-     * all the points in the front that follow indID (i.e. that have an index 
-     * greater than indID). */
-    private static ArrayList<Individual> limitSet(final ArrayList<Individual> paretoFront, final int indID, final double[] referencePoint)
-        {
-        assert(paretoFront != null);
-        assert(indID >= 0);
-        assert(indID < paretoFront.size());
-        
-        final Individual contributingPoint = paretoFront.get(indID);
-        assert(contributingPoint != null);
-        assert(contributingPoint.fitness instanceof MultiObjectiveFitness);
-        final MultiObjectiveFitness contributingFitness = (MultiObjectiveFitness) contributingPoint.fitness;
-        if (contributingFitness.objectives.length != referencePoint.length)
-            throw new IllegalStateException(String.format("%s: %s has %d dimensions, but we encountered an individual with an %d-dimensional fitness.", HypervolumeStatistics.class.getSimpleName(), P_REFERENCE_POINT, referencePoint.length, contributingFitness.objectives.length));
-
-        final ArrayList<Individual> set = new ArrayList<Individual>(paretoFront.size());
-        for (int i = indID + 1; i < paretoFront.size(); i++)
-            {
-            final MultiObjectiveFitness refFitness = (MultiObjectiveFitness) paretoFront.get(i).fitness;
-            final double[] newPoint = new double[referencePoint.length];
-            for (int j = 0; j < newPoint.length; j++)
-                {
-                newPoint[j] = contributingFitness.isMaximizing(j) ? 
-                    Math.min(contributingFitness.getObjective(j), refFitness.getObjective(j)) :
-                    Math.max(contributingFitness.getObjective(j), refFitness.getObjective(j));
-                }
-            final Individual newPointInd = (Individual) contributingPoint.clone();
-            newPointInd.fitness = (MultiObjectiveFitness) contributingFitness.clone();
-            ((MultiObjectiveFitness)newPointInd.fitness).objectives = newPoint;
-            set.add(newPointInd);
-            }
-        return set;
-        }
 
     /** Logs the best individual of the run. */
     @Override
@@ -198,8 +222,10 @@ public class HypervolumeStatistics extends SimpleStatistics
         for (int s = 0; s < state.population.subpops.size(); s++)
             {
             ArrayList<Individual> paretoFront = MultiObjectiveFitness.partitionIntoParetoFront(state.population.subpops.get(s).individuals, null, null);
-            final double hv = hypervolume(paretoFront, referencePoint);
-            state.output.println(", " + hv, statisticslog);
+            final double hv = hypervolume(paretoFront);
+            if (estimator != null)
+                state.output.println(", " + hv + ", " + estimator.getStandardError(), statisticslog);
+            else state.output.println(", " + hv, statisticslog);
             }
         state.output.print("\n", statisticslog);
         }
@@ -514,15 +514,21 @@ public class MultiObjectiveFitness extends Fitness
         }
 
 
-    /** Returns the Pareto rank for each individual.  Rank 0 is the best rank, then rank 1, and so on.  This is O(n) but it has a high constant overhead because it
-        allocates a hashmap and does some autoboxing. */
+    /** Returns the Pareto rank for each individual.  Rank 0 is the best rank, then rank 1, and so on.  If no
+        individual's fitness overrides paretoDominates(...), and no objective is NaN, this uses a DivideAndConquerSorter,
+        which is O(n log^(m-1) n) for m objectives.  Otherwise it uses partitionIntoRanks(...), which is O(n^2) per
+        front and has a high constant overhead because it allocates a hashmap and does some autoboxing. */
     public static int[] getRankings(ArrayList<Individual> inds)
         {
+        if (sortable(inds))
+            return new DivideAndConquerSorter().getRankings(inds);
+
         int[] r = new int[inds.size()];
         ArrayList<ArrayList<Individual>> ranks = partitionIntoRanks(inds);  // get all the ranks
         
-        // build a mapping of Individual -> index in inds array
-        HashMap<Individual, Integer> m = new HashMap<Individual, Integer>();
+        // build a mapping of Individual -> index in inds array.  Individuals with equal genomes are equal, but may
+        // still be in different ranks, so they're mapped by identity
+        IdentityHashMap<Individual, Integer> m = new IdentityHashMap<Individual, Integer>();
         for(int i = 0; i < inds.size(); i++)
             m.put(inds.get(i), Integer.valueOf(i));
         
@@ -541,6 +547,34 @@ public class MultiObjectiveFitness extends Fitness
         return r;
         }
 
+    /** Returns true if a NonDominatedSorter would rank the individuals just as partitionIntoRanks(...) does: that is,
+        if none of their fitnesses overrides paretoDominates(...), which the sorters don't call, and none of their
+        objectives is NaN, which the sorters don't allow. */
+    public static boolean sortable(ArrayList<Individual> inds)
+        {
+        Class<?> checked = MultiObjectiveFitness.class;
+        for(int i = 0; i < inds.size(); i++)
+            {
+            MultiObjectiveFitness fitness = (MultiObjectiveFitness)(inds.get(i).fitness);
+            Class<?> c = fitness.getClass();
+            if (c != checked)
+                {
+                try
+                    {
+                    if (c.getMethod("paretoDominates", MultiObjectiveFitness.class).getDeclaringClass() != MultiObjectiveFitness.class)
+                        return false;
+                    }
+                catch (NoSuchMethodException e) { return false; }  // can't happen
+                checked = c;
+                }
+            double[] objectives = fitness.objectives;
+            for(int j = 0; j < objectives.length; j++)
+                if (objectives[j] != objectives[j])  // NaN
+                    return false;
+            }
+        return true;
+        }
+
 
 
     /**
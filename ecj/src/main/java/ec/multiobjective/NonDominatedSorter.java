@@ -0,0 +1,234 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+
+import java.util.*;
+import ec.*;
+import ec.util.*;
+
+/**
+ * NonDominatedSorter.java
+ *
+ * A NonDominatedSorter divides a set of points into Pareto front ranks, as
+ * MultiObjectiveFitness.partitionIntoRanks(...) does, but works on a packed objective
+ * matrix rather than on Individuals, and uses an algorithm much faster than the repeated
+ * O(n^2) front extraction of partitionIntoRanks(...).
+ *
+ * <p>The matrix holds n points of m objectives each, point i's objectives being stored
+ * in matrix[i * m] through matrix[i * m + m - 1].  All objectives are <b>minimized</b>.
+ * pack(...) will build such a matrix from a list of Individuals, negating the objectives
+ * which are maximized.  Point i Pareto-dominates point j if it is no worse than j in every
+ * objective and better in at least one; identical points do not dominate one another and
+ * so always wind up in the same rank.  Objectives must not be NaN.
+ *
+ * <p>sort(...) sorts the points lexicographically and merges identical points, then hands
+ * the remaining unique, sorted points to the subclass's rank(...) method.  Sorted this way,
+ * a point can only be dominated by points which come before it, and (because they are unique)
+ * point p dominates a later point q exactly when p is no greater than q in objectives 1 through
+ * m-1.  Subclasses rely on both facts.
+ *
+ * <p>A NonDominatedSorter keeps scratch arrays between calls so that sorting a population
+ * of the same size each generation allocates nothing, and so it is not threadsafe: each
+ * thread should have its own.  The two implementations are DivideAndConquerSorter, which is
+ * best for a few objectives, and EfficientNonDominatedSorter, which is best for many.
+ */
+
+public abstract class NonDominatedSorter implements Setup
+    {
+    private static final long serialVersionUID = 1;
+
+    // original indices in lexicographic order
+    transient int[] order;
+    // scratch for the lexicographic sort
+    transient int[] orderScratch;
+    // for each original index, the position of its unique point
+    transient int[] position;
+    // ranks of the unique points
+    transient int[] uniqueRanks;
+    // the unique points, in lexicographic order
+    transient double[] points;
+    // the packed objectives of the last individuals passed to partitionIntoRanks(...) or getRankings(...)
+    transient double[] matrix;
+    // the ranks of the last individuals passed to partitionIntoRanks(...) or getRankings(...)
+    transient int[] ranks;
+
+    public void setup(EvolutionState state, Parameter base)
+        {
+        }
+
+    /** Returns an array of at least the given length, which may be the one provided. */
+    static int[] ensure(int[] array, int length)
+        {
+        return (array == null || array.length < length) ? new int[length] : array;
+        }
+
+    /** Returns an array of at least the given length, which may be the one provided. */
+    static double[] ensure(double[] array, int length)
+        {
+        return (array == null || array.length < length) ? new double[length] : array;
+        }
+
+    /** Packs the objectives of the given individuals, which must have MultiObjectiveFitnesses
+        with the same number of objectives, into a matrix suitable for sort(...), negating maximized
+        objectives so that all of them are minimized.  If the provided matrix is too small (or null),
+        a new one is allocated.  The matrix is returned. */
+    public static double[] pack(ArrayList<Individual> inds, double[] matrix)
+        {
+        int n = inds.size();
+        if (n == 0) return (matrix == null ? new double[0] : matrix);
+        int m = ((MultiObjectiveFitness)(inds.get(0).fitness)).getNumObjectives();
+        matrix = ensure(matrix, n * m);
+        for(int i = 0; i < n; i++)
+            {
+            MultiObjectiveFitness fitness = (MultiObjectiveFitness)(inds.get(i).fitness);
+            double[] objectives = fitness.getObjectives();
+            if (objectives.length != m)
+                throw new RuntimeException("Attempt made to sort multiobjective fitnesses; but they have different numbers of objectives.");
+            boolean[] maximize = fitness.maximize;
+            for(int k = 0; k < m; k++)
+                // adding 0.0 turns -0.0 into 0.0, so the two compare equal everywhere
+                matrix[i * m + k] = (maximize[k] ? -objectives[k] : objectives[k]) + 0.0;
+            }
+        return matrix;
+        }
+
+    /** Divides inds into Pareto front ranks (each an ArrayList, holding its individuals in the order
+        they appeared in inds), and returns them, in order, stored in an ArrayList.  This gives the same
+        fronts as MultiObjectiveFitness.partitionIntoRanks(...), though not necessarily with their
+        individuals in the same order. */
+    public ArrayList<ArrayList<Individual>> partitionIntoRanks(ArrayList<Individual> inds)
+        {
+        ArrayList<ArrayList<Individual>> frontsByRank = new ArrayList<ArrayList<Individual>>();
+        int n = inds.size();
+        if (n == 0) return frontsByRank;
+        int numFronts = rankIndividuals(inds);
+
+        int[] sizes = new int[numFronts];
+        for(int i = 0; i < n; i++)
+            sizes[ranks[i]]++;
+        for(int rank = 0; rank < numFronts; rank++)
+            frontsByRank.add(new ArrayList<Individual>(sizes[rank]));
+        for(int i = 0; i < n; i++)
+            frontsByRank.get(ranks[i]).add(inds.get(i));
+        return frontsByRank;
+        }
+
+    /** Returns the Pareto rank for each individual.  Rank 0 is the best rank, then rank 1, and so on. */
+    public int[] getRankings(ArrayList<Individual> inds)
+        {
+        int n = inds.size();
+        if (n == 0) return new int[0];
+        rankIndividuals(inds);
+        int[] r = new int[n];
+        System.arraycopy(ranks, 0, r, 0, n);
+        return r;
+        }
+
+    // Packs inds into matrix and ranks them into ranks, returning the number of fronts
+    int rankIndividuals(ArrayList<Individual> inds)
+        {
+        int n = inds.size();
+        matrix = pack(inds, matrix);
+        ranks = ensure(ranks, n);
+        return sort(matrix, n, ((MultiObjectiveFitness)(inds.get(0).fitness)).getNumObjectives(), ranks);
+        }
+
+    /** Sorts n points of m objectives each, packed into objectives as described in the class comments,
+        into Pareto front ranks, setting ranks[i] to the rank of point i (rank 0 is the Pareto front).
+        Returns the number of ranks. */
+    public int sort(double[] objectives, int n, int m, int[] ranks)
+        {
+        if (n == 0) return 0;
+        if (m < 1)
+            throw new IllegalArgumentException("Number of objectives must be >= 1: " + m);
+
+        order = ensure(order, n);
+        orderScratch = ensure(orderScratch, n);
+        position = ensure(position, n);
+        uniqueRanks = ensure(uniqueRanks, n);
+        points = ensure(points, n * m);
+
+        for(int i = 0; i < n; i++)
+            order[i] = i;
+        sortLexicographically(objectives, m, order, orderScratch, 0, n);
+
+        // merge identical points
+        int u = 0;
+        for(int i = 0; i < n; i++)
+            {
+            int o = order[i];
+            if (u == 0 || compare(objectives, o * m, points, (u - 1) * m, m) != 0)
+                {
+                System.arraycopy(objectives, o * m, points, u * m, m);
+                u++;
+                }
+            position[o] = u - 1;
+            }
+
+        int numFronts = rank(points, u, m, uniqueRanks);
+        for(int i = 0; i < n; i++)
+            ranks[i] = uniqueRanks[position[i]];
+        return numFronts;
+        }
+
+    /** Sorts n unique points of m objectives each, packed into points and sorted lexicographically
+        (by objective 0, then objective 1, and so on), into Pareto front ranks, setting ranks[p] to the
+        rank of point p.  Returns the number of ranks. */
+    protected abstract int rank(double[] points, int n, int m, int[] ranks);
+
+    // Lexicographically compares the m objectives starting at a[i] with those starting at b[j]
+    static int compare(double[] a, int i, double[] b, int j, int m)
+        {
+        for(int k = 0; k < m; k++)
+            {
+            double x = a[i + k];
+            double y = b[j + k];
+            if (x < y) return -1;
+            if (x > y) return 1;
+            }
+        return 0;
+        }
+
+    // Merge-sorts indices[from...to-1], which index points in objectives, lexicographically.
+    // The sort is stable.
+    static void sortLexicographically(double[] objectives, int m, int[] indices, int[] scratch, int from, int to)
+        {
+        if (to - from <= 16)
+            {
+            for(int i = from + 1; i < to; i++)
+                {
+                int v = indices[i];
+                int j = i - 1;
+                while(j >= from && compare(objectives, indices[j] * m, objectives, v * m, m) > 0)
+                    {
+                    indices[j + 1] = indices[j];
+                    j--;
+                    }
+                indices[j + 1] = v;
+                }
+            return;
+            }
+
+        int mid = (from + to) >>> 1;
+        sortLexicographically(objectives, m, indices, scratch, from, mid);
+        sortLexicographically(objectives, m, indices, scratch, mid, to);
+        if (compare(objectives, indices[mid - 1] * m, objectives, indices[mid] * m, m) <= 0)
+            return;  // already in order
+
+        System.arraycopy(indices, from, scratch, from, to - from);
+        int i = from;
+        int j = mid;
+        for(int k = from; k < to; k++)
+            {
+            if (j >= to || (i < mid && compare(objectives, scratch[i] * m, objectives, scratch[j] * m, m) <= 0))
+                indices[k] = scratch[i++];
+            else
+                indices[k] = scratch[j++];
+            }
+        }
+    }
@@ -0,0 +1,115 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective;
+
+import java.util.*;
+import ec.*;
+import ec.util.*;
+import ec.vector.*;
+
+/**
+ * NonDominatedSortingBenchmark.java
+ *
+ * Times MultiObjectiveFitness.partitionIntoRanks(...) against the partitionIntoRanks(...)
+ * methods of DivideAndConquerSorter and EfficientNonDominatedSorter, on populations of
+ * individuals with uniformly random objectives, for a range of population sizes and numbers
+ * of objectives, and checks that all three find the same fronts.  Run as:
+ *
+ * <p><tt>java ec.multiobjective.NonDominatedSortingBenchmark [repetitions] [largest-legacy-size]</tt>
+ *
+ * <p>partitionIntoRanks(...) is quadratic per front, so it is only timed for populations no
+ * larger than <i>largest-legacy-size</i> (by default 5000).  Output is one line per population size
+ * and number of objectives giving the number of fronts and the mean milliseconds for each sort.
+ */
+
+public class NonDominatedSortingBenchmark
+    {
+    static final int[] SIZES = { 1000, 5000, 20000 };
+    static final int[] OBJECTIVES = { 2, 3, 5, 10 };
+
+    static ArrayList<Individual> population(MersenneTwisterFast random, int n, int m)
+        {
+        boolean[] maximize = new boolean[m];
+        ArrayList<Individual> inds = new ArrayList<Individual>(n);
+        for(int i = 0; i < n; i++)
+            {
+            DoubleVectorIndividual ind = new DoubleVectorIndividual();
+            MultiObjectiveFitness fitness = new MultiObjectiveFitness();
+            fitness.maximize = maximize;
+            fitness.objectives = new double[m];
+            for(int k = 0; k < m; k++)
+                fitness.objectives[k] = random.nextDouble();
+            ind.fitness = fitness;
+            inds.add(ind);
+            }
+        return inds;
+        }
+
+    // returns the rank of each of the individuals in inds
+    static int[] ranks(ArrayList<Individual> inds, ArrayList<ArrayList<Individual>> fronts)
+        {
+        IdentityHashMap<Individual, Integer> index = new IdentityHashMap<Individual, Integer>();
+        for(int i = 0; i < inds.size(); i++)
+            index.put(inds.get(i), Integer.valueOf(i));
+        int[] ranks = new int[inds.size()];
+        Arrays.fill(ranks, -1);
+        for(int rank = 0; rank < fronts.size(); rank++)
+            for(Individual ind : fronts.get(rank))
+                ranks[index.get(ind).intValue()] = rank;
+        return ranks;
+        }
+
+    public static void main(String[] args)
+        {
+        int repetitions = (args.length > 0 ? Integer.parseInt(args[0]) : 5);
+        int largestLegacy = (args.length > 1 ? Integer.parseInt(args[1]) : 5000);
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        NonDominatedSorter divideAndConquer = new DivideAndConquerSorter();
+        NonDominatedSorter efficient = new EfficientNonDominatedSorter();
+
+        System.out.println("size\tobjs\tfronts\tlegacy\tdivide-and-conquer\tens-bs");
+        for(int s = 0; s < SIZES.length; s++)
+            for(int o = 0; o < OBJECTIVES.length; o++)
+                {
+                int n = SIZES[s];
+                int m = OBJECTIVES[o];
+                ArrayList<Individual> inds = population(random, n, m);
+                boolean legacy = (n <= largestLegacy);
+
+                // warm up, and check that everyone agrees
+                int[] expected = ranks(inds, divideAndConquer.partitionIntoRanks(inds));
+                if (!Arrays.equals(expected, ranks(inds, efficient.partitionIntoRanks(inds))) ||
+                    (legacy && !Arrays.equals(expected, ranks(inds, MultiObjectiveFitness.partitionIntoRanks(inds)))))
+                    throw new RuntimeException("Sorts disagree for size " + n + " and " + m + " objectives");
+
+                long legacyTime = 0;
+                long divideAndConquerTime = 0;
+                long efficientTime = 0;
+                int fronts = 0;
+                for(int r = 0; r < repetitions; r++)
+                    {
+                    long time = System.nanoTime();
+                    if (legacy) MultiObjectiveFitness.partitionIntoRanks(inds);
+                    legacyTime += System.nanoTime() - time;
+
+                    time = System.nanoTime();
+                    fronts = divideAndConquer.partitionIntoRanks(inds).size();
+                    divideAndConquerTime += System.nanoTime() - time;
+
+                    time = System.nanoTime();
+                    efficient.partitionIntoRanks(inds);
+                    efficientTime += System.nanoTime() - time;
+                    }
+
+                System.out.println(n + "\t" + m + "\t" + fronts + "\t" +
+                    (legacy ? String.format("%.2f", legacyTime / 1.0e6 / repetitions) : "-") + "\t" +
+                    String.format("%.2f", divideAndConquerTime / 1.0e6 / repetitions) + "\t" +
+                    String.format("%.2f", efficientTime / 1.0e6 / repetitions));
+                }
+        }
+    }
@@ -0,0 +1,437 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective.hypervolume;
+
+/**
+ * Hypervolume.java
+ *
+ * Computes the exact hypervolume of a set of points, and the exclusive hypervolume contribution
+ * of each point (the volume which would be lost if it were removed), as used by SMS-EMOA-style
+ * selection.  Points are packed into a double array, point i's m objectives being stored in
+ * points[i * m] through points[i * m + m - 1], as built by NonDominatedSorter.pack(...), and all
+ * objectives are <b>minimized</b>: the hypervolume is the volume of the region dominated by the
+ * points and bounded above by the reference point.  Points which are not better than the reference
+ * point in every objective cover no volume and are ignored.  The points need not be a Pareto front:
+ * dominated and duplicate points are allowed.
+ *
+ * <p>Two and three objectives are handled by dimension sweeps taking O(n log n) and (roughly)
+ * O(n^2) time with a very small constant.  More objectives are handled by the WFG algorithm, from
+ * L. While, L. Bradstreet, and L. Barone, "A Fast Way of Calculating Exact Hypervolumes", IEEE
+ * Transactions on Evolutionary Computation 16(1), 2012: the points are sorted by their last
+ * objective and sliced along it, each slice's volume being the exclusive contribution of a point,
+ * in one fewer objectives, relative to the points before it.  That contribution is the point's own
+ * volume less the hypervolume of its <i>limit set</i>, the earlier points each clipped to the region
+ * the point dominates, with the dominated ones removed.  The recursion bottoms out in the
+ * three-objective sweep.  For large fronts in many objectives even WFG becomes very costly; consider
+ * MonteCarloHypervolume instead.
+ *
+ * <p>A Hypervolume keeps scratch arrays between calls, so it is not threadsafe.
+ */
+
+public class Hypervolume implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    // levels[d] holds the points being worked on in d objectives
+    transient double[][] levels;
+    // holds the limit sets built by contributions(...)
+    transient double[] limits;
+    // scratch for reordering points
+    transient double[] rows;
+    transient int[] index;
+    transient int[] indexScratch;
+    // which of the points have survived filtering, by their original index
+    transient int[] original;
+    transient boolean[] alive;
+    // the two-objective front maintained by the three-objective sweep
+    transient double[] frontX;
+    transient double[] frontY;
+
+    // the current problem
+    transient double[] ref;
+    transient int stride;
+
+    static int[] ensure(int[] array, int length)
+        {
+        return (array == null || array.length < length) ? new int[length] : array;
+        }
+
+    static double[] ensure(double[] array, int length)
+        {
+        return (array == null || array.length < length) ? new double[length] : array;
+        }
+
+    void setUp(int n, int m, double[] reference)
+        {
+        if (m < 1)
+            throw new IllegalArgumentException("Number of objectives must be >= 1: " + m);
+        if (reference.length < m)
+            throw new IllegalArgumentException("Reference point has " + reference.length + " objectives, but the points have " + m);
+        if (levels == null || levels.length < m + 1)
+            levels = new double[m + 1][];
+        for(int d = 1; d <= m; d++)
+            levels[d] = ensure(levels[d], n * m);
+        rows = ensure(rows, n * m);
+        index = ensure(index, n);
+        indexScratch = ensure(indexScratch, n);
+        original = ensure(original, n);
+        alive = (alive == null || alive.length < n) ? new boolean[n] : alive;
+        frontX = ensure(frontX, n);
+        frontY = ensure(frontY, n);
+        ref = reference;
+        stride = m;
+        }
+
+    // Copies into out those points which are better than the reference point in every objective,
+    // recording their original indices, and returns how many there were
+    int filter(double[] points, int n, int m, double[] out)
+        {
+        int k = 0;
+        for(int i = 0; i < n; i++)
+            {
+            int base = i * m;
+            int x = 0;
+            while(x < m && points[base + x] < ref[x]) x++;
+            if (x == m)
+                {
+                System.arraycopy(points, base, out, k * m, m);
+                original[k++] = i;
+                }
+            }
+        return k;
+        }
+
+    /** Returns the hypervolume of n points of m objectives each, packed into points, relative to
+        the given reference point. */
+    public double compute(double[] points, int n, int m, double[] reference)
+        {
+        setUp(n, m, reference);
+        try
+            {
+            int k = filter(points, n, m, levels[m]);
+            return hv(levels[m], k, m);
+            }
+        finally
+            {
+            ref = null;
+            }
+        }
+
+    /** Sets out[i] to the exclusive hypervolume contribution of point i among the n points of
+        m objectives each, packed into points, relative to the given reference point.  That is the
+        volume dominated by point i but by no other point, so it is 0 for dominated and duplicated
+        points.  If out is null or too short, a new array is allocated.  The array is returned. */
+    public double[] contributions(double[] points, int n, int m, double[] reference, double[] out)
+        {
+        out = ensure(out, n);
+        java.util.Arrays.fill(out, 0, n, 0.0);
+        setUp(n, m, reference);
+        try
+            {
+            double[] p = levels[m];
+            int k = filter(points, n, m, p);
+            if (k == 0) return out;
+            if (m == 2)
+                {
+                contributions2(p, k, out);
+                return out;
+                }
+
+            limits = ensure(limits, n * m);
+            for(int i = 0; i < k; i++)
+                {
+                int size = limitSet(p, i, k, m, limits);
+                if (size >= 0)  // otherwise it's weakly dominated
+                    out[original[i]] = inclusive(p, i, m) - hv(limits, size, m);
+                }
+            return out;
+            }
+        finally
+            {
+            ref = null;
+            }
+        }
+
+    // Returns the volume dominated by row i of p alone, in objectives 0 ... d-1
+    double inclusive(double[] p, int i, int d)
+        {
+        int base = i * stride;
+        double volume = 1.0;
+        for(int x = 0; x < d; x++)
+            volume *= ref[x] - p[base + x];
+        return volume;
+        }
+
+    // Returns the hypervolume of the first n rows of p, in objectives 0 ... d-1
+    double hv(double[] p, int n, int d)
+        {
+        if (n == 0) return 0.0;
+        if (n == 1) return inclusive(p, 0, d);
+        switch(d)
+            {
+            case 1:
+                {
+                double min = p[0];
+                for(int i = 1; i < n; i++)
+                    if (p[i * stride] < min) min = p[i * stride];
+                return ref[0] - min;
+                }
+            case 2: return sweep2(p, n);
+            case 3: return sweep3(p, n);
+            default: return slice(p, n, d);
+            }
+        }
+
+    // The WFG algorithm, for d >= 4
+    double slice(double[] p, int n, int d)
+        {
+        sortRows(p, n, d - 1);
+        double[] limit = levels[d - 1];
+        double volume = 0.0;
+        for(int i = 0; i < n; i++)
+            {
+            double depth = ref[d - 1] - p[i * stride + d - 1];
+            int size = limitSet(p, i, i, d - 1, limit);
+            if (size >= 0)  // otherwise an earlier point covers it
+                volume += depth * (inclusive(p, i, d - 1) - hv(limit, size, d - 1));
+            }
+        return volume;
+        }
+
+    // Builds into out the limit set of row i against rows 0 ... end-1 other than i, in objectives
+    // 0 ... d-1: each row clipped to the region dominated by row i, with dominated and duplicate
+    // rows removed.  Returns its size, or -1 if some row weakly dominates row i, in which case the
+    // limit set covers all of row i's volume.
+    int limitSet(double[] p, int i, int end, int d, double[] out)
+        {
+        int bi = i * stride;
+        int k = 0;
+        for(int j = 0; j < end; j++)
+            {
+            if (j == i) continue;
+            int bj = j * stride;
+            int bk = k * stride;
+            boolean same = true;
+            for(int x = 0; x < d; x++)
+                {
+                double v = p[bj + x];
+                if (v <= p[bi + x]) v = p[bi + x];
+                else same = false;
+                out[bk + x] = v;
+                }
+            if (same) return -1;
+            alive[k++] = true;
+            }
+
+        // remove dominated and duplicate rows
+        for(int a = 0; a < k; a++)
+            {
+            if (!alive[a]) continue;
+            int ba = a * stride;
+            for(int b = a + 1; b < k; b++)
+                {
+                if (!alive[b]) continue;
+                int bb = b * stride;
+                boolean aNoWorse = true;
+                boolean bNoWorse = true;
+                for(int x = 0; x < d && (aNoWorse || bNoWorse); x++)
+                    {
+                    if (out[ba + x] > out[bb + x]) aNoWorse = false;
+                    else if (out[ba + x] < out[bb + x]) bNoWorse = false;
+                    }
+                if (aNoWorse) alive[b] = false;
+                else if (bNoWorse) { alive[a] = false; break; }
+                }
+            }
+
+        int size = 0;
+        for(int a = 0; a < k; a++)
+            if (alive[a])
+                {
+                if (a != size)
+                    System.arraycopy(out, a * stride, out, size * stride, d);
+                size++;
+                }
+        return size;
+        }
+
+    // Two-objective sweep
+    double sweep2(double[] p, int n)
+        {
+        sort(p, n, 0, 1);
+        double area = 0.0;
+        double lastY = ref[1];
+        for(int i = 0; i < n; i++)
+            {
+            int r = index[i] * stride;
+            double y = p[r + 1];
+            if (y < lastY)
+                {
+                area += (ref[0] - p[r]) * (lastY - y);
+                lastY = y;
+                }
+            }
+        return area;
+        }
+
+    // Three-objective sweep: adds points in order of objective 2, maintaining the two-objective
+    // front of the points so far, sorted by objective 0, and its area
+    double sweep3(double[] p, int n)
+        {
+        sort(p, n, 2, -1);
+        int size = 0;
+        double area = 0.0;
+        double volume = 0.0;
+        double lastZ = 0.0;
+        for(int i = 0; i < n; i++)
+            {
+            int r = index[i] * stride;
+            double x = p[r];
+            double y = p[r + 1];
+            double z = p[r + 2];
+            if (i > 0) volume += area * (z - lastZ);
+            lastZ = z;
+
+            // the first front point not to the left of x
+            int start = 0;
+            int high = size;
+            while(start < high)
+                {
+                int mid = (start + high) >>> 1;
+                if (frontX[mid] < x) start = mid + 1;
+                else high = mid;
+                }
+            if ((start > 0 && frontY[start - 1] <= y) ||
+                (start < size && frontX[start] == x && frontY[start] <= y))
+                continue;  // weakly dominated
+
+            // walk through the front points the new one dominates, adding the area it covers
+            double top = (start > 0 ? frontY[start - 1] : ref[1]);
+            double t = x;
+            double gain = 0.0;
+            int j = start;
+            while(j < size && frontY[j] >= y)
+                {
+                gain += (frontX[j] - t) * (top - y);
+                t = frontX[j];
+                top = frontY[j];
+                j++;
+                }
+            gain += ((j < size ? frontX[j] : ref[0]) - t) * (top - y);
+            area += gain;
+
+            // replace them with the new point
+            if (j - start != 1)
+                {
+                System.arraycopy(frontX, j, frontX, start + 1, size - j);
+                System.arraycopy(frontY, j, frontY, start + 1, size - j);
+                size += 1 - (j - start);
+                }
+            frontX[start] = x;
+            frontY[start] = y;
+            }
+        return volume + area * (ref[2] - lastZ);
+        }
+
+    // Two-objective contributions.  For each point not weakly dominated by another, walks right
+    // along the staircase of the other points until it drops to the point's own objective 1.
+    void contributions2(double[] p, int n, double[] out)
+        {
+        sort(p, n, 0, 1);
+        double minY = ref[1];  // of the points so far
+        for(int i = 0; i < n; i++)
+            {
+            int r = index[i] * stride;
+            double x = p[r];
+            double y = p[r + 1];
+            boolean dominated = (minY <= y) ||
+                (i + 1 < n && p[index[i + 1] * stride] == x && p[index[i + 1] * stride + 1] == y);
+            if (!dominated)
+                {
+                double top = minY;
+                double t = x;
+                double c = 0.0;
+                int j = i + 1;
+                for( ; j < n; j++)
+                    {
+                    int q = index[j] * stride;
+                    if (p[q + 1] < top)
+                        {
+                        c += (p[q] - t) * (top - y);
+                        t = p[q];
+                        top = p[q + 1];
+                        if (top <= y) break;
+                        }
+                    }
+                if (j == n) c += (ref[0] - t) * (top - y);
+                out[original[index[i]]] = c;
+                }
+            if (y < minY) minY = y;
+            }
+        }
+
+    // Sorts rows 0 ... n-1 of p by the given objective
+    void sortRows(double[] p, int n, int objective)
+        {
+        sort(p, n, objective, -1);
+        for(int i = 0; i < n; i++)
+            System.arraycopy(p, index[i] * stride, rows, i * stride, stride);
+        System.arraycopy(rows, 0, p, 0, n * stride);
+        }
+
+    // Stably merge-sorts index[0 ... n-1] by the given objective of the rows of p, breaking
+    // ties with the secondary objective if it is >= 0
+    void sort(double[] p, int n, int objective, int secondary)
+        {
+        for(int i = 0; i < n; i++)
+            index[i] = i;
+        mergeSort(p, objective, secondary, 0, n);
+        }
+
+    boolean lessOrEqual(double[] p, int objective, int secondary, int a, int b)
+        {
+        double x = p[a * stride + objective];
+        double y = p[b * stride + objective];
+        if (x != y || secondary < 0) return x <= y;
+        return p[a * stride + secondary] <= p[b * stride + secondary];
+        }
+
+    void mergeSort(double[] p, int objective, int secondary, int from, int to)
+        {
+        if (to - from <= 16)
+            {
+            for(int i = from + 1; i < to; i++)
+                {
+                int v = index[i];
+                int j = i - 1;
+                while(j >= from && !lessOrEqual(p, objective, secondary, index[j], v))
+                    {
+                    index[j + 1] = index[j];
+                    j--;
+                    }
+                index[j + 1] = v;
+                }
+            return;
+            }
+        int mid = (from + to) >>> 1;
+        mergeSort(p, objective, secondary, from, mid);
+        mergeSort(p, objective, secondary, mid, to);
+        if (lessOrEqual(p, objective, secondary, index[mid - 1], index[mid]))
+            return;  // already in order
+        System.arraycopy(index, from, indexScratch, from, to - from);
+        int i = from;
+        int j = mid;
+        for(int k = from; k < to; k++)
+            {
+            if (j >= to || (i < mid && lessOrEqual(p, objective, secondary, indexScratch[i], indexScratch[j])))
+                index[k] = indexScratch[i++];
+            else
+                index[k] = indexScratch[j++];
+            }
+        }
+    }
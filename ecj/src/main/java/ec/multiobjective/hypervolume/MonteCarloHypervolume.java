@@ -0,0 +1,123 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.multiobjective.hypervolume;
+
+import ec.util.*;
+
+/**
+ * MonteCarloHypervolume.java
+ *
+ * Estimates the hypervolume of a set of points by sampling uniformly from the box bounded
+ * below by the smallest value of each objective among the points and above by the reference
+ * point, and counting the fraction of samples dominated by some point.  Points are packed and
+ * minimized as in Hypervolume.  Each sample costs O(n m) at worst regardless of the number of
+ * objectives, so this is the practical choice for large fronts in many objectives, where exact
+ * algorithms are exponential in m.
+ *
+ * <p>After estimate(...), getStandardError() gives the estimate's standard error (from the
+ * normal approximation to the binomial), and getErrorBound(...) a distribution-free bound from
+ * Hoeffding's inequality: the estimate is within getErrorBound(confidence) of the true hypervolume
+ * with probability at least confidence.  Both shrink as one over the square root of the number of
+ * samples.
+ *
+ * <p>A MonteCarloHypervolume keeps scratch arrays between calls, so it is not threadsafe.
+ */
+
+public class MonteCarloHypervolume implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    MersenneTwisterFast random;
+    Hypervolume scratch = new Hypervolume();  // for its filtering and sorting
+    transient double[] lower;
+    transient double[] sample;
+
+    // the results of the last estimate
+    double boxVolume;
+    long hits;
+    long samples;
+
+    public MonteCarloHypervolume(MersenneTwisterFast random)
+        {
+        this.random = random;
+        }
+
+    /** Estimates the hypervolume of n points of m objectives each, packed into points, relative to
+        the given reference point, from the given number of samples. */
+    public double estimate(double[] points, int n, int m, double[] reference, long samples)
+        {
+        if (samples < 1)
+            throw new IllegalArgumentException("Number of samples must be >= 1: " + samples);
+        this.samples = samples;
+        hits = 0;
+        boxVolume = 0.0;
+
+        Hypervolume s = scratch;
+        s.setUp(n, m, reference);
+        try
+            {
+            double[] p = s.levels[m];
+            int k = s.filter(points, n, m, p);
+            if (k == 0) return 0.0;
+            s.sortRows(p, k, 0);  // so we can stop looking once objective 0 is too big
+
+            lower = Hypervolume.ensure(lower, m);
+            sample = Hypervolume.ensure(sample, m);
+            boxVolume = 1.0;
+            for(int x = 0; x < m; x++)
+                {
+                double min = p[x];
+                for(int i = 1; i < k; i++)
+                    if (p[i * m + x] < min) min = p[i * m + x];
+                lower[x] = min;
+                boxVolume *= reference[x] - min;
+                }
+
+            for(long t = 0; t < samples; t++)
+                {
+                for(int x = 0; x < m; x++)
+                    sample[x] = lower[x] + random.nextDouble() * (reference[x] - lower[x]);
+                for(int i = 0; i < k; i++)
+                    {
+                    int base = i * m;
+                    if (p[base] > sample[0]) break;
+                    int x = 1;
+                    while(x < m && p[base + x] <= sample[x]) x++;
+                    if (x == m) { hits++; break; }
+                    }
+                }
+            return getEstimate();
+            }
+        finally
+            {
+            s.ref = null;
+            }
+        }
+
+    /** Returns the last estimate. */
+    public double getEstimate()
+        {
+        return (samples == 0 ? 0.0 : boxVolume * hits / samples);
+        }
+
+    /** Returns the standard error of the last estimate. */
+    public double getStandardError()
+        {
+        if (samples == 0) return 0.0;
+        double f = hits / (double)samples;
+        return boxVolume * Math.sqrt(f * (1.0 - f) / samples);
+        }
+
+    /** Returns a bound e such that the last estimate was within e of the true hypervolume with
+        probability at least the given confidence (0 &lt; confidence &lt; 1), by Hoeffding's inequality. */
+    public double getErrorBound(double confidence)
+        {
+        if (samples == 0) return 0.0;
+        return boxVolume * Math.sqrt(Math.log(2.0 / (1.0 - confidence)) / (2.0 * samples));
+        }
+    }
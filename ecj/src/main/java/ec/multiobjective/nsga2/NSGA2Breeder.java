@@ -27,7 +27,20 @@ import ec.multiobjective.*;
  * <p>NSGA-II has fixed archive size (the population size), and so ignores the 'elites'
  * declaration.  However it will adhere to the 'reevaluate-elites' parameter in SimpleBreeder
  * to determine whether to force fitness reevaluation.
-
+ *
+ * <p>By default the population is divided into Pareto front ranks with
+ * MultiObjectiveFitness.partitionIntoRanks(...), which is O(n^2) per front.  For large populations
+ * you can instead provide a NonDominatedSorter, such as DivideAndConquerSorter (for a few objectives)
+ * or EfficientNonDominatedSorter (for many).  These produce the same fronts, but may order the
+ * individuals within each front differently, so runs will not necessarily be identical.  If a
+ * fitness overrides paretoDominates(...), or an objective is NaN, the sorter is not used.
+ *
+ * <p><b>Parameters</b><br>
+ * <table>
+ * <tr><td valign=top><i>base</i>.<tt>sorter</tt><br>
+ * <font size=-1>classname, inherits and != ec.multiobjective.NonDominatedSorter</font></td>
+ * <td valign=top>(the non-dominated sorter to use; if absent, MultiObjectiveFitness.partitionIntoRanks(...) is used)</td></tr>
+ * </table>
  */
 
 public class NSGA2Breeder extends SimpleBreeder
@@ -37,6 +50,11 @@ public class NSGA2Breeder extends SimpleBreeder
      */
     public enum BreedingState { ARCHIVE_LOADED, BREEDING_COMPLETE };
     BreedingState breedingState;
+
+    public static final String P_SORTER = "sorter";
+
+    /** The non-dominated sorter, or null to use MultiObjectiveFitness.partitionIntoRanks(...). */
+    public NonDominatedSorter sorter;
     
     public void setup(final EvolutionState state, final Parameter base)
         {
@@ -53,6 +71,13 @@ public class NSGA2Breeder extends SimpleBreeder
         
         if (!clonePipelineAndPopulation)
             state.output.fatal(P_CLONE_PIPELINE_AND_POPULATION + " must be true for " + this.getClass().getSimpleName());
+
+        Parameter p = base.push(P_SORTER);
+        if (state.parameters.exists(p, null))
+            {
+            sorter = (NonDominatedSorter)(state.parameters.getInstanceForParameter(p, null, NonDominatedSorter.class));
+            sorter.setup(state, p);
+            }
         
         breedingState = BreedingState.BREEDING_COMPLETE;
         }
@@ -172,12 +197,21 @@ public class NSGA2Breeder extends SimpleBreeder
 
 
 
+    /** Divides inds into pareto front ranks using the sorter, or if there is none, or the sorter
+        cannot rank these individuals (see MultiObjectiveFitness.sortable(...)), MultiObjectiveFitness.partitionIntoRanks(...). */
+    public ArrayList<ArrayList<Individual>> partitionIntoRanks(ArrayList<Individual> inds)
+        {
+        if (sorter == null || !MultiObjectiveFitness.sortable(inds))
+            return MultiObjectiveFitness.partitionIntoRanks(inds);
+        else return sorter.partitionIntoRanks(inds);
+        }
+
     /** Divides inds into ranks and assigns each individual's rank to be the rank it was placed into.
         Each front is an ArrayList. */
     public ArrayList<ArrayList<Individual>> assignFrontRanks(Subpopulation subpop)
         {
         ArrayList<Individual> inds = subpop.individuals;
-        ArrayList<ArrayList<Individual>> frontsByRank = MultiObjectiveFitness.partitionIntoRanks(inds);
+        ArrayList<ArrayList<Individual>> frontsByRank = partitionIntoRanks(inds);
 
         int numRanks = frontsByRank.size();
         for(int rank = 0; rank < numRanks; rank++)
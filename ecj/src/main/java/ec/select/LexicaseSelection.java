@@ -4,20 +4,95 @@ import ec.EvolutionState;
 import ec.Fitness;
 import ec.Individual;
 import ec.SelectionMethod;
+import ec.gp.koza.KozaFitness;
 import ec.util.MersenneTwisterFast;
 import ec.util.Parameter;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 
 /**
+ * Lexicase selection.  Each individual's fitness must hold, in <tt>fitness.trials</tt>, one Fitness per
+ * test case.  To select an individual, the test cases are taken in a random order, and for each case in
+ * turn, the candidates (at first the whole subpopulation) are cut down to those which do best on that case.
+ * Once a single candidate is left, or the cases run out, a random one of the remaining candidates is selected.
+ *
+ * <p>The trials are packed, once a generation in prepareToProduce(...), into a primitive matrix of
+ * <i>errors</i>, lower being better: the standardized fitness of a KozaFitness, or else the negated
+ * fitness() of any other Fitness (see error(...)).  NaN counts as an infinite error.  The matrix is held
+ * case by case, so that cutting down the candidates on one case reads a single row.  produce(...) then
+ * works entirely in reusable int buffers and allocates nothing, and it uses the random number generator of
+ * the calling thread.  The candidates remaining after each case's first cut, from the whole subpopulation,
+ * are the same for every selection, so they're computed once for each case as it's first used, which makes
+ * selecting many individuals in a generation much faster.  produce(subpopulation, state, thread, parents) goes
+ * further, making many selections together and sharing every cut among the selections which have drawn the
+ * same cases so far.
+ *
+ * <p>With <tt>epsilon</tt>, this is epsilon-lexicase selection (La Cava, Spector, and Danai, 2016), for
+ * continuous errors: on each case, candidates are kept if their error is within epsilon of the best of
+ * the candidates, where epsilon for that case is the median absolute deviation of all the subpopulation's
+ * errors on it.  With <tt>downsample</tt> below 1, this is down-sampled lexicase selection (Hernandez et al.,
+ * 2019): each generation, selection uses only a random subset of the cases of that fraction of their
+ * number.  Every breeding thread uses the same subset, drawn with a random number generator seeded from the
+ * generation and a seed chosen once at setup, so the subset doesn't depend on the number of threads.
+ *
+ * <p>The matrix and buffers belong to each clone of the LexicaseSelection, and since ECJ's breeders give
+ * each breeding thread its own clone of the pipeline, they're never shared among threads.  If produce(...) is
+ * called without prepareToProduce(...), or on a different subpopulation, the matrix is built first.
+
+ <p><b>Typical Number of Individuals Produced Per <tt>produce(...)</tt> call</b><br>
+ Always 1.
+
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base.</i><tt>epsilon</tt><br>
+ <font size=-1> bool = <tt>true</tt> or <tt>false</tt> (default)</font></td>
+ <td valign=top>(should we do epsilon-lexicase selection, with the median absolute deviation of each case's errors as its epsilon?)</td></tr>
+
+ <tr><td valign=top><i>base.</i><tt>downsample</tt><br>
+ <font size=-1>0.0 &lt; double &lt;= 1.0 (default is 1.0)</font></td>
+ <td valign=top>(the fraction of the cases, chosen at random each generation, used for selection)</td></tr>
+
+ </table>
+
+ <p><b>Default Base</b><br>
+ select.lexicaseselect
+
  *
  * @author Eric 'Siggy' Scott
  */
 public class LexicaseSelection extends SelectionMethod
     {
     private static final long serialVersionUID = 1;
-    
+
     public static final String P_LEXICASESELECT = "lexicaseselect";
+    public static final String P_EPSILON = "epsilon";
+    public static final String P_DOWNSAMPLE = "downsample";
+
+    /** Do we do epsilon-lexicase selection? */
+    public boolean epsilon;
+
+    /** The fraction of the cases used each generation. */
+    public double downsample;
+
+    /** The seed, together with the generation and subpopulation, of the random subset of cases when down-sampling. */
+    public long downsampleSeed;
+
+    // the individuals whose errors are packed, or null if none are
+    ArrayList<Individual> packed;
+    // errors[c][i] is the error of individual i on the c'th case in use
+    double[][] errors;
+    // epsilons[c] is the epsilon for the c'th case in use, or 0
+    double[] epsilons;
+    // the candidates left after the first cut on the c'th case in use, or null if not yet computed
+    int[][] firstCut;
+    // the cases in use, in the order of the last selection: any order will do to start the next
+    int[] order;
+    // the candidates during a selection
+    int[] candidates;
+    // levels[x] holds the candidates after x cases during a batch of selections, or null if not yet needed
+    int[][] levels;
+    // the selections of a batch: the index into parents in the low 32 bits, the case last drawn in the high
+    long[] keys;
 
     @Override
     public Parameter defaultBase()
@@ -25,6 +100,180 @@ public class LexicaseSelection extends SelectionMethod
         return SelectDefaults.base().push(P_LEXICASESELECT);
         }
 
+    @Override
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+
+        Parameter def = defaultBase();
+
+        epsilon = state.parameters.getBoolean(base.push(P_EPSILON), def.push(P_EPSILON), false);
+        downsample = state.parameters.getDoubleWithDefault(base.push(P_DOWNSAMPLE), def.push(P_DOWNSAMPLE), 1.0);
+        if (!(downsample > 0.0 && downsample <= 1.0))
+            state.output.fatal("Downsample must be > 0.0 and <= 1.0.", base.push(P_DOWNSAMPLE), def.push(P_DOWNSAMPLE));
+        if (downsample < 1.0)
+            downsampleSeed = state.random[0].nextLong();  // setup is single-threaded, and the clones all share it
+        }
+
+    @Override
+    public Object clone()
+        {
+        LexicaseSelection s = (LexicaseSelection)(super.clone());
+        s.release();  // don't share buffers
+        return s;
+        }
+
+    void release()
+        {
+        packed = null;
+        errors = null;
+        epsilons = null;
+        firstCut = null;
+        order = null;
+        candidates = null;
+        levels = null;
+        keys = null;
+        }
+
+    @Override
+    public void prepareToProduce(final EvolutionState state, final int subpopulation, final int thread)
+        {
+        super.prepareToProduce(state, subpopulation, thread);
+        pack(state, subpopulation, thread);
+        }
+
+    @Override
+    public void finishProducing(final EvolutionState state, final int subpopulation, final int thread)
+        {
+        super.finishProducing(state, subpopulation, thread);
+        release();
+        }
+
+    /** Returns the error of an individual on a test case, given the Fitness of its trial on that case: lower errors
+        are better, and two trials must have the same error if and only if neither is betterThan(...) the
+        other.  By default this is the standardized fitness of a KozaFitness, and otherwise -fitness(). */
+    public double error(final Fitness trial)
+        {
+        double e = (trial instanceof KozaFitness ? ((KozaFitness)trial).standardizedFitness() : -trial.fitness());
+        return (e != e ? Double.POSITIVE_INFINITY : e);  // NaN
+        }
+
+    // Packs the errors of the subpopulation's individuals into the matrix, and gets the buffers ready
+    void pack(final EvolutionState state, final int subpopulation, final int thread)
+        {
+        final ArrayList<Individual> pop = state.population.subpops.get(subpopulation).individuals;
+        final int n = pop.size();
+        if (n == 0)
+            state.output.fatal(String.format("Attempted to use %s on an empty subpopulation.", this.getClass().getSimpleName()));
+        if (pop.get(0).fitness.trials == null || pop.get(0).fitness.trials.size() == 0)
+            state.output.fatal(String.format("Attempted to use %s on an individual with an empty list of trials.", this.getClass().getSimpleName()));
+        final int numCases = pop.get(0).fitness.trials.size();
+
+        // pick the cases, all of them unless we're down-sampling, in which case every thread picks the same ones
+        int used = (downsample == 1.0 ? numCases : Math.max(1, (int)Math.round(downsample * numCases)));
+        final int[] cases = new int[numCases];
+        for (int c = 0; c < numCases; c++)
+            cases[c] = c;
+        if (used < numCases)
+            {
+            shuffle(new MersenneTwisterFast(new int[] { (int)downsampleSeed, (int)(downsampleSeed >>> 32), state.generation, subpopulation }), cases, used);
+            Arrays.sort(cases, 0, used);  // so each individual's trials are read in order
+            }
+
+        errors = new double[used][n];
+        for (int i = 0; i < n; i++)
+            {
+            final ArrayList<?> trials = pop.get(i).fitness.trials;
+            if (trials == null || trials.size() != numCases)
+                state.output.fatal(String.format("%s requires every individual to have the same number of trials (%d), but individual %d has %s.",
+                        this.getClass().getSimpleName(), numCases, i, (trials == null ? "none" : "" + trials.size())));
+            for (int c = 0; c < used; c++)
+                errors[c][i] = error((Fitness)(trials.get(cases[c])));
+            }
+
+        epsilons = new double[used];
+        if (epsilon)
+            {
+            final double[] scratch = new double[n];
+            for (int c = 0; c < used; c++)
+                epsilons[c] = medianAbsoluteDeviation(errors[c], scratch);
+            }
+
+        firstCut = new int[used][];
+        order = new int[used];
+        for (int c = 0; c < used; c++)
+            order[c] = c;
+        candidates = new int[n];
+        levels = new int[used + 1][];
+        packed = pop;
+        }
+
+    /** Returns the median absolute deviation of the given values, using scratch, which must be as long, as
+        working space.  Infinite values are handled as if they were merely huge. */
+    public static double medianAbsoluteDeviation(final double[] values, final double[] scratch)
+        {
+        final int n = values.length;
+        System.arraycopy(values, 0, scratch, 0, n);
+        final double median = median(scratch);
+        for (int i = 0; i < n; i++)
+            {
+            double d = Math.abs(values[i] - median);
+            scratch[i] = (d != d ? 0.0 : d);  // infinity minus infinity
+            }
+        return median(scratch);
+        }
+
+    // Sorts the values in place and returns their median
+    static double median(final double[] values)
+        {
+        Arrays.sort(values);
+        final int n = values.length;
+        return ((n & 1) == 1 ? values[n / 2] : (values[n / 2 - 1] + values[n / 2]) / 2.0);
+        }
+
+    // Cuts the first n candidates down to those within epsilon of the best on the c'th case in use,
+    // returning how many are left
+    int cut(final int[] candidates, final int n, final int c)
+        {
+        return cut(candidates, n, c, candidates);
+        }
+
+    // Cuts the first n candidates down as cut(candidates, n, c) does, but leaves those left in into, which
+    // may be candidates itself
+    int cut(final int[] candidates, final int n, final int c, final int[] into)
+        {
+        final double[] e = errors[c];
+        double best = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < n; k++)
+            {
+            final double v = e[candidates[k]];
+            if (v < best) best = v;
+            }
+        final double threshold = best + epsilons[c];
+        int m = 0;
+        for (int k = 0; k < n; k++)
+            {
+            final int i = candidates[k];
+            if (e[i] <= threshold)
+                into[m++] = i;
+            }
+        return m;
+        }
+
+    // Returns the candidates left after cutting the whole subpopulation down on the c'th case in use
+    int[] firstCut(final int c)
+        {
+        int[] cut = firstCut[c];
+        if (cut == null)
+            {
+            final int n = errors[c].length;
+            for (int i = 0; i < n; i++)
+                candidates[i] = i;
+            cut = firstCut[c] = Arrays.copyOf(candidates, cut(candidates, n, c));
+            }
+        return cut;
+        }
+
     @Override
     public int produce(final int subpopulation, final EvolutionState state, final int thread)
         {
@@ -33,74 +282,132 @@ public class LexicaseSelection extends SelectionMethod
         assert(subpopulation < state.population.subpops.size());
         assert(state.population.subpops.get(subpopulation) != null);
         assert(state.population.subpops.get(subpopulation).individuals.size() > 0);
-        
-        final ArrayList<Individual> pop = state.population.subpops.get(subpopulation).individuals;
-        
-        // Initialize the candidates to the entire population
-        final ArrayList<Integer> candidates = new ArrayList<Integer>();
-        for (int i = 0; i < pop.size(); i++)
-            candidates.add(i);
-        
-        // Shuffle test cases
-        assert(pop.get(candidates.get(0)).fitness.trials != null);
-        final int numCases = pop.get(0).fitness.trials.size();
-        if (numCases == 0)
-            state.output.fatal(String.format("Attempted to use %s on an individual with an empty list of trials.", this.getClass().getSimpleName()));
-        final int[] caseOrder = new int[numCases];
-        for (int i = 0; i < numCases; i++)
-            caseOrder[i] = i;
-        shuffle(state, caseOrder);
-        
-        for (int i = 0; i < caseOrder.length; i++)
+
+        if (packed != state.population.subpops.get(subpopulation).individuals)
+            pack(state, subpopulation, thread);
+
+        final MersenneTwisterFast random = state.random[thread];
+        final int[] order = this.order;
+        final int[] candidates = this.candidates;
+        final int numCases = order.length;
+
+        // shuffle the cases as we go, since we usually run out of candidates long before cases
+        int c = pick(random, order, 0);
+        final int[] cut = firstCut(c);
+        int n = cut.length;
+        System.arraycopy(cut, 0, candidates, 0, n);
+
+        for (int x = 1; x < numCases && n > 1; x++)
+            n = cut(candidates, n, pick(random, order, x));
+
+        return (n == 1 ? candidates[0] : candidates[random.nextInt(n)]);
+        }
+
+    /** Selects parents.length individuals from the subpopulation, placing their indices in parents.  Each selection
+        has its own random ordering of the cases, just as if produce(subpopulation, state, thread) were called
+        parents.length times, but the orderings are drawn a case at a time, all the selections together, and the
+        selections which have drawn the same cases so far cut down their candidates together.  So the selections
+        are distributed just as they would be by produce(...), though they don't use the same random numbers. */
+    public void produce(final int subpopulation, final EvolutionState state, final int thread, final int[] parents)
+        {
+        if (packed != state.population.subpops.get(subpopulation).individuals)
+            pack(state, subpopulation, thread);
+        if (parents.length == 0)
+            return;
+
+        if (keys == null || keys.length < parents.length)
+            keys = new long[parents.length];
+        for (int q = 0; q < parents.length; q++)
+            keys[q] = q;
+        produce(state.random[thread], parents, 0, parents.length, 0, 0);
+        }
+
+    // Returns levels[x], making it if need be
+    int[] level(final int x)
+        {
+        if (levels[x] == null)
+            levels[x] = new int[candidates.length];
+        return levels[x];
+        }
+
+    // Makes the selections in keys[lo] ... keys[hi - 1], all of which have drawn the cases order[0] ... order[x - 1],
+    // leaving the n candidates in levels[x] (unless x is 0, when the candidates are the whole subpopulation)
+    void produce(final MersenneTwisterFast random, final int[] parents, final int lo, final int hi, int x, int n)
+        {
+        final int[] order = this.order;
+        final int numCases = order.length;
+
+        if (hi - lo == 1)  // a lone selection goes on just as produce(...) does
             {
-            final int currentCase = caseOrder[i];
-            
-            // Find the best value of the current test case
-            Fitness best = (Fitness) pop.get(candidates.get(0)).fitness.trials.get(currentCase);
-            for (int j = 1; j < candidates.size(); j++)
-                {
-                assert(pop.get(candidates.get(j)).fitness.trials != null);
-                assert(pop.get(candidates.get(j)).fitness.trials.size() == numCases);
-                final Fitness caseFitness = (Fitness) pop.get(candidates.get(j)).fitness.trials.get(currentCase);
-                if (caseFitness.betterThan(best))
-                    best = caseFitness;
-                }
-            
-            // Reduce candidates to the subset that performs best on the current test case
-            final Iterator<Integer> it = candidates.iterator();
-            while (it.hasNext())
+            if (x == 0)
                 {
-                final Fitness caseFitness = (Fitness) pop.get(it.next()).fitness.trials.get(currentCase);
-                if (caseFitness.compareTo(best) > 0) // if strictly worse than best
-                    it.remove();
+                final int[] cut = firstCut(pick(random, order, 0));
+                n = cut.length;
+                System.arraycopy(cut, 0, level(1), 0, n);
+                x = 1;
                 }
-            
-            // If only one individual is left, return it
-            if (candidates.size() == 1)
-                {
-                return candidates.get(0);
-                }
-            
-            // If this was the last test case, return a random candidate
-            if (i == caseOrder.length - 1)
+            final int[] candidates = levels[x];
+            for ( ; x < numCases && n > 1; x++)
+                n = cut(candidates, n, pick(random, order, x));
+            parents[(int)keys[lo]] = (n == 1 ? candidates[0] : candidates[random.nextInt(n)]);
+            return;
+            }
+
+        if (x == numCases || (x > 0 && n == 1))  // the selections are over
+            {
+            final int[] candidates = levels[x];
+            for (int k = lo; k < hi; k++)
+                parents[(int)keys[k]] = (n == 1 ? candidates[0] : candidates[random.nextInt(n)]);
+            return;
+            }
+
+        // each selection draws its next case from those it hasn't, and those which draw the same one go on together
+        for (int k = lo; k < hi; k++)
+            keys[k] = ((long)order[x + random.nextInt(numCases - x)] << 32) | (keys[k] & 0xFFFFFFFFL);
+        Arrays.sort(keys, lo, hi);
+
+        final int[] candidates = levels[x];
+        final int[] next = level(x + 1);
+        int end;
+        for (int start = lo; start < hi; start = end)
+            {
+            final int c = (int)(keys[start] >>> 32);
+            for (end = start + 1; end < hi && (int)(keys[end] >>> 32) == c; end++);
+
+            int m;
+            if (x == 0)
                 {
-                return candidates.get(state.random[0].nextInt(candidates.size()));
+                final int[] cut = firstCut(c);
+                m = cut.length;
+                System.arraycopy(cut, 0, next, 0, m);
                 }
+            else
+                m = cut(candidates, n, c, next);
+
+            // move c to order[x], so the cases after it are those not yet drawn
+            int p = x;
+            while (order[p] != c) p++;
+            order[p] = order[x];
+            order[x] = c;
+
+            produce(random, parents, start, end, x + 1, m);
             }
-        throw new IllegalStateException();
         }
-    
 
-    private void shuffle(final EvolutionState state, final int[] a)
+    // Swaps a random one of a[x] ... a[a.length - 1] into a[x], and returns it: one step of a Fisher-Yates shuffle
+    static int pick(final MersenneTwisterFast random, final int[] a, final int x)
         {
-        final MersenneTwisterFast mtf = state.random[0];
-        for(int x = a.length - 1; x >= 1; x--)
-            {
-            int rand = mtf.nextInt(x+1);
-            int obj = a[x];
-            a[x] = a[rand];
-            a[rand] = obj;
-            }
+        final int r = x + random.nextInt(a.length - x);
+        final int obj = a[r];
+        a[r] = a[x];
+        a[x] = obj;
+        return obj;
+        }
+
+    // Shuffles the first n elements of a into a random selection of all its elements
+    static void shuffle(final MersenneTwisterFast random, final int[] a, final int n)
+        {
+        for (int x = 0; x < n; x++)
+            pick(random, a, x);
         }
-    
     }
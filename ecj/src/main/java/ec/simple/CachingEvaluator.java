@@ -0,0 +1,93 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.simple;
+
+import ec.*;
+import ec.util.*;
+
+/**
+ * CachingEvaluator.java
+ *
+ * A SimpleEvaluator which remembers the Fitnesses of recently evaluated individuals
+ * in a FitnessCache, keyed by genotype (that is, by the Individuals' hashCode() and
+ * equals(...) methods).  When an unevaluated individual is equal to one in the cache,
+ * the cached Fitness is cloned into it and the Problem is not called at all, nor is
+ * the individual counted among the evaluations in state.evaluations.  This
+ * saves time when many duplicates are evaluated: reproduced copies, populations which
+ * have converged, or elites which are reevaluated each generation.
+ *
+ * <p>This only makes sense if the Problem is deterministic, that is, an individual
+ * always receives the same fitness.  For the same reason, CachingEvaluator cannot
+ * be used with <tt>num-tests</tt> greater than 1.
+ *
+ * <p>The cache is shared among all the evaluation threads, and is striped so that
+ * they rarely contend for it: by default it has 16 stripes per evaluation thread.
+ * It is written out as part of a checkpoint.  Hit, miss, and eviction counts may be
+ * logged each generation by adding a FitnessCacheStatistics to the Statistics chain.
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base</i>.<tt>cache-size</tt><br>
+ <font size=-1>int &gt;= 1 (default = 65536)</font></td>
+ <td valign=top>(the maximum number of individuals the cache holds)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>cache-stripes</tt><br>
+ <font size=-1>int &gt;= 1 (default = 16 * evalthreads)</font></td>
+ <td valign=top>(the number of independently locked stripes in the cache)</td></tr>
+ </table>
+ */
+
+public class CachingEvaluator extends SimpleEvaluator
+    {
+    public static final String P_CACHE_SIZE = "cache-size";
+    public static final String P_CACHE_STRIPES = "cache-stripes";
+    public static final int DEFAULT_CACHE_SIZE = 65536;
+
+    public FitnessCache cache;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+
+        if (numTests > 1)
+            state.output.fatal("CachingEvaluator cannot be used with more than one test per individual.", base.push(P_NUM_TESTS), null);
+
+        int size = state.parameters.getIntWithDefault(base.push(P_CACHE_SIZE), null, DEFAULT_CACHE_SIZE);
+        if (size < 1)
+            state.output.fatal("Cache size must be an integer >= 1", base.push(P_CACHE_SIZE), null);
+
+        int stripes = state.parameters.getIntWithDefault(base.push(P_CACHE_STRIPES), null, 16 * state.evalthreads);
+        if (stripes < 1)
+            state.output.fatal("Number of cache stripes must be an integer >= 1", base.push(P_CACHE_STRIPES), null);
+
+        cache = new FitnessCache(size, stripes);
+        }
+
+    protected boolean evaluateIndividual(EvolutionState state, SimpleProblemForm p, Individual ind, int subpop, int threadnum)
+        {
+        if (ind.evaluated)  // let the Problem decide what to do, as usual
+            {
+            p.evaluate(state, ind, subpop, threadnum);
+            return true;
+            }
+
+        Fitness fitness = cache.get(ind, subpop);
+        if (fitness != null)
+            {
+            ind.fitness = fitness;
+            ind.evaluated = true;
+            return false;
+            }
+        else
+            {
+            p.evaluate(state, ind, subpop, threadnum);
+            if (ind.evaluated)
+                cache.put(ind, subpop);
+            return true;
+            }
+        }
+    }
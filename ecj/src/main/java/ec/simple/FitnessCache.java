@@ -0,0 +1,241 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.simple;
+
+import java.io.*;
+import java.util.*;
+import ec.*;
+
+/**
+ * FitnessCache.java
+ *
+ * A bounded, thread-safe map from Individuals (compared by their hashCode() and equals(...)
+ * methods, that is, by genotype) to the Fitnesses they were assigned when evaluated.
+ * Used by CachingEvaluator.  Entries are also keyed by subpopulation, since different
+ * subpopulations may have different Problems or kinds of Fitness: an Individual found in one
+ * subpopulation is never taken to have the fitness of an equal one in another.
+ *
+ * <p>To keep evaluation threads from contending with one another, the cache is divided
+ * into a number of <i>stripes</i>, each a least-recently-used LinkedHashMap guarded by its
+ * own lock.  An Individual is assigned to a stripe by its hash code.  Each stripe holds
+ * at most capacity / numStripes entries (but at least 1), and when it is full the least
+ * recently used entry in that stripe is evicted.
+ *
+ * <p>Each Individual's hash code is computed once, when it is looked up or stored,
+ * rather than every time the underlying map needs it.  This matters for GPIndividuals,
+ * whose hash code requires a traversal of all their trees.
+ *
+ * <p>The cache stores the Individuals themselves as keys, not copies, so an Individual must
+ * not be modified after it has been stored.  ECJ's breeding pipelines always copy an Individual
+ * before modifying it, so this is normally not a problem.  Fitnesses, on the other hand, are
+ * copied both when stored and when retrieved.
+ *
+ * <p>A FitnessCache is Serializable.  Because hash codes may differ from JVM to JVM (GPIndividual's
+ * is based on its class's hash code for example), entries are rehashed and restriped when
+ * the cache is read back in.
+ */
+
+public class FitnessCache implements java.io.Serializable
+    {
+    private static final long serialVersionUID = 1;
+
+    // A key wrapping an Individual and its subpopulation with its hash code cached.  Keys are not
+    // written out (see writeObject), since the hash code may be different in the next JVM.
+    static class Key
+        {
+        final Individual ind;
+        final int subpop;
+        final int hash;
+
+        Key(Individual ind, int subpop) { this.ind = ind; this.subpop = subpop; hash = ind.hashCode() * 31 + subpop; }
+
+        public int hashCode() { return hash; }
+
+        public boolean equals(Object other)
+            {
+            if (other == this) return true;
+            if (!(other instanceof Key)) return false;
+            Key k = (Key)other;
+            return hash == k.hash && subpop == k.subpop && ind.equals(k.ind);
+            }
+        }
+
+    // One least-recently-used stripe of the cache.
+    static class Stripe extends LinkedHashMap<Key, Fitness>
+        {
+        private static final long serialVersionUID = 1;
+        final int capacity;
+        long evictions;
+
+        Stripe(int capacity)
+            {
+            super(16, 0.75f, true);  // access order
+            this.capacity = capacity;
+            }
+
+        protected boolean removeEldestEntry(Map.Entry<Key, Fitness> eldest)
+            {
+            if (size() > capacity)
+                {
+                evictions++;
+                return true;
+                }
+            else return false;
+            }
+        }
+
+    int capacity;
+    transient Stripe[] stripes;
+    transient long[] hits;
+    transient long[] misses;
+
+    /** Builds a cache holding approximately capacity entries, divided into numStripes stripes. */
+    public FitnessCache(int capacity, int numStripes)
+        {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be >= 1: " + capacity);
+        if (numStripes < 1)
+            throw new IllegalArgumentException("Number of stripes must be >= 1: " + numStripes);
+        this.capacity = capacity;
+        buildStripes(numStripes);
+        }
+
+    void buildStripes(int numStripes)
+        {
+        stripes = new Stripe[numStripes];
+        hits = new long[numStripes];
+        misses = new long[numStripes];
+        for(int i = 0; i < numStripes; i++)
+            stripes[i] = new Stripe(Math.max(1, capacity / numStripes));
+        }
+
+    int stripeFor(int hash)
+        {
+        // mix the bits (as in MurmurHash3's finalizer), since many hash codes are weak in their low bits
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return (hash & 0x7FFFFFFF) % stripes.length;
+        }
+
+    /** Returns a copy of the Fitness stored for an Individual equal to ind in the given subpopulation, or null if
+        there is none. */
+    public Fitness get(Individual ind, int subpop)
+        {
+        Key key = new Key(ind, subpop);
+        int s = stripeFor(key.hash);
+        Stripe stripe = stripes[s];
+        Fitness fitness;
+        synchronized(stripe)
+            {
+            fitness = stripe.get(key);
+            if (fitness == null) { misses[s]++; return null; }
+            hits[s]++;
+            }
+        return (Fitness)(fitness.clone());  // the stored Fitness is never modified, so we can clone it outside the lock
+        }
+
+    /** Stores a copy of ind's Fitness for ind in the given subpopulation, possibly evicting some other entry. */
+    public void put(Individual ind, int subpop)
+        {
+        Key key = new Key(ind, subpop);
+        Fitness fitness = (Fitness)(ind.fitness.clone());
+        Stripe stripe = stripes[stripeFor(key.hash)];
+        synchronized(stripe)
+            {
+            stripe.put(key, fitness);
+            }
+        }
+
+    /** Removes all entries, but not the counters. */
+    public void clear()
+        {
+        for(int i = 0; i < stripes.length; i++)
+            synchronized(stripes[i]) { stripes[i].clear(); }
+        }
+
+    /** Returns the total number of entries presently in the cache. */
+    public int size()
+        {
+        int size = 0;
+        for(int i = 0; i < stripes.length; i++)
+            synchronized(stripes[i]) { size += stripes[i].size(); }
+        return size;
+        }
+
+    /** Returns the maximum number of entries the cache was built to hold. */
+    public int getCapacity() { return capacity; }
+
+    /** Returns the number of stripes in the cache. */
+    public int getNumStripes() { return stripes.length; }
+
+    /** Returns the total number of calls to get(...) which found an entry. */
+    public long getHits()
+        {
+        long total = 0;
+        for(int i = 0; i < stripes.length; i++)
+            synchronized(stripes[i]) { total += hits[i]; }
+        return total;
+        }
+
+    /** Returns the total number of calls to get(...) which found nothing. */
+    public long getMisses()
+        {
+        long total = 0;
+        for(int i = 0; i < stripes.length; i++)
+            synchronized(stripes[i]) { total += misses[i]; }
+        return total;
+        }
+
+    /** Returns the total number of entries evicted to make room for new ones. */
+    public long getEvictions()
+        {
+        long total = 0;
+        for(int i = 0; i < stripes.length; i++)
+            synchronized(stripes[i]) { total += stripes[i].evictions; }
+        return total;
+        }
+
+    // We write out the counters and then the entries of each stripe, least recently used
+    // first, and rebuild the stripes when reading them back in, since hash codes may differ.
+    private void writeObject(ObjectOutputStream out) throws IOException
+        {
+        out.defaultWriteObject();
+        out.writeInt(stripes.length);
+        out.writeLong(getHits());
+        out.writeLong(getMisses());
+        out.writeLong(getEvictions());
+        out.writeInt(size());
+        for(int i = 0; i < stripes.length; i++)
+            synchronized(stripes[i])
+                {
+                for(Map.Entry<Key, Fitness> entry : stripes[i].entrySet())
+                    {
+                    out.writeObject(entry.getKey().ind);
+                    out.writeInt(entry.getKey().subpop);
+                    out.writeObject(entry.getValue());
+                    }
+                }
+        }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+        {
+        in.defaultReadObject();
+        buildStripes(in.readInt());
+        hits[0] = in.readLong();
+        misses[0] = in.readLong();
+        stripes[0].evictions = in.readLong();
+        int size = in.readInt();
+        for(int i = 0; i < size; i++)
+            {
+            Individual ind = (Individual)(in.readObject());
+            Key key = new Key(ind, in.readInt());
+            stripes[stripeFor(key.hash)].put(key, (Fitness)(in.readObject()));
+            }
+        }
+    }
@@ -0,0 +1,93 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.simple;
+
+import java.io.*;
+import ec.*;
+import ec.util.*;
+
+/**
+ * FitnessCacheStatistics.java
+ *
+ * Logs, after each generation's evaluation, how well the CachingEvaluator's FitnessCache
+ * is doing.  Each line has the form:
+ *
+ * <p><tt>generation hits misses evictions hit-rate size</tt>
+ *
+ * <p>where hits, misses, and evictions are counts for this generation alone, hit-rate is
+ * hits / (hits + misses) for this generation, and size is the number of entries in the cache.
+ * If the Evaluator is not a CachingEvaluator, a warning is given and nothing is logged.
+ *
+ * <p>Add this as a child of your existing Statistics, for example:
+ * <tt>stat.num-children = 1</tt>, <tt>stat.child.0 = ec.simple.FitnessCacheStatistics</tt>,
+ * <tt>stat.child.0.file = $cache.stat</tt>
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base.</i><tt>file</tt><br>
+ <font size=-1>String (a filename), or nonexistant (signifies stdout)</font></td>
+ <td valign=top>(the log for cache statistics)</td></tr>
+ </table>
+ */
+
+public class FitnessCacheStatistics extends Statistics
+    {
+    public static final String P_STATISTICS_FILE = "file";
+
+    public int statisticslog = 0;  // stdout by default
+    long lastHits;
+    long lastMisses;
+    long lastEvictions;
+
+    public void setup(final EvolutionState state, final Parameter base)
+        {
+        super.setup(state, base);
+        File statisticsFile = state.parameters.getFile(base.push(P_STATISTICS_FILE), null);
+
+        if (silentFile)
+            {
+            statisticslog = Output.NO_LOGS;
+            }
+        else if (statisticsFile != null)
+            {
+            try
+                {
+                statisticslog = state.output.addLog(statisticsFile, true, false);
+                }
+            catch (IOException i)
+                {
+                state.output.fatal("An IOException occurred while trying to create the log " + statisticsFile + ":\n" + i);
+                }
+            }
+        }
+
+    public void postEvaluationStatistics(final EvolutionState state)
+        {
+        super.postEvaluationStatistics(state);
+
+        if (!(state.evaluator instanceof CachingEvaluator))
+            {
+            state.output.warnOnce("FitnessCacheStatistics is being used but the Evaluator is not a CachingEvaluator.");
+            return;
+            }
+
+        FitnessCache cache = ((CachingEvaluator)(state.evaluator)).cache;
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        long evictions = cache.getEvictions();
+
+        long h = hits - lastHits;
+        long m = misses - lastMisses;
+        state.output.println(state.generation + " " + h + " " + m + " " + (evictions - lastEvictions) + " " +
+            (h + m == 0 ? 0.0 : h / (double)(h + m)) + " " + cache.size(), statisticslog);
+
+        lastHits = hits;
+        lastMisses = misses;
+        lastEvictions = evictions;
+        }
+    }
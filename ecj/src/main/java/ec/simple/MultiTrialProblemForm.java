@@ -0,0 +1,35 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.simple;
+import ec.*;
+
+/**
+ * MultiTrialProblemForm.java
+ *
+ * An optional extension of SimpleProblemForm for Problems which are evaluated
+ * several times per individual (SimpleEvaluator's <tt>num-tests</tt> greater than 1)
+ * and which want to know which trial they are performing, for example to pick a
+ * different starting condition or random seed for each trial.
+ *
+ * <p>This is only used when SimpleEvaluator's <tt>trials-in-place</tt> is true.  In that
+ * case SimpleEvaluator calls evaluate(..., trial) once for each trial 0 ... numTests - 1
+ * in place of evaluate(...).  Each time, the individual's fitness is a scratch Fitness
+ * which the Problem should set; the evaluator merges them afterwards.
+ */
+
+public interface MultiTrialProblemForm extends SimpleProblemForm
+    {
+    /** Evaluates the individual in ind for the given trial, and sets its fitness
+        appropriately.  Trials are numbered from 0.  This is called with the
+        individual's evaluated flag set to false. */
+    public void evaluate(final EvolutionState state,
+        final Individual ind,
+        final int subpopulation,
+        final int threadnum,
+        final int trial);
+    }
@@ -51,6 +51,9 @@ import java.util.*;
  <tr><td valign=top><tt><i>base</i>.sequential</tt><br>
  <font size=-1>boolean (default = false)</font></td>
  <td valign=top>(should we breed just one subpopulation each generation (as opposed to all of them)?)</td></tr>
+ <tr><td valign=top><tt><i>base</i>.executor</tt><br>
+ <font size=-1>String, one of: thread-pool, fork-join, virtual (default = thread-pool)</font></td>
+ <td valign=top>(the thread facility used when multithreaded: see ec.util.ExecutorServiceBackend)</td></tr>
  </table>
  *
  *
@@ -77,12 +80,18 @@ public class SimpleBreeder extends Breeder
     // This is a DOUBLE ARRAY of ARRAYLISTS of <INDIVIDUALS>
     // Individuals are stored here by the breed pop chunk methods, and afterwards
     // we coalesce them into the new population. 
-    public ArrayList newIndividuals[/*subpop*/][/*thread*/];
+    // It is rebuilt on each breeding, so it isn't checkpointed (it would just be another copy of the population).
+    public transient ArrayList<Individual> newIndividuals[/*subpop*/][/*thread*/];
         
     public static final int NOT_SET = -1;
     
+    /** The ThreadPool used when multithreaded with the default thread-pool executor.  Kept as a ThreadPool
+        so that subclasses may still call pool.start(...) and pool.join(...). */
     public ThreadPool pool = new ThreadPool();
 
+    /** The thread facility used when multithreaded.  This is the same object as pool unless another executor was chosen. */
+    public ExecutorBackend backend = pool;
+
     public boolean usingElitism(int subpopulation)
         {
         return (elite[subpopulation] > 0 ) || (eliteFrac[subpopulation] > 0);
@@ -128,6 +137,10 @@ public class SimpleBreeder extends Breeder
         if (!clonePipelineAndPopulation && (state.breedthreads > 1)) // uh oh, this can't be right
             state.output.fatal("The Breeder is not cloning its pipeline and population, but you have more than one thread.", base.push(P_CLONE_PIPELINE_AND_POPULATION));
 
+        backend = ExecutorServiceBackend.newBackend(state, base, state.breedthreads);
+        if (backend instanceof ThreadPool)
+            pool = (ThreadPool)backend;
+
         int defaultSubpop = state.parameters.getInt(new Parameter(Initializer.P_POP).push(Population.P_DEFAULT_SUBPOP), null, 0);
         for(int x=0;x<size;x++)
             {
@@ -303,10 +316,10 @@ public class SimpleBreeder extends Breeder
                 r.numinds = numinds[y];
                 r.me = this;
                 r.state = state;
-                pool.start(r, "ECJ Breeding Thread " + y );
+                backend.execute(r, "ECJ Breeding Thread " + y );
                 }
                         
-            pool.joinAll();
+            backend.joinAll();
             }
 
         // Coalesce
@@ -350,7 +363,7 @@ public class SimpleBreeder extends Breeder
         {
         for(int subpop = 0; subpop< newpop.subpops.size(); subpop++)
             {
-            ArrayList<Individual> putHere = (ArrayList<Individual>)newIndividuals[subpop][threadnum];
+            ArrayList<Individual> putHere = newIndividuals[subpop][threadnum];
 
             // do regular breeding of this subpopulation
             BreedingSource bp = null;
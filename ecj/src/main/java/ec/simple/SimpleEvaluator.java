@@ -24,6 +24,46 @@ import ec.util.*;
  * own problem space.  One Problem instance is cloned from p_problem for
  * each evaluating thread.  The Problem must implement SimpleProblemForm.
  *
+ * <p>When multithreaded, individuals are handed out to threads in chunks.  By default
+ * a thread grabs its next chunk by bumping a shared counter inside a lock.  With small
+ * chunk sizes, cheap problems, and many threads, this lock can become a bottleneck.
+ * Alternatively, if <tt>scheduler</tt> is set to <tt>work-stealing</tt>, all of the
+ * individuals are divided up among the threads ahead of time, and a thread which
+ * runs out of individuals steals half of the remaining individuals of another thread,
+ * using a lock-free ec.util.WorkStealingScheduler.  In this mode prepareToEvaluate(...)
+ * and finishEvaluating(...) are called once per thread rather than once per chunk,
+ * and evalPopChunk(...) is not used.
+ *
+ * <p>If <tt>num-tests</tt> is greater than 1, each individual is evaluated that many times
+ * and the resulting Fitnesses are merged by <tt>merge</tt> (mean, median, or best).  By default
+ * this is done by temporarily replacing the population with one holding <tt>num-tests</tt> clones
+ * of each individual.  If <tt>trials-in-place</tt> is true, no clones are made: instead each
+ * individual is given to the Problem <tt>num-tests</tt> times in a row, each time with a reusable
+ * per-thread scratch Fitness (see MultiTrialProblemForm).  In this mode, if there are fewer
+ * individuals than evaluation threads, the trials of each individual are spread among the threads.
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base</i>.<tt>num-tests</tt><br>
+ <font size=-1>int &gt;= 1 (default = 1)</font></td>
+ <td valign=top>(the number of times each individual is evaluated)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>merge</tt><br>
+ <font size=-1>String, one of: mean, median, best (default = mean)</font></td>
+ <td valign=top>(how the Fitnesses of multiple tests are merged)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>trials-in-place</tt><br>
+ <font size=-1>boolean (default = false)</font></td>
+ <td valign=top>(should multiple tests be performed on the individuals themselves rather than on clones?)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>chunk-size</tt><br>
+ <font size=-1>int &gt;= 1 or String (default = auto)</font></td>
+ <td valign=top>(the number of individuals a thread evaluates at a time, or 'auto')</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>scheduler</tt><br>
+ <font size=-1>String, one of: locked, work-stealing (default = locked)</font></td>
+ <td valign=top>(how chunks are handed out to threads when multithreaded)</td></tr>
+ <tr><td valign=top><i>base</i>.<tt>executor</tt><br>
+ <font size=-1>String, one of: thread-pool, fork-join, virtual (default = thread-pool)</font></td>
+ <td valign=top>(the thread facility used when multithreaded: see ec.util.ExecutorServiceBackend)</td></tr>
+ </table>
+ *
  * @author Sean Luke
  * @version 2.0 
  *
@@ -37,6 +77,7 @@ public class SimpleEvaluator extends Evaluator
     public static final String P_CLONE_PROBLEM = "clone-problem";
     public static final String P_NUM_TESTS = "num-tests";
     public static final String P_MERGE = "merge";
+    public static final String P_TRIALS_IN_PLACE = "trials-in-place";
 
     public static final String V_MEAN = "mean";
     public static final String V_MEDIAN = "median";
@@ -45,12 +86,18 @@ public class SimpleEvaluator extends Evaluator
     public static final String P_CHUNK_SIZE = "chunk-size";
     public static final String V_AUTO = "auto";
 
+    public static final String P_SCHEDULER = "scheduler";
+    public static final String V_LOCKED = "locked";
+    public static final String V_WORK_STEALING = "work-stealing";
+
     public static final int MERGE_MEAN = 0;
     public static final int MERGE_MEDIAN = 1;
     public static final int MERGE_BEST = 2;
 
     public int numTests = 1;
     public int mergeForm = MERGE_MEAN;
+    /** Whether multiple tests are performed on the individuals themselves rather than on clones of them. */
+    public boolean trialsInPlace = false;
     public boolean cloneProblem;
 
     Object[] lock = new Object[0];          // Arrays are serializable
@@ -58,9 +105,16 @@ public class SimpleEvaluator extends Evaluator
     int subPopCounter = 0;
     int chunkSize;  // a value >= 1, or C_AUTO
     public static final int C_AUTO = 0;
+    /** Whether threads are handed chunks by a WorkStealingScheduler rather than through the lock. */
+    public boolean workStealing = false;
         
+    /** The ThreadPool used when multithreaded with the default thread-pool executor.  Kept as a ThreadPool
+        so that subclasses may still call pool.start(...) and pool.join(...). */
     public ThreadPool pool = new ThreadPool();
 
+    /** The thread facility used when multithreaded.  This is the same object as pool unless another executor was chosen. */
+    public ExecutorBackend backend = pool;
+
     // checks to make sure that the Problem implements SimpleProblemForm
     public void setup(final EvolutionState state, final Parameter base)
         {
@@ -88,6 +142,7 @@ public class SimpleEvaluator extends Evaluator
                 mergeForm = MERGE_BEST;
             else
                 state.output.fatal("Bad merge method: " + m, base.push(P_NUM_TESTS), null);
+            trialsInPlace = state.parameters.getBoolean(base.push(P_TRIALS_IN_PLACE), null, false);
             }
                 
         if (!state.parameters.exists(base.push(P_CHUNK_SIZE), null))
@@ -105,6 +160,18 @@ public class SimpleEvaluator extends Evaluator
                 state.output.fatal("Chunk Size must be either an integer >= 1 or 'auto'", base.push(P_CHUNK_SIZE), null);
             }
 
+        String sched = state.parameters.getString(base.push(P_SCHEDULER), null);
+        if (sched == null || sched.equalsIgnoreCase(V_LOCKED))
+            workStealing = false;
+        else if (sched.equalsIgnoreCase(V_WORK_STEALING))
+            workStealing = true;
+        else
+            state.output.fatal("Scheduler must be either '" + V_LOCKED + "' or '" + V_WORK_STEALING + "'", base.push(P_SCHEDULER), null);
+
+        backend = ExecutorServiceBackend.newBackend(state, base, state.evalthreads);
+        if (backend instanceof ThreadPool)
+            pool = (ThreadPool)backend;
+
         } 
 
     Population oldpop = null;
@@ -151,30 +218,155 @@ public class SimpleEvaluator extends Evaluator
                     fits[k] = pop.subpops.get(i).individuals.get(numTests * j + k).fitness;
                     }
 
-                if (mergeForm == MERGE_MEAN)
-                    {
-                    state.population.subpops.get(i).individuals.get(j).fitness.setToMeanOf(state, fits);
-                    }
-                else if (mergeForm == MERGE_MEDIAN)
-                    {
-                    state.population.subpops.get(i).individuals.get(j).fitness.setToMedianOf(state, fits);
-                    }
-                else  // MERGE_BEST
+                merge(state, state.population.subpops.get(i).individuals.get(j).fitness, fits);
+                state.population.subpops.get(i).individuals.get(j).evaluated = true;
+                }
+            }
+        }
+        
+    // sets fitness to the mean, median, or best of the trial fitnesses, according to mergeForm
+    void merge(EvolutionState state, Fitness fitness, Fitness[] fits)
+        {
+        if (mergeForm == MERGE_MEAN)
+            {
+            fitness.setToMeanOf(state, fits);
+            }
+        else if (mergeForm == MERGE_MEDIAN)
+            {
+            fitness.setToMedianOf(state, fits);
+            }
+        else  // MERGE_BEST
+            {
+            fitness.setToBestOf(state, fits);
+            }
+        }
+
+
+    // Per-thread scratch Fitnesses for performing trials in place, indexed by [thread][subpop][trial].
+    // Each thread only touches its own row.  Not written out: it's rebuilt as needed.
+    transient Fitness[][][] scratch;
+
+    /** Performs all numTests trials on the individual itself, rather than on clones of it.
+        For each trial, the individual's Fitness is temporarily replaced by a per-thread
+        scratch Fitness, which the Problem sets.  Afterwards the original Fitness is
+        restored and set to the merge of the scratch Fitnesses.  If the Problem is a
+        MultiTrialProblemForm, it's told the trial number.  Individuals which are already
+        evaluated are handed to the Problem once, as usual. */
+    protected void evaluateTrialsInPlace(EvolutionState state, SimpleProblemForm p, Individual ind, int subpop, int threadnum)
+        {
+        if (ind.evaluated)
+            {
+            p.evaluate(state, ind, subpop, threadnum);
+            return;
+            }
+
+        Fitness[][] mine = scratch[threadnum];
+        if (mine == null)
+            mine = scratch[threadnum] = new Fitness[state.population.subpops.size()][];
+        Fitness[] fits = mine[subpop];
+        if (fits == null)
+            {
+            fits = mine[subpop] = new Fitness[numTests];
+            for(int k = 0; k < numTests; k++)
+                fits[k] = (Fitness)(ind.fitness.clone());
+            }
+
+        Fitness original = ind.fitness;
+        for(int k = 0; k < numTests; k++)
+            {
+            fits[k].trials = null;
+            ind.fitness = fits[k];
+            ind.evaluated = false;
+            evaluateTrial(state, p, ind, subpop, threadnum, k);
+            }
+        ind.fitness = original;
+        merge(state, original, fits);
+        ind.evaluated = true;
+        }
+
+    // performs a single trial
+    void evaluateTrial(EvolutionState state, SimpleProblemForm p, Individual ind, int subpop, int threadnum, int trial)
+        {
+        if (p instanceof MultiTrialProblemForm)
+            ((MultiTrialProblemForm)p).evaluate(state, ind, subpop, threadnum, trial);
+        else
+            p.evaluate(state, ind, subpop, threadnum);
+        }
+
+    // Spreads the trials of the unevaluated individuals among all the threads.  This is used when
+    // performing trials in place but there are fewer individuals than threads.  Each thread
+    // performs trials on its own clone of an individual, with the trial Fitnesses gathered
+    // into a shared array and merged into the original individuals afterwards.  Individuals
+    // which are already evaluated are left alone.
+    void evaluateTrialsSpread(final EvolutionState state)
+        {
+        ArrayList<Individual> inds = new ArrayList<Individual>();
+        IntBag subpops = new IntBag();
+        for(int i = 0; i < state.population.subpops.size(); i++)
+            {
+            ArrayList<Individual> s = state.population.subpops.get(i).individuals;
+            for(int j = 0; j < s.size(); j++)
+                if (!s.get(j).evaluated)
                     {
-                    state.population.subpops.get(i).individuals.get(j).fitness.setToBestOf(state, fits);
+                    inds.add(s.get(j));
+                    subpops.add(i);
                     }
+            }
 
-                state.population.subpops.get(i).individuals.get(j).evaluated = true;
+        Fitness[][] fits = new Fitness[inds.size()][numTests];
+        for(int i = 0; i < fits.length; i++)
+            for(int k = 0; k < numTests; k++)
+                {
+                fits[i][k] = (Fitness)(inds.get(i).fitness.clone());
+                fits[i][k].trials = null;
                 }
+
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(inds.size() * numTests, state.evalthreads, 1);
+        for(int i = 0; i < state.evalthreads; i++)
+            {
+            TrialSpreadingThread run = new TrialSpreadingThread();
+            run.threadnum = i;
+            run.state = state;
+            run.prob = (SimpleProblemForm)(p_problem.clone());
+            run.scheduler = scheduler;
+            run.inds = inds;
+            run.subpops = subpops;
+            run.fits = fits;
+            backend.execute(run, "ECJ Evaluation Thread " + i);
             }
+        backend.joinAll();
+
+        for(int i = 0; i < fits.length; i++)
+            {
+            merge(state, inds.get(i).fitness, fits[i]);
+            inds.get(i).evaluated = true;
+            }
+        state.incrementEvaluations(inds.size() * numTests);
         }
-        
+
     /** A simple evaluator that doesn't do any coevolutionary
         evaluation.  Basically it applies evaluation pipelines,
         one per thread, to various subchunks of a new population. */
     public void evaluatePopulation(final EvolutionState state)
         {
-        if (numTests > 1)
+        if (numTests > 1 && trialsInPlace)
+            {
+            if (scratch == null || scratch.length < state.evalthreads)
+                scratch = new Fitness[state.evalthreads][][];
+            for(int i = 0; i < scratch.length; i++)
+                scratch[i] = null;  // subpopulations may have changed their Fitness classes
+
+            int total = 0;
+            for(int i = 0; i < state.population.subpops.size(); i++)
+                total += state.population.subpops.get(i).individuals.size();
+            if (state.evalthreads > 1 && total < state.evalthreads)
+                {
+                // there are too few individuals to keep the threads busy, so spread their trials among the threads instead
+                evaluateTrialsSpread(state);
+                return;
+                }
+            }
+        else if (numTests > 1)
             expand(state);
             
         // reset counters.  Only used in multithreading
@@ -202,21 +394,31 @@ public class SimpleEvaluator extends Evaluator
             }
         else
             {
-            ThreadPool.Worker[] threads = new ThreadPool.Worker[state.evalthreads];
-            for(int i = 0; i < threads.length; i++)
+            int numThreads = state.evalthreads;
+            WorkStealingScheduler scheduler = null;
+            if (workStealing)
+                {
+                int total = 0;
+                for(int i = 0; i < state.population.subpops.size(); i++)
+                    total += state.population.subpops.get(i).individuals.size();
+                scheduler = new WorkStealingScheduler(total, numThreads,
+                    chunkSize == C_AUTO ? WorkStealingScheduler.AUTO : chunkSize);
+                }
+            for(int i = 0; i < numThreads; i++)
                 {
                 SimpleEvaluatorThread run = new SimpleEvaluatorThread();
                 run.threadnum = i;
                 run.state = state;
                 run.prob = (SimpleProblemForm)(p_problem.clone());
-                threads[i] = pool.start(run, "ECJ Evaluation Thread " + i);
+                run.scheduler = scheduler;
+                backend.execute(run, "ECJ Evaluation Thread " + i);
                 }
                         
             // join
-            pool.joinAll();
+            backend.joinAll();
             }
 
-        if (numTests > 1)
+        if (numTests > 1 && !trialsInPlace)
             contract(state);
 
         }
@@ -259,15 +461,39 @@ public class SimpleEvaluator extends Evaluator
             int fp = from[pop];
             int upperbound = fp+numinds[pop];
             ArrayList<Individual> inds = subpops.get(pop).individuals;
+            int evaluated = 0;
             for (int x=fp;x<upperbound;x++)
-                p.evaluate(state,inds.get(x), pop, threadnum);
-            state.incrementEvaluations(upperbound - fp);
+                if (evaluateIndividual(state, p, inds.get(x), pop, threadnum))
+                    evaluated++;
+            state.incrementEvaluations(evaluated * evaluationsPerIndividual());
             }
                         
         ((ec.Problem)p).finishEvaluating(state,threadnum);
         }
 
 
+    /** Evaluates a single individual on behalf of some thread.  By default this just calls
+        p.evaluate(...).  Override this to intercept the evaluation of each individual
+        (see CachingEvaluator for example).  Returns true if the individual is to be counted
+        among the evaluations, and false if it wasn't really evaluated (if its fitness was
+        found in a cache, say).  This method may be called by many threads at once. */
+    protected boolean evaluateIndividual(EvolutionState state, SimpleProblemForm p, Individual ind, int subpop, int threadnum)
+        {
+        if (numTests > 1 && trialsInPlace)
+            evaluateTrialsInPlace(state, p, ind, subpop, threadnum);
+        else
+            p.evaluate(state, ind, subpop, threadnum);
+        return true;
+        }
+
+    // the number of evaluations counted for each individual handed to evaluateIndividual(...).  When
+    // trials are performed on clones, each clone is counted separately, so this is 1.
+    int evaluationsPerIndividual()
+        {
+        return (trialsInPlace ? numTests : 1);
+        }
+
+
     // computes the chunk size if 'auto' is set.  This may be different depending on the subpopulation,
     // which is backward-compatible with previous ECJ approaches.
     int computeChunkSizeForSubpopulation(EvolutionState state, int subpop, int threadnum)
@@ -285,15 +511,61 @@ public class SimpleEvaluator extends Evaluator
 
 
 
+    /** A helper class for spreading the trials of a few individuals among many threads */
+    class TrialSpreadingThread implements Runnable
+        {
+        public int threadnum;
+        public EvolutionState state;
+        public SimpleProblemForm prob = null;
+        public WorkStealingScheduler scheduler;
+        public ArrayList<Individual> inds;
+        public IntBag subpops;
+        public Fitness[][] fits;
+
+        public void run()
+            {
+            int[] range = new int[2];
+            Individual ind = null;
+            int current = -1;  // which individual ind is a clone of
+
+            ((ec.Problem)prob).prepareToEvaluate(state, threadnum);
+            while(scheduler.next(threadnum, range))
+                {
+                for(int x = range[0]; x < range[1]; x++)
+                    {
+                    int i = x / numTests;
+                    int trial = x % numTests;
+                    if (i != current)
+                        {
+                        ind = (Individual)(inds.get(i).clone());
+                        current = i;
+                        }
+                    ind.fitness = fits[i][trial];
+                    ind.evaluated = false;
+                    evaluateTrial(state, prob, ind, subpops.objs[i], threadnum, trial);
+                    }
+                }
+            ((ec.Problem)prob).finishEvaluating(state, threadnum);
+            }
+        }
+
+
     /** A helper class for implementing multithreaded evaluation */
     class SimpleEvaluatorThread implements Runnable
         {
         public int threadnum;
         public EvolutionState state;
         public SimpleProblemForm prob = null;
+        public WorkStealingScheduler scheduler = null;
         
         public void run() 
             {
+            if (scheduler != null)
+                {
+                runWorkStealing();
+                return;
+                }
+
             ArrayList<Subpopulation> subpops = state.population.subpops;
 
             int[] numinds = new int[subpops.size()];
@@ -346,6 +618,33 @@ public class SimpleEvaluator extends Evaluator
                 evalPopChunk(state, numinds, from, threadnum, prob);
                 }
             }
+        
+        // Evaluates chunks handed out by the scheduler.  Chunks are indexes into all the
+        // subpopulations laid end to end, so a chunk may straddle subpopulations.
+        void runWorkStealing()
+            {
+            ArrayList<Subpopulation> subpops = state.population.subpops;
+            int[] range = new int[2];
+            int evaluated = 0;
+
+            ((ec.Problem)prob).prepareToEvaluate(state, threadnum);
+            while(scheduler.next(threadnum, range))
+                {
+                int offset = 0;
+                for(int pop = 0; pop < subpops.size() && offset < range[1]; pop++)
+                    {
+                    ArrayList<Individual> inds = subpops.get(pop).individuals;
+                    int lo = Math.max(range[0], offset) - offset;
+                    int hi = Math.min(range[1], offset + inds.size()) - offset;
+                    for(int x = lo; x < hi; x++)
+                        if (evaluateIndividual(state, prob, inds.get(x), pop, threadnum))
+                            evaluated++;
+                    offset += inds.size();
+                    }
+                }
+            state.incrementEvaluations(evaluated * evaluationsPerIndividual());
+            ((ec.Problem)prob).finishEvaluating(state, threadnum);
+            }
         }
 
 
@@ -0,0 +1,93 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.simple;
+
+import java.util.*;
+import ec.*;
+import ec.vector.*;
+
+/**
+ * SimpleEvaluatorBenchmark.java
+ *
+ * Times SimpleEvaluator's multithreaded evaluation with the default locked chunk
+ * counter and with the work-stealing scheduler, with a chunk size of 1, over a range
+ * of thread counts and (synthetic) evaluation costs.  The cost of an evaluation is
+ * a number of iterations of a busy loop.  Run as:
+ *
+ * <p><tt>java ec.simple.SimpleEvaluatorBenchmark [popsize] [generations]</tt>
+ *
+ * <p>Output is one line per configuration giving the mean milliseconds per generation.
+ */
+
+public class SimpleEvaluatorBenchmark
+    {
+    /** A Problem whose evaluations cost a given number of iterations of a busy loop. */
+    static class SpinProblem extends Problem implements SimpleProblemForm
+        {
+        int cost;
+        double sink;
+
+        public void evaluate(final EvolutionState state, final Individual ind, final int subpopulation, final int threadnum)
+            {
+            double v = 1.0;
+            for(int i = 0; i < cost; i++)
+                v = v * 1.0000001 + 0.0000001;
+            sink += v;
+            ind.evaluated = true;
+            }
+
+        public void describe(final EvolutionState state, final Individual ind, final int subpopulation, final int threadnum, final int log) { }
+        }
+
+    static double time(EvolutionState state, SimpleEvaluator eval, int generations)
+        {
+        eval.evaluatePopulation(state);  // warm up
+        long ms = System.currentTimeMillis();
+        for(int g = 0; g < generations; g++)
+            eval.evaluatePopulation(state);
+        return (System.currentTimeMillis() - ms) / (double)generations;
+        }
+
+    public static void main(String[] args)
+        {
+        int popsize = (args.length > 0 ? Integer.parseInt(args[0]) : 100000);
+        int generations = (args.length > 1 ? Integer.parseInt(args[1]) : 20);
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int[] costs = new int[] { 0, 100, 1000, 10000 };
+
+        EvolutionState state = new EvolutionState();
+        state.population = new Population();
+        Subpopulation subpop = new Subpopulation();
+        subpop.individuals = new ArrayList<Individual>(popsize);
+        for(int i = 0; i < popsize; i++)
+            subpop.individuals.add(new IntegerVectorIndividual());
+        state.population.subpops.add(subpop);
+
+        System.out.println("Population " + popsize + ", chunk size 1, " + generations + " generations, " + maxThreads + " processors");
+        System.out.println("threads\tcost\tlocked ms/gen\twork-stealing ms/gen");
+        for(int threads = 2; threads <= maxThreads * 2; threads *= 2)
+            for(int c = 0; c < costs.length; c++)
+                {
+                state.evalthreads = threads;
+                SpinProblem prob = new SpinProblem();
+                prob.cost = costs[c];
+
+                SimpleEvaluator eval = new SimpleEvaluator();
+                eval.p_problem = prob;
+                eval.chunkSize = 1;
+
+                eval.workStealing = false;
+                double locked = time(state, eval, generations);
+                eval.workStealing = true;
+                double stealing = time(state, eval, generations);
+                eval.backend.killAll();
+
+                System.out.println(threads + "\t" + costs[c] + "\t" + locked + "\t" + stealing);
+                }
+        }
+    }
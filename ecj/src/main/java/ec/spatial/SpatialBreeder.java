@@ -63,7 +63,7 @@ public class SpatialBreeder extends SimpleBreeder
         {
         for(int subpop = 0; subpop< newpop.subpops.size(); subpop++)
             {
-            ArrayList<Individual> putHere = (ArrayList<Individual>)newIndividuals[subpop][threadnum];
+            ArrayList<Individual> putHere = newIndividuals[subpop][threadnum];
 
             // do regular breeding of this subpopulation
             BreedingSource bp = null;
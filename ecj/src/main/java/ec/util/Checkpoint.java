@@ -9,6 +9,8 @@ package ec.util;
 import java.util.zip.*;
 import ec.*;
 import java.io.*;
+import java.nio.file.*;
+import java.util.*;
 
 /* 
  * Checkpoint.java
@@ -34,17 +36,60 @@ import java.io.*;
  * write the checkpoint files.  Otherwise they will be written in your working
  * directory (where you ran the Java process).
  *
+ * <p>If ec.EvolutionState.checkpointAsync is set (the parameter <tt>checkpoint-async</tt>),
+ * checkpoints are instead written in a binary format, in two phases.  First, while the run
+ * waits, the state is snapshotted into memory: the individuals of each subpopulation are written
+ * with writeIndividual(...), which is much faster and more compact than serializing them, and the
+ * rest of the EvolutionState is serialized with its subpopulations temporarily emptied.  The
+ * individuals must be copied at this point rather than merely referenced, since checkpoints are
+ * taken just before the new population is evaluated, which modifies it in place.  Second, a
+ * background thread compresses the snapshot (with GZIP at its fastest setting) into a temporary
+ * file and then renames it to the checkpoint file, so a checkpoint file is never seen half-written,
+ * even if the process dies.  Only one checkpoint is written at a time: a new checkpoint waits for
+ * the previous one to be finished, as does the end of the run.  A subpopulation whose individuals
+ * or fitnesses don't implement the binary methods (or whose individuals aren't all of the classes
+ * of its Species' prototypes) is just serialized along with everything else, as is one whose
+ * individuals are shared, so that they stay shared when restored (see CheckpointSnapshot).  Note that the binary
+ * format only stores what writeIndividual(...) writes: if your individuals or fitnesses have other
+ * state which must survive a checkpoint, override writeIndividual(...) or writeFitness(...) and
+ * their readers accordingly.
+ *
+ * <p>If ec.EvolutionState.checkpointBaseModulo is greater than 1 (the parameter
+ * <tt>checkpoint-base-modulo</tt>), checkpoints are written in the binary format, in the background
+ * only if <tt>checkpoint-async</tt> is also set, and all but one in every checkpointBaseModulo
+ * checkpoints are written as small deltas against the checkpoint before them: see DeltaCheckpoint.
+ *
+ * <p>The binary files are still GZIP files with the same names, and restoreFromCheckpoint(...)
+ * recognizes all of the formats, so they are restarted with <tt>java ec.Evolve -checkpoint</tt> as usual.
+ *
  * @author Sean Luke
  * @version 1.1
  */
 
 public class Checkpoint
     {
+    /** The first int of a binary checkpoint, after decompression.  Serialized checkpoints begin with 0xACED instead. */
+    public static final int BINARY_MAGIC = 0x45434A43;  // "ECJC"
+    public static final int BINARY_VERSION = 2;
+
+    static File checkpointFile(EvolutionState state)
+        {
+        String name = "" + state.checkpointPrefix + "." + state.generation + ".gz";
+        if (state.checkpointDirectory != null)
+            return new File(state.checkpointDirectory, name);
+        else return new File(name);
+        }
 
     /** Writes the evolution state out to a file. */
 
     public static void setCheckpoint(EvolutionState state)
         {
+        if (state.checkpointAsync || state.checkpointBaseModulo > 1)
+            {
+            setBinaryCheckpoint(state);
+            return;
+            }
+
         try
             {
             File file = new File("" + state.checkpointPrefix + "." + state.generation + ".gz");
@@ -88,19 +133,205 @@ public class Checkpoint
     /* must throw something if error -- NEVER return null */
         { 
         // load from the file
-        ObjectInputStream s = 
-            new ObjectInputStream(
+        InputStream in = 
+            new BufferedInputStream(
                 new GZIPInputStream (
                     new BufferedInputStream (
                         new FileInputStream (checkpoint))));
 
-        EvolutionState e = (EvolutionState) s.readObject();
-        s.close();
+        EvolutionState e;
+        in.mark(4);
+        DataInputStream data = new DataInputStream(in);
+        int magic = data.readInt();
+        if (magic == BINARY_MAGIC)
+            {
+            e = readBinary(data);
+            data.close();
+            }
+        else if (magic == DeltaCheckpoint.DELTA_MAGIC)
+            {
+            data.close();
+            e = DeltaCheckpoint.load(new File(checkpoint)).restore();
+            }
+        else
+            {
+            in.reset();
+            ObjectInputStream s = new ObjectInputStream(in);
+            e = (EvolutionState) s.readObject();
+            s.close();
+            }
 
         // restart from the checkpoint
     
         e.resetFromCheckpoint();
         return e; 
         }
-    }
+    
+
+    /** Snapshots the evolution state into memory, then writes it out to a file in the binary format,
+        as a delta if it is part of a chain of delta checkpoints (see DeltaCheckpoint).  If
+        state.checkpointAsync is true, the file is written in a background thread, after waiting for
+        any previous checkpoint to be written. */
+    public static void setBinaryCheckpoint(final EvolutionState state)
+        {
+        finishCheckpoint(state);
+
+        final File file = checkpointFile(state);
+        final CheckpointSnapshot snapshot;
+        try
+            {
+            snapshot = CheckpointSnapshot.take(state);
+            }
+        catch (Exception e)  // writeIndividual(...) may throw anything
+            {
+            state.output.warning("Unable to snapshot the checkpoint " + file.getName() + 
+                " because of an exception:\n--EXCEPTION--\n" + e + "\n--EXCEPTION-END--\n");
+            return;
+            }
+
+        final DeltaCheckpoint chain = state.checkpointChain;
+        final boolean delta = (chain != null && chain.length + 1 < state.checkpointBaseModulo &&
+            !chain.previousName.equals(file.getName()));  // a delta can't replace the file it refers to
+        Runnable writer = new Runnable()
+            {
+            public void run()
+                {
+                try
+                    {
+                    write(file, snapshot, delta ? chain : null);
+                    if (state.checkpointBaseModulo > 1)
+                        state.checkpointChain = new DeltaCheckpoint(snapshot, file.getName(), delta ? chain.length + 1 : 0);
+                    state.output.message("Wrote out " + (delta ? "delta " : "") + "checkpoint file " + file.getName());
+                    }
+                catch (Exception e)  // anything uncaught would kill the thread silently
+                    {
+                    state.checkpointChain = null;  // the next checkpoint mustn't refer to this one
+                    state.output.warning("Unable to create the checkpoint file " + file.getName() + 
+                        " because of an exception:\n--EXCEPTION--\n" + e + "\n--EXCEPTION-END--\n");
+                    }
+                }
+            };
+
+        if (state.checkpointAsync)
+            {
+            Thread thread = new Thread(writer);
+            thread.setName("ECJ Checkpoint Writer");
+            state.checkpointWriter = thread;
+            thread.start();
+            }
+        else writer.run();
+        }
+
+    /** Writes the snapshot out to the given file, as a delta against the chain's previous
+        checkpoint if the chain isn't null, compressing it with GZIP at its fastest setting.  The file
+        is written under a temporary name and then renamed, so it is never seen half-written. */
+    static void write(File file, CheckpointSnapshot snapshot, DeltaCheckpoint chain) throws IOException
+        {
+        File temp = new File(file.getPath() + ".tmp");
+        try
+            {
+            DataOutputStream out = 
+                new DataOutputStream(
+                    new BufferedOutputStream(
+                        new GZIPOutputStream(
+                            new BufferedOutputStream(
+                                new FileOutputStream(temp)))
+                            {
+                                {
+                                def.setLevel(Deflater.BEST_SPEED);
+                                }
+                            }));
+            if (chain == null) snapshot.write(out);
+            else chain.write(out, snapshot);
+            out.close();
+            try
+                {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                }
+            catch (AtomicMoveNotSupportedException e)
+                {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        finally
+            {
+            temp.delete();  // if anything went wrong
+            }
+        }
 
+    /** Waits until any checkpoint being written in the background is finished.  This is called
+        at the end of EvolutionState.run(...), and you should call it before checkpointing yourself
+        in some other fashion, or before exiting some other way. */
+    public static void finishCheckpoint(EvolutionState state)
+        {
+        Thread writer = state.checkpointWriter;
+        if (writer == null) return;
+        boolean interrupted = false;
+        while(true)
+            {
+            try
+                {
+                writer.join();
+                break;
+                }
+            catch (InterruptedException e)
+                {
+                interrupted = true;
+                }
+            }
+        state.checkpointWriter = null;
+        if (interrupted) Thread.currentThread().interrupt();
+        }
+
+    /** Returns true if the individuals of the given subpopulation can be written with writeIndividual(...)
+        and read back in with its species' newIndividual(..., DataInput): that is, if they and their
+        fitnesses are all of the classes of the Species' prototypes, and those classes implement the
+        binary methods. */
+    static boolean isBinary(Subpopulation subpop)
+        {
+        Species species = subpop.species;
+        if (species == null || species.i_prototype == null || species.f_prototype == null) return false;
+        Class<?> individual = species.i_prototype.getClass();
+        Class<?> fitness = species.f_prototype.getClass();
+        for(int i = 0; i < subpop.individuals.size(); i++)
+            {
+            Individual ind = subpop.individuals.get(i);
+            if (ind.getClass() != individual || ind.species != species ||
+                ind.fitness == null || ind.fitness.getClass() != fitness)
+                return false;
+            }
+        return (overrides(individual, Individual.class, "writeIndividual", "writeGenotype", DataOutput.class) &&
+            overrides(individual, Individual.class, "readIndividual", "readGenotype", DataInput.class) &&
+            overrides(fitness, Fitness.class, "writeFitness", "writeFitness", DataOutput.class) &&
+            overrides(fitness, Fitness.class, "readFitness", "readFitness", DataInput.class));
+        }
+
+    // Returns true if c overrides either of the given methods (EvolutionState, io) of base
+    static boolean overrides(Class<?> c, Class<?> base, String method, String alternative, Class<?> io)
+        {
+        try
+            {
+            return (c.getMethod(method, EvolutionState.class, io).getDeclaringClass() != base ||
+                c.getMethod(alternative, EvolutionState.class, io).getDeclaringClass() != base);
+            }
+        catch (NoSuchMethodException e)
+            {
+            return false;
+            }
+        }
+
+    /** Writes the evolution state out in the binary format. */
+    public static void writeBinary(EvolutionState state, DataOutput out) throws IOException
+        {
+        CheckpointSnapshot.take(state).write(out);
+        }
+
+    /** Reads an evolution state in the binary format, just after its BINARY_MAGIC, without calling resetFromCheckpoint(). */
+    static EvolutionState readBinary(DataInput in) throws IOException, ClassNotFoundException
+        {
+        int version = in.readInt();
+        if (version != BINARY_VERSION)
+            throw new IOException("Unknown binary checkpoint version " + version);
+        return CheckpointSnapshot.read(in).restore();
+        }
+    }
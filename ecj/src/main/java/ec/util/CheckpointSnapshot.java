@@ -0,0 +1,226 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.util;
+
+import ec.*;
+import java.io.*;
+import java.util.*;
+
+/**
+ * CheckpointSnapshot.java
+ *
+ * An EvolutionState in the binary checkpoint format, held in memory as bytes: the EvolutionState
+ * serialized with its binary subpopulations emptied, and the bytes of each individual of those
+ * subpopulations as written by writeIndividual(...).  Snapshots are immutable once taken, so they
+ * may be written out by another thread, and they can be compared with one another byte for byte,
+ * which is what DeltaCheckpoint does.  See Checkpoint for when a subpopulation is binary.  Since
+ * individuals written by writeIndividual(...) come back as separate objects, a subpopulation is
+ * serialized instead if any of its individuals appears in the population twice, or if anything
+ * else in the state (the Statistics, say) refers to one of them, so that they stay shared.
+ *
+ * <p>To help with the comparison, the parts of the state which rarely change (the parameter
+ * database, the initializer, and the population without its binary individuals) are serialized
+ * first, and then the EvolutionState itself, in the same stream.  Serialization numbers objects
+ * in the order it meets them and refers back to them by number, so if the EvolutionState came
+ * first, every change early in it (a new message in the Output, say) would ripple through the
+ * rest of the bytes.
+ */
+
+final class CheckpointSnapshot
+    {
+    /** The serialized parameters, initializer, population, and EvolutionState, without the individuals of its binary subpopulations. */
+    final byte[] state;
+    /** Individuals, by subpopulation, as written by writeIndividual(...), or null for subpopulations which were serialized. */
+    final byte[][][] individuals;
+
+    CheckpointSnapshot(byte[] state, byte[][][] individuals)
+        {
+        this.state = state;
+        this.individuals = individuals;
+        }
+
+    /** Returns the total number of individuals in binary subpopulations. */
+    int numIndividuals()
+        {
+        int total = 0;
+        for(int i = 0; i < individuals.length; i++)
+            if (individuals[i] != null)
+                total += individuals[i].length;
+        return total;
+        }
+
+    /** Snapshots the given EvolutionState. */
+    static CheckpointSnapshot take(EvolutionState state) throws IOException
+        {
+        ArrayList<Subpopulation> subpops = (state.population == null ? new ArrayList<Subpopulation>() : state.population.subpops);
+        byte[][][] individuals = new byte[subpops.size()][][];
+
+        // Which subpopulations can be binary?  Those whose individuals the binary format can write, and
+        // which aren't shared: an individual which appears twice, or which something else in the state
+        // refers to, would come back as separate copies.  So the subpopulations of such individuals are
+        // serialized with the rest of the state, which keeps them shared.
+        boolean[] binary = new boolean[subpops.size()];
+        IdentityHashMap<Individual, Integer> owners = new IdentityHashMap<Individual, Integer>();
+        for(int i = 0; i < subpops.size(); i++)
+            {
+            Subpopulation subpop = subpops.get(i);
+            if (!Checkpoint.isBinary(subpop)) continue;
+            binary[i] = true;
+            for(int j = 0; j < subpop.individuals.size(); j++)
+                {
+                Integer owner = owners.put(subpop.individuals.get(j), Integer.valueOf(i));
+                if (owner != null)
+                    {
+                    binary[i] = false;
+                    binary[owner.intValue()] = false;
+                    }
+                }
+            }
+
+        // serialize the state with the binary subpopulations emptied, until none of them turns out to be shared
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while(!serialize(state, subpops, binary, owners, bytes))
+            bytes.reset();
+        byte[] serialized = bytes.toByteArray();
+
+        DataOutputStream out = new DataOutputStream(bytes);
+        for(int i = 0; i < subpops.size(); i++)
+            {
+            if (!binary[i]) continue;
+            Subpopulation subpop = subpops.get(i);
+            individuals[i] = new byte[subpop.individuals.size()][];
+            for(int j = 0; j < individuals[i].length; j++)
+                {
+                bytes.reset();
+                subpop.individuals.get(j).writeIndividual(state, out);
+                out.flush();
+                individuals[i][j] = bytes.toByteArray();
+                }
+            }
+        return new CheckpointSnapshot(serialized, individuals);
+        }
+
+    // Serializes the state into bytes with the binary subpopulations emptied, and returns true; or, if it finds a
+    // reference to an individual of a binary subpopulation, makes that subpopulation non-binary and returns false.
+    static boolean serialize(EvolutionState state, ArrayList<Subpopulation> subpops, final boolean[] binary,
+        final IdentityHashMap<Individual, Integer> owners, ByteArrayOutputStream bytes) throws IOException
+        {
+        final boolean[] shared = new boolean[1];
+        ArrayList<ArrayList<Individual>> detached = new ArrayList<ArrayList<Individual>>(subpops.size());
+        try
+            {
+            for(int i = 0; i < subpops.size(); i++)
+                {
+                Subpopulation subpop = subpops.get(i);
+                detached.add(binary[i] ? subpop.individuals : null);
+                if (binary[i]) subpop.individuals = new ArrayList<Individual>();
+                }
+            ObjectOutputStream s = new ObjectOutputStream(bytes)
+                {
+                    {
+                    enableReplaceObject(true);
+                    }
+                protected Object replaceObject(Object obj)
+                    {
+                    if (obj instanceof Individual)
+                        {
+                        Integer owner = owners.get(obj);
+                        if (owner != null && binary[owner.intValue()])
+                            {
+                            binary[owner.intValue()] = false;
+                            shared[0] = true;
+                            }
+                        }
+                    return obj;
+                    }
+                };
+            s.writeObject(state.parameters);
+            s.writeObject(state.initializer);
+            s.writeObject(state.population);
+            s.writeObject(state);
+            s.close();
+            }
+        finally
+            {
+            for(int i = 0; i < detached.size(); i++)
+                if (detached.get(i) != null)
+                    subpops.get(i).individuals = detached.get(i);
+            }
+        return !shared[0];
+        }
+
+    /** Rebuilds the EvolutionState from the snapshot, without calling resetFromCheckpoint(). */
+    EvolutionState restore() throws IOException, ClassNotFoundException
+        {
+        ObjectInputStream s = new ObjectInputStream(new ByteArrayInputStream(state));
+        s.readObject();  // the parameters, initializer, and population, which the EvolutionState refers to
+        s.readObject();
+        s.readObject();
+        EvolutionState e = (EvolutionState) s.readObject();
+        s.close();
+
+        ArrayList<Subpopulation> subpops = (e.population == null ? new ArrayList<Subpopulation>() : e.population.subpops);
+        if (individuals.length != subpops.size())
+            throw new IOException("Binary checkpoint has " + individuals.length + " subpopulations but its state has " + subpops.size());
+        for(int i = 0; i < individuals.length; i++)
+            {
+            if (individuals[i] == null) continue;
+            Subpopulation subpop = subpops.get(i);
+            ArrayList<Individual> inds = new ArrayList<Individual>(individuals[i].length);
+            for(int j = 0; j < individuals[i].length; j++)
+                inds.add(subpop.species.newIndividual(e, new DataInputStream(new ByteArrayInputStream(individuals[i][j]))));
+            subpop.individuals = inds;
+            }
+        return e;
+        }
+
+    /** Writes the snapshot as a full binary checkpoint, starting with Checkpoint.BINARY_MAGIC. */
+    void write(DataOutput out) throws IOException
+        {
+        out.writeInt(Checkpoint.BINARY_MAGIC);
+        out.writeInt(Checkpoint.BINARY_VERSION);
+        writeBytes(out, state);
+        out.writeInt(individuals.length);
+        for(int i = 0; i < individuals.length; i++)
+            {
+            out.writeBoolean(individuals[i] != null);
+            if (individuals[i] == null) continue;
+            out.writeInt(individuals[i].length);
+            for(int j = 0; j < individuals[i].length; j++)
+                writeBytes(out, individuals[i][j]);
+            }
+        }
+
+    /** Reads a full binary checkpoint, of the current version, just after its Checkpoint.BINARY_MAGIC and version. */
+    static CheckpointSnapshot read(DataInput in) throws IOException
+        {
+        byte[] state = readBytes(in);
+        byte[][][] individuals = new byte[in.readInt()][][];
+        for(int i = 0; i < individuals.length; i++)
+            {
+            if (!in.readBoolean()) continue;
+            individuals[i] = new byte[in.readInt()][];
+            for(int j = 0; j < individuals[i].length; j++)
+                individuals[i][j] = readBytes(in);
+            }
+        return new CheckpointSnapshot(state, individuals);
+        }
+
+    static void writeBytes(DataOutput out, byte[] bytes) throws IOException
+        {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        }
+
+    static byte[] readBytes(DataInput in) throws IOException
+        {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+        }
+    }
@@ -0,0 +1,311 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.util;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * DeltaCheckpoint.java
+ *
+ * A chain of binary checkpoints in which all but the first (the <i>base</i>) are written as
+ * <i>deltas</i> against the checkpoint before them, so that checkpointing often costs little
+ * more than writing out the new individuals.  This is turned on by setting the parameter
+ * <tt>checkpoint-base-modulo</tt> to some N &gt; 1: one checkpoint in N is then a full binary
+ * checkpoint, as described in Checkpoint, and the others are deltas.  A DeltaCheckpoint holds
+ * the most recent checkpoint written (as a CheckpointSnapshot) and its file name, and it is
+ * kept in ec.EvolutionState.checkpointChain.  It is not checkpointed itself, so a run restarted
+ * from a checkpoint begins a new chain with a base.
+ *
+ * <p>A delta holds the name of the previous checkpoint file (which must be in the same directory),
+ * then two parts.  First, the serialized EvolutionState, minus its binary subpopulations, cut into
+ * chunks at boundaries chosen by its content (by a rolling "gear" hash, so that an insertion or
+ * deletion only disturbs the chunks around it): runs of chunks which are identical to chunks of the
+ * previous state are written as references to them, and the rest are written out.  This picks up
+ * whatever has changed among the components, such as the random number generators, statistics,
+ * and breeding and evaluation state, while the parameter database, species prototypes, function
+ * sets, and so on, which rarely change, cost only a few bytes.  Second, the individuals: each one
+ * which is identical, byte for byte, to an individual in the previous checkpoint, or to one earlier
+ * in this one, is written as a reference to it, and the rest are written out.
+ *
+ * <p>Restoring a delta (<tt>java ec.Evolve -checkpoint</tt> works as usual) reads back through the
+ * chain to its base, so all of the files in a chain must be kept until it is compacted.  Running
+ *
+ * <p><tt>java ec.util.DeltaCheckpoint </tt><i>checkpoint-file</i> [<i>output-file</i>]
+ *
+ * <p>...compacts the chain ending in <i>checkpoint-file</i> into a single full checkpoint, written
+ * to <i>output-file</i> or, by default, over <i>checkpoint-file</i> itself.  After that, the earlier
+ * files of the chain aren't needed by it any more.
+ */
+
+public class DeltaCheckpoint
+    {
+    /** The first int of a delta checkpoint, after decompression. */
+    public static final int DELTA_MAGIC = 0x45434A44;  // "ECJD"
+    public static final int DELTA_VERSION = 1;
+
+    // chunks are at least MIN_CHUNK and at most MAX_CHUNK bytes, and average about MIN_CHUNK + 512
+    static final int MIN_CHUNK = 64;
+    static final int MAX_CHUNK = 8192;
+    static final long CHUNK_MASK = 0xFF80000000000000L;  // the top nine bits: they depend on the last 64 bytes
+    static final long[] GEAR = new long[256];
+    static
+        {
+        // this must never change, or old deltas will be misread
+        MersenneTwisterFast random = new MersenneTwisterFast(DELTA_MAGIC);
+        for(int i = 0; i < GEAR.length; i++)
+            GEAR[i] = random.nextLong();
+        }
+
+    // op codes in the state part of a delta
+    static final int LITERAL = -1;
+
+    /** The most recently written checkpoint. */
+    final CheckpointSnapshot previous;
+    /** The file name of the most recently written checkpoint. */
+    final String previousName;
+    /** The number of deltas written since the base. */
+    final int length;
+
+    DeltaCheckpoint(CheckpointSnapshot previous, String previousName, int length)
+        {
+        this.previous = previous;
+        this.previousName = previousName;
+        this.length = length;
+        }
+
+    /** Returns the ends of the content-defined chunks of the given bytes. */
+    static int[] chunk(byte[] bytes)
+        {
+        int[] ends = new int[bytes.length / MIN_CHUNK + 1];
+        int count = 0;
+        int start = 0;
+        while(start < bytes.length)
+            {
+            int end = Math.min(start + MAX_CHUNK, bytes.length);
+            long hash = 0;
+            for(int i = start + MIN_CHUNK; i < end; i++)
+                {
+                hash = (hash << 1) + GEAR[bytes[i] & 0xFF];
+                if ((hash & CHUNK_MASK) == 0)
+                    {
+                    end = i + 1;
+                    break;
+                    }
+                }
+            ends[count++] = end;
+            start = end;
+            }
+        return Arrays.copyOf(ends, count);
+        }
+
+    static int hash(byte[] bytes, int from, int to)
+        {
+        int hash = 1;
+        for(int i = from; i < to; i++)
+            hash = 31 * hash + bytes[i];
+        return hash;
+        }
+
+    static boolean equal(byte[] a, int aFrom, byte[] b, int bFrom, int length)
+        {
+        for(int i = 0; i < length; i++)
+            if (a[aFrom + i] != b[bFrom + i]) return false;
+        return true;
+        }
+
+    /** Writes the given snapshot out as a delta against the previous one. */
+    void write(DataOutput out, CheckpointSnapshot snapshot) throws IOException
+        {
+        out.writeInt(DELTA_MAGIC);
+        out.writeInt(DELTA_VERSION);
+        out.writeUTF(previousName);
+
+        // The state, as runs of references to the previous state's chunks, and literal chunks
+        byte[] old = previous.state;
+        int[] oldEnds = chunk(old);
+        HashMap<Integer, Integer> oldChunks = new HashMap<Integer, Integer>();
+        for(int c = oldEnds.length - 1; c >= 0; c--)  // so the earliest of identical chunks wins
+            {
+            int from = (c == 0 ? 0 : oldEnds[c - 1]);
+            oldChunks.put(Integer.valueOf(hash(old, from, oldEnds[c])), Integer.valueOf(c));
+            }
+
+        byte[] state = snapshot.state;
+        int[] ends = chunk(state);
+        ArrayList<int[]> ops = new ArrayList<int[]>();  // { first old chunk, count } or { LITERAL, new chunk }
+        for(int c = 0; c < ends.length; c++)
+            {
+            int from = (c == 0 ? 0 : ends[c - 1]);
+            int len = ends[c] - from;
+            int match = LITERAL;
+            Integer o = oldChunks.get(Integer.valueOf(hash(state, from, ends[c])));
+            if (o != null)
+                {
+                int oc = o.intValue();
+                int oldFrom = (oc == 0 ? 0 : oldEnds[oc - 1]);
+                if (oldEnds[oc] - oldFrom == len && equal(state, from, old, oldFrom, len))
+                    match = oc;
+                }
+            if (match == LITERAL)
+                ops.add(new int[] { LITERAL, c });
+            else
+                {
+                int[] last = (ops.isEmpty() ? null : ops.get(ops.size() - 1));
+                if (last != null && last[0] != LITERAL && last[0] + last[1] == match)
+                    last[1]++;  // extend the run
+                else ops.add(new int[] { match, 1 });
+                }
+            }
+        out.writeInt(ops.size());
+        for(int i = 0; i < ops.size(); i++)
+            {
+            int[] op = ops.get(i);
+            out.writeInt(op[0]);
+            if (op[0] == LITERAL)
+                {
+                int from = (op[1] == 0 ? 0 : ends[op[1] - 1]);
+                out.writeInt(ends[op[1]] - from);
+                out.write(state, from, ends[op[1]] - from);
+                }
+            else out.writeInt(op[1]);
+            }
+
+        // The individuals, as references to the previous individuals or to earlier ones, or literally
+        HashMap<Integer, Integer> seen = new HashMap<Integer, Integer>();
+        ArrayList<byte[]> table = new ArrayList<byte[]>();
+        add(previous.individuals, table, seen);
+        out.writeInt(snapshot.individuals.length);
+        for(int i = 0; i < snapshot.individuals.length; i++)
+            {
+            byte[][] inds = snapshot.individuals[i];
+            out.writeBoolean(inds != null);
+            if (inds == null) continue;
+            out.writeInt(inds.length);
+            for(int j = 0; j < inds.length; j++)
+                {
+                Integer key = Integer.valueOf(hash(inds[j], 0, inds[j].length));
+                Integer o = seen.get(key);
+                if (o != null && Arrays.equals(table.get(o.intValue()), inds[j]))
+                    out.writeInt(o.intValue());
+                else
+                    {
+                    out.writeInt(LITERAL);
+                    CheckpointSnapshot.writeBytes(out, inds[j]);
+                    }
+                if (o == null) seen.put(key, Integer.valueOf(table.size()));
+                table.add(inds[j]);
+                }
+            }
+        }
+
+    // Appends the individuals to the table, noting the first index of each hash in seen
+    static void add(byte[][][] individuals, ArrayList<byte[]> table, HashMap<Integer, Integer> seen)
+        {
+        for(int i = 0; i < individuals.length; i++)
+            {
+            if (individuals[i] == null) continue;
+            for(int j = 0; j < individuals[i].length; j++)
+                {
+                Integer key = Integer.valueOf(hash(individuals[i][j], 0, individuals[i][j].length));
+                if (!seen.containsKey(key)) seen.put(key, Integer.valueOf(table.size()));
+                table.add(individuals[i][j]);
+                }
+            }
+        }
+
+    /** Reads a delta, just after its DELTA_MAGIC, applying it to the given snapshot of the previous checkpoint. */
+    static CheckpointSnapshot read(DataInput in, CheckpointSnapshot previous) throws IOException
+        {
+        byte[] old = previous.state;
+        int[] oldEnds = chunk(old);
+        ByteArrayOutputStream state = new ByteArrayOutputStream(old.length);
+        int numOps = in.readInt();
+        for(int i = 0; i < numOps; i++)
+            {
+            int op = in.readInt();
+            if (op == LITERAL)
+                state.write(CheckpointSnapshot.readBytes(in));
+            else
+                {
+                int count = in.readInt();
+                if (op < 0 || count < 1 || op + count > oldEnds.length)
+                    throw new IOException("Delta checkpoint refers to chunks " + op + " to " + (op + count - 1) + " of " + oldEnds.length);
+                int from = (op == 0 ? 0 : oldEnds[op - 1]);
+                state.write(old, from, oldEnds[op + count - 1] - from);
+                }
+            }
+
+        ArrayList<byte[]> table = new ArrayList<byte[]>();
+        for(int i = 0; i < previous.individuals.length; i++)
+            if (previous.individuals[i] != null)
+                table.addAll(Arrays.asList(previous.individuals[i]));
+        byte[][][] individuals = new byte[in.readInt()][][];
+        for(int i = 0; i < individuals.length; i++)
+            {
+            if (!in.readBoolean()) continue;
+            individuals[i] = new byte[in.readInt()][];
+            for(int j = 0; j < individuals[i].length; j++)
+                {
+                int ref = in.readInt();
+                if (ref == LITERAL)
+                    individuals[i][j] = CheckpointSnapshot.readBytes(in);
+                else if (ref < 0 || ref >= table.size())
+                    throw new IOException("Delta checkpoint refers to individual " + ref + " of " + table.size());
+                else individuals[i][j] = table.get(ref);
+                table.add(individuals[i][j]);
+                }
+            }
+        return new CheckpointSnapshot(state.toByteArray(), individuals);
+        }
+
+    /** Loads the binary checkpoint in the given file, reading back through its chain if it is a delta. */
+    static CheckpointSnapshot load(File file) throws IOException
+        {
+        DataInputStream in =
+            new DataInputStream(
+                new BufferedInputStream(
+                    new GZIPInputStream(
+                        new BufferedInputStream(
+                            new FileInputStream(file)))));
+        try
+            {
+            int magic = in.readInt();
+            int version = in.readInt();
+            if (magic == Checkpoint.BINARY_MAGIC && version == Checkpoint.BINARY_VERSION)
+                return CheckpointSnapshot.read(in);
+            else if (magic == DELTA_MAGIC && version == DELTA_VERSION)
+                {
+                File previous = new File(file.getAbsoluteFile().getParentFile(), in.readUTF());
+                return read(in, load(previous));
+                }
+            else throw new IOException("The file " + file + " is not a binary checkpoint of version " +
+                Checkpoint.BINARY_VERSION + " or a delta checkpoint of version " + DELTA_VERSION);
+            }
+        finally
+            {
+            in.close();
+            }
+        }
+
+    /** Compacts a chain of checkpoints into a single full checkpoint. */
+    public static void main(String[] args) throws IOException
+        {
+        if (args.length < 1 || args.length > 2)
+            {
+            System.err.println("Usage: java ec.util.DeltaCheckpoint checkpoint-file [output-file]\n" +
+                "Compacts the chain of delta checkpoints ending in checkpoint-file into a full checkpoint,\n" +
+                "written to output-file, or by default over checkpoint-file.");
+            System.exit(1);
+            }
+        File file = new File(args[0]);
+        CheckpointSnapshot snapshot = load(file);
+        Checkpoint.write(new File(args.length > 1 ? args[1] : args[0]), snapshot, null);
+        }
+    }
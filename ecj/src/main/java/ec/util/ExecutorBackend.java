@@ -0,0 +1,38 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.util;
+
+/**
+ * ExecutorBackend.java
+ *
+ * The thread facility used by multithreaded components such as SimpleEvaluator and
+ * SimpleBreeder.  Each generation such a component hands one Runnable per thread to
+ * execute(...), then calls joinAll() to wait for all of them to finish.
+ *
+ * <p>The legacy backend is ec.util.ThreadPool.  ec.util.ExecutorServiceBackend provides
+ * backends built on java.util.concurrent, including a ForkJoinPool and (on Java 21 or later)
+ * one virtual thread per task.  Use ExecutorServiceBackend.newBackend(...) to build the backend
+ * selected by a parameter.
+ *
+ * <p>An ExecutorBackend is Serializable so that it can be checkpointed along with its owner.
+ * It need not write out its threads: after deserialization it should rebuild them as needed.
+ */
+
+public interface ExecutorBackend extends java.io.Serializable
+    {
+    /** Runs the given Runnable on some thread.  The name is for debugging purposes,
+        and the backend may ignore it. */
+    public void execute(Runnable run, String name);
+
+    /** Blocks until every Runnable passed to execute(...) has finished. */
+    public void joinAll();
+
+    /** Waits for all outstanding Runnables to finish, then releases all threads.  The
+        backend may still be used afterwards, but will have to build new threads. */
+    public void killAll();
+    }
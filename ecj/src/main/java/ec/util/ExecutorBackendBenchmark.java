@@ -0,0 +1,93 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.util;
+
+/**
+ * ExecutorBackendBenchmark.java
+ *
+ * Measures the per-generation overhead of each ExecutorBackend: the time to hand
+ * one empty Runnable to each of N threads and then join them all, which is what
+ * SimpleEvaluator and SimpleBreeder do every generation.  It also times a
+ * simulated I/O-bound generation in which each task sleeps, to show how many tasks
+ * each backend can keep in flight at once.  Run as:
+ *
+ * <p><tt>java ec.util.ExecutorBackendBenchmark [rounds]</tt>
+ */
+
+public class ExecutorBackendBenchmark
+    {
+    static final Runnable EMPTY = new Runnable() { public void run() { } };
+
+    static final Runnable SLEEP = new Runnable()
+        {
+        public void run()
+            {
+            try { Thread.sleep(10); }
+            catch (InterruptedException e) { }
+            }
+        };
+
+    // returns the mean microseconds per round of starting numThreads copies of run and joining them
+    static double time(ExecutorBackend backend, int numThreads, int rounds, Runnable run)
+        {
+        for(int r = 0; r < 10; r++)  // warm up, and get the threads built
+            {
+            for(int i = 0; i < numThreads; i++)
+                backend.execute(run, "Benchmark Thread " + i);
+            backend.joinAll();
+            }
+
+        long ns = System.nanoTime();
+        for(int r = 0; r < rounds; r++)
+            {
+            for(int i = 0; i < numThreads; i++)
+                backend.execute(run, "Benchmark Thread " + i);
+            backend.joinAll();
+            }
+        return (System.nanoTime() - ns) / 1000.0 / rounds;
+        }
+
+    static ExecutorBackend build(String name, int numThreads)
+        {
+        if (name.equals(ExecutorServiceBackend.V_FORK_JOIN))
+            return new ExecutorServiceBackend(ExecutorServiceBackend.KIND_FORK_JOIN, numThreads);
+        else if (name.equals(ExecutorServiceBackend.V_VIRTUAL))
+            return new ExecutorServiceBackend(ExecutorServiceBackend.KIND_VIRTUAL, numThreads);
+        else return new ThreadPool();
+        }
+
+    public static void main(String[] args)
+        {
+        int rounds = (args.length > 0 ? Integer.parseInt(args[0]) : 1000);
+        String[] names = ExecutorServiceBackend.virtualThreadsAvailable() ?
+            new String[] { ExecutorServiceBackend.V_THREAD_POOL, ExecutorServiceBackend.V_FORK_JOIN, ExecutorServiceBackend.V_VIRTUAL } :
+            new String[] { ExecutorServiceBackend.V_THREAD_POOL, ExecutorServiceBackend.V_FORK_JOIN };
+        if (!ExecutorServiceBackend.virtualThreadsAvailable())
+            System.out.println("Virtual threads are not available on Java " + System.getProperty("java.version") + ", skipping them");
+
+        System.out.println("Start/join overhead of empty tasks, " + rounds + " rounds");
+        System.out.println("threads\tbackend\tmicroseconds/round");
+        for(int numThreads = 1; numThreads <= 64; numThreads *= 2)
+            for(int n = 0; n < names.length; n++)
+                {
+                ExecutorBackend backend = build(names[n], numThreads);
+                System.out.println(numThreads + "\t" + names[n] + "\t" + time(backend, numThreads, rounds, EMPTY));
+                backend.killAll();
+                }
+
+        System.out.println("\nTasks each sleeping 10ms, 10 rounds");
+        System.out.println("tasks\tbackend\tmilliseconds/round");
+        for(int numThreads = 100; numThreads <= 10000; numThreads *= 10)
+            for(int n = 0; n < names.length; n++)
+                {
+                ExecutorBackend backend = build(names[n], numThreads);
+                System.out.println(numThreads + "\t" + names[n] + "\t" + time(backend, numThreads, 10, SLEEP) / 1000.0);
+                backend.killAll();
+                }
+        }
+    }
@@ -0,0 +1,194 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.util;
+
+import java.io.*;
+import java.util.concurrent.*;
+import ec.*;
+
+/**
+ * ExecutorServiceBackend.java
+ *
+ * An ExecutorBackend which runs its Runnables on a java.util.concurrent ExecutorService:
+ * either a ForkJoinPool, or an executor which starts a new virtual thread for every task.
+ * Virtual threads need Java 21 or later and are looked up reflectively, so ECJ still
+ * builds and runs on older JVMs which simply can't select them.
+ *
+ * <p>Virtual threads are cheap to create and park, so with the <tt>virtual</tt> backend
+ * it's reasonable to set evalthreads to hundreds or thousands when evaluation is mostly
+ * waiting on I/O (for example, talking to an external simulator).  CPU-bound problems
+ * will not benefit.
+ *
+ * <p>Like ThreadPool, an ExecutorServiceBackend doesn't write out its threads when
+ * serialized: only its kind and parallelism are written, and a new ExecutorService is built
+ * the first time it is used after being deserialized.
+ *
+ * <p>Use newBackend(...) to build the backend requested by a parameter:
+ *
+ <p><b>Parameters</b><br>
+ <table>
+ <tr><td valign=top><i>base</i>.<tt>executor</tt><br>
+ <font size=-1>String, one of: thread-pool, fork-join, virtual (default = thread-pool)</font></td>
+ <td valign=top>(the thread facility to use: the legacy ec.util.ThreadPool, a ForkJoinPool, or one virtual thread per task)</td></tr>
+ </table>
+*/
+
+public class ExecutorServiceBackend implements ExecutorBackend
+    {
+    private static final long serialVersionUID = 1;
+
+    public static final String P_EXECUTOR = "executor";
+    public static final String V_THREAD_POOL = "thread-pool";
+    public static final String V_FORK_JOIN = "fork-join";
+    public static final String V_VIRTUAL = "virtual";
+
+    public static final int KIND_FORK_JOIN = 0;
+    public static final int KIND_VIRTUAL = 1;
+
+    int kind;
+    int parallelism;
+
+    // None of these are written out; they are rebuilt in readObject
+    // or (for the executor) lazily in execute(...)
+    transient ExecutorService executor;
+    transient Object[] lock = new Object[0];
+    transient int outstanding = 0;
+
+    /** Builds a backend of the given kind.  Parallelism is the number of worker
+        threads of a ForkJoinPool, and is ignored for virtual threads.
+        Throws an UnsupportedOperationException if virtual threads are requested
+        but this JVM does not have them. */
+    public ExecutorServiceBackend(int kind, int parallelism)
+        {
+        if (kind != KIND_FORK_JOIN && kind != KIND_VIRTUAL)
+            throw new IllegalArgumentException("Unknown executor kind " + kind);
+        if (kind == KIND_VIRTUAL && !virtualThreadsAvailable())
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        this.kind = kind;
+        this.parallelism = Math.max(1, parallelism);
+        }
+
+    /** Returns true if this JVM can run tasks in virtual threads. */
+    public static boolean virtualThreadsAvailable()
+        {
+        try
+            {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+            }
+        catch (NoSuchMethodException e) { return false; }
+        }
+
+    /** Builds the ExecutorBackend named by <i>base</i>.executor, which will be used to
+        run up to numThreads Runnables at a time.  If the parameter doesn't exist, a legacy
+        ThreadPool is returned. */
+    public static ExecutorBackend newBackend(final EvolutionState state, final Parameter base, int numThreads)
+        {
+        Parameter p = base.push(P_EXECUTOR);
+        String s = state.parameters.getString(p, null);
+        if (s == null || s.equalsIgnoreCase(V_THREAD_POOL))
+            return new ThreadPool();
+        else if (s.equalsIgnoreCase(V_FORK_JOIN))
+            return new ExecutorServiceBackend(KIND_FORK_JOIN, numThreads);
+        else if (s.equalsIgnoreCase(V_VIRTUAL))
+            {
+            if (!virtualThreadsAvailable())
+                state.output.fatal("Virtual threads were requested but require Java 21 or later.  This is Java " + System.getProperty("java.version"), p, null);
+            return new ExecutorServiceBackend(KIND_VIRTUAL, numThreads);
+            }
+        else
+            {
+            state.output.fatal("Executor must be one of '" + V_THREAD_POOL + "', '" + V_FORK_JOIN + "', or '" + V_VIRTUAL + "'", p, null);
+            return null;  // never happens
+            }
+        }
+
+    ExecutorService buildExecutor()
+        {
+        if (kind == KIND_FORK_JOIN)
+            return new ForkJoinPool(parallelism);
+        else
+            {
+            try
+                {
+                return (ExecutorService)(Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+                }
+            catch (Exception e)
+                {
+                throw new UnsupportedOperationException("Virtual threads require Java 21 or later", e);
+                }
+            }
+        }
+
+    public void execute(final Runnable run, final String name)
+        {
+        synchronized(lock)
+            {
+            if (executor == null)
+                executor = buildExecutor();
+            outstanding++;
+            }
+
+        executor.execute(new Runnable()
+            {
+            public void run()
+                {
+                Thread thread = Thread.currentThread();
+                String oldName = thread.getName();
+                thread.setName(name);
+                try
+                    {
+                    run.run();
+                    }
+                catch (Exception e) { e.printStackTrace(); }  // like ThreadPool, note ANY exception
+                finally
+                    {
+                    thread.setName(oldName);
+                    synchronized(lock)
+                        {
+                        outstanding--;
+                        if (outstanding == 0)
+                            lock.notifyAll();  // let joinAll know we're all done
+                        }
+                    }
+                }
+            });
+        }
+
+    public void joinAll()
+        {
+        synchronized(lock)
+            {
+            while(outstanding > 0)
+                try { lock.wait(); }
+                catch (InterruptedException e) { Thread.interrupted(); }  // ignore
+            }
+        }
+
+    public void killAll()
+        {
+        ExecutorService e;
+        synchronized(lock)
+            {
+            joinAll();
+            e = executor;
+            executor = null;
+            }
+        if (e != null)
+            e.shutdown();
+        }
+
+    private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException
+        {
+        stream.defaultReadObject();
+        // rebuild the transient state.  The executor is rebuilt when next needed.
+        lock = new Object[0];
+        outstanding = 0;
+        executor = null;
+        }
+    }
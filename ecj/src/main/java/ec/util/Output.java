@@ -940,6 +940,26 @@ public class Output implements Serializable
             int Z_BEST_SPEED = outz.getField("Z_BEST_SPEED").getInt(null);
             int Z_SYNC_FLUSH = outz.getField("Z_SYNC_FLUSH").getInt(null);
             
+            // JZLib 1.1 and later have a DeflaterOutputStream, and their ZOutputStream ignores its flush mode,
+            // so that flush() doesn't send anything.  The DeflaterOutputStream sync-flushes on every write,
+            // so we buffer in front of it.  Here's the equivalent code:
+            /*
+              com.jcraft.jzlib.DeflaterOutputStream stream = new com.jcraft.jzlib.DeflaterOutputStream(out, 
+              new com.jcraft.jzlib.Deflater(com.jcraft.jzlib.JZlib.Z_BEST_SPEED));
+              stream.setSyncFlush(true);
+              return new BufferedOutputStream(stream);
+            */
+            try
+                {
+                Class<?> defc = Class.forName("com.jcraft.jzlib.Deflater");
+                Object def = defc.getConstructor(new Class<?>[] { Integer.TYPE }).newInstance(new Object[] { Integer.valueOf(Z_BEST_SPEED) });
+                Class<?> dosc = Class.forName("com.jcraft.jzlib.DeflaterOutputStream");
+                Object dos = dosc.getConstructor(new Class<?>[] { OutputStream.class, defc }).newInstance(new Object[] { out, def });
+                dosc.getMethod("setSyncFlush", new Class<?>[] { Boolean.TYPE }).invoke(dos, new Object[] { Boolean.TRUE });
+                return new BufferedOutputStream((OutputStream) dos);
+                }
+            catch (ClassNotFoundException e) { }  // an older JZLib
+            
             Class outc = Class.forName("com.jcraft.jzlib.ZOutputStream");
             Object outi = outc.getConstructor(new Class[] { OutputStream.class, Integer.TYPE }).newInstance(new Object[] { out, Integer.valueOf(Z_BEST_SPEED) });
             outc.getMethod("setFlushMode", new Class[] { Integer.TYPE }).invoke(outi, new Object[] { new Integer(Z_SYNC_FLUSH) });
@@ -54,10 +54,12 @@ import java.io.*;
  * <p>ThreadPool is java.io.Serializable: but if it is serialized out, it won't serialize
  * out its worker threads, so when it is deserialized back in, the threads will be
  * gone.
+ *
+ * <p>ThreadPool is also the legacy ExecutorBackend: execute(...) simply calls start(...).
  */
 
 
-public class ThreadPool implements java.io.Serializable
+public class ThreadPool implements ExecutorBackend
     {
     private static final long serialVersionUID = 1;
 
@@ -101,6 +103,9 @@ public class ThreadPool implements java.io.Serializable
     /** Start a thread on the given Runnable and returns it. */
     public Worker start(Runnable run) { return start(run, "" + this); }
 
+    /** Start a thread on the given Runnable with a given thread name.  Same as start(run, name). */
+    public void execute(Runnable run, String name) { start(run, name); }
+
     /** Start a thread on the given Runnable with a given thread name (for debugging purposes). */
     public Worker start(Runnable run, String name)
         {
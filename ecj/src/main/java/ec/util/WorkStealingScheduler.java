@@ -0,0 +1,138 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+
+
+package ec.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * WorkStealingScheduler.java
+ *
+ * Hands out chunks of the index range [0, total) to a fixed number of threads without
+ * any locking.  The range is pre-partitioned into one contiguous slice per thread.
+ * Each thread removes chunks from the front of its own slice; when its slice is empty
+ * it steals the back half of some other thread's slice and continues from there.
+ *
+ * <p>Every slice is stored as a single long (start in the high 32 bits, end in the low
+ * 32 bits) in an AtomicLongArray, so taking a chunk and stealing half a slice are each
+ * a single compare-and-set.  Slices are spaced a cache line apart so that threads
+ * working on their own slices don't contend with one another.
+ *
+ * <p>If the chunk size is AUTO, a thread takes half of what remains in its slice
+ * at a time (but at least one index), so chunks start big and shrink as the slice
+ * is consumed, leaving the back of each slice available for stealing.
+ *
+ * <p>A WorkStealingScheduler is meant to be built afresh for each batch of work:
+ * it is not Serializable and cannot be refilled once it has been consumed.
+ */
+
+public class WorkStealingScheduler
+    {
+    /** Chunk size indicating that chunks should be sized automatically. */
+    public static final int AUTO = 0;
+
+    // distance, in longs, between slices, to keep each slice on its own cache line
+    static final int PAD = 8;
+
+    final AtomicLongArray slices;
+    final int numThreads;
+    final int chunkSize;
+
+    /** Builds a scheduler for the indexes [0, total), initially divided as evenly as
+        possible among numThreads threads.  Chunks are of size chunkSize, or AUTO. */
+    public WorkStealingScheduler(int total, int numThreads, int chunkSize)
+        {
+        if (total < 0)
+            throw new IllegalArgumentException("Total must be >= 0: " + total);
+        if (numThreads < 1)
+            throw new IllegalArgumentException("Number of threads must be >= 1: " + numThreads);
+        if (chunkSize < 0)
+            throw new IllegalArgumentException("Chunk size must be >= 1 or AUTO: " + chunkSize);
+
+        this.numThreads = numThreads;
+        this.chunkSize = chunkSize;
+        slices = new AtomicLongArray(numThreads * PAD);
+
+        // we will have some extra indexes.  We distribute these among the early threads
+        int perThread = total / numThreads;
+        int slop = total - perThread * numThreads;
+        int start = 0;
+        for(int i = 0; i < numThreads; i++)
+            {
+            int end = start + perThread + (i < slop ? 1 : 0);
+            slices.set(i * PAD, pack(start, end));
+            start = end;
+            }
+        }
+
+    static long pack(int start, int end) { return (((long)start) << 32) | (end & 0xFFFFFFFFL); }
+    static int start(long slice) { return (int)(slice >>> 32); }
+    static int end(long slice) { return (int)slice; }
+
+    /** Returns the number of threads the scheduler was built for. */
+    public int getNumThreads() { return numThreads; }
+
+    /** Loads into range[0] (inclusive) and range[1] (exclusive) the next chunk of indexes
+        for the given thread to work on, and returns true.  If there is no work left anywhere,
+        returns false.  Each index is handed out exactly once.  Only the thread numbered
+        threadnum may call this method with that threadnum. */
+    public boolean next(int threadnum, int[] range)
+        {
+        final int mine = threadnum * PAD;
+        while(true)
+            {
+            // take from the front of my own slice
+            long slice = slices.get(mine);
+            int s = start(slice);
+            int e = end(slice);
+            if (s < e)
+                {
+                int remaining = e - s;
+                int count = chunkSize;
+                if (count == AUTO)
+                    count = Math.max(1, remaining / 2);
+                if (count > remaining)
+                    count = remaining;
+                if (slices.compareAndSet(mine, slice, pack(s + count, e)))
+                    {
+                    range[0] = s;
+                    range[1] = s + count;
+                    return true;
+                    }
+                continue;  // someone stole from me meanwhile, try again
+                }
+
+            // my slice is empty.  Try to steal the back half of someone else's.
+            if (!steal(threadnum))
+                return false;  // everyone is empty
+            }
+        }
+
+    // Moves the back half of some other thread's slice into my (empty) slice.  Returns false if
+    // every other slice was empty.  Nobody else writes to an empty slice, so I can set mine directly.
+    boolean steal(int threadnum)
+        {
+        for(int i = 1; i < numThreads; i++)
+            {
+            int victim = ((threadnum + i) % numThreads) * PAD;
+            while(true)
+                {
+                long slice = slices.get(victim);
+                int s = start(slice);
+                int e = end(slice);
+                if (s >= e) break;  // nothing here, next victim
+                int mid = s + (e - s) / 2;  // if there's just one left, mid == s and I take it
+                if (slices.compareAndSet(victim, slice, pack(s, mid)))
+                    {
+                    slices.set(threadnum * PAD, pack(mid, e));
+                    return true;
+                    }
+                }
+            }
+        return false;
+        }
+    }
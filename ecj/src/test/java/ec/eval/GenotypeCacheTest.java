@@ -0,0 +1,171 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.eval;
+
+import ec.EvolutionState;
+import ec.Evolve;
+import ec.Individual;
+import ec.simple.SimpleFitness;
+import ec.vector.DoubleVectorIndividual;
+import ec.vector.FloatVectorSpecies;
+import java.io.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for GenotypeCache: a master's mirror writing individuals, and a slave's cache reading them.
+ */
+public class GenotypeCacheTest
+    {
+    private EvolutionState state;
+    private FloatVectorSpecies species;
+    private GenotypeCache master;
+    private GenotypeCache slave;
+
+    public GenotypeCacheTest()
+        {
+        }
+
+    // an individual which writes its genome before its fitness, so can't be cached
+    static class BackwardsIndividual extends DoubleVectorIndividual
+        {
+        public void writeIndividual(EvolutionState state, DataOutput dataOutput) throws IOException
+            {
+            writeGenotype(state, dataOutput);
+            dataOutput.writeBoolean(evaluated);
+            fitness.writeFitness(state, dataOutput);
+            }
+
+        public void readIndividual(EvolutionState state, DataInput dataInput) throws IOException
+            {
+            readGenotype(state, dataInput);
+            evaluated = dataInput.readBoolean();
+            fitness.readFitness(state, dataInput);
+            }
+        }
+
+    @Before
+    public void setUp()
+        {
+        state = new EvolutionState();
+        state.output = Evolve.buildOutput();
+        state.output.setThrowsErrors(true);
+        species = new FloatVectorSpecies();
+        species.f_prototype = new SimpleFitness();
+        setPrototype(new DoubleVectorIndividual());
+        master = new GenotypeCache(2);
+        slave = new GenotypeCache(2);
+        }
+
+    private void setPrototype(DoubleVectorIndividual prototype)
+        {
+        prototype.species = species;
+        prototype.genome = new double[0];
+        species.i_prototype = prototype;
+        }
+
+    private DoubleVectorIndividual newIndividual(double fitness, double... genome)
+        {
+        DoubleVectorIndividual ind = (DoubleVectorIndividual)(species.i_prototype.clone());
+        ind.fitness = new SimpleFitness();
+        ((SimpleFitness)ind.fitness).setFitness(state, fitness, false);
+        ind.genome = genome;
+        return ind;
+        }
+
+    // the bytes the master sends for an individual
+    private byte[] write(Individual ind) throws IOException
+        {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        master.writeIndividual(state, ind, out);
+        out.flush();
+        return bytes.toByteArray();
+        }
+
+    private DoubleVectorIndividual read(byte[] bytes, byte[][] genotypes) throws IOException
+        {
+        return (DoubleVectorIndividual)(slave.readIndividual(state, species,
+                new DataInputStream(new ByteArrayInputStream(bytes)), genotypes, 0));
+        }
+
+    @Test
+    public void testCachedGenotype() throws IOException
+        {
+        // the second time, only the fitness and the hash are sent, even if the fitness has changed
+        byte[][] genotypes = new byte[1][];
+        byte[] first = write(newIndividual(1, 1, 2, 3, 4, 5));
+        byte[] second = write(newIndividual(2, 1, 2, 3, 4, 5));
+        assertEquals(GenotypeCache.V_NEW, first[0]);
+        assertEquals(GenotypeCache.V_CACHED, second[0]);
+        assertTrue(second.length < first.length - 5 * 8);
+
+        DoubleVectorIndividual ind = read(first, genotypes);
+        assertArrayEquals(new double[] { 1, 2, 3, 4, 5 }, ind.genome, 0);
+        assertEquals(1, ind.fitness.fitness(), 0);
+        ind = read(second, genotypes);
+        assertArrayEquals(new double[] { 1, 2, 3, 4, 5 }, ind.genome, 0);
+        assertEquals(2, ind.fitness.fitness(), 0);
+        assertSame(species, ind.species);
+        }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws IOException
+        {
+        byte[][] genotypes = new byte[1][];
+        read(write(newIndividual(0, 1)), genotypes);
+        read(write(newIndividual(0, 2)), genotypes);
+        read(write(newIndividual(0, 1)), genotypes);  // 2 is now the least recently used
+        byte[] third = write(newIndividual(0, 3));
+        read(third, genotypes);
+        assertEquals(GenotypeCache.V_NEW, third[0]);
+
+        assertEquals(GenotypeCache.V_CACHED, write(newIndividual(0, 1))[0]);
+        byte[] evicted = write(newIndividual(0, 2));
+        assertEquals(GenotypeCache.V_NEW, evicted[0]);
+        assertArrayEquals(new double[] { 2 }, read(evicted, genotypes).genome, 0);
+        }
+
+    @Test(expected = IOException.class)
+    public void testUnknownGenotype() throws IOException
+        {
+        // a slave which never saw the genotype can't read it
+        write(newIndividual(0, 1));
+        read(write(newIndividual(0, 1)), new byte[1][]);
+        }
+
+    @Test
+    public void testWholeIndividual() throws IOException
+        {
+        setPrototype(new BackwardsIndividual());
+        byte[][] genotypes = new byte[1][];
+        genotypes[0] = new byte[0];
+        for (int i = 0; i < 2; i++)
+            {
+            byte[] bytes = write(newIndividual(1, 1, 2));
+            assertEquals(GenotypeCache.V_WHOLE, bytes[0]);
+            DoubleVectorIndividual ind = read(bytes, genotypes);
+            assertArrayEquals(new double[] { 1, 2 }, ind.genome, 0);
+            assertEquals(1, ind.fitness.fitness(), 0);
+            assertNull(genotypes[0]);
+            }
+        }
+
+    @Test
+    public void testHasGenotype() throws IOException
+        {
+        // the slave can tell whether evaluating an individual changed its genotype, but not its fitness
+        byte[][] genotypes = new byte[1][];
+        DoubleVectorIndividual ind = read(write(newIndividual(0, 1, 2)), genotypes);
+        ((SimpleFitness)ind.fitness).setFitness(state, 5, false);
+        ind.evaluated = true;
+        assertTrue(slave.hasGenotype(state, ind, genotypes[0]));
+        ind.genome[1] = 3;
+        assertFalse(slave.hasGenotype(state, ind, genotypes[0]));
+        assertFalse(slave.hasGenotype(state, ind, null));
+        }
+    }
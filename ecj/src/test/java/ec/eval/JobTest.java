@@ -0,0 +1,56 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.eval;
+
+import ec.Individual;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Job.
+ */
+public class JobTest
+    {
+    public JobTest()
+        {
+        }
+
+    @Test
+    public void testSplit()
+        {
+        Job job = SlaveMonitorTest.newJob(5);
+        job.updateFitness[3] = false;
+        Individual[] inds = job.inds.clone();
+
+        Job first = job.split(3);
+        assertEquals(Slave.V_EVALUATESIMPLE, first.type);
+        assertEquals(3, first.inds.length);
+        assertEquals(2, job.inds.length);
+        for (int i = 0; i < 3; i++)
+            {
+            assertSame(inds[i], first.inds[i]);
+            assertEquals(i, first.subPops[i]);
+            assertTrue(first.updateFitness[i]);
+            }
+        for (int i = 0; i < 2; i++)
+            {
+            assertSame(inds[i + 3], job.inds[i]);
+            assertEquals(i + 3, job.subPops[i]);
+            }
+        assertFalse(job.updateFitness[0]);
+        assertTrue(job.updateFitness[1]);
+        }
+
+    @Test
+    public void testSplitAll()
+        {
+        Job job = SlaveMonitorTest.newJob(4);
+        Job first = job.split(4);
+        assertEquals(4, first.inds.length);
+        assertEquals(0, job.inds.length);
+        assertEquals(0, job.subPops.length);
+        }
+    }
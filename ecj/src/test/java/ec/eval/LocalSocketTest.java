@@ -0,0 +1,159 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.eval;
+
+import java.io.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LocalSocket: a slave connecting through a directory, and data going both ways through
+ * rings much smaller than what's sent.
+ */
+public class LocalSocketTest
+    {
+    private File directory;
+
+    public LocalSocketTest()
+        {
+        }
+
+    @Before
+    public void setUp() throws IOException
+        {
+        directory = File.createTempFile("local", "");
+        directory.delete();
+        directory.mkdir();
+        }
+
+    @After
+    public void tearDown()
+        {
+        File[] files = directory.listFiles();
+        for (int i = 0; i < files.length; i++)
+            files[i].delete();
+        directory.delete();
+        }
+
+    private File[] rings()
+        {
+        return directory.listFiles(new FilenameFilter()
+            {
+            public boolean accept(File dir, String name) { return name.endsWith(LocalSocket.SUFFIX); }
+            });
+        }
+
+    // sends count ints, 0 to count - 1, in pieces of various sizes, flushing after each
+    static void send(OutputStream stream, int count) throws IOException
+        {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 777));
+        for (int i = 0; i < count; i++)
+            {
+            out.writeInt(i);
+            if (i % 1000 == 0) out.flush();
+            }
+        out.flush();
+        }
+
+    static void receive(InputStream stream, int count) throws IOException
+        {
+        DataInputStream in = new DataInputStream(stream);
+        for (int i = 0; i < count; i++)
+            assertEquals(i, in.readInt());
+        }
+
+    @Test
+    public void testConnect() throws IOException
+        {
+        LocalSocket slave = LocalSocket.connect(directory, "my slave", 1024);
+        File[] rings = rings();
+        assertEquals(1, rings.length);
+        assertTrue(rings[0].getName().startsWith("my_slave-"));
+        LocalSocket master = LocalSocket.accept(rings[0]);
+        assertEquals(0, rings().length);
+
+        master.getOutputStream().write(42);
+        master.getOutputStream().flush();
+        assertEquals(42, slave.getInputStream().read());
+        master.close();
+        slave.close();
+        }
+
+    @Test
+    public void testBothWays() throws Exception
+        {
+        // 400K each way through rings of 1K, so they wrap around and fill up many times
+        final LocalSocket slave = LocalSocket.connect(directory, "slave", 1024);
+        final LocalSocket master = LocalSocket.accept(rings()[0]);
+        final Exception[] failed = new Exception[1];
+        Thread other = new Thread(new Runnable()
+            {
+            public void run()
+                {
+                try
+                    {
+                    receive(slave.getInputStream(), 100000);
+                    send(slave.getOutputStream(), 100000);
+                    }
+                catch (Exception e) { failed[0] = e; }
+                }
+            });
+        other.start();
+        send(master.getOutputStream(), 100000);
+        receive(master.getInputStream(), 100000);
+        other.join();
+        assertNull(failed[0]);
+        master.close();
+        slave.close();
+        }
+
+    @Test
+    public void testCloseEndsStream() throws IOException
+        {
+        // what was written before closing still arrives, and then the stream ends
+        LocalSocket slave = LocalSocket.connect(directory, "slave", 1024);
+        LocalSocket master = LocalSocket.accept(rings()[0]);
+        master.getOutputStream().write(new byte[] { 1, 2, 3 });
+        master.close();
+        assertTrue(master.isClosed());
+        byte[] b = new byte[10];
+        InputStream in = slave.getInputStream();
+        assertEquals(3, in.read(b, 0, 10));
+        assertEquals(-1, in.read());
+        slave.close();
+
+        try
+            {
+            master.getOutputStream();
+            fail("A closed LocalSocket handed out its stream");
+            }
+        catch (IOException e) { }
+        }
+
+    @Test(expected = IOException.class)
+    public void testCapacityPowerOfTwo() throws IOException
+        {
+        LocalSocket.connect(directory, "slave", 1000);
+        }
+
+    @Test
+    public void testNotARing() throws IOException
+        {
+        File file = new File(directory, "junk" + LocalSocket.SUFFIX);
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[10]);
+        out.close();
+        try
+            {
+            LocalSocket.accept(file);
+            fail("Accepted a file which isn't a ring");
+            }
+        catch (IOException e) { }
+        assertFalse(file.exists());
+        }
+    }
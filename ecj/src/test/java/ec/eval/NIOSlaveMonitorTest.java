@@ -0,0 +1,218 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.eval;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.simple.SimpleFitness;
+import ec.vector.DoubleVectorIndividual;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for NIOSlaveConnection's reading of results, and NIOSlaveMonitor's handling of lost slaves.  The
+ * connection is one end of a loopback channel, and the test plays the slave at the other end.
+ */
+public class NIOSlaveMonitorTest
+    {
+    private EvolutionState state;
+    private NIOSlaveMonitor monitor;
+    private NIOSlaveConnection connection;
+    private Socket slave;
+    private DataOutputStream out;
+
+    public NIOSlaveMonitorTest()
+        {
+        }
+
+    // a Fitness which counts how many times it's been read
+    static class CountingFitness extends SimpleFitness
+        {
+        static int reads;
+
+        public void readFitness(EvolutionState state, DataInput dataInput) throws IOException
+            {
+            reads++;
+            super.readFitness(state, dataInput);
+            }
+        }
+
+    @Before
+    public void setUp() throws IOException
+        {
+        state = SlaveMonitorTest.newState(SlaveMonitor.P_EVALMASTERPORT, "0");
+        MasterProblem problem = new MasterProblem();
+        problem.jobSize = 10;
+        monitor = new NIOSlaveMonitor(state, false, problem);
+
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        SocketChannel channel = SocketChannel.open(server.socket().getLocalSocketAddress());
+        slave = server.accept().socket();
+        server.close();
+        channel.configureBlocking(false);
+        out = new DataOutputStream(new BufferedOutputStream(slave.getOutputStream()));
+        connection = new NIOSlaveConnection(state, "test", channel, monitor, null);
+        CountingFitness.reads = 0;
+        }
+
+    @After
+    public void tearDown() throws IOException
+        {
+        slave.close();
+        connection.close();
+        monitor.shutdown();
+        }
+
+    // a job, already sent to the slave, of individuals with the given genomes
+    private Job send(double[]... genomes)
+        {
+        Job job = new Job();
+        job.type = Slave.V_EVALUATESIMPLE;
+        job.inds = new Individual[genomes.length];
+        job.subPops = new int[genomes.length];
+        job.updateFitness = new boolean[genomes.length];
+        for (int i = 0; i < genomes.length; i++)
+            {
+            DoubleVectorIndividual ind = new DoubleVectorIndividual();
+            ind.genome = genomes[i];
+            ind.fitness = new CountingFitness();
+            job.inds[i] = ind;
+            job.updateFitness[i] = true;
+            }
+        job.sent = true;
+        connection.sent.addLast(job);
+        connection.numJobs.incrementAndGet();
+        return job;
+        }
+
+    // has the slave write the bytes, and the connection read them
+    private void deliver(byte[] bytes) throws IOException
+        {
+        int before = connection.input.position();
+        out.write(bytes);
+        out.flush();
+        // until the job is done, the connection holds on to everything since its first unread individual
+        while (connection.input.position() < before + bytes.length && monitor.completed.isEmpty())
+            assertTrue(connection.read());
+        }
+
+    private static byte[] fitness(double value) throws IOException
+        {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeByte(Slave.V_FITNESS);
+        data.writeBoolean(true);
+        SimpleFitness fitness = new SimpleFitness();
+        fitness.setFitness(null, value, false);
+        fitness.writeFitness(null, data);
+        data.flush();
+        return bytes.toByteArray();
+        }
+
+    @Test
+    public void testReadsResults() throws IOException
+        {
+        Job job = send(new double[] { 1 }, new double[] { 2 });
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(fitness(10));
+        bytes.write(fitness(20));
+        deliver(bytes.toByteArray());
+
+        assertSame(job, monitor.completed.poll());
+        assertTrue(connection.sent.isEmpty());
+        assertEquals(0, connection.numJobs());
+        job.copyIndividualsBack(state);
+        assertEquals(10, job.inds[0].fitness.fitness(), 0);
+        assertEquals(20, job.inds[1].fitness.fitness(), 0);
+        assertTrue(job.inds[1].evaluated);
+        }
+
+    @Test
+    public void testBigIndividualInPieces() throws IOException
+        {
+        // a result of about 800K arriving 1K at a time is tried a logarithmic number of times, not a thousand
+        double[] genome = new double[100000];
+        for (int i = 0; i < genome.length; i++)
+            genome[i] = i;
+        Job job = send(new double[] { 0 });
+
+        DoubleVectorIndividual result = new DoubleVectorIndividual();
+        result.genome = genome;
+        result.fitness = new SimpleFitness();
+        result.evaluated = true;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeByte(Slave.V_INDIVIDUAL);
+        result.writeIndividual(state, data);
+        data.flush();
+        byte[] all = bytes.toByteArray();
+        for (int i = 0; i < all.length; i += 1000)
+            {
+            byte[] piece = new byte[Math.min(1000, all.length - i)];
+            System.arraycopy(all, i, piece, 0, piece.length);
+            deliver(piece);
+            }
+        if (connection.deferred())
+            connection.parse();
+
+        assertSame(job, monitor.completed.poll());
+        assertTrue(CountingFitness.reads < 30);
+        job.copyIndividualsBack(state);
+        assertArrayEquals(genome, ((DoubleVectorIndividual)job.inds[0]).genome, 0);
+        }
+
+    @Test
+    public void testDeferredParse() throws IOException
+        {
+        // the last individual is shorter than twice its first piece, so it's only read when asked again
+        Job job = send(new double[] { 1 });
+        byte[] all = fitness(10);
+        byte[] first = new byte[10];
+        byte[] rest = new byte[all.length - 10];
+        System.arraycopy(all, 0, first, 0, 10);
+        System.arraycopy(all, 10, rest, 0, rest.length);
+        deliver(first);
+        assertTrue(connection.deferred());
+        deliver(rest);
+        assertTrue(connection.deferred());
+        assertTrue(monitor.completed.isEmpty());
+
+        connection.parse();
+        assertFalse(connection.deferred());
+        assertSame(job, monitor.completed.poll());
+        }
+
+    @Test
+    public void testLostOnce()
+        {
+        // a job scheduled as the slave is closed hands the slave back to the monitor a second time
+        StringWriter log = new StringWriter();
+        state.output.addLog(log, null, true, false);
+        monitor.slaves.add(connection);
+        monitor.outstanding.set(2);
+        send(new double[] { 1 });
+        monitor.lost(connection, connection.close());
+        ArrayList<Job> late = new ArrayList<Job>();
+        late.add(SlaveMonitorTest.newJob(1));
+        monitor.lost(connection, late);
+
+        assertFalse(monitor.slaves.contains(connection));
+        assertEquals(0, monitor.outstanding.get());
+        assertEquals(2, monitor.lost.size());
+        String messages = log.toString();
+        assertEquals(messages.indexOf("shut down"), messages.lastIndexOf("shut down"));
+        assertTrue(messages.contains("Slave test shut down."));
+        }
+    }
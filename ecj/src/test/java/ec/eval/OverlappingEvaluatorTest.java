@@ -0,0 +1,193 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.eval;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.Population;
+import ec.Problem;
+import ec.Subpopulation;
+import ec.simple.SimpleProblemForm;
+import ec.steadystate.QueueIndividual;
+import ec.util.Output;
+import ec.util.Parameter;
+import ec.vector.DoubleVectorIndividual;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for OverlappingEvaluator's handling of individuals which come back from the slaves after their
+ * generation has been bred.  The slaves are played by a MasterProblem which hands back individuals in an order
+ * chosen by the test.
+ */
+public class OverlappingEvaluatorTest
+    {
+    private EvolutionState state;
+    private OverlappingEvaluator evaluator;
+    private ScriptedProblem problem;
+
+    public OverlappingEvaluatorTest()
+        {
+        }
+
+    // a MasterProblem whose individuals come back, evaluated, in the order they're put in returning
+    static class ScriptedProblem extends MasterProblem
+        {
+        ArrayList<Individual> sent = new ArrayList<Individual>();
+        LinkedList<QueueIndividual> returning = new LinkedList<QueueIndividual>();
+
+        public void prepareToEvaluate(EvolutionState state, int threadnum) { }
+        public void flushEvaluating(EvolutionState state, int threadnum) { }
+
+        public void evaluate(EvolutionState state, Individual ind, int subpopulation, int threadnum)
+            {
+            sent.add(ind);
+            }
+
+        public QueueIndividual getNextEvaluatedIndividual()
+            {
+            assertFalse("Waiting for an individual which will never come back", returning.isEmpty());
+            QueueIndividual qind = returning.removeFirst();
+            qind.ind.evaluated = true;
+            return qind;
+            }
+        }
+
+    // the real problem, for setting up
+    public static class NullProblem extends Problem implements SimpleProblemForm
+        {
+        public void evaluate(EvolutionState state, Individual ind, int subpopulation, int threadnum) { }
+        }
+
+    @Before
+    public void setUp()
+        {
+        state = SlaveMonitorTest.newState();
+        state.population = new Population();
+        state.population.subpops = new ArrayList<Subpopulation>();
+        state.population.subpops.add(new Subpopulation());
+        state.population.subpops.get(0).individuals = new ArrayList<Individual>();
+        problem = new ScriptedProblem();
+        evaluator = new OverlappingEvaluator();
+        evaluator.p_problem = problem;
+        FractionReadiness readiness = new FractionReadiness();
+        readiness.fraction = 0.5;
+        evaluator.readiness = readiness;
+        }
+
+    private Individual[] breed(int n)
+        {
+        Individual[] inds = new Individual[n];
+        for (int i = 0; i < n; i++)
+            {
+            inds[i] = new DoubleVectorIndividual();
+            state.population.subpops.get(0).individuals.add(inds[i]);
+            }
+        return inds;
+        }
+
+    private void comesBack(Individual ind)
+        {
+        problem.returning.add(new QueueIndividual(ind, 0));
+        }
+
+    @Test
+    public void testStragglers()
+        {
+        // half come back, and the other half are taken out of the population
+        Individual[] parents = breed(4);
+        comesBack(parents[1]);
+        comesBack(parents[0]);
+        evaluator.evaluatePopulation(state);
+        ArrayList<Individual> inds = state.population.subpops.get(0).individuals;
+        assertEquals(2, inds.size());
+        assertSame(parents[0], inds.get(0));
+        assertSame(parents[1], inds.get(1));
+        assertEquals(2, evaluator.numStragglers());
+        assertEquals(2, state.evaluations);
+
+        // the next generation: a straggler and a child come back, which are enough of three
+        inds.clear();
+        Individual[] children = breed(2);
+        comesBack(parents[2]);
+        comesBack(children[1]);
+        evaluator.evaluatePopulation(state);
+        assertEquals(2, inds.size());
+        assertSame(children[1], inds.get(0));
+        assertSame(parents[2], inds.get(1));
+        assertEquals(2, evaluator.numStragglers());
+        assertEquals(1, evaluator.lateIndividuals);
+        assertEquals(4, state.evaluations);
+        assertEquals(6, problem.sent.size());
+        }
+
+    @Test
+    public void testEverythingBack()
+        {
+        // with nothing more coming, the evaluator doesn't wait for the readiness
+        Individual[] parents = breed(4);
+        parents[3].evaluated = true;  // an elite
+        for (int i = 0; i < 3; i++)
+            comesBack(parents[i]);
+        FractionReadiness readiness = new FractionReadiness();
+        readiness.fraction = 1.0;
+        evaluator.readiness = readiness;
+        evaluator.evaluatePopulation(state);
+        assertEquals(4, state.population.subpops.get(0).individuals.size());
+        assertEquals(0, evaluator.numStragglers());
+        assertEquals(3, problem.sent.size());
+        assertEquals(4, state.evaluations);
+        }
+
+    @Test
+    public void testStrangerIgnored()
+        {
+        // an individual sent off before the run was restarted doesn't count
+        Individual[] parents = breed(2);
+        comesBack(new DoubleVectorIndividual());
+        comesBack(parents[0]);
+        evaluator.evaluatePopulation(state);
+        assertEquals(1, state.population.subpops.get(0).individuals.size());
+        assertEquals(1, evaluator.numStragglers());
+        assertEquals(1, state.evaluations);
+        }
+
+    @Test
+    public void testLostJobsNotRescheduled()
+        {
+        // with lost jobs thrown away, the evaluator might wait forever, so it refuses to run
+        state.parameters.set(new Parameter("eval.problem"), NullProblem.class.getName());
+        state.parameters.set(new Parameter("eval.masterproblem"), MasterProblem.class.getName());
+        state.parameters.set(new Parameter(SlaveMonitor.P_RESCHEDULELOSTJOBS), "false");
+        state.breedthreads = 1;
+        state.evalthreads = 1;
+        try
+            {
+            new OverlappingEvaluator().setup(state, new Parameter("eval"));
+            fail("Set up without rescheduling lost jobs");
+            }
+        catch (Output.OutputExitException e)
+            {
+            assertTrue(e.getMessage().contains("rescheduled"));
+            }
+        }
+
+    @Test
+    public void testLostJobsRescheduled()
+        {
+        state.parameters.set(new Parameter("eval.problem"), NullProblem.class.getName());
+        state.parameters.set(new Parameter("eval.masterproblem"), MasterProblem.class.getName());
+        state.breedthreads = 1;
+        state.evalthreads = 1;
+        OverlappingEvaluator evaluator = new OverlappingEvaluator();
+        evaluator.setup(state, new Parameter("eval"));
+        assertTrue(evaluator.p_problem instanceof MasterProblem);
+        assertTrue(((MasterProblem)evaluator.p_problem).queueEvaluatedIndividuals);
+        }
+    }
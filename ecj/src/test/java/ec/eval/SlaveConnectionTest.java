@@ -0,0 +1,174 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.eval;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.simple.SimpleFitness;
+import ec.vector.DoubleVectorIndividual;
+import java.io.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SlaveConnection's estimates of a slave's performance, and its writing of jobs which are shared
+ * with copies of them.
+ */
+public class SlaveConnectionTest
+    {
+    private EvolutionState state;
+    private SlaveMonitor monitor;
+    private SlaveConnection slave;
+
+    public SlaveConnectionTest()
+        {
+        }
+
+    // an individual which notices being written while results are being merged into it
+    static class SharedIndividual extends DoubleVectorIndividual
+        {
+        static volatile boolean merging;
+        static volatile int overlaps;
+
+        public void readGenotype(EvolutionState state, DataInput dataInput) throws IOException
+            {
+            merging = true;
+            pause();
+            super.readGenotype(state, dataInput);
+            merging = false;
+            }
+
+        public void writeGenotype(EvolutionState state, DataOutput dataOutput) throws IOException
+            {
+            if (merging) overlaps++;
+            pause();
+            if (merging) overlaps++;
+            super.writeGenotype(state, dataOutput);
+            }
+
+        static void pause()
+            {
+            try { Thread.sleep(1); } catch (InterruptedException e) { }
+            }
+        }
+
+    private static Job newSharedJob(int size)
+        {
+        Job job = SlaveMonitorTest.newJob(size);
+        for (int i = 0; i < size; i++)
+            {
+            SharedIndividual ind = new SharedIndividual();
+            ind.genome = new double[] { i };
+            ind.fitness = new SimpleFitness();
+            job.inds[i] = ind;
+            }
+        return job;
+        }
+
+    @Before
+    public void setUp()
+        {
+        state = SlaveMonitorTest.newState();
+        monitor = SlaveMonitorTest.newMonitor(state);
+        slave = SlaveMonitorTest.addSlave(monitor, "a");
+        }
+
+    @Test
+    public void testWeighting()
+        {
+        // the first job counts fully, and later ones by adaptive-weight (0.3)
+        SlaveMonitorTest.record(slave, 10, 0, 0.1, 1000000000L);  // 1 second
+        assertEquals(1.0, slave.meanTime, 1e-6);
+        SlaveMonitorTest.record(slave, 10, 0, 0.2, 3000000000L);  // 2 seconds
+        assertEquals(1.3, slave.meanTime, 1e-6);
+        assertEquals(1 / 1.3, slave.getStatus().jobsPerSecond, 1e-6);
+        }
+
+    @Test
+    public void testTracksChangingSpeed()
+        {
+        long now = 0;
+        for (int i = 0; i < 10; i++)
+            SlaveMonitorTest.record(slave, 10 + 10 * (i % 2), 0.5, 0.01, now += 1000000000L);
+        assertEquals(0.01, slave.perIndividual, 1e-9);
+
+        // the slave slows down: its estimate follows, but not all at once
+        SlaveMonitorTest.record(slave, 20, 0.5, 0.02, now += 1000000000L);
+        assertTrue(slave.perIndividual > 0.01 && slave.perIndividual < 0.02);
+        for (int i = 0; i < 40; i++)
+            SlaveMonitorTest.record(slave, 10 + 10 * (i % 2), 0.5, 0.02, now += 1000000000L);
+        assertEquals(0.02, slave.perIndividual, 1e-4);
+        assertEquals(0.5, slave.latency, 1e-2);
+        }
+
+    @Test
+    public void testBackToBackJobs()
+        {
+        // a job sent while the slave was busy with the previous one is timed from when the previous one came back
+        Job job = SlaveMonitorTest.newJob(10);
+        job.sentTime = 0;
+        slave.recordJob(job, 1000000000L);
+        job = SlaveMonitorTest.newJob(10);
+        job.sentTime = 500000000L;
+        slave.recordJob(job, 3000000000L);
+        assertEquals(1.0 + 0.3 * (2.0 - 1.0), slave.meanTime, 1e-6);
+        }
+
+    @Test
+    public void testScore()
+        {
+        assertEquals(Double.POSITIVE_INFINITY, slave.score(), 0);
+        SlaveMonitorTest.record(slave, 10, 0, 0.01, 1000000000L);
+        assertEquals(100, slave.score(), 1e-6);
+        slave.errorRate = 0.5;
+        assertEquals(50, slave.score(), 1e-6);
+        }
+
+    @Test
+    public void testDuplicateWrittenApartFromMerge() throws Exception
+        {
+        // a copy of a straggler is written while the straggler's own results are merged into their shared individuals
+        final Job primary = newSharedJob(5);
+        final Job copy = primary.duplicate();
+        SharedIndividual.overlaps = 0;
+        Thread merger = new Thread(new Runnable()
+            {
+            public void run()
+                {
+                for (int i = 0; i < 20; i++)
+                    {
+                    SharedIndividual.pause();
+                    synchronized(primary) { primary.copyIndividualsForward(); }
+                    primary.claimAndCopyIndividualsBack(state);
+                    synchronized(primary) { primary.claimed = false; }
+                    }
+                }
+            });
+        merger.start();
+        while (merger.isAlive())
+            SlaveConnection.writeSharedJob(state, copy, new DataOutputStream(new ByteArrayOutputStream()), null);
+        assertEquals(0, SharedIndividual.overlaps);
+        }
+
+    @Test
+    public void testClaimedJobNotWritten() throws IOException
+        {
+        Job primary = newSharedJob(2);
+        Job copy = primary.duplicate();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertTrue(SlaveConnection.writeSharedJob(state, copy, new DataOutputStream(bytes), null));
+        assertTrue(bytes.size() > 0);
+
+        // the primary comes back first, so neither it nor its copy needs writing any more
+        primary.copyIndividualsForward();
+        assertTrue(primary.claimAndCopyIndividualsBack(state));
+        bytes.reset();
+        assertFalse(SlaveConnection.writeSharedJob(state, copy, new DataOutputStream(bytes), null));
+        assertFalse(SlaveConnection.writeSharedJob(state, primary, new DataOutputStream(bytes), null));
+        assertEquals(0, bytes.size());
+        }
+    }
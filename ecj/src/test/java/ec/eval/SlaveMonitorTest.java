@@ -0,0 +1,297 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.eval;
+
+import ec.EvolutionState;
+import ec.Evolve;
+import ec.Individual;
+import ec.util.Parameter;
+import ec.util.ParameterDatabase;
+import ec.vector.DoubleVectorIndividual;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SlaveMonitor's scheduling of jobs, without any real slaves: the SlaveConnections are
+ * given jobs, and told they've finished them, by hand.
+ */
+public class SlaveMonitorTest
+    {
+    private EvolutionState state;
+    private SlaveMonitor monitor;
+
+    public SlaveMonitorTest()
+        {
+        }
+
+    /** Returns a state with the parameters a SlaveMonitor needs, and any others given as name, value pairs. */
+    static EvolutionState newState(String... parameters)
+        {
+        EvolutionState state = new EvolutionState();
+        state.parameters = new ParameterDatabase();
+        state.parameters.set(new Parameter(SlaveMonitor.P_MAXIMUMNUMBEROFCONCURRENTJOBSPERSLAVE), "100");
+        for (int i = 0; i < parameters.length; i += 2)
+            state.parameters.set(new Parameter(parameters[i]), parameters[i + 1]);
+        state.output = Evolve.buildOutput();
+        state.output.setThrowsErrors(true);
+        return state;
+        }
+
+    /** Returns a monitor which doesn't listen for slaves, sizing jobs adaptively from an initial size of 10. */
+    static SlaveMonitor newMonitor(EvolutionState state)
+        {
+        MasterProblem problem = new MasterProblem();
+        problem.jobSize = 10;
+        problem.adaptiveJobSize = true;
+        problem.maxJobSize = Integer.MAX_VALUE;
+        problem.adaptiveWeight = 0.3;
+        problem.targetOverhead = 0.1;
+        return new SlaveMonitor(state, false, problem, false);
+        }
+
+    /** Adds a slave, without a connection or threads, to the monitor. */
+    static SlaveConnection addSlave(SlaveMonitor monitor, String name)
+        {
+        SlaveConnection slave = new SlaveConnection(monitor.state, name, new Socket(), monitor);
+        monitor.allSlaves.addLast(slave);
+        monitor.availableSlaves.addLast(slave);
+        return slave;
+        }
+
+    static Job newJob(int size)
+        {
+        Job job = new Job();
+        job.type = Slave.V_EVALUATESIMPLE;
+        job.inds = new Individual[size];
+        job.subPops = new int[size];
+        job.updateFitness = new boolean[size];
+        for (int i = 0; i < size; i++)
+            {
+            job.inds[i] = new DoubleVectorIndividual();
+            job.subPops[i] = i;
+            job.updateFitness[i] = true;
+            }
+        return job;
+        }
+
+    /** Has the slave return a job of the given size which took latency + size * perIndividual seconds, ending at time
+        <i>done</i> (in nanoseconds). */
+    static void record(SlaveConnection slave, int size, double latency, double perIndividual, long done)
+        {
+        Job job = newJob(size);
+        job.sentTime = done - (long)((latency + size * perIndividual) * 1.0e9);
+        slave.recordJob(job, done);
+        }
+
+    @Before
+    public void setUp()
+        {
+        state = newState();
+        monitor = newMonitor(state);
+        }
+
+    @Test
+    public void testInitialJobSize()
+        {
+        SlaveConnection slave = addSlave(monitor, "a");
+        assertEquals(10, monitor.jobSize(slave, 1000));
+        assertEquals(4, monitor.jobSize(slave, 4));
+        }
+
+    @Test
+    public void testDoublingUntilResolved()
+        {
+        // jobs all of one size can't tell latency from throughput, so the next is twice as big
+        SlaveConnection slave = addSlave(monitor, "a");
+        record(slave, 10, 0.5, 0.01, 1000000000L);
+        assertFalse(slave.resolved);
+        assertEquals(20, monitor.jobSize(slave, 1000));
+        }
+
+    @Test
+    public void testResolvedJobSize()
+        {
+        // latency 0.5s and 0.01s per individual: the latency is 10% of a job of 450
+        SlaveConnection slave = addSlave(monitor, "a");
+        record(slave, 10, 0.5, 0.01, 1000000000L);
+        record(slave, 20, 0.5, 0.01, 2000000000L);
+        assertTrue(slave.resolved);
+        assertEquals(0.5, slave.latency, 1e-6);
+        assertEquals(0.01, slave.perIndividual, 1e-9);
+        assertEquals(450, monitor.jobSize(slave, 100000), 1);
+
+        // near the end of the batch a lone slave gets at most half of what's left
+        assertEquals(200, monitor.jobSize(slave, 400), 1);
+
+        monitor.maxJobSize = 100;
+        assertEquals(100, monitor.jobSize(slave, 100000));
+        }
+
+    @Test
+    public void testTailSharedByThroughput()
+        {
+        // a slave three times as fast as the other does three quarters of the work, so gets at most 3/8 of what's left
+        SlaveConnection fast = addSlave(monitor, "fast");
+        SlaveConnection slow = addSlave(monitor, "slow");
+        record(fast, 10, 1.0, 0.01, 5000000000L);
+        record(fast, 20, 1.0, 0.01, 10000000000L);
+        record(slow, 10, 1.0, 0.03, 5000000000L);
+        record(slow, 20, 1.0, 0.03, 10000000000L);
+        assertEquals(100 + 100 / 3.0, monitor.totalThroughput(), 1e-6);
+        assertEquals(150, monitor.jobSize(fast, 400), 1);
+        assertEquals(50, monitor.jobSize(slow, 400), 1);
+        }
+
+    @Test
+    public void testAdaptiveSplitting()
+        {
+        // two new slaves, each with an initial job size of 10, share a job of 25 in order
+        SlaveConnection a = addSlave(monitor, "a");
+        SlaveConnection b = addSlave(monitor, "b");
+        Job job = newJob(25);
+        Individual[] inds = job.inds.clone();
+        monitor.scheduleJobForEvaluation(state, job, 25);
+
+        assertEquals(2, a.numJobs());
+        assertEquals(1, b.numJobs());
+        Job a0 = (Job)(a.jobs.get(0));
+        Job b0 = (Job)(b.jobs.get(0));
+        Job a1 = (Job)(a.jobs.get(1));
+        assertEquals(10, a0.inds.length);
+        assertEquals(10, b0.inds.length);
+        assertEquals(5, a1.inds.length);
+        assertSame(inds[0], a0.inds[0]);
+        assertSame(inds[10], b0.inds[0]);
+        assertSame(inds[24], a1.inds[4]);
+        assertEquals(24, a1.subPops[4]);
+        }
+
+    @Test
+    public void testNoSplitting()
+        {
+        // without adaptive sizing, or for coevolutionary jobs, the job goes whole to one slave
+        SlaveConnection a = addSlave(monitor, "a");
+        SlaveConnection b = addSlave(monitor, "b");
+        Job grouped = newJob(25);
+        grouped.type = Slave.V_EVALUATEGROUPED;
+        monitor.scheduleJobForEvaluation(state, grouped, 25);
+        assertEquals(1, a.numJobs());
+        assertEquals(25, ((Job)(a.jobs.get(0))).inds.length);
+
+        monitor.adaptiveJobSize = false;
+        monitor.scheduleJobForEvaluation(state, newJob(25), 25);  // round-robin, so to b
+        assertEquals(1, a.numJobs());
+        assertEquals(1, b.numJobs());
+        assertEquals(25, ((Job)(b.jobs.get(0))).inds.length);
+        }
+
+    @Test
+    public void testSlaveStatus()
+        {
+        SlaveConnection slave = addSlave(monitor, "a");
+        record(slave, 10, 0.5, 0.01, 1000000000L);
+        record(slave, 20, 0.5, 0.01, 2000000000L);
+        SlaveStatus[] status = monitor.getSlaveStatus();
+        assertEquals(1, status.length);
+        assertEquals("a", status[0].name);
+        assertEquals(2, status[0].jobs);
+        assertEquals(30, status[0].individuals);
+        assertEquals(20, status[0].lastJobSize);
+        assertEquals(100, status[0].throughput, 1e-6);
+        assertEquals(0.5, status[0].latency, 1e-6);
+        assertEquals(100, monitor.getMetrics().throughput, 1e-6);
+        }
+
+    // gives the slave a job it was sent at the given time, in nanoseconds, and hasn't returned
+    private static void sendJob(SlaveConnection slave, long sent)
+        {
+        Job job = newJob(1);
+        job.sentTime = sent;
+        slave.jobs.addLast(job);
+        }
+
+    @Test
+    public void testDrainKeepsOneSlave()
+        {
+        SlaveConnection a = addSlave(monitor, "a");
+        SlaveConnection b = addSlave(monitor, "b");
+        assertTrue(monitor.drain(a, "is slow"));
+        assertFalse(monitor.drain(a, "is slow"));
+        assertFalse(monitor.drain(b, "is slow"));
+        assertTrue(a.draining);
+        assertFalse(b.draining);
+        assertEquals(1, monitor.numAvailableSlaves());
+        }
+
+    @Test
+    public void testHungSlavesKeepOne()
+        {
+        // both slaves are hung, but only the first is let go, so there's still one to give jobs to
+        monitor.healthTimeout = 1000000000L;
+        SlaveConnection a = addSlave(monitor, "a");
+        SlaveConnection b = addSlave(monitor, "b");
+        sendJob(a, 1000000000L);
+        sendJob(b, 1000000000L);
+        monitor.checkForHungSlaves(10000000000L);
+        assertTrue(a.draining);
+        assertTrue(monitor.isBlacklisted("a"));
+        assertFalse(b.draining);
+        assertFalse(monitor.isBlacklisted("b"));
+
+        // nor is a lone slave let go
+        SlaveMonitor other = newMonitor(state);
+        other.healthTimeout = 1000000000L;
+        SlaveConnection c = addSlave(other, "c");
+        sendJob(c, 1000000000L);
+        other.checkForHungSlaves(10000000000L);
+        assertFalse(c.draining);
+        assertEquals(1, other.numAvailableSlaves());
+        }
+
+    // Plays a slave connecting to the monitor, which sends it away once they've shaken hands.  Returns what the
+    // monitor sends after the slave's number and random seed.
+    private static byte[] handshake(SlaveMonitor monitor) throws IOException
+        {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Socket slave = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        Socket master = server.accept();
+        server.close();
+        DataOutputStream out = new DataOutputStream(slave.getOutputStream());
+        out.writeUTF("a");
+        out.flush();
+        monitor.setShutdownInProgress(true);
+        monitor.handshake(master, new MasterProblem());
+
+        DataInputStream in = new DataInputStream(slave.getInputStream());
+        in.readInt();
+        in.readInt();
+        ByteArrayOutputStream rest = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1)
+            rest.write(b);
+        slave.close();
+        return rest.toByteArray();
+        }
+
+    @Test
+    public void testHandshakeWithoutCache() throws IOException
+        {
+        // just what slaves from before the genotype cache expect
+        assertArrayEquals(new byte[] { Slave.V_SHUTDOWN }, handshake(monitor));
+        }
+
+    @Test
+    public void testHandshakeWithCache() throws IOException
+        {
+        monitor.genotypeCacheSize = 5;
+        assertArrayEquals(new byte[] { Slave.V_GENOTYPECACHE, 0, 0, 0, 5, Slave.V_SHUTDOWN }, handshake(monitor));
+        }
+    }
@@ -0,0 +1,166 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.eval;
+
+import ec.EvolutionState;
+import ec.Evolve;
+import ec.Individual;
+import ec.Population;
+import ec.Problem;
+import ec.Subpopulation;
+import ec.simple.SimpleEvaluator;
+import ec.simple.SimpleFitness;
+import ec.simple.SimpleProblemForm;
+import ec.vector.DoubleVectorIndividual;
+import ec.vector.FloatVectorSpecies;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the Slave's returning of individuals as they're evaluated by several threads.
+ */
+public class SlaveTest
+    {
+    public SlaveTest()
+        {
+        }
+
+    static void await(CountDownLatch latch)
+        {
+        try { latch.await(); } catch (InterruptedException e) { }
+        }
+
+    static void pause()
+        {
+        try { Thread.sleep(20); } catch (InterruptedException e) { }
+        }
+
+    // input from the master which stops just before individual 3 until individuals 0 and 2 are done
+    static class HeldInput extends InputStream
+        {
+        byte[] bytes;
+        int position;
+        int hold;
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        public int read()
+            {
+            if (position == hold)
+                {
+                holding.countDown();
+                await(release);
+                pause();  // so individual 2 is on the completion queue, behind individual 0
+                }
+            return (position < bytes.length ? (bytes[position++] & 0xff) : -1);
+            }
+        }
+
+    // output to the master which notes when results are flushed
+    static class WatchedOutput extends ByteArrayOutputStream
+        {
+        CountDownLatch flushed = new CountDownLatch(1);
+
+        public void flush()
+            {
+            if (size() > 0) flushed.countDown();
+            }
+        }
+
+    // Individual 0 finishes once the slave is waiting for individual 3, and individual 2 just after it.  Individual 1
+    // waits until the slave has flushed individual 0's result, which it must do as it has nothing else to return.
+    static class OrderedProblem extends Problem implements SimpleProblemForm
+        {
+        HeldInput in;
+        WatchedOutput out;
+        CountDownLatch zeroDone = new CountDownLatch(1);
+        AtomicBoolean flushedInTime = new AtomicBoolean();  // shared with the clones the slave evaluates with
+
+        public void evaluate(EvolutionState state, Individual ind, int subpopulation, int threadnum)
+            {
+            int gene = (int)(((DoubleVectorIndividual)ind).genome[0]);
+            if (gene == 0)
+                {
+                await(in.holding);
+                zeroDone.countDown();
+                }
+            else if (gene == 1)
+                {
+                try { flushedInTime.set(out.flushed.await(2, TimeUnit.SECONDS)); }
+                catch (InterruptedException e) { }
+                }
+            else if (gene == 2)
+                {
+                await(zeroDone);
+                pause();
+                in.release.countDown();
+                }
+            ((SimpleFitness)ind.fitness).setFitness(state, gene * 10, false);
+            ind.evaluated = true;
+            }
+        }
+
+    @Test
+    public void testFlushesReturnedIndividuals() throws IOException
+        {
+        EvolutionState state = new EvolutionState();
+        state.output = Evolve.buildOutput();
+        state.output.setThrowsErrors(true);
+        state.evalthreads = 4;
+        FloatVectorSpecies species = new FloatVectorSpecies();
+        DoubleVectorIndividual prototype = new DoubleVectorIndividual();
+        prototype.species = species;
+        prototype.genome = new double[1];
+        species.i_prototype = prototype;
+        species.f_prototype = new SimpleFitness();
+        state.population = new Population();
+        state.population.subpops = new ArrayList<Subpopulation>();
+        state.population.subpops.add(new Subpopulation());
+        state.population.subpops.get(0).species = species;
+        OrderedProblem problem = new OrderedProblem();
+        state.evaluator = new SimpleEvaluator();
+        state.evaluator.p_problem = problem;
+
+        // the job: four individuals, the fourth of which is held back
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream job = new DataOutputStream(bytes);
+        job.writeInt(4);
+        for (int i = 0; i < 4; i++)
+            job.writeInt(0);
+        HeldInput in = new HeldInput();
+        for (int i = 0; i < 4; i++)
+            {
+            if (i == 3) in.hold = bytes.size();
+            DoubleVectorIndividual ind = (DoubleVectorIndividual)(prototype.clone());
+            ind.fitness = new SimpleFitness();
+            ind.genome = new double[] { i };
+            ind.writeIndividual(state, job);
+            job.writeBoolean(true);
+            }
+        in.bytes = bytes.toByteArray();
+        problem.in = in;
+        problem.out = new WatchedOutput();
+
+        Slave.evaluateSimpleProblemForm(state, false, new DataInputStream(in), new DataOutputStream(problem.out), null);
+        assertTrue(problem.flushedInTime.get());
+
+        DataInputStream results = new DataInputStream(new ByteArrayInputStream(problem.out.toByteArray()));
+        for (int i = 0; i < 4; i++)
+            {
+            assertEquals(Slave.V_FITNESS, results.readByte());
+            assertTrue(results.readBoolean());
+            SimpleFitness fitness = new SimpleFitness();
+            fitness.readFitness(state, results);
+            assertEquals(i * 10, fitness.fitness(), 0);
+            }
+        assertEquals(-1, results.read());
+        }
+    }
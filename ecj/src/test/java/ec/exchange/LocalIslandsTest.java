@@ -0,0 +1,162 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.exchange;
+
+import ec.EvolutionState;
+import ec.Evolve;
+import ec.Individual;
+import ec.util.Parameter;
+import ec.util.ParameterDatabase;
+import ec.vector.DoubleVectorIndividual;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LocalIslands' topology and links, and its handling of an island which fails, without running
+ * any evolution.
+ */
+public class LocalIslandsTest
+    {
+    private LocalIslands islands;
+
+    public LocalIslandsTest()
+        {
+        }
+
+    private static void set(ParameterDatabase parameters, String name, String value)
+        {
+        parameters.set(new Parameter(name), value);
+        }
+
+    // three islands in a ring, a -> b -> c -> a, and a also sending to c
+    @Before
+    public void setUp()
+        {
+        ParameterDatabase parameters = new ParameterDatabase();
+        set(parameters, "pop.subpops", "2");
+        set(parameters, "exch.num-islands", "3");
+        set(parameters, "exch.size", "4");
+        set(parameters, "exch.mod", "2");
+        set(parameters, "exch.start", "1");
+        set(parameters, "exch.mailbox-capacity", "10");
+        set(parameters, "exch.island.1.mailbox-capacity", "2");
+        String[] ids = { "a", "b", "c" };
+        for (int x = 0; x < 3; x++)
+            {
+            set(parameters, "exch.island." + x + ".id", ids[x]);
+            set(parameters, "exch.island." + x + ".num-mig", "1");
+            set(parameters, "exch.island." + x + ".mig.0", ids[(x + 1) % 3]);
+            }
+        set(parameters, "exch.island.0.num-mig", "2");
+        set(parameters, "exch.island.0.mig.1", "c");
+        islands = new LocalIslands();
+        islands.setup(parameters);
+        }
+
+    private static Individual newIndividual(double gene)
+        {
+        DoubleVectorIndividual ind = new DoubleVectorIndividual();
+        ind.genome = new double[] { gene };
+        return ind;
+        }
+
+    private static double[] genes(ArrayList<Individual> inds)
+        {
+        double[] genes = new double[inds.size()];
+        for (int i = 0; i < genes.length; i++)
+            genes[i] = ((DoubleVectorIndividual)(inds.get(i))).genome[0];
+        return genes;
+        }
+
+    @Test
+    public void testTopology()
+        {
+        assertArrayEquals(new String[] { "a", "b", "c" }, islands.ids);
+        assertArrayEquals(new int[] { 4, 4, 4 }, islands.size);
+        assertArrayEquals(new int[] { 2, 2, 2 }, islands.modulo);
+        assertArrayEquals(new int[] { 1, 1, 1 }, islands.offset);
+        assertArrayEquals(new int[] { 10, 2, 10 }, islands.capacity);
+        assertFalse(islands.synchronous);
+
+        assertEquals(2, islands.outgoing[0].length);
+        assertEquals(2, islands.outgoing[0][1].to);
+        // island c hears from a and b, in island order
+        assertEquals(2, islands.incoming[2].length);
+        assertEquals(0, islands.incoming[2][0].from);
+        assertEquals(1, islands.incoming[2][1].from);
+        assertSame(islands.outgoing[0][1], islands.incoming[2][0]);
+        assertEquals(2, islands.outgoing[0][0].queues.size());
+        }
+
+    @Test
+    public void testAsynchronousLink()
+        {
+        // migrants arrive at once, per subpopulation, and no more than the receiver's capacity are kept
+        LocalIslands.Link link = islands.outgoing[0][0];
+        for (int i = 0; i < 3; i++)
+            link.send(0, newIndividual(i));
+        link.send(1, newIndividual(10));
+        ArrayList<Individual> immigrants = new ArrayList<Individual>();
+        link.receive(0, immigrants);
+        assertArrayEquals(new double[] { 1, 2 }, genes(immigrants), 0);
+        immigrants.clear();
+        link.receive(1, immigrants);
+        assertArrayEquals(new double[] { 10 }, genes(immigrants), 0);
+        }
+
+    @Test
+    public void testSynchronousLink()
+        {
+        // migrants wait until the generation is over
+        islands.synchronous = true;
+        LocalIslands.Link link = islands.outgoing[1][0];
+        link.send(1, newIndividual(1));
+        link.send(1, newIndividual(2));
+        ArrayList<Individual> immigrants = new ArrayList<Individual>();
+        link.receive(1, immigrants);
+        assertTrue(immigrants.isEmpty());
+        link.deliver();
+        link.receive(1, immigrants);
+        assertArrayEquals(new double[] { 1, 2 }, genes(immigrants), 0);
+        link.deliver();
+        immigrants.clear();
+        link.receive(1, immigrants);
+        assertTrue(immigrants.isEmpty());
+        }
+
+    // a state which fails as it starts
+    static class FailingState extends EvolutionState
+        {
+        public void startFresh()
+            {
+            throw new IllegalStateException("no good");
+            }
+        }
+
+    @Test
+    public void testIslandFails()
+        {
+        // the failure is reported to the island's output, and the island counts as done
+        LocalIslands.Island island = islands.new Island();
+        island.index = 1;
+        island.state = new FailingState();
+        island.state.output = Evolve.buildOutput();
+        StringWriter log = new StringWriter();
+        island.state.output.addLog(log, null, true, false);
+        islands.done = new CountDownLatch(1);
+        island.run();
+
+        assertEquals(EvolutionState.R_FAILURE, island.result);
+        assertEquals(0, islands.done.getCount());
+        String messages = log.toString();
+        assertTrue(messages.contains("Island b failed"));
+        assertTrue(messages.contains("no good"));
+        }
+    }
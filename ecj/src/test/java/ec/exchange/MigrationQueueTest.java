@@ -0,0 +1,96 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.exchange;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MigrationQueue: its order, throwing away the oldest elements when full, and one producer and
+ * one consumer using it at once.
+ */
+public class MigrationQueueTest
+    {
+    public MigrationQueueTest()
+        {
+        }
+
+    @Test
+    public void testOrder()
+        {
+        MigrationQueue<Integer> queue = new MigrationQueue<Integer>(3);
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+        // around the ring several times
+        for (int i = 0; i < 10; i++)
+            {
+            queue.offer(2 * i);
+            queue.offer(2 * i + 1);
+            assertEquals(2, queue.size());
+            assertEquals(Integer.valueOf(2 * i), queue.poll());
+            assertEquals(Integer.valueOf(2 * i + 1), queue.poll());
+            assertNull(queue.poll());
+            }
+        assertEquals(0, queue.dropped());
+        }
+
+    @Test
+    public void testFull()
+        {
+        // the oldest make way for the newest
+        MigrationQueue<Integer> queue = new MigrationQueue<Integer>(3);
+        for (int i = 0; i < 5; i++)
+            queue.offer(i);
+        assertEquals(3, queue.size());
+        assertEquals(2, queue.dropped());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        queue.offer(5);
+        queue.offer(6);
+        assertEquals(3, queue.dropped());
+        assertEquals(Integer.valueOf(4), queue.poll());
+        assertEquals(Integer.valueOf(5), queue.poll());
+        assertEquals(Integer.valueOf(6), queue.poll());
+        assertNull(queue.poll());
+        }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoCapacity()
+        {
+        new MigrationQueue<Integer>(0);
+        }
+
+    @Test(timeout = 20000)
+    public void testProducerAndConsumer() throws InterruptedException
+        {
+        // the consumer sees each element at most once, in order, and everything offered is either taken,
+        // thrown away, or still in the queue
+        final int count = 1000000;
+        final MigrationQueue<Integer> queue = new MigrationQueue<Integer>(4);
+        Thread producer = new Thread(new Runnable()
+            {
+            public void run()
+                {
+                for (int i = 0; i < count; i++)
+                    queue.offer(i);
+                }
+            });
+        producer.start();
+        int taken = 0;
+        int last = -1;
+        while (producer.isAlive() || queue.size() > 0)
+            {
+            Integer i = queue.poll();
+            if (i == null) continue;
+            assertTrue(i.intValue() > last);
+            last = i.intValue();
+            taken++;
+            }
+        producer.join();
+        assertNull(queue.poll());
+        assertEquals(count, taken + queue.dropped());
+        assertEquals(count - 1, last);
+        }
+    }
@@ -0,0 +1,304 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.exchange;
+
+import ec.EvolutionState;
+import ec.Evolve;
+import ec.Individual;
+import ec.Initializer;
+import ec.Population;
+import ec.Subpopulation;
+import ec.simple.SimpleFitness;
+import ec.util.Parameter;
+import ec.util.ParameterDatabase;
+import ec.vector.DoubleVectorIndividual;
+import ec.vector.FloatVectorSpecies;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for NIOIslandExchangeMailbox: framing messages, reading them back into the immigrant queues,
+ * and passing them between islands over loopback connections.
+ */
+public class NIOIslandExchangeMailboxTest
+    {
+    private EvolutionState state;
+    private FloatVectorSpecies species;
+    private ArrayList<NIOIslandExchangeMailbox> mailboxes = new ArrayList<NIOIslandExchangeMailbox>();
+
+    public NIOIslandExchangeMailboxTest()
+        {
+        }
+
+    @Before
+    public void setUp()
+        {
+        state = new EvolutionState();
+        state.parameters = new ParameterDatabase();
+        state.parameters.set(new Parameter(Initializer.P_POP).push(Population.P_SIZE), "1");
+        state.output = Evolve.buildOutput();
+        state.output.setThrowsErrors(true);
+        species = new FloatVectorSpecies();
+        DoubleVectorIndividual prototype = new DoubleVectorIndividual();
+        prototype.species = species;
+        prototype.genome = new double[0];
+        species.i_prototype = prototype;
+        species.f_prototype = new SimpleFitness();
+        state.population = new Population();
+        state.population.subpops = new ArrayList<Subpopulation>();
+        state.population.subpops.add(new Subpopulation());
+        state.population.subpops.get(0).species = species;
+        }
+
+    @After
+    public void tearDown()
+        {
+        for (int i = 0; i < mailboxes.size(); i++)
+            mailboxes.get(i).shutDown();
+        }
+
+    private NIOIslandExchangeMailbox newMailbox(int capacity, boolean compressed)
+        {
+        NIOIslandExchangeMailbox mailbox = new NIOIslandExchangeMailbox(state, 0, 1, capacity, "me", false, compressed);
+        mailboxes.add(mailbox);
+        return mailbox;
+        }
+
+    private NIOIslandExchangeMailbox.Link newLink(NIOIslandExchangeMailbox mailbox)
+        {
+        NIOIslandExchangeMailbox.Link link = mailbox.new Link();
+        link.incoming = true;
+        link.id = "other";
+        return link;
+        }
+
+    // a message body holding one individual per gene for subpopulation 0
+    private byte[] body(double... genes) throws IOException
+        {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(1);
+        out.writeInt(0);
+        out.writeInt(genes.length);
+        for (int i = 0; i < genes.length; i++)
+            {
+            DoubleVectorIndividual ind = (DoubleVectorIndividual)(species.i_prototype.clone());
+            ind.fitness = new SimpleFitness();
+            ((SimpleFitness)ind.fitness).setFitness(state, genes[i] * 10, false);
+            ind.genome = new double[] { genes[i] };
+            ind.writeIndividual(state, out);
+            }
+        out.flush();
+        return bytes.toByteArray();
+        }
+
+    // splits a framed message into its flags byte and payload, checking the length on the way
+    private void receive(NIOIslandExchangeMailbox mailbox, ByteBuffer message) throws IOException
+        {
+        int length = message.getInt();
+        assertEquals(message.remaining(), length);
+        byte flags = message.get();
+        byte[] payload = new byte[length - 1];
+        message.get(payload);
+        mailbox.receive(newLink(mailbox), flags, payload);
+        }
+
+    private static double[] genes(ArrayList<Individual> inds)
+        {
+        double[] genes = new double[inds.size()];
+        for (int i = 0; i < genes.length; i++)
+            {
+            genes[i] = ((DoubleVectorIndividual)(inds.get(i))).genome[0];
+            assertEquals(genes[i] * 10, inds.get(i).fitness.fitness(), 0);
+            }
+        return genes;
+        }
+
+    @Test
+    public void testUncompressed() throws IOException
+        {
+        NIOIslandExchangeMailbox mailbox = newMailbox(10, false);
+        byte[] body = body(1, 2, 3);
+        ByteBuffer message = mailbox.frame(body, body.length);
+        assertEquals(5 + body.length, message.remaining());
+        assertEquals(0, message.get(4));
+        receive(mailbox, message);
+        assertArrayEquals(new double[] { 1, 2, 3 }, genes(mailbox.takeImmigrants(0)), 0);
+        assertTrue(mailbox.takeImmigrants(0).isEmpty());
+        }
+
+    @Test
+    public void testCompressed() throws IOException
+        {
+        NIOIslandExchangeMailbox mailbox = newMailbox(100, true);
+        double[] genes = new double[100];  // all alike, so they compress well
+        byte[] body = body(genes);
+        ByteBuffer message = mailbox.frame(body, body.length);
+        assertEquals(NIOIslandExchangeMailbox.FLAG_COMPRESSED, message.get(4));
+        assertTrue(message.remaining() < body.length / 2);
+        receive(mailbox, message);
+        assertArrayEquals(genes, genes(mailbox.takeImmigrants(0)), 0);
+        }
+
+    @Test
+    public void testCapacity() throws IOException
+        {
+        // the oldest immigrants make way for newer ones
+        NIOIslandExchangeMailbox mailbox = newMailbox(3, false);
+        byte[] body = body(1, 2);
+        receive(mailbox, mailbox.frame(body, body.length));
+        body = body(3, 4, 5);
+        receive(mailbox, mailbox.frame(body, body.length));
+        assertEquals(3, mailbox.nImmigrants[0].get());
+        assertArrayEquals(new double[] { 3, 4, 5 }, genes(mailbox.takeImmigrants(0)), 0);
+        assertEquals(0, mailbox.nImmigrants[0].get());
+        }
+
+    @Test
+    public void testTakeImmigrants() throws IOException
+        {
+        // no more than the capacity is taken at once, even if more came in while the queue was full
+        NIOIslandExchangeMailbox mailbox = newMailbox(2, false);
+        byte[] body = body(1, 2);
+        receive(mailbox, mailbox.frame(body, body.length));
+        Individual late = (Individual)(mailbox.immigrants.get(0).peek().clone());
+        ((DoubleVectorIndividual)late).genome[0] = 3;
+        mailbox.immigrants.get(0).add(late);
+        mailbox.nImmigrants[0].incrementAndGet();
+
+        assertArrayEquals(new double[] { 1, 2 }, genes(mailbox.takeImmigrants(0)), 0);
+        assertEquals(1, mailbox.takeImmigrants(0).size());
+        assertTrue(mailbox.takeImmigrants(0).isEmpty());
+        assertEquals(0, mailbox.nImmigrants[0].get());
+        }
+
+    @Test(expected = IOException.class)
+    public void testUnknownFlags() throws IOException
+        {
+        NIOIslandExchangeMailbox mailbox = newMailbox(10, false);
+        mailbox.receive(newLink(mailbox), (byte)2, body(1));
+        }
+
+    @Test(expected = IOException.class)
+    public void testCorrupt() throws IOException
+        {
+        NIOIslandExchangeMailbox mailbox = newMailbox(10, true);
+        byte[] body = body(1, 2, 3);
+        ByteBuffer message = mailbox.frame(body, body.length);
+        for (int i = 9; i < message.limit(); i++)  // leave the uncompressed length alone
+            message.put(i, (byte)0x5a);
+        receive(mailbox, message);
+        }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException
+        {
+        NIOIslandExchangeMailbox mailbox = newMailbox(10, true);
+        byte[] body = body(1, 2, 3);
+        ByteBuffer message = mailbox.frame(body, body.length);
+        byte[] payload = new byte[(message.limit() - 5) / 2];
+        message.position(5);
+        message.get(payload);
+        mailbox.receive(newLink(mailbox), NIOIslandExchangeMailbox.FLAG_COMPRESSED, payload);
+        }
+
+    @Test(expected = IOException.class)
+    public void testNonexistentSubpopulation() throws IOException
+        {
+        NIOIslandExchangeMailbox mailbox = newMailbox(10, false);
+        byte[] body = body(1);
+        body[7] = 1;  // the subpopulation number
+        mailbox.receive(newLink(mailbox), (byte)0, body);
+        }
+
+    private static String readUTF(SocketChannel channel) throws IOException
+        {
+        return new DataInputStream(channel.socket().getInputStream()).readUTF();
+        }
+
+    @Test(timeout = 10000)
+    public void testOverSockets() throws Exception
+        {
+        // one island sends to the other's mailbox, a few bytes at a time, and the other's thread reads it
+        NIOIslandExchangeMailbox receiver = newMailbox(10, true);
+        Thread thread = new Thread(receiver);
+        thread.start();
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", receiver.getPort()));
+        assertEquals("me", readUTF(channel));
+        DataOutputStream out = new DataOutputStream(channel.socket().getOutputStream());
+        out.writeUTF("sender");
+        out.flush();
+
+        NIOIslandExchangeMailbox sender = newMailbox(10, true);
+        byte[] body = body(1, 2, 3);
+        ByteBuffer message = sender.frame(body, body.length);
+        while (message.hasRemaining())
+            {
+            ByteBuffer piece = message.duplicate();
+            piece.limit(Math.min(message.limit(), message.position() + 3));
+            message.position(piece.limit());
+            while (piece.hasRemaining())
+                channel.write(piece);
+            Thread.sleep(1);
+            }
+
+        ArrayList<Individual> inds = new ArrayList<Individual>();
+        while (inds.size() < 3)
+            {
+            inds.addAll(receiver.takeImmigrants(0));
+            Thread.sleep(10);
+            }
+        assertArrayEquals(new double[] { 1, 2, 3 }, genes(inds), 0);
+
+        receiver.shutDown();
+        thread.join();
+        assertEquals(-1, channel.socket().getInputStream().read());
+        channel.close();
+        }
+
+    @Test(timeout = 10000)
+    public void testSend() throws Exception
+        {
+        // the mailbox's thread writes what the breeding thread sends to a destination
+        NIOIslandExchangeMailbox sender = newMailbox(10, false);
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        SocketChannel channel = SocketChannel.open(server.socket().getLocalSocketAddress());
+        SocketChannel other = server.accept();
+        server.close();
+        NIOIslandExchangeMailbox.Link link = sender.addDestination(channel, "other");
+        Thread thread = new Thread(sender);
+        thread.start();
+
+        double[] genes = new double[10000];  // more than a socket buffer, so it takes several writes
+        for (int i = 0; i < genes.length; i++)
+            genes[i] = i;
+        byte[] body = body(genes);
+        assertTrue(sender.send(link, sender.frame(body, body.length)));
+
+        DataInputStream in = new DataInputStream(other.socket().getInputStream());
+        assertEquals(1 + body.length, in.readInt());
+        assertEquals(0, in.readByte());
+        byte[] received = new byte[body.length];
+        in.readFully(received);
+        assertArrayEquals(body, received);
+
+        other.close();
+        while (link.running)  // the sender notices when it tries to read
+            Thread.sleep(10);
+        assertFalse(sender.send(link, sender.frame(body, body.length)));
+        sender.shutDown();
+        thread.join();
+        }
+    }
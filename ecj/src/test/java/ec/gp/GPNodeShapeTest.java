@@ -0,0 +1,156 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.gp;
+
+import java.io.*;
+import ec.*;
+import ec.util.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the cached shapes of GPNode subtrees, checked against full traversals of the trees
+ * of a regression run's initial population.
+ */
+public class GPNodeShapeTest
+    {
+    private EvolutionState state;
+    private GPNode[] roots;
+
+    public GPNodeShapeTest()
+        {
+        }
+
+    @Before
+    public void setUp() throws IOException
+        {
+        ParameterDatabase parameters = new ParameterDatabase(new File("src/main/resources/ec/app/regression/erc.params"));
+        parameters.set(new Parameter(Evolve.P_SILENT), "true");
+        parameters.set(new Parameter("pop.subpop.0.size"), "200");
+        state = Evolve.initialize(parameters, 0);
+        state.output.setThrowsErrors(true);
+        state.startFresh();
+
+        roots = new GPNode[state.population.subpops.get(0).individuals.size()];
+        for(int i = 0; i < roots.length; i++)
+            roots[i] = ((GPIndividual)(state.population.subpops.get(0).individuals.get(i))).trees[0].child;
+        }
+
+    private static int depth(GPNode node)
+        {
+        int d = 0;
+        for(int x = 0; x < node.children.length; x++)
+            d = Math.max(d, depth(node.children[x]));
+        return d + 1;
+        }
+
+    private static GPNodeGatherer gatherer(final int nodesearch)
+        {
+        return new GPNodeGatherer()
+            {
+            public boolean test(GPNode node)
+                {
+                return (nodesearch == GPNode.NODESEARCH_ALL ||
+                    (nodesearch == GPNode.NODESEARCH_TERMINALS && node.children.length == 0) ||
+                    (nodesearch == GPNode.NODESEARCH_NONTERMINALS && node.children.length > 0));
+                }
+            };
+        }
+
+    // checks the cached sizes, depths, and positions of every subtree of root against traversals
+    private static void check(GPNode root)
+        {
+        for(int nodesearch = GPNode.NODESEARCH_ALL; nodesearch <= GPNode.NODESEARCH_NONTERMINALS; nodesearch++)
+            {
+            int n = root.numNodes(gatherer(nodesearch));
+            assertEquals(n, root.numNodes(nodesearch));
+            for(int p = 0; p < n; p++)
+                assertSame(root.nodeInPosition(p, gatherer(nodesearch)), root.nodeInPosition(p, nodesearch));
+            assertNull(root.nodeInPosition(n, nodesearch));
+            assertNull(root.nodeInPosition(-1, nodesearch));
+            }
+
+        int n = root.numNodes(GPNode.NODESEARCH_ALL);
+        for(int p = 0; p < n; p++)
+            {
+            GPNode node = root.nodeInPosition(p, GPNode.NODESEARCH_ALL);
+            assertEquals(depth(node), node.depth());
+            assertEquals(node.numNodes(gatherer(GPNode.NODESEARCH_TERMINALS)), node.numNodes(GPNode.NODESEARCH_TERMINALS));
+            }
+        }
+
+    @Test
+    public void testShape()
+        {
+        for(int i = 0; i < roots.length; i++)
+            {
+            assertEquals(0, roots[i].shape);  // built, but not yet measured
+            check(roots[i]);
+            assertTrue(roots[i].shape != 0);
+            check(roots[i]);  // now from the cache
+            }
+        }
+
+    @Test
+    public void testClone()
+        {
+        for(int i = 0; i < roots.length; i++)
+            {
+            roots[i].depth();
+            GPNode copy = (GPNode)(roots[i].clone());
+            assertEquals(roots[i].shape, copy.shape);
+            check(copy);
+            assertEquals(0, roots[i].lightClone().shape);
+            }
+        }
+
+    @Test
+    public void testCloneReplacing()
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        for(int i = 0; i + 1 < roots.length; i++)
+            {
+            check(roots[i]);
+            check(roots[i + 1]);
+            GPNode old = roots[i].nodeInPosition(random.nextInt(roots[i].numNodes(GPNode.NODESEARCH_ALL)), GPNode.NODESEARCH_ALL);
+            GPNode donor = roots[i + 1].nodeInPosition(random.nextInt(roots[i + 1].numNodes(GPNode.NODESEARCH_ALL)), GPNode.NODESEARCH_ALL);
+            check(roots[i].cloneReplacing(donor, old));
+            check(roots[i].cloneReplacingNoSubclone((GPNode)(donor.clone()), old));
+            }
+        }
+
+    @Test
+    public void testInPlace()
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        for(int i = 0; i + 1 < roots.length; i++)
+            {
+            GPNode root = (GPNode)(roots[i].clone());
+            root.parent = null;
+            check(root);
+
+            // hang a copy of a subtree of another tree somewhere in this one, as MutationPipeline does
+            GPNode old = root.nodeInPosition(random.nextInt(root.numNodes(GPNode.NODESEARCH_ALL)), GPNode.NODESEARCH_ALL);
+            if (old == root) continue;
+            GPNode donor = (GPNode)(roots[i + 1].nodeInPosition(random.nextInt(roots[i + 1].numNodes(GPNode.NODESEARCH_ALL)), GPNode.NODESEARCH_ALL).clone());
+            donor.parent = old.parent;
+            donor.argposition = old.argposition;
+            ((GPNode)(donor.parent)).children[donor.argposition] = donor;
+            donor.shapeChanged();
+            check(root);
+
+            // replace a node with another of the same arity, as MutateOneNodePipeline does
+            GPNode node = root.nodeInPosition(random.nextInt(root.numNodes(GPNode.NODESEARCH_ALL)), GPNode.NODESEARCH_ALL);
+            if (node == root) continue;
+            long shape = root.shape;
+            GPNode replacement = node.lightClone();
+            node.replaceWith(replacement);
+            assertEquals(shape, root.shape);
+            check(root);
+            }
+        }
+    }
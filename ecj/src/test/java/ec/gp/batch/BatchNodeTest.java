@@ -0,0 +1,136 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.gp.batch;
+
+import ec.app.regression.Regression;
+import ec.app.regression.RegressionData;
+import ec.app.regression.func.*;
+import ec.gp.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for DoubleBatchData and the regression function set's evalBatch(...).
+ */
+public class BatchNodeTest
+    {
+    private Regression problem;
+
+    public BatchNodeTest()
+        {
+        }
+
+    @Before
+    public void setUp()
+        {
+        problem = new Regression();
+        problem.inputs = new double[] { -2, -1, -0.5, 0, 0.5, 1, 2, 1000, -1000, 3 };
+        }
+
+    private static GPNode node(GPNode node, GPNode... children)
+        {
+        node.children = children;
+        for(int i = 0; i < children.length; i++)
+            {
+            children[i].parent = node;
+            children[i].argposition = (byte)i;
+            }
+        return node;
+        }
+
+    private static GPNode constant(double value)
+        {
+        RegERC erc = new RegERC();
+        erc.value = value;
+        erc.children = new GPNode[0];
+        return erc;
+        }
+
+    private static GPNode x()
+        {
+        return node(new X());
+        }
+
+    // checks that evalBatch(...) gives exactly what eval(...) does, for every input, in batches of the given size
+    private void check(GPNode root, int batchSize)
+        {
+        RegressionData scalar = new RegressionData();
+        DoubleBatchData batch = new DoubleBatchData();
+        int n = problem.inputs.length;
+        for(problem.batchStart = 0; problem.batchStart < n; problem.batchStart += batchSize)
+            {
+            batch.setLength(Math.min(batchSize, n - problem.batchStart));
+            ((BatchNode)root).evalBatch(null, 0, batch, null, null, problem);
+            for(int i = 0; i < batch.length; i++)
+                {
+                problem.currentValue = problem.inputs[problem.batchStart + i];
+                root.eval(null, 0, scalar, null, null, problem);
+                assertEquals(Double.doubleToLongBits(scalar.x), Double.doubleToLongBits(batch.x[i]));
+                }
+            }
+        }
+
+    @Test
+    public void testArithmetic()
+        {
+        // (x * x + x) - sin(x / 3)
+        GPNode root = node(new Sub(),
+            node(new Add(), node(new Mul(), x(), x()), x()),
+            node(new Sin(), node(new Div(), x(), constant(3))));
+        check(root, 1);
+        check(root, 4);
+        check(root, 100);
+        }
+
+    @Test
+    public void testProtected()
+        {
+        check(node(new Div(), x(), node(new Sub(), x(), x())), 3);
+        check(node(new Div(), constant(1), x()), 3);
+        check(node(new Log(), x()), 3);
+        check(node(new Div(), x(), node(new Sin(), node(new Exp(), x()))), 3);  // NaNs
+        }
+
+    @Test
+    public void testUnary()
+        {
+        GPNode root = node(new Cube(), node(new Square(), node(new Neg(), node(new Inv(),
+                        node(new Tanh(), node(new Cos(), node(new NegExp(), x())))))));
+        check(root, 7);
+        }
+
+    @Test
+    public void testPool()
+        {
+        DoubleBatchData d = new DoubleBatchData();
+        d.setLength(10);
+        double[] a = d.pop();
+        assertEquals(10, a.length);
+        d.push(a);
+        assertSame(a, d.pop());
+        d.push(a);
+        d.setLength(5);  // smaller batches reuse the same columns
+        assertSame(a, d.pop());
+        d.push(a);
+        d.setLength(20);  // larger batches don't
+        assertNotSame(a, d.pop());
+        d.push(a);
+        assertNotSame(a, d.pop());  // too short, so it was discarded
+
+        DoubleBatchData c = (DoubleBatchData)(d.clone());
+        assertNotSame(d.x, c.x);
+        assertEquals(0, c.poolSize);  // clones don't share the pool
+        }
+
+    @Test
+    public void testNonBatchNodes()
+        {
+        GPNode root = node(new Add(), x(), node(new X1()));
+        assertEquals(1, root.numNodes(BatchNode.NON_BATCH_NODES));
+        assertEquals(0, x().numNodes(BatchNode.NON_BATCH_NODES));
+        }
+    }
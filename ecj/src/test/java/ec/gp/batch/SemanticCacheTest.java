@@ -0,0 +1,172 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.gp.batch;
+
+import java.io.*;
+import java.util.*;
+import ec.*;
+import ec.app.regression.Regression;
+import ec.gp.*;
+import ec.gp.koza.*;
+import ec.util.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SemanticCache, and for evaluating Regression and Semantic with one.
+ */
+public class SemanticCacheTest
+    {
+    public SemanticCacheTest()
+        {
+        }
+
+    private static EvolutionState start(String file, String... settings) throws IOException
+        {
+        ParameterDatabase parameters = new ParameterDatabase(new File(file));
+        parameters.set(new Parameter(Evolve.P_SILENT), "true");
+        parameters.set(new Parameter("seed.0"), "4");
+        for(int i = 0; i < settings.length; i += 2)
+            parameters.set(new Parameter(settings[i]), settings[i + 1]);
+        EvolutionState state = Evolve.initialize(parameters, 0);
+        state.output.setThrowsErrors(true);
+        state.startFresh();
+        return state;
+        }
+
+    // evaluates every individual of the population afresh, returning their fitnesses
+    private static double[] evaluate(EvolutionState state, Problem problem)
+        {
+        ArrayList<Individual> inds = state.population.subpops.get(0).individuals;
+        double[] fitnesses = new double[inds.size()];
+        for(int i = 0; i < fitnesses.length; i++)
+            {
+            Individual ind = inds.get(i);
+            ind.evaluated = false;
+            ((ec.simple.SimpleProblemForm)problem).evaluate(state, ind, 0, 0);
+            fitnesses[i] = ind.fitness.fitness();
+            }
+        return fitnesses;
+        }
+
+    @Test
+    public void testGetAndPut()
+        {
+        SemanticCache cache = new SemanticCache(1 << 20, 2);
+        double[] column = { 1, 2, 3, 4 };
+        assertFalse(cache.get(42, 5, 0, 3, column));
+        cache.put(42, 5, 0, 3, column);
+        column[0] = 100;  // the cache has its own copy
+        assertTrue(cache.get(42, 5, 0, 3, column));
+        assertArrayEquals(new double[] { 1, 2, 3, 4 }, column, 0);
+        assertFalse(cache.get(42, 6, 0, 3, column));  // different size
+        assertFalse(cache.get(42, 5, 3, 3, column));  // different batch
+        assertFalse(cache.get(42, 5, 0, 4, column));  // different length
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(0.2, cache.getHitRate(), 0);
+        assertEquals(1, cache.size());
+        assertEquals(3 * 8 + SemanticCache.ENTRY_OVERHEAD, cache.getBytes());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+        assertEquals(1, cache.getHits());
+        }
+
+    @Test
+    public void testEviction()
+        {
+        long entry = 8 * 10 + SemanticCache.ENTRY_OVERHEAD;
+        SemanticCache cache = new SemanticCache(entry * 3 << SemanticCache.SEGMENT_BITS, 1);  // 3 entries per segment
+        double[] column = new double[10];
+        for(long hash = 0; hash < 5; hash++)  // all in the first segment
+            cache.put(hash, 1, 0, 10, column);
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(3 * entry, cache.getBytes());
+        assertFalse(cache.get(0, 1, 0, 10, column));
+        assertFalse(cache.get(1, 1, 0, 10, column));
+        assertTrue(cache.get(2, 1, 0, 10, column));
+        cache.put(5, 1, 0, 10, column);  // evicts 3, since 2 was just used, and reuses its column
+        assertTrue(cache.get(2, 1, 0, 10, column));
+        assertFalse(cache.get(3, 1, 0, 10, column));
+
+        // a column larger than a segment is never cached
+        double[] large = new double[1000];
+        cache.put(6, 1, 0, 1000, large);
+        assertFalse(cache.get(6, 1, 0, 1000, large));
+        assertEquals(3 * entry, cache.getBytes());
+        }
+
+    @Test
+    public void testSerialization() throws Exception
+        {
+        SemanticCache cache = new SemanticCache(1 << 20, 2);
+        double[] column = { 1, 2 };
+        cache.put(1, 3, 0, 2, column);
+        cache.get(1, 3, 0, 2, column);
+        cache.get(2, 3, 0, 2, column);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(cache);
+        out.close();
+        SemanticCache copy = (SemanticCache)(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject());
+        assertEquals(0, copy.size());
+        assertEquals(1, copy.getHits());
+        assertEquals(1, copy.getMisses());
+        assertEquals(1, cache.getHits());  // unchanged by writing it out
+        assertEquals(1, cache.size());
+        copy.put(1, 3, 0, 2, column);
+        assertTrue(copy.get(1, 3, 0, 2, column));
+        }
+
+    @Test
+    public void testRegression() throws IOException
+        {
+        // a batch size which doesn't divide the training set, so the last batch is shorter
+        EvolutionState state = start("src/main/resources/ec/app/regression/erc.params",
+            "pop.subpop.0.size", "300", "eval.problem.size", "50", "eval.problem.batch", "true", "eval.problem.batch-size", "16");
+        Regression problem = (Regression)(state.evaluator.p_problem);
+        double[] expected = evaluate(state, problem);
+
+        SemanticCache cache = new SemanticCache(1 << 24, 1);
+        problem.batchInput.cache = cache;
+        assertArrayEquals(expected, evaluate(state, problem), 0);
+        assertTrue(cache.size() > 0);
+        long misses = cache.getMisses();
+
+        // every tree is now found whole
+        assertArrayEquals(expected, evaluate(state, problem), 0);
+        assertEquals(misses, cache.getMisses());
+
+        // with too little memory to hold much of anything
+        problem.batchInput.cache = new SemanticCache(4000, 2);
+        assertArrayEquals(expected, evaluate(state, problem), 0);
+        assertArrayEquals(expected, evaluate(state, problem), 0);
+        assertTrue(problem.batchInput.cache.getEvictions() > 0);
+        }
+
+    @Test
+    public void testSemantic() throws IOException
+        {
+        String[] problems = { "Order", "Majority" };
+        for(int i = 0; i < problems.length; i++)
+            {
+            EvolutionState state = start("src/main/resources/ec/app/gpsemantics/semantic.params",
+                "eval.problem.problem_name", problems[i], "gp.koza.half.max-depth", "8");
+            Problem problem = state.evaluator.p_problem;
+            double[] expected = evaluate(state, problem);
+
+            state = start("src/main/resources/ec/app/gpsemantics/semantic.params",
+                "eval.problem.problem_name", problems[i], "gp.koza.half.max-depth", "8",
+                "eval.problem.batch", "true", "eval.problem.semantic-cache", "true");
+            problem = state.evaluator.p_problem;
+            assertArrayEquals(expected, evaluate(state, problem), 0);
+            assertArrayEquals(expected, evaluate(state, problem), 0);
+            }
+        }
+    }
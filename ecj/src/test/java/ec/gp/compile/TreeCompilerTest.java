@@ -0,0 +1,152 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.gp.compile;
+
+import ec.EvolutionState;
+import ec.Problem;
+import ec.app.regression.func.*;
+import ec.gp.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TreeCompiler and CompiledTreeCache, using the regression function set.
+ */
+public class TreeCompilerTest
+    {
+    public TreeCompilerTest()
+        {
+        }
+
+    // A node which can't be compiled
+    static class Opaque extends GPNode
+        {
+        public String toString() { return "opaque"; }
+        public void eval(EvolutionState state, int thread, GPData input, ADFStack stack, GPIndividual individual, Problem problem) { }
+        }
+
+    private static GPNode node(GPNode node, GPNode... children)
+        {
+        node.children = children;
+        for(int i = 0; i < children.length; i++)
+            {
+            children[i].parent = node;
+            children[i].argposition = (byte)i;
+            }
+        return node;
+        }
+
+    private static GPNode constant(double value)
+        {
+        RegERC erc = new RegERC();
+        erc.value = value;
+        erc.children = new GPNode[0];
+        return erc;
+        }
+
+    private static GPNode x()
+        {
+        return node(new X());
+        }
+
+    private static double eval(GPNode root, double x)
+        {
+        CompiledTree tree = TreeCompiler.compileTree(root);
+        assertNotNull(tree);
+        return tree.eval(new double[] { x });
+        }
+
+    @Test
+    public void testArithmetic()
+        {
+        // (x * x + x) - sin(x / 3)
+        GPNode root = node(new Sub(),
+            node(new Add(), node(new Mul(), x(), x()), x()),
+            node(new Sin(), node(new Div(), x(), constant(3))));
+        for(double x = -2; x <= 2; x += 0.25)
+            assertEquals((x * x + x) - Math.sin(x / 3), eval(root, x), 0.0);
+        }
+
+    @Test
+    public void testProtectedDivision()
+        {
+        GPNode root = node(new Div(), x(), node(new Sub(), x(), x()));
+        assertEquals(1.0, eval(root, 5.0), 0.0);
+        root = node(new Div(), x(), constant(-0.0));
+        assertEquals(1.0, eval(root, 5.0), 0.0);
+        root = node(new Div(), constant(1.0), x());
+        assertEquals(0.25, eval(root, 4.0), 0.0);
+        assertEquals(1.0, eval(root, 0.0), 0.0);
+        }
+
+    @Test
+    public void testProtectedLog()
+        {
+        GPNode root = node(new Log(), x());
+        assertEquals(0.0, eval(root, 0.0), 0.0);
+        assertEquals(1.0, eval(root, -Math.E), 1e-15);
+        }
+
+    @Test
+    public void testNaN()
+        {
+        // sin(infinity) is NaN, and NaN is not zero, so Div must divide by it
+        GPNode root = node(new Div(), x(), node(new Sin(), node(new Exp(), x())));
+        assertTrue(Double.isNaN(eval(root, 1000.0)));
+        }
+
+    @Test
+    public void testVariables()
+        {
+        GPNode root = node(new Add(), node(new X1()), node(new X3()));
+        CompiledTree tree = TreeCompiler.compileTree(root);
+        assertEquals(4.0, tree.eval(new double[] { 1, 2, 3 }), 0.0);
+        assertEquals(1.0, tree.eval(new double[] { 1, 2 }), 0.0);  // missing variables are 0
+        assertEquals(0.0, tree.eval(new double[0]), 0.0);
+        }
+
+    @Test
+    public void testNotCompilable()
+        {
+        assertNull(TreeCompiler.compileTree(node(new Add(), x(), node(new Opaque()))));
+        }
+
+    @Test
+    public void testTooLarge()
+        {
+        GPNode root = x();
+        for(int i = 0; i < 3000; i++)
+            root = node(new Add(), root, x());
+        assertNull(TreeCompiler.compileTree(root));
+
+        root = x();
+        for(int i = 0; i < 1000; i++)
+            root = node(new Add(), root, x());
+        assertEquals(1001 * 2.0, eval(root, 2.0), 0.0);
+        }
+
+    @Test
+    public void testCache()
+        {
+        CompiledTreeCache cache = new CompiledTreeCache(10);
+        GPTree a = new GPTree();
+        a.child = node(new Mul(), x(), constant(2));
+        GPTree b = new GPTree();
+        b.child = node(new Mul(), x(), constant(2));
+        GPTree c = new GPTree();
+        c.child = node(new Mul(), x(), node(new Opaque()));
+
+        CompiledTree compiled = cache.get(a);
+        assertEquals(6.0, compiled.eval(new double[] { 3 }), 0.0);
+        assertSame(compiled, cache.get(b));
+        assertNull(cache.get(c));
+        assertNull(cache.get(c));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getCompiled());
+        assertEquals(1, cache.getFailures());
+        assertEquals(2, cache.getHits());
+        }
+    }
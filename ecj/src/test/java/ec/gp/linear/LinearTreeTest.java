@@ -0,0 +1,195 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.gp.linear;
+
+import java.io.*;
+import ec.*;
+import ec.gp.*;
+import ec.util.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LinearTree and LinearGPIndividual, checked against the GPNode trees of a regression run's
+ * initial population.
+ */
+public class LinearTreeTest
+    {
+    private EvolutionState state;
+    private GPInitializer initializer;
+    private NodeTable table;
+    private GPNode[] roots;
+
+    public LinearTreeTest()
+        {
+        }
+
+    @Before
+    public void setUp() throws IOException
+        {
+        ParameterDatabase parameters = new ParameterDatabase(new File("src/main/resources/ec/app/regression/linear.params"));
+        parameters.set(new Parameter(Evolve.P_SILENT), "true");
+        parameters.set(new Parameter("pop.subpop.0.size"), "200");
+        state = Evolve.initialize(parameters, 0);
+        state.output.setThrowsErrors(true);
+        state.startFresh();  // builds the initial population, as trees of GPNodes
+
+        initializer = (GPInitializer)(state.initializer);
+        roots = new GPNode[state.population.subpops.get(0).individuals.size()];
+        for(int i = 0; i < roots.length; i++)
+            {
+            LinearGPIndividual ind = (LinearGPIndividual)(state.population.subpops.get(0).individuals.get(i));
+            assertTrue(ind.isMaterialized());
+            roots[i] = ind.trees[0].child;
+            table = ind.tables[0];
+            }
+        }
+
+    private String print(GPNode root)
+        {
+        StringWriter writer = new StringWriter();
+        PrintWriter printer = new PrintWriter(writer);
+        root.printRootedTree(state, printer, 0);
+        printer.flush();
+        return writer.toString();
+        }
+
+    @Test
+    public void testRoundTrip()
+        {
+        for(int i = 0; i < roots.length; i++)
+            {
+            LinearTree tree = LinearTree.encode(roots[i], table);
+            GPNode root = tree.decode();
+            assertTrue(root.rootedTreeEquals(roots[i]));
+            assertEquals(print(roots[i]), print(root));  // including ERC values
+            assertEquals(tree, LinearTree.encode(root, table));
+            assertEquals(tree.hashCode(), LinearTree.encode(root, table).hashCode());
+            }
+        }
+
+    @Test
+    public void testShape()
+        {
+        for(int i = 0; i < roots.length; i++)
+            {
+            LinearTree tree = LinearTree.encode(roots[i], table);
+            assertEquals(roots[i].numNodes(GPNode.NODESEARCH_ALL), tree.size());
+            assertEquals(roots[i].depth(), tree.depth());
+            assertEquals(roots[i].numNodes(GPNode.NODESEARCH_TERMINALS), tree.numNodes(GPNode.NODESEARCH_TERMINALS));
+            assertEquals(roots[i].numNodes(GPNode.NODESEARCH_NONTERMINALS), tree.numNodes(GPNode.NODESEARCH_NONTERMINALS));
+
+            for(int p = 0; p < tree.size(); p++)
+                {
+                GPNode node = roots[i].nodeInPosition(p, GPNode.NODESEARCH_ALL);
+                assertEquals(node.children.length, tree.arity(p));
+                assertEquals(node.numNodes(GPNode.NODESEARCH_ALL), tree.subtreeSize(p));
+                assertEquals(node.depth(), tree.depth(p));
+                assertEquals(node.atDepth(), tree.atDepth(p));
+                assertEquals(node.argposition, tree.argposition(p));
+                assertSame(node.parentType(initializer), tree.slotType(p));
+                if (p == 0) assertEquals(-1, tree.parent(p));
+                else assertSame(node.parent, roots[i].nodeInPosition(tree.parent(p), GPNode.NODESEARCH_ALL));
+                assertTrue(node.rootedTreeEquals(tree.subtree(p).decode()));
+                }
+
+            for(int k = 0; k < tree.numNodes(GPNode.NODESEARCH_TERMINALS); k++)
+                assertSame(roots[i].nodeInPosition(k, GPNode.NODESEARCH_TERMINALS),
+                    roots[i].nodeInPosition(tree.position(k, GPNode.NODESEARCH_TERMINALS), GPNode.NODESEARCH_ALL));
+            for(int k = 0; k < tree.numNodes(GPNode.NODESEARCH_NONTERMINALS); k++)
+                assertSame(roots[i].nodeInPosition(k, GPNode.NODESEARCH_NONTERMINALS),
+                    roots[i].nodeInPosition(tree.position(k, GPNode.NODESEARCH_NONTERMINALS), GPNode.NODESEARCH_ALL));
+            }
+        }
+
+    @Test
+    public void testReplace()
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        for(int i = 0; i + 1 < roots.length; i++)
+            {
+            LinearTree tree1 = LinearTree.encode(roots[i], table);
+            LinearTree tree2 = LinearTree.encode(roots[i + 1], table);
+            int p = random.nextInt(tree1.size());
+            int q = random.nextInt(tree2.size());
+
+            GPNode node1 = roots[i].nodeInPosition(p, GPNode.NODESEARCH_ALL);
+            GPNode node2 = roots[i + 1].nodeInPosition(q, GPNode.NODESEARCH_ALL);
+            GPNode expected = roots[i].cloneReplacing(node2, node1);
+
+            LinearTree replaced = tree1.replace(p, tree2, q);
+            assertTrue(expected.rootedTreeEquals(replaced.decode()));
+            assertEquals(print(expected), print(replaced.decode()));
+            assertEquals(node2.swapCompatibleWith(initializer, node1), tree1.swapCompatible(initializer, p, tree2, q));
+
+            // the originals are untouched
+            assertTrue(roots[i].rootedTreeEquals(tree1.decode()));
+            assertTrue(roots[i + 1].rootedTreeEquals(tree2.decode()));
+            }
+        }
+
+    @Test
+    public void testMutationLimits()
+        {
+        // the linear pipelines check depths and sizes just as the koza pipelines they're set up like, even for
+        // trees which are already too big
+        state.parameters.set(new Parameter("gp.koza.mutate.maxsize"), "30");
+        state.parameters.set(new Parameter("gp.koza.mutate.maxdepth"), "8");
+        Parameter base = new Parameter("pop.subpop.0.species.pipe.source.1");
+        LinearMutationPipeline linear = new LinearMutationPipeline();
+        linear.setup(state, base);
+        assertEquals(8, linear.getMaxDepth());
+        assertEquals(30, linear.maxSize);
+        assertEquals(ec.gp.koza.MutationPipeline.TREE_UNFIXED, linear.getTree());
+
+        state.parameters.set(new Parameter("gp.koza.xover.maxsize"), "30");
+        LinearCrossoverPipeline crossover = new LinearCrossoverPipeline();
+        crossover.setup(state, new Parameter("pop.subpop.0.species.pipe.source.0"));
+
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        for(int i = 0; i + 1 < roots.length; i++)
+            {
+            LinearTree tree = LinearTree.encode(roots[i], table);
+            LinearTree subtree = LinearTree.encode(roots[i + 1], table);
+            for(int p = 0; p < tree.size(); p++)
+                {
+                GPNode node = roots[i].nodeInPosition(p, GPNode.NODESEARCH_ALL);
+                assertEquals(linear.verifyPoints(roots[i + 1], node), linear.verifyPoints(subtree, tree, p));
+                int q = random.nextInt(subtree.size());
+                assertEquals(crossover.verifyPoints(initializer, roots[i + 1].nodeInPosition(q, GPNode.NODESEARCH_ALL), node),
+                    crossover.verifyPoints(initializer, tree, p, subtree, q));
+                }
+            }
+        }
+
+    @Test
+    public void testIndividual()
+        {
+        LinearGPIndividual ind = (LinearGPIndividual)(state.population.subpops.get(0).individuals.get(0));
+        String printed = print(ind.trees[0].child);
+        long size = ind.size();
+
+        LinearGPIndividual copy = (LinearGPIndividual)(ind.clone());
+        assertFalse(copy.isMaterialized());
+        assertSame(ind.getGenome(), copy.getGenome());
+        assertEquals(ind, copy);
+        assertEquals(ind.hashCode(), copy.hashCode());
+        assertEquals(size, copy.size());
+
+        GPIndividual materialized = copy.materialized();
+        assertNotSame(copy, materialized);
+        assertFalse(copy.isMaterialized());
+        assertSame(copy.fitness, materialized.fitness);
+        assertEquals(printed, print(materialized.trees[0].child));
+        assertSame(materialized.trees[0], materialized.trees[0].child.parent);
+
+        ind.compact();
+        assertFalse(ind.isMaterialized());
+        assertEquals(ind, copy);
+        assertEquals(size, ind.size());
+        }
+    }
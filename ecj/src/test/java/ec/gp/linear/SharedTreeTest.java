@@ -0,0 +1,166 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.gp.linear;
+
+import java.io.*;
+import ec.*;
+import ec.gp.*;
+import ec.util.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SharedTree, SubtreeTable, and SharedGPIndividual, checked against the GPNode trees of a regression
+ * run's initial population.
+ */
+public class SharedTreeTest
+    {
+    private EvolutionState state;
+    private NodeTable table;
+    private SubtreeTable subtrees;
+    private GPNode[] roots;
+
+    public SharedTreeTest()
+        {
+        }
+
+    @Before
+    public void setUp() throws IOException
+        {
+        ParameterDatabase parameters = new ParameterDatabase(new File("src/main/resources/ec/app/regression/shared.params"));
+        parameters.set(new Parameter(Evolve.P_SILENT), "true");
+        parameters.set(new Parameter("pop.subpop.0.size"), "200");
+        state = Evolve.initialize(parameters, 0);
+        state.output.setThrowsErrors(true);
+        state.startFresh();  // builds the initial population, as trees of GPNodes
+
+        roots = new GPNode[state.population.subpops.get(0).individuals.size()];
+        for(int i = 0; i < roots.length; i++)
+            {
+            SharedGPIndividual ind = (SharedGPIndividual)(state.population.subpops.get(0).individuals.get(i));
+            assertTrue(ind.isMaterialized());
+            roots[i] = ind.trees[0].child;
+            table = ind.tables[0];
+            }
+        subtrees = table.subtrees();
+        }
+
+    private String print(GPNode root)
+        {
+        StringWriter writer = new StringWriter();
+        PrintWriter printer = new PrintWriter(writer);
+        root.printRootedTree(state, printer, 0);
+        printer.flush();
+        return writer.toString();
+        }
+
+    @Test
+    public void testIntern()
+        {
+        for(int i = 0; i < roots.length; i++)
+            {
+            SharedTree tree = subtrees.intern(roots[i]);
+            assertTrue(roots[i].rootedTreeEquals(tree.decode()));
+            assertEquals(print(roots[i]), print(tree.decode()));  // including ERC values
+            assertEquals(roots[i].numNodes(GPNode.NODESEARCH_ALL), tree.size);
+            assertEquals(roots[i].depth(), tree.depth);
+
+            LinearTree linear = LinearTree.encode(roots[i], table);
+            assertEquals(linear, tree.toLinearTree());
+            assertSame(tree, subtrees.intern(roots[i]));
+            assertSame(tree, subtrees.intern(linear));
+            assertSame(tree, subtrees.intern(tree.toLinearTree()));
+
+            // every subtree is interned too, and found by position
+            for(int p = 0; p < tree.size; p++)
+                assertSame(subtrees.intern(roots[i].nodeInPosition(p, GPNode.NODESEARCH_ALL)), tree.subtree(p));
+            }
+        }
+
+    @Test
+    public void testEquals()
+        {
+        for(int i = 0; i + 1 < roots.length; i++)
+            {
+            SharedTree tree1 = subtrees.intern(roots[i]);
+            SharedTree tree2 = subtrees.intern(roots[i + 1]);
+            assertEquals(roots[i].rootedTreeEquals(roots[i + 1]), tree1 == tree2);
+            assertEquals(tree1 == tree2, tree1.equals(tree2));
+
+            // a tree built outside the table is equal to, but not the same as, the interned one
+            SharedTree copy = new SharedTree(table, tree1.id, tree1.constant, tree1.erc, tree1.children, tree1.hash);
+            assertNotSame(tree1, copy);
+            assertEquals(tree1, copy);
+            assertEquals(tree1.hashCode(), copy.hashCode());
+            }
+        }
+
+    @Test
+    public void testReplace()
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        for(int i = 0; i + 1 < roots.length; i++)
+            {
+            SharedTree tree1 = subtrees.intern(roots[i]);
+            SharedTree tree2 = subtrees.intern(roots[i + 1]);
+            LinearTree linear1 = tree1.toLinearTree();
+            LinearTree linear2 = tree2.toLinearTree();
+            int p = random.nextInt(tree1.size);
+            int q = random.nextInt(tree2.size);
+
+            GPNode expected = roots[i].cloneReplacing(roots[i + 1].nodeInPosition(q, GPNode.NODESEARCH_ALL),
+                roots[i].nodeInPosition(p, GPNode.NODESEARCH_ALL));
+            LinearTree replaced = linear1.replace(p, linear2, q);
+            SharedTree tree = subtrees.intern(replaced);
+            assertEquals(print(expected), print(tree.decode()));
+            assertSame(subtrees.intern(expected), tree);
+            assertSame(tree2.subtree(q), tree.subtree(p));
+
+            // everything before p, other than the path down to it, is shared with tree1
+            for(int a = 0; a < p; a++)
+                if (linear1.end(a) <= p)
+                    assertSame(tree1.subtree(a), tree.subtree(a));
+
+            // a new subtree from outside the table, as in mutation
+            LinearTree grown = LinearTree.encode(roots[i + 1], table).subtree(q);
+            assertSame(subtrees.intern(linear1.replace(p, grown, 0)), tree);
+            }
+        }
+
+    @Test
+    public void testIndividual()
+        {
+        SharedGPIndividual ind = (SharedGPIndividual)(state.population.subpops.get(0).individuals.get(0));
+        String printed = print(ind.trees[0].child);
+        long size = ind.size();
+
+        SharedGPIndividual copy = (SharedGPIndividual)(ind.clone());
+        assertFalse(copy.isMaterialized());
+        assertSame(ind.getShared(), copy.getShared());
+        assertNull(copy.genome);
+        assertEquals(ind, copy);
+        assertEquals(ind.hashCode(), copy.hashCode());
+        assertEquals(size, copy.size());
+        assertEquals(ind.trees[0].child.depth(), copy.treeDepth(0));
+
+        GPIndividual materialized = copy.materialized();
+        assertNotSame(copy, materialized);
+        assertSame(copy.fitness, materialized.fitness);
+        assertEquals(printed, print(materialized.trees[0].child));
+
+        // flattening and interning the genome again gives back the same trees
+        SharedTree[] shared = copy.getShared();
+        copy.setGenome(copy.getGenome());
+        assertSame(shared[0], copy.getShared()[0]);
+        assertNull(copy.genome);
+
+        ind.compact();
+        assertFalse(ind.isMaterialized());
+        assertEquals(ind, copy);
+        assertEquals(size, ind.size());
+        }
+    }
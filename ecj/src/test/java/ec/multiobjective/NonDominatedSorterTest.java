@@ -0,0 +1,197 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.multiobjective;
+
+import ec.Individual;
+import ec.util.MersenneTwisterFast;
+import ec.vector.DoubleVectorIndividual;
+import java.util.*;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for DivideAndConquerSorter and EfficientNonDominatedSorter, checked against
+ * a brute-force ranking and against MultiObjectiveFitness.partitionIntoRanks(...).
+ */
+public class NonDominatedSorterTest
+    {
+    public NonDominatedSorterTest()
+        {
+        }
+
+    // ranks points by repeatedly peeling off the ones nobody remaining dominates
+    private static int[] bruteForce(double[] objectives, int n, int m)
+        {
+        int[] ranks = new int[n];
+        Arrays.fill(ranks, -1);
+        int remaining = n;
+        for(int rank = 0; remaining > 0; rank++)
+            {
+            boolean[] dominated = new boolean[n];
+            for(int i = 0; i < n; i++)
+                for(int j = 0; j < n; j++)
+                    if (ranks[i] == -1 && ranks[j] == -1 && dominates(objectives, m, i, j))
+                        dominated[j] = true;
+            for(int j = 0; j < n; j++)
+                if (ranks[j] == -1 && !dominated[j])
+                    {
+                    ranks[j] = rank;
+                    remaining--;
+                    }
+            }
+        return ranks;
+        }
+
+    private static boolean dominates(double[] objectives, int m, int i, int j)
+        {
+        boolean better = false;
+        for(int k = 0; k < m; k++)
+            {
+            if (objectives[i * m + k] > objectives[j * m + k]) return false;
+            if (objectives[i * m + k] < objectives[j * m + k]) better = true;
+            }
+        return better;
+        }
+
+    private static void check(NonDominatedSorter sorter, double[] objectives, int n, int m)
+        {
+        int[] expected = bruteForce(objectives, n, m);
+        int[] ranks = new int[n];
+        int numFronts = sorter.sort(objectives, n, m, ranks);
+        assertArrayEquals(expected, ranks);
+        int max = -1;
+        for(int i = 0; i < n; i++)
+            max = Math.max(max, expected[i]);
+        assertEquals(max + 1, numFronts);
+        }
+
+    private static void checkRandom(NonDominatedSorter sorter, int levels)
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(levels);
+        for(int m = 1; m <= 5; m++)
+            for(int trial = 0; trial < 20; trial++)
+                {
+                int n = random.nextInt(150);
+                double[] objectives = new double[n * m];
+                for(int i = 0; i < objectives.length; i++)
+                    objectives[i] = (levels == 0 ? random.nextDouble() : random.nextInt(levels));
+                check(sorter, objectives, n, m);  // the same sorter is reused, with its scratch arrays
+                }
+        }
+
+    @Test
+    public void testDivideAndConquer()
+        {
+        NonDominatedSorter sorter = new DivideAndConquerSorter();
+        checkRandom(sorter, 0);
+        checkRandom(sorter, 2);   // lots of duplicates
+        checkRandom(sorter, 5);   // lots of ties
+        }
+
+    @Test
+    public void testEfficientNonDominatedSort()
+        {
+        NonDominatedSorter sorter = new EfficientNonDominatedSorter();
+        checkRandom(sorter, 0);
+        checkRandom(sorter, 2);
+        checkRandom(sorter, 5);
+        }
+
+    @Test
+    public void testSmall()
+        {
+        double[] objectives = { 1, 2,  2, 1,  2, 2,  1, 2,  0, 3,  3, 3,  -0.0, 3,  0.0, 3 };
+        int[] expected = { 0, 0, 1, 0, 0, 2, 0, 0 };
+        NonDominatedSorter[] sorters = { new DivideAndConquerSorter(), new EfficientNonDominatedSorter() };
+        for(int s = 0; s < sorters.length; s++)
+            {
+            int[] ranks = new int[8];
+            assertEquals(3, sorters[s].sort(objectives, 8, 2, ranks));
+            assertArrayEquals(expected, ranks);
+            assertEquals(0, sorters[s].sort(objectives, 0, 2, ranks));
+            }
+        }
+
+    private static Individual createIndForPoint(final double[] fitnesses, final boolean[] maximize)
+        {
+        final DoubleVectorIndividual ind = new DoubleVectorIndividual();
+        ind.genome = fitnesses;
+        final MultiObjectiveFitness fitness = new MultiObjectiveFitness();
+        fitness.objectives = fitnesses;
+        fitness.maximize = maximize;
+        ind.fitness = fitness;
+        return ind;
+        }
+
+    @Test
+    public void testPartitionIntoRanks()
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        boolean[] maximize = { true, false, true };
+        ArrayList<Individual> inds = new ArrayList<Individual>();
+        for(int i = 0; i < 300; i++)
+            inds.add(createIndForPoint(new double[] { random.nextInt(10), random.nextInt(10), random.nextInt(10) }, maximize));
+
+        ArrayList<ArrayList<Individual>> expected = MultiObjectiveFitness.partitionIntoRanks(inds);
+        NonDominatedSorter[] sorters = { new DivideAndConquerSorter(), new EfficientNonDominatedSorter() };
+        for(int s = 0; s < sorters.length; s++)
+            {
+            ArrayList<ArrayList<Individual>> result = sorters[s].partitionIntoRanks(inds);
+            assertEquals(expected.size(), result.size());
+            for(int rank = 0; rank < expected.size(); rank++)
+                {
+                assertEquals(expected.get(rank).size(), result.get(rank).size());
+                assertTrue(new HashSet<Individual>(expected.get(rank)).equals(new HashSet<Individual>(result.get(rank))));
+                }
+
+            int[] rankings = sorters[s].getRankings(inds);
+            for(int rank = 0; rank < result.size(); rank++)
+                for(Individual ind : result.get(rank))
+                    assertEquals(rank, rankings[inds.indexOf(ind)]);
+            }
+        }
+    
+    // a fitness in which nothing dominates anything else
+    static class NeverDominatedFitness extends MultiObjectiveFitness
+        {
+        public boolean paretoDominates(MultiObjectiveFitness other) { return false; }
+        }
+
+    @Test
+    public void testGetRankings()
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(2);
+        boolean[] maximize = { false, true };
+        ArrayList<Individual> inds = new ArrayList<Individual>();
+        for(int i = 0; i < 100; i++)
+            inds.add(createIndForPoint(new double[] { random.nextInt(10), random.nextInt(10) }, maximize));
+        assertTrue(MultiObjectiveFitness.sortable(inds));
+        assertArrayEquals(new DivideAndConquerSorter().getRankings(inds), MultiObjectiveFitness.getRankings(inds));
+
+        // a NaN objective is left to paretoDominates(...)
+        ((MultiObjectiveFitness)(inds.get(5).fitness)).objectives[1] = Double.NaN;
+        assertFalse(MultiObjectiveFitness.sortable(inds));
+        ArrayList<ArrayList<Individual>> fronts = MultiObjectiveFitness.partitionIntoRanks(inds);
+        int[] rankings = MultiObjectiveFitness.getRankings(inds);
+        for(int rank = 0; rank < fronts.size(); rank++)
+            for(Individual ind : fronts.get(rank))
+                for(int i = 0; i < inds.size(); i++)
+                    if (inds.get(i) == ind)  // individuals with equal genomes are equal
+                        assertEquals(rank, rankings[i]);
+
+        // so is a fitness which overrides paretoDominates(...)
+        ((MultiObjectiveFitness)(inds.get(5).fitness)).objectives[1] = 0;
+        for(int i = 0; i < inds.size(); i++)
+            {
+            NeverDominatedFitness fitness = new NeverDominatedFitness();
+            fitness.objectives = ((MultiObjectiveFitness)(inds.get(i).fitness)).objectives;
+            fitness.maximize = maximize;
+            inds.get(i).fitness = fitness;
+            }
+        assertFalse(MultiObjectiveFitness.sortable(inds));
+        assertArrayEquals(new int[inds.size()], MultiObjectiveFitness.getRankings(inds));
+        }
+    }
@@ -0,0 +1,139 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.multiobjective.hypervolume;
+
+import ec.util.MersenneTwisterFast;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Hypervolume and MonteCarloHypervolume, checked against counting the unit
+ * cells of a grid dominated by points with integer objectives.
+ */
+public class HypervolumeTest
+    {
+    static final int GRID = 6;
+
+    public HypervolumeTest()
+        {
+        }
+
+    // counts the unit cells in [0, GRID)^m dominated by the points, leaving out point "skip" if it is >= 0
+    private static double count(double[] points, int n, int m, int skip)
+        {
+        int cells = 1;
+        for(int x = 0; x < m; x++)
+            cells *= GRID;
+        int total = 0;
+        int[] cell = new int[m];
+        for(int c = 0; c < cells; c++)
+            {
+            for(int x = 0, v = c; x < m; x++, v /= GRID)
+                cell[x] = v % GRID;
+            for(int i = 0; i < n; i++)
+                {
+                if (i == skip) continue;
+                int x = 0;
+                while(x < m && points[i * m + x] <= cell[x]) x++;
+                if (x == m) { total++; break; }
+                }
+            }
+        return total;
+        }
+
+    private static double[] randomPoints(MersenneTwisterFast random, int n, int m)
+        {
+        double[] points = new double[n * m];
+        for(int i = 0; i < points.length; i++)
+            points[i] = random.nextInt(GRID + 1);  // some will be on the reference point
+        return points;
+        }
+
+    private static double[] reference(int m)
+        {
+        double[] reference = new double[m];
+        java.util.Arrays.fill(reference, GRID);
+        return reference;
+        }
+
+    @Test
+    public void testCompute()
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(1);
+        Hypervolume hypervolume = new Hypervolume();
+        for(int m = 1; m <= 5; m++)
+            for(int trial = 0; trial < 40; trial++)
+                {
+                int n = random.nextInt(25);
+                double[] points = randomPoints(random, n, m);
+                assertEquals(count(points, n, m, -1), hypervolume.compute(points, n, m, reference(m)), 1e-9);
+                }
+        }
+
+    @Test
+    public void testContributions()
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(2);
+        Hypervolume hypervolume = new Hypervolume();
+        for(int m = 1; m <= 5; m++)
+            for(int trial = 0; trial < 20; trial++)
+                {
+                int n = random.nextInt(15);
+                double[] points = randomPoints(random, n, m);
+                double[] contributions = hypervolume.contributions(points, n, m, reference(m), null);
+                double all = count(points, n, m, -1);
+                for(int i = 0; i < n; i++)
+                    assertEquals(all - count(points, n, m, i), contributions[i], 1e-9);
+                }
+        }
+
+    @Test
+    public void testContinuous()
+        {
+        // in four objectives, so with WFG, each contribution should be the volume lost by removing the point
+        MersenneTwisterFast random = new MersenneTwisterFast(3);
+        Hypervolume hypervolume = new Hypervolume();
+        double[] points = new double[200 * 4];
+        for(int i = 0; i < 200; i++)
+            {
+            // a linear front
+            double sum = 0;
+            for(int x = 0; x < 4; x++)
+                sum += (points[i * 4 + x] = random.nextDouble() + 0.01);
+            for(int x = 0; x < 4; x++)
+                points[i * 4 + x] /= sum;
+            }
+        double[] reference = { 1, 1, 1, 1 };
+        double volume = hypervolume.compute(points, 200, 4, reference);
+        double[] contributions = hypervolume.contributions(points, 200, 4, reference, null);
+        double[] without = new double[199 * 4];
+        for(int i = 0; i < 200; i += 37)
+            {
+            System.arraycopy(points, 0, without, 0, i * 4);
+            System.arraycopy(points, (i + 1) * 4, without, i * 4, (199 - i) * 4);
+            assertEquals(volume - hypervolume.compute(without, 199, 4, reference), contributions[i], 1e-12);
+            }
+        }
+
+    @Test
+    public void testMonteCarlo()
+        {
+        MersenneTwisterFast random = new MersenneTwisterFast(4);
+        MonteCarloHypervolume estimator = new MonteCarloHypervolume(new MersenneTwisterFast(5));
+        for(int m = 2; m <= 4; m++)
+            {
+            int n = 20;
+            double[] points = randomPoints(random, n, m);
+            double exact = count(points, n, m, -1);
+            double estimate = estimator.estimate(points, n, m, reference(m), 100000);
+            assertEquals(estimate, estimator.getEstimate(), 0.0);
+            assertEquals(exact, estimate, 5 * estimator.getStandardError());
+            assertEquals(exact, estimate, estimator.getErrorBound(0.999));
+            assertTrue(estimator.getErrorBound(0.999) > estimator.getErrorBound(0.9));
+            }
+        assertEquals(0.0, estimator.estimate(new double[] { 6, 1 }, 1, 2, reference(2), 10), 0.0);
+        }
+    }
@@ -11,6 +11,7 @@ import ec.Individual;
 import ec.Initializer;
 import ec.Population;
 import ec.Subpopulation;
+import ec.multiobjective.DivideAndConquerSorter;
 import ec.multiobjective.MultiObjectiveFitness;
 import ec.simple.SimpleBreeder;
 import ec.util.Output;
@@ -245,6 +246,34 @@ public class NSGA2BreederTest
         assertEquals(10, result);
         }
     
+    // a fitness in which nothing dominates anything else
+    static class NeverDominatedFitness extends NSGA2MultiObjectiveFitness
+        {
+        public boolean paretoDominates(MultiObjectiveFitness other) { return false; }
+        }
+
+    /** A sorter doesn't call paretoDominates(...), so it must not be used when a fitness overrides it. */
+    @Test
+    public void testPartitionIntoRanksUnsortable()
+        {
+        final NSGA2Breeder instance = new NSGA2Breeder();
+        instance.setup(state, BASE);
+        instance.sorter = new DivideAndConquerSorter();
+        final ArrayList<Individual> inds = new ArrayList<Individual>(getTestPopulation().subpops.get(0).individuals);
+        assertEquals(4, instance.partitionIntoRanks(inds).size());
+
+        for (final Individual ind : inds)
+            {
+            final NeverDominatedFitness fitness = new NeverDominatedFitness();
+            fitness.setup(state, FITNESS_BASE);
+            fitness.setObjectives(state, ((MultiObjectiveFitness)ind.fitness).getObjectives());
+            ind.fitness = fitness;
+            }
+        final ArrayList<ArrayList<Individual>> ranks = instance.partitionIntoRanks(inds);
+        assertEquals(1, ranks.size());
+        assertEquals(inds.size(), ranks.get(0).size());
+        }
+    
     private Population getTestPopulation()
         {
         final Population pop = new Population();
@@ -82,6 +82,172 @@ public class LexicaseSelectionTest
         assertFalse(chiSquared > 6.635);
         }
     
+    @Test
+    public void testPrepareToProduce()
+        {
+        final LexicaseSelection instance = new LexicaseSelection();
+        instance.setup(state, BASE);
+        state.population.subpops.get(0).individuals = getPopulation1();
+
+        instance.prepareToProduce(state, 0, 0);
+        for (int i = 0; i < 100; i++)
+            {
+            final int result = instance.produce(0, state, 0);
+            assertTrue(result == 0 || result == 6);
+            }
+        instance.finishProducing(state, 0, 0);
+
+        // a new population is packed afresh
+        state.population.subpops.get(0).individuals = getPopulation2();
+        for (int i = 0; i < 100; i++)
+            assertEquals(2, instance.produce(0, state, 0));
+        }
+
+    @Test
+    public void testProduceMany()
+        {
+        final LexicaseSelection instance = new LexicaseSelection();
+        instance.setup(state, BASE);
+        state.population.subpops.get(0).individuals = getPopulation1();
+
+        final int[] parents = new int[1000];
+        instance.produce(0, state, 0, parents);
+        int zeroCount = 0;
+        for (int i = 0; i < parents.length; i++)
+            {
+            assertTrue(parents[i] == 0 || parents[i] == 6);
+            if (parents[i] == 0)
+                zeroCount++;
+            }
+        assertTrue(zeroCount > 400 && zeroCount < 600);
+        }
+
+    @Test
+    public void testProduceManyDistribution()
+        {
+        // with many ties, selections share a good deal of their cutting, but are distributed just as one at a time
+        final MersenneTwisterFast random = new MersenneTwisterFast(3);
+        final ArrayList<Individual> pop = new ArrayList<Individual>();
+        for (int i = 0; i < 30; i++)
+            {
+            final double[] trialValues = new double[6];
+            for (int c = 0; c < trialValues.length; c++)
+                trialValues[c] = random.nextInt(3);
+            pop.add(createTestIndividual(trialValues, i));
+            }
+        state.population.subpops.get(0).individuals = pop;
+        final LexicaseSelection instance = new LexicaseSelection();
+        instance.setup(state, BASE);
+
+        final int N = 200000;
+        final int[] one = new int[pop.size()];
+        for (int i = 0; i < N; i++)
+            one[instance.produce(0, state, 0)]++;
+        final int[] many = new int[pop.size()];
+        final int[] parents = new int[1000];
+        for (int b = 0; b < N / parents.length; b++)
+            {
+            instance.produce(0, state, 0, parents);
+            for (int q = 0; q < parents.length; q++)
+                many[parents[q]]++;
+            }
+        for (int i = 0; i < pop.size(); i++)
+            assertEquals(one[i], many[i], 5 * Math.sqrt(one[i] + 1) + 10);
+        }
+
+    @Test
+    public void testEpsilon()
+        {
+        state.parameters.set(BASE.push(LexicaseSelection.P_EPSILON), "true");
+        final LexicaseSelection instance = new LexicaseSelection();
+        instance.setup(state, BASE);
+        state.population.subpops.get(0).individuals = getPopulation2();
+
+        // the median absolute deviation of each case's errors is 0.1, so individuals 0, 1 and 2 are close enough to
+        // the best on both cases, but 3 and 4 never are
+        assertEquals(0.1, LexicaseSelection.medianAbsoluteDeviation(new double[] { 0, 0.1, 0, 5, 6 }, new double[5]), 1e-12);
+        final boolean[] selected = new boolean[5];
+        for (int i = 0; i < 1000; i++)
+            selected[instance.produce(0, state, 0)] = true;
+        assertTrue(selected[0]);
+        assertTrue(selected[1]);
+        assertTrue(selected[2]);
+        assertFalse(selected[3]);
+        assertFalse(selected[4]);
+        }
+
+    @Test
+    public void testDownsample()
+        {
+        state.parameters.set(BASE.push(LexicaseSelection.P_DOWNSAMPLE), "0.5");
+        final LexicaseSelection instance = new LexicaseSelection();
+        instance.setup(state, BASE);
+        state.population.subpops.get(0).individuals = getPopulation1();
+
+        // with only one of the two cases in use each generation, the one best on it is always selected, and
+        // which case that is changes from one generation to the next
+        final boolean[] selected = new boolean[7];
+        for (int generation = 0; generation < 20; generation++)
+            {
+            state.generation = generation;
+            instance.prepareToProduce(state, 0, 0);
+            final int first = instance.produce(0, state, 0);
+            assertTrue(first == 0 || first == 6);
+            selected[first] = true;
+            for (int i = 0; i < 20; i++)
+                assertEquals(first, instance.produce(0, state, 0));
+            instance.finishProducing(state, 0, 0);
+            }
+        assertTrue(selected[0]);
+        assertTrue(selected[6]);
+
+        state.parameters.set(BASE.push(LexicaseSelection.P_DOWNSAMPLE), "0");
+        try
+            {
+            new LexicaseSelection().setup(state, BASE);
+            fail();
+            }
+        catch (final Exception e)
+            {
+            // expected
+            }
+        }
+
+    @Test
+    public void testDownsampleShared()
+        {
+        // every thread's clone uses the same cases in a generation, whatever its own random number generator
+        state.random = new MersenneTwisterFast[] { new MersenneTwisterFast(1), new MersenneTwisterFast(2) };
+        state.parameters.set(BASE.push(LexicaseSelection.P_DOWNSAMPLE), "0.5");
+        final LexicaseSelection instance = new LexicaseSelection();
+        instance.setup(state, BASE);
+        state.population.subpops.get(0).individuals = getPopulation1();
+        for (int generation = 0; generation < 20; generation++)
+            {
+            state.generation = generation;
+            final LexicaseSelection first = (LexicaseSelection)(instance.clone());
+            final LexicaseSelection second = (LexicaseSelection)(instance.clone());
+            first.prepareToProduce(state, 0, 0);
+            second.prepareToProduce(state, 0, 1);
+            assertEquals(first.produce(0, state, 0), second.produce(0, state, 1));
+            }
+        }
+
+    @Test
+    public void testThreadRandom()
+        {
+        state.random = new MersenneTwisterFast[] { new MersenneTwisterFast(1), new MersenneTwisterFast(2) };
+        final LexicaseSelection instance = new LexicaseSelection();
+        instance.setup(state, BASE);
+        state.population.subpops.get(0).individuals = getPopulation1();
+
+        // selecting for thread 1 uses only its own random number generator
+        final MersenneTwisterFast expected = new MersenneTwisterFast(1);
+        for (int i = 0; i < 100; i++)
+            instance.produce(0, state, 1);
+        assertEquals(expected.nextLong(), state.random[0].nextLong());
+        }
+
     private ArrayList<Individual> getPopulation1()
         {
         return new ArrayList<Individual>() {{
@@ -95,6 +261,17 @@ public class LexicaseSelectionTest
         }};
         }
     
+    private ArrayList<Individual> getPopulation2()
+        {
+        return new ArrayList<Individual>() {{
+           add(createTestIndividual(new double[] { 0, 0.3 }, 20));
+           add(createTestIndividual(new double[] { 0.1, 0.25 }, 21));
+           add(createTestIndividual(new double[] { 0, 0.2 }, 22));
+           add(createTestIndividual(new double[] { 5, 1 }, 23));
+           add(createTestIndividual(new double[] { 6, 2 }, 24));
+        }};
+        }
+    
     private Individual createTestIndividual(final double[] trialValues, final int geneValue)
         {
         assert(trialValues != null);
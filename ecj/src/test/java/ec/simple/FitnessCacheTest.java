@@ -0,0 +1,175 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.simple;
+
+import ec.EvolutionState;
+import ec.Fitness;
+import ec.Individual;
+import ec.Population;
+import ec.Problem;
+import ec.Subpopulation;
+import ec.vector.DoubleVectorIndividual;
+import java.io.*;
+import java.util.ArrayList;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for FitnessCache and CachingEvaluator.
+ */
+public class FitnessCacheTest
+    {
+    private EvolutionState state;
+
+    public FitnessCacheTest()
+        {
+        }
+
+    @Before
+    public void setUp()
+        {
+        state = new EvolutionState();
+        }
+
+    private DoubleVectorIndividual ind(double gene, double fitness)
+        {
+        DoubleVectorIndividual ind = new DoubleVectorIndividual();
+        ind.genome = new double[] { gene, gene + 1 };
+        SimpleFitness f = new SimpleFitness();
+        f.setFitness(state, fitness, false);
+        ind.fitness = f;
+        return ind;
+        }
+
+    @Test
+    public void testHitAndMiss()
+        {
+        FitnessCache cache = new FitnessCache(100, 4);
+        cache.put(ind(1, 10), 0);
+        Fitness f = cache.get(ind(1, 0), 0);
+        assertNotNull(f);
+        assertEquals(10, f.fitness(), 0.0);
+        assertNull(cache.get(ind(2, 0), 0));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        }
+
+    /** Equal individuals in different subpopulations don't share a fitness. */
+    @Test
+    public void testSubpopulations()
+        {
+        FitnessCache cache = new FitnessCache(100, 4);
+        cache.put(ind(1, 10), 0);
+        cache.put(ind(1, 20), 1);
+        assertEquals(10, cache.get(ind(1, 0), 0).fitness(), 0.0);
+        assertEquals(20, cache.get(ind(1, 0), 1).fitness(), 0.0);
+        assertNull(cache.get(ind(1, 0), 2));
+        assertEquals(2, cache.size());
+        }
+
+    // a Problem which sets each individual's fitness to its first gene, counting the individuals it evaluates
+    static class CountingProblem extends Problem implements SimpleProblemForm
+        {
+        int count;
+
+        public void evaluate(EvolutionState state, Individual ind, int subpopulation, int threadnum)
+            {
+            count++;
+            ((SimpleFitness)ind.fitness).setFitness(state, ((DoubleVectorIndividual)ind).genome[0], false);
+            ind.evaluated = true;
+            }
+        }
+
+    /** Individuals whose fitnesses are found in the cache aren't evaluated, or counted as evaluated. */
+    @Test
+    public void testCachingEvaluator()
+        {
+        state.population = new Population();
+        state.population.subpops = new ArrayList<Subpopulation>();
+        state.population.subpops.add(new Subpopulation());
+        ArrayList<Individual> inds = new ArrayList<Individual>();
+        state.population.subpops.get(0).individuals = inds;
+        for (int i = 0; i < 10; i++)
+            inds.add(ind(i % 4, 0));  // only 4 different genotypes
+
+        CachingEvaluator evaluator = new CachingEvaluator();
+        evaluator.cache = new FitnessCache(100, 4);
+        CountingProblem problem = new CountingProblem();
+        evaluator.evalPopChunk(state, new int[] { 10 }, new int[] { 0 }, 0, problem);
+
+        assertEquals(4, problem.count);
+        assertEquals(4, state.evaluations);
+        assertEquals(6, evaluator.cache.getHits());
+        for (int i = 0; i < 10; i++)
+            {
+            assertTrue(inds.get(i).evaluated);
+            assertEquals(i % 4, inds.get(i).fitness.fitness(), 0.0);
+            }
+        }
+
+    /** The cache must hand out copies, so modifying one doesn't modify what's stored. */
+    @Test
+    public void testCopies()
+        {
+        FitnessCache cache = new FitnessCache(100, 4);
+        DoubleVectorIndividual stored = ind(1, 10);
+        cache.put(stored, 0);
+        ((SimpleFitness)stored.fitness).setFitness(state, 20, false);
+        SimpleFitness f = (SimpleFitness)cache.get(ind(1, 0), 0);
+        assertEquals(10, f.fitness(), 0.0);
+        f.setFitness(state, 30, false);
+        assertEquals(10, cache.get(ind(1, 0), 0).fitness(), 0.0);
+        }
+
+    @Test
+    public void testEviction()
+        {
+        FitnessCache cache = new FitnessCache(10, 1);
+        for (int i = 0; i < 15; i++)
+            cache.put(ind(i, i), 0);
+        assertEquals(10, cache.size());
+        assertEquals(5, cache.getEvictions());
+        assertNull(cache.get(ind(0, 0), 0));  // least recently used are gone
+        assertNotNull(cache.get(ind(14, 0), 0));
+        }
+
+    @Test
+    public void testLeastRecentlyUsed()
+        {
+        FitnessCache cache = new FitnessCache(3, 1);
+        cache.put(ind(0, 0), 0);
+        cache.put(ind(1, 1), 0);
+        cache.put(ind(2, 2), 0);
+        cache.get(ind(0, 0), 0);  // 1 is now least recently used
+        cache.put(ind(3, 3), 0);
+        assertNotNull(cache.get(ind(0, 0), 0));
+        assertNull(cache.get(ind(1, 0), 0));
+        }
+
+    @Test
+    public void testSerialization() throws Exception
+        {
+        FitnessCache cache = new FitnessCache(1000, 8);
+        for (int i = 0; i < 50; i++)
+            cache.put(ind(i, i * 2), 0);
+        cache.get(ind(3, 0), 0);
+        cache.get(ind(-1, 0), 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(cache);
+        out.close();
+        FitnessCache copy = (FitnessCache)(new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject());
+
+        assertEquals(50, copy.size());
+        assertEquals(8, copy.getNumStripes());
+        assertEquals(1, copy.getHits());
+        assertEquals(1, copy.getMisses());
+        for (int i = 0; i < 50; i++)
+            assertEquals(i * 2, copy.get(ind(i, 0), 0).fitness(), 0.0);
+        }
+    }
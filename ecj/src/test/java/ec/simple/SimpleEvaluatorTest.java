@@ -0,0 +1,172 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.simple;
+
+import ec.EvolutionState;
+import ec.Evolve;
+import ec.Individual;
+import ec.Population;
+import ec.Problem;
+import ec.Subpopulation;
+import ec.util.ThreadPool;
+import ec.vector.DoubleVectorIndividual;
+import java.util.ArrayList;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SimpleEvaluator's evaluation of multiple trials, in place and on clones.
+ */
+public class SimpleEvaluatorTest
+    {
+    private EvolutionState state;
+
+    public SimpleEvaluatorTest()
+        {
+        }
+
+    // a Problem which sets each individual's fitness to its first gene plus the trial number, or to just its first
+    // gene if it isn't told the trial
+    static class TrialProblem extends Problem implements MultiTrialProblemForm
+        {
+        public void evaluate(EvolutionState state, Individual ind, int subpopulation, int threadnum)
+            {
+            evaluate(state, ind, subpopulation, threadnum, 0);
+            }
+
+        public void evaluate(EvolutionState state, Individual ind, int subpopulation, int threadnum, int trial)
+            {
+            assertFalse(ind.evaluated);
+            ((SimpleFitness)ind.fitness).setFitness(state, ((DoubleVectorIndividual)ind).genome[0] + trial, false);
+            ind.evaluated = true;
+            }
+        }
+
+    // a Problem which isn't told the trial
+    static class PlainProblem extends Problem implements SimpleProblemForm
+        {
+        public void evaluate(EvolutionState state, Individual ind, int subpopulation, int threadnum)
+            {
+            ((SimpleFitness)ind.fitness).setFitness(state, ((DoubleVectorIndividual)ind).genome[0], false);
+            ind.evaluated = true;
+            }
+        }
+
+    @Before
+    public void setUp()
+        {
+        state = new EvolutionState();
+        state.output = Evolve.buildOutput();
+        state.output.setThrowsErrors(true);
+        state.evalthreads = 1;
+        }
+
+    private ArrayList<Individual> populate(int size)
+        {
+        state.population = new Population();
+        state.population.subpops = new ArrayList<Subpopulation>();
+        state.population.subpops.add(new Subpopulation());
+        ArrayList<Individual> inds = new ArrayList<Individual>();
+        for (int i = 0; i < size; i++)
+            {
+            DoubleVectorIndividual ind = new DoubleVectorIndividual();
+            ind.genome = new double[] { i * 10 };
+            ind.fitness = new SimpleFitness();
+            inds.add(ind);
+            }
+        state.population.subpops.get(0).individuals = inds;
+        state.evaluations = 0;
+        return inds;
+        }
+
+    private SimpleEvaluator evaluator(Problem problem, int mergeForm, boolean trialsInPlace)
+        {
+        SimpleEvaluator evaluator = new SimpleEvaluator();
+        evaluator.p_problem = problem;
+        evaluator.numTests = 3;
+        evaluator.mergeForm = mergeForm;
+        evaluator.trialsInPlace = trialsInPlace;
+        evaluator.backend = new ThreadPool();
+        return evaluator;
+        }
+
+    /** Evaluates a population, checking that the individuals and their Fitnesses are the very same objects
+        afterwards, and returns their fitnesses. */
+    private double[] evaluate(SimpleEvaluator evaluator, int size)
+        {
+        ArrayList<Individual> inds = populate(size);
+        Individual[] before = inds.toArray(new Individual[size]);
+        Object[] fitnesses = new Object[size];
+        for (int i = 0; i < size; i++)
+            fitnesses[i] = before[i].fitness;
+
+        evaluator.evaluatePopulation(state);
+
+        assertEquals(size * 3, state.evaluations);
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++)
+            {
+            Individual ind = state.population.subpops.get(0).individuals.get(i);
+            assertSame(before[i], ind);
+            assertSame(fitnesses[i], ind.fitness);
+            assertTrue(ind.evaluated);
+            result[i] = ind.fitness.fitness();
+            }
+        return result;
+        }
+
+    @Test
+    public void testMerges()
+        {
+        // the trials of individual i have fitnesses 10i, 10i + 1, and 10i + 2
+        int[] merges = { SimpleEvaluator.MERGE_MEAN, SimpleEvaluator.MERGE_MEDIAN, SimpleEvaluator.MERGE_BEST };
+        double[] offsets = { 1, 1, 2 };
+        for (int m = 0; m < merges.length; m++)
+            {
+            double[] fitnesses = evaluate(evaluator(new TrialProblem(), merges[m], true), 20);
+            for (int i = 0; i < fitnesses.length; i++)
+                assertEquals(i * 10 + offsets[m], fitnesses[i], 1e-12);
+            }
+        }
+
+    @Test
+    public void testInPlaceMatchesClones()
+        {
+        int[] merges = { SimpleEvaluator.MERGE_MEAN, SimpleEvaluator.MERGE_MEDIAN, SimpleEvaluator.MERGE_BEST };
+        for (int m = 0; m < merges.length; m++)
+            assertArrayEquals(evaluate(evaluator(new PlainProblem(), merges[m], false), 20),
+                evaluate(evaluator(new PlainProblem(), merges[m], true), 20), 0);
+        }
+
+    @Test
+    public void testMultithreaded()
+        {
+        state.evalthreads = 4;
+        SimpleEvaluator evaluator = evaluator(new TrialProblem(), SimpleEvaluator.MERGE_BEST, true);
+        double[] fitnesses = evaluate(evaluator, 50);
+        for (int i = 0; i < fitnesses.length; i++)
+            assertEquals(i * 10 + 2, fitnesses[i], 0);
+
+        // fewer individuals than threads: their trials are spread among the threads
+        fitnesses = evaluate(evaluator, 2);
+        for (int i = 0; i < fitnesses.length; i++)
+            assertEquals(i * 10 + 2, fitnesses[i], 0);
+        }
+
+    @Test
+    public void testEvaluatedLeftAlone()
+        {
+        ArrayList<Individual> inds = populate(5);
+        inds.get(2).evaluated = true;
+        ((SimpleFitness)inds.get(2).fitness).setFitness(state, -1, false);
+        evaluator(new PlainProblem(), SimpleEvaluator.MERGE_MEAN, true).evaluatePopulation(state);
+
+        // an evaluated individual is handed to the Problem once, as usual, and the Problem reevaluates it
+        assertEquals(20, inds.get(2).fitness.fitness(), 0);
+        assertEquals(40, inds.get(4).fitness.fitness(), 0);
+        }
+    }
@@ -0,0 +1,211 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.util;
+
+import ec.*;
+import java.io.*;
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for writing and restoring checkpoints, both serialized and in the asynchronous binary format.
+ */
+public class CheckpointTest
+    {
+    public CheckpointTest()
+        {
+        }
+
+    // a GP run which has evaluated and bred its first generation, and checkpointed
+    private static EvolutionState newState(File directory, boolean async, int baseModulo)
+        {
+        ParameterDatabase parameters = null;
+        try
+            {
+            parameters = new ParameterDatabase(new File("src/main/resources/ec/app/tutorial4/tutorial4.params"));
+            }
+        catch (IOException e)
+            {
+            fail(e.toString());
+            }
+        parameters.set(new Parameter(Evolve.P_SILENT), "true");
+        parameters.set(new Parameter(EvolutionState.P_QUITONRUNCOMPLETE), "false");
+        parameters.set(new Parameter(EvolutionState.P_CHECKPOINT), "true");
+        parameters.set(new Parameter(EvolutionState.P_CHECKPOINTPREFIX), "test");
+        parameters.set(new Parameter(EvolutionState.P_CHECKPOINTDIRECTORY), directory.getPath());
+        parameters.set(new Parameter(EvolutionState.P_CHECKPOINTASYNC), "" + async);
+        parameters.set(new Parameter(EvolutionState.P_CHECKPOINTBASEMODULO), "" + baseModulo);
+        EvolutionState state = Evolve.initialize(parameters, 0);
+        state.output.setThrowsErrors(true);
+        state.startFresh();
+        state.evolve();
+        return state;
+        }
+
+    private static String print(EvolutionState state, Individual ind)
+        {
+        StringWriter writer = new StringWriter();
+        PrintWriter printer = new PrintWriter(writer);
+        ind.printIndividual(state, printer);
+        printer.flush();
+        return writer.toString();
+        }
+
+    private static File newDirectory() throws IOException
+        {
+        File directory = File.createTempFile("checkpoint", "");
+        directory.delete();
+        directory.mkdir();
+        directory.deleteOnExit();
+        return directory;
+        }
+
+    private static void checkRestore(boolean async) throws Exception
+        {
+        File directory = newDirectory();
+        EvolutionState state = newState(directory, async, 1);
+        Checkpoint.setCheckpoint(state);
+        Checkpoint.finishCheckpoint(state);
+        assertNull(state.checkpointWriter);
+
+        File file = new File(directory, "test." + state.generation + ".gz");
+        assertTrue(file.exists());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        file.deleteOnExit();
+        checkRestore(state, file);
+        }
+
+    private static void checkRestore(EvolutionState state, File file) throws Exception
+        {
+        EvolutionState restored = Checkpoint.restoreFromCheckpoint(file.getPath());
+        assertEquals(state.generation, restored.generation);
+        assertEquals(state.population.subpops.size(), restored.population.subpops.size());
+        for(int i = 0; i < state.population.subpops.size(); i++)
+            {
+            Subpopulation subpop = state.population.subpops.get(i);
+            Subpopulation other = restored.population.subpops.get(i);
+            assertEquals(subpop.individuals.size(), other.individuals.size());
+            for(int j = 0; j < subpop.individuals.size(); j++)
+                {
+                assertSame(other.species, other.individuals.get(j).species);
+                assertEquals(print(state, subpop.individuals.get(j)), print(restored, other.individuals.get(j)));
+                }
+            }
+        for(int i = 0; i < state.random.length; i++)
+            assertEquals(((MersenneTwisterFast)(state.random[i].clone())).nextLong(), restored.random[i].nextLong());
+        }
+
+    @Test
+    public void testRestoreSerialized() throws Exception
+        {
+        checkRestore(false);
+        }
+
+    @Test
+    public void testRestoreBinary() throws Exception
+        {
+        checkRestore(true);
+        }
+
+    private static int magic(File file) throws IOException
+        {
+        DataInputStream in = new DataInputStream(new java.util.zip.GZIPInputStream(new FileInputStream(file)));
+        int magic = in.readInt();
+        in.close();
+        return magic;
+        }
+
+    @Test
+    public void testDeltaChain() throws Exception
+        {
+        File directory = newDirectory();
+        EvolutionState state = newState(directory, true, 3);  // which has checkpointed once already
+        for(int i = 0; i < 4; i++)
+            {
+            Checkpoint.finishCheckpoint(state);
+            File file = new File(directory, "test." + state.generation + ".gz");
+            file.deleteOnExit();
+            assertEquals(i % 3 == 0 ? Checkpoint.BINARY_MAGIC : DeltaCheckpoint.DELTA_MAGIC, magic(file));
+            checkRestore(state, file);
+
+            if (i == 2)
+                {
+                // compact the chain, and the result mustn't need the rest of it
+                File compacted = new File(directory, "compacted.gz");
+                compacted.deleteOnExit();
+                DeltaCheckpoint.main(new String[] { file.getPath(), compacted.getPath() });
+                assertEquals(Checkpoint.BINARY_MAGIC, magic(compacted));
+                for(int g = state.generation - 2; g < state.generation; g++)
+                    new File(directory, "test." + g + ".gz").delete();
+                checkRestore(state, compacted);
+                }
+            state.evolve();
+            }
+        }
+
+    @Test
+    public void testSnapshotIsolated() throws Exception
+        {
+        // changing the population after an asynchronous checkpoint mustn't change what's written
+        File directory = newDirectory();
+        EvolutionState state = newState(directory, true, 1);
+        ArrayList<Individual> individuals = state.population.subpops.get(0).individuals;
+        String first = print(state, individuals.get(0));
+        Checkpoint.setCheckpoint(state);
+        individuals.set(0, individuals.get(1));
+        individuals.get(1).evaluated = !individuals.get(1).evaluated;
+        Checkpoint.finishCheckpoint(state);
+
+        File file = new File(directory, "test." + state.generation + ".gz");
+        file.deleteOnExit();
+        EvolutionState restored = Checkpoint.restoreFromCheckpoint(file.getPath());
+        assertEquals(first, print(restored, restored.population.subpops.get(0).individuals.get(0)));
+        assertTrue(restored.population.subpops.get(0).individuals.get(1).evaluated != individuals.get(1).evaluated);
+        }
+
+    @Test
+    public void testSharedIndividuals() throws Exception
+        {
+        // an individual appearing twice, or referred to by the Statistics, must still be shared when restored
+        File directory = newDirectory();
+        EvolutionState state = newState(directory, true, 1);
+        ArrayList<Individual> individuals = state.population.subpops.get(0).individuals;
+        individuals.set(1, individuals.get(0));
+        ((ec.simple.SimpleStatistics)(state.statistics)).best_of_run[0] = individuals.get(2);
+        Checkpoint.setCheckpoint(state);
+        Checkpoint.finishCheckpoint(state);
+
+        File file = new File(directory, "test." + state.generation + ".gz");
+        file.deleteOnExit();
+        checkRestore(state, file);
+        EvolutionState restored = Checkpoint.restoreFromCheckpoint(file.getPath());
+        ArrayList<Individual> inds = restored.population.subpops.get(0).individuals;
+        assertSame(inds.get(0), inds.get(1));
+        assertSame(inds.get(2), ((ec.simple.SimpleStatistics)(restored.statistics)).best_of_run[0]);
+
+        // without sharing, the subpopulation is binary
+        assertNull(CheckpointSnapshot.take(state).individuals[0]);
+        individuals.set(1, (Individual)(individuals.get(0).clone()));
+        ((ec.simple.SimpleStatistics)(state.statistics)).best_of_run[0] = (Individual)(individuals.get(2).clone());
+        assertNotNull(CheckpointSnapshot.take(state).individuals[0]);
+        }
+
+    @Test
+    public void testSnapshotFailure() throws Exception
+        {
+        // an individual which throws a RuntimeException when written is reported, not thrown, and nothing is written
+        File directory = newDirectory();
+        EvolutionState state = newState(directory, true, 1);
+        Checkpoint.finishCheckpoint(state);
+        new File(directory, "test." + state.generation + ".gz").delete();
+        ((ec.gp.GPIndividual)(state.population.subpops.get(0).individuals.get(0))).trees[0].child = null;  // NullPointerException
+        Checkpoint.setCheckpoint(state);
+        Checkpoint.finishCheckpoint(state);
+        assertNull(state.checkpointWriter);
+        assertFalse(new File(directory, "test." + state.generation + ".gz").exists());
+        }
+    }
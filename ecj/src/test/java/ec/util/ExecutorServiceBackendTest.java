@@ -0,0 +1,95 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.util;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ExecutorServiceBackend.
+ */
+public class ExecutorServiceBackendTest
+{
+
+    public ExecutorServiceBackendTest()
+    {
+    }
+
+    /** Runs numTasks slow tasks, and checks that joinAll() waited for all of them. */
+    private void checkJoinAll(final ExecutorBackend backend, final int numTasks) {
+        final AtomicInteger done = new AtomicInteger();
+        for (int round = 0; round < 3; round++) {
+            done.set(0);
+            for (int i = 0; i < numTasks; i++)
+                backend.execute(new Runnable() {
+                    public void run() {
+                        try { Thread.sleep(5); } catch (InterruptedException e) { }
+                        done.incrementAndGet();
+                    }
+                }, "Test Thread " + i);
+            backend.joinAll();
+            assertEquals(numTasks, done.get());
+        }
+    }
+
+    @Test
+    public void testForkJoinJoinAll() {
+        ExecutorBackend backend = new ExecutorServiceBackend(ExecutorServiceBackend.KIND_FORK_JOIN, 4);
+        checkJoinAll(backend, 16);
+        backend.killAll();
+    }
+
+    @Test
+    public void testThreadPoolJoinAll() {
+        ExecutorBackend backend = new ThreadPool();
+        checkJoinAll(backend, 16);
+        backend.killAll();
+    }
+
+    @Test
+    public void testKillAllThenReuse() {
+        ExecutorBackend backend = new ExecutorServiceBackend(ExecutorServiceBackend.KIND_FORK_JOIN, 2);
+        checkJoinAll(backend, 4);
+        backend.killAll();
+        checkJoinAll(backend, 4);
+        backend.killAll();
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        ExecutorBackend backend = new ExecutorServiceBackend(ExecutorServiceBackend.KIND_FORK_JOIN, 3);
+        checkJoinAll(backend, 6);  // so there's a live executor which must not be written out
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(backend);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        ExecutorServiceBackend copy = (ExecutorServiceBackend) in.readObject();
+
+        assertEquals(ExecutorServiceBackend.KIND_FORK_JOIN, copy.kind);
+        assertEquals(3, copy.parallelism);
+        checkJoinAll(copy, 6);
+        copy.killAll();
+        backend.killAll();
+    }
+
+    @Test
+    public void testVirtualThreads() {
+        if (!ExecutorServiceBackend.virtualThreadsAvailable()) {
+            try {
+                new ExecutorServiceBackend(ExecutorServiceBackend.KIND_VIRTUAL, 1);
+                fail("Virtual threads should not be available");
+            } catch (UnsupportedOperationException e) { }
+            return;
+        }
+        ExecutorBackend backend = new ExecutorServiceBackend(ExecutorServiceBackend.KIND_VIRTUAL, 1);
+        checkJoinAll(backend, 1000);
+        backend.killAll();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+  Copyright 2026 by Sean Luke and George Mason University
+  Licensed under the Academic Free License version 3.0
+  See the file "LICENSE" for more information
+*/
+package ec.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the lock-free WorkStealingScheduler.
+ */
+public class WorkStealingSchedulerTest
+{
+
+    public WorkStealingSchedulerTest()
+    {
+    }
+
+    /** Runs the scheduler to exhaustion on numThreads threads, and checks that every index was handed out exactly once. */
+    private void checkEachIndexOnce(final int total, final int numThreads, final int chunkSize) throws InterruptedException {
+        final WorkStealingScheduler scheduler = new WorkStealingScheduler(total, numThreads, chunkSize);
+        final AtomicIntegerArray counts = new AtomicIntegerArray(total);
+        final Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final int threadnum = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    int[] range = new int[2];
+                    while (scheduler.next(threadnum, range)) {
+                        assertTrue(range[0] < range[1]);
+                        for (int i = range[0]; i < range[1]; i++) {
+                            counts.incrementAndGet(i);
+                            // make thread 0 slow, so the others have to steal from it
+                            if (threadnum == 0) Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (int t = 0; t < numThreads; t++)
+            threads[t].join();
+        for (int i = 0; i < total; i++)
+            assertEquals("index " + i, 1, counts.get(i));
+    }
+
+    @Test
+    public void testSingleThread() throws InterruptedException {
+        checkEachIndexOnce(1000, 1, 1);
+    }
+
+    @Test
+    public void testChunkSizeOne() throws InterruptedException {
+        checkEachIndexOnce(10000, 8, 1);
+    }
+
+    @Test
+    public void testLargeChunks() throws InterruptedException {
+        checkEachIndexOnce(10001, 7, 64);
+    }
+
+    @Test
+    public void testAuto() throws InterruptedException {
+        checkEachIndexOnce(10000, 4, WorkStealingScheduler.AUTO);
+    }
+
+    @Test
+    public void testFewerIndexesThanThreads() throws InterruptedException {
+        checkEachIndexOnce(3, 8, 1);
+    }
+
+    @Test
+    public void testEmpty() {
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(0, 4, 1);
+        assertFalse(scheduler.next(2, new int[2]));
+    }
+
+    @Test
+    public void testStealFromIdleThread() {
+        // thread 1 never runs, so thread 0 must steal all of its work
+        WorkStealingScheduler scheduler = new WorkStealingScheduler(100, 2, 1);
+        int[] range = new int[2];
+        int count = 0;
+        while (scheduler.next(0, range))
+            count += range[1] - range[0];
+        assertEquals(100, count);
+        assertFalse(scheduler.next(1, range));
+    }
+}